@@ -4,26 +4,45 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
+import common.catalogue.Facets;
+import common.deadline.Deadline;
+import common.deadline.DeadlineExceededException;
+import common.gateway.RequestFailedException;
+import common.gateway.ServerBusyException;
+import common.trace.Span;
+import common.trace.Tracer;
 import interfaces.InterfaceSong;
 
 public class MusicClient implements InterfaceSong {
     
+    private static final String TRACE_PREFIX = "traceparent:";
+    public static final int DEFAULT_TIMEOUT_MS = 10_000;
+    
     private InetAddress address;
     private int port;
+    // Plazo de cada petición: conexión, envío y respuesta
+    private int timeoutMs;
     private Socket clientSk;
     private ObjectOutputStream oos;
     private ObjectInputStream ois;
     private Scanner scanner;
     
     public MusicClient(String address, int port) {
+        this(address, port, DEFAULT_TIMEOUT_MS);
+    }
+    
+    public MusicClient(String address, int port, int timeoutMs) {
         try {
             this.port = port;
+            this.timeoutMs = timeoutMs;
             this.address = InetAddress.getByName(address);
             this.scanner = new Scanner(System.in);
         } catch (UnknownHostException e) {
@@ -36,7 +55,7 @@ public class MusicClient implements InterfaceSong {
         System.out.println("Conectando al servidor...");
         
         int choice = 0;
-        while (choice != 6) {
+        while (choice != 8) {
             showMenu();
             choice = scanner.nextInt();
             scanner.nextLine(); // Consumir el salto de línea
@@ -58,6 +77,12 @@ public class MusicClient implements InterfaceSong {
                     searchByGenreMenu();
                     break;
                 case 6:
+                    completeMenu();
+                    break;
+                case 7:
+                    showFacets();
+                    break;
+                case 8:
                     System.out.println("¡Hasta luego!");
                     break;
                 default:
@@ -73,7 +98,9 @@ public class MusicClient implements InterfaceSong {
         System.out.println("3. Mostrar todas las canciones");
         System.out.println("4. Buscar por título");
         System.out.println("5. Buscar por género");
-        System.out.println("6. Salir");
+        System.out.println("6. Autocompletar título o autor");
+        System.out.println("7. Resumen por género, idioma, autor y década");
+        System.out.println("8. Salir");
         System.out.print("Seleccione una opción: ");
     }
     
@@ -111,11 +138,42 @@ public class MusicClient implements InterfaceSong {
         displayResults(results);
     }
     
+    private void completeMenu() {
+        System.out.print("Empiece a escribir un título o autor: ");
+        String prefix = scanner.nextLine();
+        List<String> completions = complete(prefix, "all", 10);
+        if (completions.isEmpty()) {
+            System.out.println("Sin sugerencias.");
+        }
+        for (String completion : completions) {
+            System.out.println("  " + completion);
+        }
+    }
+    
+    private void showFacets() {
+        System.out.print("Género (presione Enter para todos): ");
+        String genre = scanner.nextLine();
+        Facets facets = facets("", genre, "", 10);
+        if (facets == null) {
+            return;
+        }
+        System.out.println("\n=== RESUMEN (" + facets.total + " canciones) ===");
+        printFacet("Géneros", facets.genres);
+        printFacet("Idiomas", facets.languages);
+        printFacet("Autores", facets.authors);
+        printFacet("Décadas", facets.decades);
+    }
+    
+    private static void printFacet(String name, Map<String, Integer> counts) {
+        System.out.println(name + ":");
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            System.out.println("   " + entry.getKey() + ": " + entry.getValue());
+        }
+    }
+    
     private void showAllSongs() {
         try {
-            connect();
-            sendRequest("GET_ALL");
-            List<Song> results = receiveResults();
+            List<Song> results = execute("GET_ALL");
             displayResults(results);
         } catch (Exception e) {
             System.out.println("[Music Client]: Error obteniendo todas las canciones: " + e.getMessage());
@@ -143,8 +201,38 @@ public class MusicClient implements InterfaceSong {
         }
     }
     
-    private void connect() throws IOException {
-        clientSk = new Socket(address, port);
+    /*
+     * Conexión, envío y respuesta bajo un span cliente y dentro de timeoutMs; con traza se
+     * antepone su contexto. El servidor recibe lo que queda del plazo y abandona la petición al
+     * agotarse; aquí, pasado el plazo, la lectura falla y el finally del llamador cierra la conexión.
+     * Con timeoutMs <= 0 no hay plazo.
+     */
+    private <R> R execute(String request) throws IOException, ClassNotFoundException {
+        try (Span span = Tracer.startClientSpan("music.client." + request.split("\\|")[0])) {
+            Deadline deadline = timeoutMs > 0 ? Deadline.after(timeoutMs) : null;
+            connect(deadline);
+            String traceParent = span.traceParent();
+            if (deadline != null) {
+                request = Deadline.PREFIX + deadline.propagate() + "\n" + request;
+            }
+            sendRequest(traceParent == null ? request : TRACE_PREFIX + traceParent + "\n" + request);
+            clientSk.setSoTimeout(remaining(deadline));
+            R response = receiveResults();
+            if (response instanceof List) {
+                span.tag("results", ((List<?>) response).size());
+            }
+            return response;
+        }
+    }
+    
+    // Timeout de socket para lo que queda del plazo; 0 (sin límite) si no hay plazo
+    private static int remaining(Deadline deadline) {
+        return deadline == null ? 0 : (int) deadline.propagate();
+    }
+    
+    private void connect(Deadline deadline) throws IOException {
+        clientSk = new Socket();
+        clientSk.connect(new InetSocketAddress(address, port), remaining(deadline));
         oos = new ObjectOutputStream(clientSk.getOutputStream());
         oos.flush();
         ois = new ObjectInputStream(clientSk.getInputStream());
@@ -155,9 +243,24 @@ public class MusicClient implements InterfaceSong {
         oos.flush();
     }
     
+    // Si el servidor rechaza la petición por carga responde "BUSY|...", si la abandona por plazo
+    // "DEADLINE|..." y si no la puede atender "ERROR|..."
     @SuppressWarnings("unchecked")
-    private List<Song> receiveResults() throws IOException, ClassNotFoundException {
-        return (List<Song>) ois.readObject();
+    private <R> R receiveResults() throws IOException, ClassNotFoundException {
+        Object response = ois.readObject();
+        ServerBusyException busy = ServerBusyException.decode(response);
+        if (busy != null) {
+            throw busy;
+        }
+        DeadlineExceededException expired = DeadlineExceededException.decode(response);
+        if (expired != null) {
+            throw expired;
+        }
+        RequestFailedException failed = RequestFailedException.decode(response);
+        if (failed != null) {
+            throw failed;
+        }
+        return (R) response;
     }
     
     private void closeConnection() {
@@ -173,9 +276,7 @@ public class MusicClient implements InterfaceSong {
     @Override
     public List<Song> searchByTitle(String title) {
         try {
-            connect();
-            sendRequest("SEARCH_TITLE|" + title);
-            return receiveResults();
+            return execute("SEARCH_TITLE|" + title);
         } catch (Exception e) {
             System.out.println("[Music Client]: Error buscando por título: " + e.getMessage());
             return new ArrayList<>();
@@ -187,9 +288,7 @@ public class MusicClient implements InterfaceSong {
     @Override
     public List<Song> searchByGenre(String genre) {
         try {
-            connect();
-            sendRequest("SEARCH_GENRE|" + genre);
-            return receiveResults();
+            return execute("SEARCH_GENRE|" + genre);
         } catch (Exception e) {
             System.out.println("[Music Client]: Error buscando por género: " + e.getMessage());
             return new ArrayList<>();
@@ -201,9 +300,7 @@ public class MusicClient implements InterfaceSong {
     @Override
     public List<Song> searchByAuthor(String author) {
         try {
-            connect();
-            sendRequest("SEARCH_AUTHOR|" + author);
-            return receiveResults();
+            return execute("SEARCH_AUTHOR|" + author);
         } catch (Exception e) {
             System.out.println("[Music Client]: Error buscando por autor: " + e.getMessage());
             return new ArrayList<>();
@@ -215,9 +312,7 @@ public class MusicClient implements InterfaceSong {
     @Override
     public List<Song> searchByMultipleCriteria(String title, String genre, String author) {
         try {
-            connect();
-            sendRequest("SEARCH_MULTIPLE|" + title + "|" + genre + "|" + author);
-            return receiveResults();
+            return execute("SEARCH_MULTIPLE|" + title + "|" + genre + "|" + author);
         } catch (Exception e) {
             System.out.println("[Music Client]: Error en búsqueda múltiple: " + e.getMessage());
             return new ArrayList<>();
@@ -225,4 +320,72 @@ public class MusicClient implements InterfaceSong {
             closeConnection();
         }
     }
+    
+    @Override
+    public List<Song> searchRanked(String query, int limit) {
+        try {
+            return execute("RANKED|" + query + "|" + limit);
+        } catch (Exception e) {
+            System.out.println("[Music Client]: Error en búsqueda por relevancia: " + e.getMessage());
+            return new ArrayList<>();
+        } finally {
+            closeConnection();
+        }
+    }
+    
+    @Override
+    public List<String> complete(String prefix, String field, int limit) {
+        try {
+            return execute("COMPLETE|" + prefix + "|" + field + "|" + limit);
+        } catch (Exception e) {
+            System.out.println("[Music Client]: Error autocompletando: " + e.getMessage());
+            return new ArrayList<>();
+        } finally {
+            closeConnection();
+        }
+    }
+    
+    @Override
+    public Facets facets(String title, String genre, String author, int limit) {
+        try {
+            return execute("FACETS|" + title + "|" + genre + "|" + author + "|" + limit);
+        } catch (Exception e) {
+            System.out.println("[Music Client]: Error obteniendo el resumen: " + e.getMessage());
+            return null;
+        } finally {
+            closeConnection();
+        }
+    }
+    
+    // Escrituras: el servidor devuelve la canción afectada, o una lista vacía si no se aplicó
+    @Override
+    public boolean addSong(Song song) {
+        return write("ADD_SONG|" + songFields(song));
+    }
+    
+    @Override
+    public boolean updateSong(String title, String author, Song song) {
+        return write("UPDATE_SONG|" + title + "|" + author + "|" + songFields(song));
+    }
+    
+    @Override
+    public boolean deleteSong(String title, String author) {
+        return write("DELETE_SONG|" + title + "|" + author);
+    }
+    
+    private static String songFields(Song song) {
+        return song.getTitle() + "|" + song.getGenre() + "|" + song.getAuthor() + "|" + song.getLanguage() + "|" + song.getYear();
+    }
+    
+    private boolean write(String request) {
+        try {
+            List<Song> applied = execute(request);
+            return !applied.isEmpty();
+        } catch (Exception e) {
+            System.out.println("[Music Client]: Error modificando el catálogo: " + e.getMessage());
+            return false;
+        } finally {
+            closeConnection();
+        }
+    }
 }
\ No newline at end of file
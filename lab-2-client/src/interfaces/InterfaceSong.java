@@ -3,10 +3,25 @@ package interfaces;
 import java.util.List;
 
 import classes.Song;
+import common.catalogue.Facets;
 
 public interface InterfaceSong {
     List<Song> searchByTitle(String title);
     List<Song> searchByGenre(String genre);
     List<Song> searchByAuthor(String author);
     List<Song> searchByMultipleCriteria(String title, String genre, String author);
+    
+    // Las limit canciones más relevantes para query (título, autor y género, tolera erratas), de más a menos
+    List<Song> searchRanked(String query, int limit);
+    
+    // Hasta limit títulos o autores que empiezan por prefix, los de más canciones primero (field = title|author|all)
+    List<String> complete(String prefix, String field, int limit);
+    
+    // Canciones por género, idioma, autor y década de las que cumplen los criterios, sin enviarlas
+    Facets facets(String title, String genre, String author, int limit);
+    
+    // Cambios en caliente; una canción se identifica por título + autor
+    boolean addSong(Song song);
+    boolean updateSong(String title, String author, Song song);
+    boolean deleteSong(String title, String author);
 }
\ No newline at end of file
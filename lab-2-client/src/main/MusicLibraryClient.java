@@ -1,11 +1,16 @@
 package main;
 
 import classes.MusicClient;
+import common.bench.BenchmarkOptions;
+import common.trace.Tracer;
 
 public class MusicLibraryClient {
     
     public static void main(String[] args) {
-        MusicClient client = new MusicClient("127.0.0.1", 1804);
+        // --trace-sample=1 traza todas las consultas (traces-lab-2-client.jsonl); --timeout-ms=10000 por petición
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+        Tracer.configure("lab-2-client", options.getDouble("trace-sample", Tracer.getSampleRate()), options.get("trace-file", null));
+        MusicClient client = new MusicClient("127.0.0.1", 1804, options.getInt("timeout-ms", MusicClient.DEFAULT_TIMEOUT_MS));
         client.startClient();
     }
 }   
\ No newline at end of file
@@ -1,40 +1,91 @@
 package classes;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.net.ServerSocket;
-import java.net.Socket;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import common.catalogue.Autocomplete;
+import common.catalogue.CatalogueStore;
+import common.catalogue.Facets;
+import common.catalogue.MappedCatalogue;
+import common.catalogue.SearchEngine;
+import common.catalogue.SnapshotCatalogue;
+import common.catalogue.SongCodec;
+import common.catalogue.SongFilter;
+import common.gateway.AdmissionControl;
+import common.gateway.SocketFrontend;
+import common.log.Log;
+import common.log.Logger;
 import interfaces.InterfaceSong;
 
 public class MusicServer implements InterfaceSong {
     
+    private static final Logger LOG = Log.getLogger("Music Server");
+    private static final SongCodec<Song> CODEC = SongCodec.of(Song::new, Song::getTitle, Song::getGenre,
+        Song::getAuthor, Song::getLanguage, Song::getYear);
+    // COMPLETE devuelve como mucho estas sugerencias (10 si no se indica)
+    public static final int MAX_COMPLETIONS = SearchEngine.MAX_COMPLETIONS;
+    
     private int port;
     private ServerSocket serverSk;
-    private Socket clientSk;
-    private ObjectOutputStream oos;
-    private ObjectInputStream ois;
-    private List<Song> database;
+    // Catálogo e índices; el protocolo de socket lo atiende SocketFrontend sobre el mismo motor
+    private final SearchEngine<Song> engine;
     
     public MusicServer(int port) throws IOException {
+        this(port, new SnapshotCatalogue<>(defaultCatalogue(), MusicServer::keyOf));
+    }
+    
+    // Servidor sobre un catálogo ya creado (p. ej. el de openStore)
+    public MusicServer(int port, SnapshotCatalogue<Song> catalogue) throws IOException {
+        this(port, new SearchEngine<>(catalogue, CODEC));
+    }
+    
+    // Servidor de solo lectura sobre un fichero de catálogo (ver openMapped); las escrituras se rechazan
+    public MusicServer(int port, MappedCatalogue<Song> mapped) throws IOException {
+        this(port, new SearchEngine<>(mapped, CODEC));
+    }
+    
+    private MusicServer(int port, SearchEngine<Song> engine) throws IOException {
         this.port = port;
+        this.engine = engine;
         try {
             this.serverSk = new ServerSocket(port, 100);
-            this.oos = null;
-            this.ois = null;
-            initializeDatabase();
-            System.out.println("[Music Server]: Servidor iniciado correctamente en puerto " + port);
+            LOG.info("Servidor iniciado correctamente en puerto {}", port);
         } catch (IOException e) {
-            System.err.println("[Music Server]: Error al iniciar servidor en puerto " + port);
-            System.err.println("[Music Server]: " + e.getMessage());
+            LOG.error("Error al iniciar servidor en puerto {}: {}", port, e.getMessage());
             throw e; // Re-lanzar la excepción para que el programa no continúe
         }
     }
     
-    private void initializeDatabase() {
-        database = new ArrayList<>();
+    public SearchEngine<Song> engine() {
+        return engine;
+    }
+    
+    // Servidor sin socket con un catálogo inicial dado (benchmarks y pruebas locales)
+    public MusicServer(List<Song> database) {
+        this.port = -1;
+        this.engine = new SearchEngine<>(new SnapshotCatalogue<>(database, MusicServer::keyOf), CODEC);
+    }
+    
+    // Fichero de catálogo (p. ej. el catalogue.snap de --data-dir) para buscar sin cargarlo
+    public static MappedCatalogue<Song> openMapped(Path path, boolean verify) throws IOException {
+        return MappedCatalogue.open(path, CODEC, verify);
+    }
+    
+    // Catálogo persistente en directory; el de ejemplo solo se usa si el directorio está vacío
+    public static CatalogueStore<Song> openStore(Path directory, CatalogueStore.Sync sync, long checkpointBytes)
+            throws IOException {
+        return CatalogueStore.open(directory, CODEC, MusicServer::keyOf, MusicServer::defaultCatalogue, sync,
+            checkpointBytes);
+    }
+    
+    static String keyOf(Song song) {
+        return SnapshotCatalogue.key(song.getTitle(), song.getAuthor());
+    }
+    
+    private static List<Song> defaultCatalogue() {
+        List<Song> database = new ArrayList<>();
         
         // Base de datos con canciones de ejemplo
         database.add(new Song("Bohemian Rhapsody", "Rock", "Queen", "English", 1975));
@@ -52,171 +103,81 @@ public class MusicServer implements InterfaceSong {
         database.add(new Song("Careless Whisper", "Pop", "George Michael", "English", 1984));
         database.add(new Song("Sweet Child O' Mine", "Rock", "Guns N' Roses", "English", 1987));
         database.add(new Song("Thunderstruck", "Rock", "AC/DC", "English", 1990));
+        return database;
     }
     
-    public void listening() {
+    // Límites de conexiones, concurrencia y ritmo por cliente: ver AdmissionControl.fromOptions
+    public void listening(AdmissionControl admission) {
         if (serverSk == null) {
-            System.err.println("[Music Server]: No se puede iniciar el servidor - ServerSocket es null");
+            LOG.error("No se puede iniciar el servidor - ServerSocket es null");
             return;
         }
-        
-        try {
-            System.out.println("[Music Server]: Esperando conexiones en puerto " + port);
-            
-            while (true) {
-                clientSk = serverSk.accept();
-                oos = new ObjectOutputStream(clientSk.getOutputStream());
-                oos.flush();
-                ois = new ObjectInputStream(clientSk.getInputStream());
-                System.out.println("[Music Server]: Cliente conectado");
-                
-                try {
-                    while (true) {
-                        String request = (String) ois.readObject();
-                        if (request == null) {
-                            break;
-                        }
-                        
-                        System.out.println("[Music Server]: Solicitud recibida: " + request);
-                        processRequest(request);
-                    }
-                } catch (Exception e) {
-                    System.out.println("[Music Server]: Cliente desconectado");
-                } finally {
-                    closeClient();
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("[Music Server]: Error en el servidor: " + e.getMessage());
-        }
+        new SocketFrontend<>(engine, admission).serve(serverSk);
     }
     
-    private void processRequest(String request) {
-        try {
-            String[] parts = request.split("\\|");
-            String action = parts[0];
-            List<Song> results = new ArrayList<>();
-            
-            switch (action) {
-                case "SEARCH_TITLE":
-                    if (parts.length > 1) {
-                        results = searchByTitle(parts[1]);
-                    }
-                    break;
-                case "SEARCH_GENRE":
-                    if (parts.length > 1) {
-                        results = searchByGenre(parts[1]);
-                    }
-                    break;
-                case "SEARCH_AUTHOR":
-                    if (parts.length > 1) {
-                        results = searchByAuthor(parts[1]);
-                    }
-                    break;
-                case "SEARCH_MULTIPLE":
-                    String title = parts.length > 1 ? parts[1] : "";
-                    String genre = parts.length > 2 ? parts[2] : "";
-                    String author = parts.length > 3 ? parts[3] : "";
-                    results = searchByMultipleCriteria(title, genre, author);
-                    break;
-                case "GET_ALL":
-                    results = new ArrayList<>(database);
-                    break;
-                default:
-                    System.out.println("[Music Server]: Acción no reconocida: " + action);
-                    break;
-            }
-            
-            sendResults(results);
-        } catch (Exception e) {
-            System.out.println("[Music Server]: Error procesando solicitud: " + e.getMessage());
-        }
+    @Override
+    public List<Song> searchByTitle(String title) {
+        return engine.search(new SongFilter(title, null, null));
     }
     
-    private void sendResults(List<Song> results) {
-        try {
-            oos.writeObject(results);
-            oos.flush();
-            System.out.println("[Music Server]: Enviados " + results.size() + " resultados");
-        } catch (Exception e) {
-            System.out.println("[Music Server]: Error enviando resultados: " + e.getMessage());
-        }
+    @Override
+    public List<Song> searchByGenre(String genre) {
+        return engine.search(new SongFilter(null, genre, null));
     }
     
-    private void closeClient() {
-        try {
-            if (ois != null) ois.close();
-            if (oos != null) oos.close();
-            if (clientSk != null) clientSk.close();
-        } catch (Exception e) {
-            System.out.println("[Music Server]: Error cerrando conexión: " + e.getMessage());
-        }
+    @Override
+    public List<Song> searchByAuthor(String author) {
+        return engine.search(new SongFilter(null, null, author));
     }
     
     @Override
-    public List<Song> searchByTitle(String title) {
-        List<Song> results = new ArrayList<>();
-        for (Song song : database) {
-            if (song.getTitle().toLowerCase().contains(title.toLowerCase())) {
-                results.add(song);
-            }
-        }
-        return results;
+    public List<Song> searchByMultipleCriteria(String title, String genre, String author) {
+        return engine.search(new SongFilter(title, genre, author));
     }
     
+    // limit se ajusta a 1..SearchEngine.MAX_RANKED
     @Override
-    public List<Song> searchByGenre(String genre) {
-        List<Song> results = new ArrayList<>();
-        for (Song song : database) {
-            if (song.getGenre().toLowerCase().contains(genre.toLowerCase())) {
-                results.add(song);
-            }
-        }
-        return results;
+    public List<Song> searchRanked(String query, int limit) {
+        return engine.ranked(query, Math.max(1, Math.min(limit, SearchEngine.MAX_RANKED)));
     }
     
     @Override
-    public List<Song> searchByAuthor(String author) {
-        List<Song> results = new ArrayList<>();
-        for (Song song : database) {
-            if (song.getAuthor().toLowerCase().contains(author.toLowerCase())) {
-                results.add(song);
-            }
+    public List<String> complete(String prefix, String field, int limit) {
+        List<String> texts = new ArrayList<>();
+        for (Autocomplete.Completion completion : engine.complete(prefix, Autocomplete.Field.of(field), limit)) {
+            texts.add(completion.text);
         }
-        return results;
+        return texts;
     }
     
     @Override
-    public List<Song> searchByMultipleCriteria(String title, String genre, String author) {
-        List<Song> results = new ArrayList<>();
-        for (Song song : database) {
-            boolean matches = true;
-            
-            if (!title.isEmpty() && !song.getTitle().toLowerCase().contains(title.toLowerCase())) {
-                matches = false;
-            }
-            if (!genre.isEmpty() && !song.getGenre().toLowerCase().contains(genre.toLowerCase())) {
-                matches = false;
-            }
-            if (!author.isEmpty() && !song.getAuthor().toLowerCase().contains(author.toLowerCase())) {
-                matches = false;
-            }
-            
-            if (matches) {
-                results.add(song);
-            }
-        }
-        return results;
+    public Facets facets(String title, String genre, String author, int limit) {
+        return engine.facets(new SongFilter(title, genre, author), limit);
+    }
+    
+    @Override
+    public boolean addSong(Song song) {
+        return engine.add(song);
+    }
+    
+    @Override
+    public boolean updateSong(String title, String author, Song song) {
+        return engine.update(SearchEngine.key(title, author), song);
+    }
+    
+    @Override
+    public boolean deleteSong(String title, String author) {
+        return engine.remove(SearchEngine.key(title, author)) != null;
     }
     
     public void close() {
         try {
             if (serverSk != null && !serverSk.isClosed()) {
                 serverSk.close();
-                System.out.println("[Music Server]: Servidor cerrado correctamente");
+                LOG.info("Servidor cerrado correctamente");
             }
         } catch (IOException e) {
-            System.out.println("[Music Server]: Error cerrando servidor: " + e.getMessage());
+            LOG.error("Error cerrando servidor: {}", e.getMessage());
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package main;
+
+import classes.Song;
+import common.bench.BenchmarkOptions;
+import common.bench.MicroBenchmark;
+import common.bench.SyntheticCatalogue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Benchmark del códec del protocolo de sockets: serialización Java de ArrayList<Song>
+ * con un ObjectOutputStream nuevo por respuesta, igual que MusicServer.sendResults.
+ * Ejemplo: java main.CodecBenchmark --sizes=1,100,10000 --json=codec-lab2.json
+ */
+public class CodecBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {1, 10, 100, 1_000, 10_000, 100_000};
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+        int[] sizes = options.getIntList("sizes", DEFAULT_SIZES);
+        long seed = options.getLong("seed", 42);
+
+        MicroBenchmark bench = MicroBenchmark.fromOptions(options);
+
+        for (int size : sizes) {
+            ArrayList<Song> results = new ArrayList<>(SyntheticCatalogue.generate(size, seed, Song::new));
+            byte[] encoded = encode(results);
+
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("codec", "java-serialization");
+            params.put("songs", String.valueOf(size));
+
+            bench.run("lab2.codec.encode", params, () -> encode(results))
+                .addSecondaryMetric("wire.bytes", encoded.length)
+                .addSecondaryMetric("wire.bytes.perSong", (double) encoded.length / size);
+            bench.run("lab2.codec.decode", params, () -> decode(encoded))
+                .addSecondaryMetric("wire.bytes", encoded.length)
+                .addSecondaryMetric("wire.bytes.perSong", (double) encoded.length / size);
+        }
+
+        bench.printSummary();
+        bench.writeJson(Paths.get(options.get("json", "codec-lab2.json")));
+    }
+
+    static byte[] encode(List<Song> results) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(buffer);
+        oos.writeObject(results);
+        oos.flush();
+        return buffer.toByteArray();
+    }
+
+    static Object decode(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return ois.readObject();
+        }
+    }
+}
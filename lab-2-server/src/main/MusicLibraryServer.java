@@ -1,29 +1,73 @@
 package main;
 
 import classes.MusicServer;
+import classes.Song;
+import common.bench.BenchmarkOptions;
+import common.catalogue.CatalogueStore;
+import common.gateway.AdmissionControl;
+import common.log.Log;
+import common.log.Logger;
+import common.metrics.MetricsHttpServer;
+import common.trace.Tracer;
 import java.io.IOException;
+import java.nio.file.Paths;
 
 public class MusicLibraryServer {
     
+    private static final Logger LOG = Log.getLogger("Music Server");
+    
     public static void main(String[] args) {
         MusicServer server = null;
+        CatalogueStore<Song> store = null;
         
         try {
-            server = new MusicServer(1804);
+            BenchmarkOptions options = BenchmarkOptions.parse(args);
+            // --data-dir=data guarda el catálogo (snapshot + log de cambios) y lo recupera al reiniciar;
+            // --wal-sync=always|none y --checkpoint-mb=64 como en lab3
+            // --catalogue-file=data/catalogue.snap: solo lectura, busca sobre el fichero mapeado (--verify comprueba el CRC)
+            // --max-concurrent, --max-queued, --queue-ms, --client-rate, --max-connections y --idle-ms: ver AdmissionControl
+            String dataDir = options.get("data-dir", null);
+            String catalogueFile = options.get("catalogue-file", null);
+            if (catalogueFile != null) {
+                server = new MusicServer(1804, MusicServer.openMapped(Paths.get(catalogueFile),
+                    options.getBoolean("verify", false)));
+            } else if (dataDir != null) {
+                store = MusicServer.openStore(Paths.get(dataDir),
+                    CatalogueStore.Sync.valueOf(options.get("wal-sync", "always").toUpperCase()),
+                    options.getLong("checkpoint-mb", 64) << 20);
+                server = new MusicServer(1804, store.catalogue());
+            } else {
+                server = new MusicServer(1804);
+            }
+            
+            // Métricas en JMX y en http://127.0.0.1:9402/metrics (--metrics-port=-1 lo desactiva)
+            MetricsHttpServer.expose("lab-2", options.getInt("metrics-port", 9402));
+            server.engine().exposeGauges();
+            // --trace-sample=0.01 muestrea también las peticiones que llegan sin traceparent
+            Tracer.configure("lab-2-server", options.getDouble("trace-sample", Tracer.getSampleRate()),
+                options.get("trace-file", null));
             
             // Agregar shutdown hook para cerrar el servidor correctamente
             final MusicServer finalServer = server;
+            final CatalogueStore<Song> finalStore = store;
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
-                System.out.println("\n[Music Server]: Cerrando servidor...");
+                LOG.info("Cerrando servidor...");
                 finalServer.close();
+                if (finalStore != null) {
+                    try {
+                        finalStore.close();
+                    } catch (IOException e) {
+                        LOG.error("No se pudo cerrar el catálogo: {}", e.getMessage());
+                    }
+                }
             }));
             
-            server.listening();
+            server.listening(AdmissionControl.fromOptions("socket", options));
             
         } catch (IOException e) {
-            System.err.println("[Music Server]: No se pudo iniciar el servidor en el puerto 1802");
-            System.err.println("[Music Server]: Verifica que el puerto no esté siendo usado por otro proceso");
-            System.err.println("[Music Server]: Error: " + e.getMessage());
+            LOG.error("No se pudo iniciar el servidor en el puerto 1802");
+            LOG.error("Verifica que el puerto no esté siendo usado por otro proceso");
+            LOG.error("Error: {}", e.getMessage());
             
             // Sugerencias para el usuario
             System.out.println("\nSugerencias para solucionar el problema:");
@@ -33,7 +77,7 @@ public class MusicLibraryServer {
             
             System.exit(1);
         } catch (Exception e) {
-            System.err.println("[Music Server]: Error inesperado: " + e.getMessage());
+            LOG.error("Error inesperado: {}", e.getMessage());
             if (server != null) {
                 server.close();
             }
@@ -4,9 +4,17 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import common.bench.AdaptiveRunner;
+import common.bench.BenchmarkOptions;
+import common.bench.ScalingModel;
+import common.convert.ConverterBackend;
+import common.metrics.MetricsHttpServer;
+import common.results.BenchmarkResults;
+import common.results.IterationResult;
+import common.results.ThreadRun;
 
 public class BenchmarkRunner {
-    private static final String[] TEST_URLS = {
+    static final String[] TEST_URLS = {
         "https://www.google.com", "https://www.github.com", "https://stackoverflow.com",
         "https://www.wikipedia.org", "https://www.oracle.com", "https://www.mozilla.org",
         "https://www.w3.org", "https://www.apache.org", "https://www.nginx.com",
@@ -24,15 +32,32 @@ public class BenchmarkRunner {
     private final List<BenchmarkResult> results;
     private final String reportDir;
     private final String baseOutputDir;
+    private final AdaptiveRunner engine;
+    private FixtureServer fixtures;
+    private BenchmarkResults structuredResults;
     public BenchmarkRunner(String chromePath, String outputDir) {
+        this(chromePath, outputDir, new AdaptiveRunner(1, 3, 10, 0.05, 0.95, 3000));
+    }
+    
+    public BenchmarkRunner(String chromePath, String outputDir, AdaptiveRunner engine) {
+        this(new ChromeProcessBackend(chromePath), outputDir, engine);
+    }
+    
+    public BenchmarkRunner(ConverterBackend backend, String outputDir, AdaptiveRunner engine) {
+        this.engine = engine;
         this.baseOutputDir = outputDir;
-        this.converter = new WebToPDFConverter(outputDir, chromePath);
+        this.converter = new WebToPDFConverter(outputDir, backend);
         this.results = new ArrayList<>();
         this.reportDir = "/home/santiago/Repositorios/Laboratorios-Sistemas-Distribuidos/lab-6/benchmark_reports";
         new ConcurrentHashMap<>();
         createReportDirectory();
     }
     
+    // Con servidor de fixtures las URLs se resuelven contra las copias locales en lugar de los sitios reales
+    public void useFixtures(FixtureServer fixtures) {
+        this.fixtures = fixtures;
+    }
+    
     private void createReportDirectory() {
         try {
             Files.createDirectories(Paths.get(reportDir));
@@ -57,7 +82,25 @@ public class BenchmarkRunner {
         }
         
         System.out.println("Iniciando benchmark con " + urlCount + " URLs...");
-        List<String> urls = Arrays.asList(TEST_URLS).subList(0, urlCount);
+        List<String> siteUrls = Arrays.asList(TEST_URLS).subList(0, urlCount);
+        List<String> urls = fixtures != null ? fixtures.localUrls(siteUrls) : siteUrls;
+        if (fixtures != null) {
+            System.out.println("Modo sin red: servidor de fixtures local (" + fixtures.describe() + ")");
+        }
+        
+        structuredResults = new BenchmarkResults("lab-6 BenchmarkRunner")
+            .putConfig("urlCount", urlCount)
+            .putConfig("warmupIterations", engine.getWarmupIterations())
+            .putConfig("minIterations", engine.getMinIterations())
+            .putConfig("maxIterations", engine.getMaxIterations())
+            .putConfig("targetRelativeError", engine.getTargetRelativeError())
+            .putConfig("confidence", engine.getConfidence())
+            .putConfig("minThreads", 1)
+            .putConfig("maxThreads", 16)
+            .putConfig("backend", converter.getBackend().name())
+            .putConfig("target", fixtures != null ? "fixtures" : "online")
+            .putConfig("fixtureServer", fixtures != null ? fixtures.describe() : "-")
+            .putConfig("urls", String.join(" ", urls));
         
         // Warmup del sistema con 1 hilo
         performWarmup(urls);
@@ -68,44 +111,27 @@ public class BenchmarkRunner {
             
             createThreadOutputDirectory(threads);
             cleanOutputDirectory(threads);
+            ThreadRun threadRun = new ThreadRun(threads, urls.size());
             
-            // Múltiples iteraciones con pausa para estabilización
-            long totalTime = 0;
-            int validIterations = 0;
-            int maxIterations = 5;
-            
-            for (int i = 0; i < maxIterations; i++) {
-                // Pausa antes de cada iteración para estabilizar el sistema
-                if (i > 0) {
-                    try {
-                        Thread.sleep(3000);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
-                }
-                
+            // Iteraciones hasta que el intervalo de confianza sea suficientemente estrecho
+            final int threadCount = threads;
+            AdaptiveRunner.Measurement measurement = engine.measure((iteration, warmup) -> {
                 // Limpiar directorio antes de cada iteración
-                cleanOutputDirectory(threads);
+                cleanOutputDirectory(threadCount);
                 
                 // Forzar garbage collection antes de la medición
                 System.gc();
                 Thread.yield();
                 
-                WebToPDFConverter.ConversionResult result = converter.convertUrls(urls, threads);
-                
-                // Descartar primeras iteraciones si son outliers
-                if (i >= 1) {
-                    totalTime += result.executionTimeMs;
-                    validIterations++;
-                }
-                
-                System.out.printf("  Iteración %d: %dms\n", i + 1, result.executionTimeMs);
-            }
+                WebToPDFConverter.ConversionResult result = converter.convertUrls(urls, threadCount);
+                threadRun.addIteration(new IterationResult(iteration, warmup, result.executionTimeMs,
+                    result.successfulPdfs.size(), result.errors.size(), result.jobLatenciesMs));
+                return result.executionTimeMs;
+            });
             
-            long avgTime = validIterations > 0 ? totalTime / validIterations : 0;
-            results.add(new BenchmarkResult(threads, avgTime, urls.size()));
-            System.out.printf("  Tiempo promedio (%d iteraciones): %dms\n", validIterations, avgTime);
+            results.add(new BenchmarkResult(threads, measurement, urls.size()));
+            structuredResults.addRun(threadRun);
+            System.out.println("  " + measurement.summary());
             
             // Pausa más larga entre configuraciones de hilos
             try {
@@ -176,7 +202,7 @@ public class BenchmarkRunner {
             writer.println("=== INFORME DE BENCHMARK - WEB TO PDF CONVERTER ===");
             writer.println("Fecha: " + LocalDateTime.now());
             writer.println("URLs procesadas: " + results.get(0).urlCount);
-            writer.println("Iteraciones por prueba: 4 (descartando primera)");
+            writer.println("Iteraciones por prueba: adaptativas (" + engine.describe() + ")");
             writer.println("Hilos probados: 1 a 16");
             writer.println();
             
@@ -227,6 +253,9 @@ public class BenchmarkRunner {
             // Detectar punto de saturación
             detectSaturationPoint(writer, baselineTime);
             
+            writeStatistics(writer);
+            writeScalingModels(writer, baselineTime);
+            
             generateChartData(writer);
             
         } catch (IOException e) {
@@ -234,6 +263,15 @@ public class BenchmarkRunner {
         }
         
         System.out.println("\nReporte generado: " + reportFile);
+        
+        // Resultados estructurados junto al reporte de texto
+        String jsonFile = reportFile.replace(".txt", ".json");
+        try {
+            structuredResults.writeJson(Paths.get(jsonFile));
+            System.out.println("Resultados JSON: " + jsonFile);
+        } catch (IOException e) {
+            System.err.println("Error guardando resultados JSON: " + e.getMessage());
+        }
         displaySummary();
     }
     
@@ -257,6 +295,42 @@ public class BenchmarkRunner {
                       " y " + Math.min(16, saturationPoint + 2) + " hilos para rendimiento óptimo");
     }
     
+    private void writeStatistics(PrintWriter writer) {
+        writer.println();
+        writer.println("=== ESTADÍSTICAS POR CONFIGURACIÓN ===");
+        writer.printf("%-6s %-4s %-10s %-10s %-10s %-10s %-10s %-8s %-9s %-9s\n",
+            "Hilos", "n", "Media", "±IC", "Mediana", "p90", "p99", "CV", "Outliers", "Converge");
+        for (BenchmarkResult result : results) {
+            AdaptiveRunner.Measurement m = result.measurement;
+            writer.printf("%-6d %-4d %-10.0f %-10.0f %-10.0f %-10.0f %-10.0f %-8.3f %-9d %-9s\n",
+                result.threadCount, m.all.count(), m.meanMs(), m.ciHalfWidthMs(), m.all.median(),
+                m.all.percentile(90), m.all.percentile(99), m.kept.coefficientOfVariation(),
+                m.outlierCount(), m.converged ? "sí" : "no");
+        }
+    }
+    
+    private void writeScalingModels(PrintWriter writer, long baselineTime) {
+        writer.println();
+        writer.println("=== MODELOS DE ESCALABILIDAD ===");
+        int[] threads = new int[results.size()];
+        double[] speedups = new double[results.size()];
+        for (int i = 0; i < results.size(); i++) {
+            threads[i] = results.get(i).threadCount;
+            speedups[i] = (double) baselineTime / results.get(i).avgExecutionTimeMs;
+        }
+        try {
+            ScalingModel amdahl = ScalingModel.fitAmdahl(threads, speedups);
+            ScalingModel usl = ScalingModel.fitUsl(threads, speedups);
+            writer.println(amdahl);
+            writer.println(usl);
+            if (!Double.isInfinite(usl.peakThreads())) {
+                writer.println("Según USL, más de " + Math.round(usl.peakThreads()) + " hilo(s) empeora el tiempo total");
+            }
+        } catch (IllegalArgumentException e) {
+            writer.println("No se pudo ajustar el modelo: " + e.getMessage());
+        }
+    }
+    
     private void generateChartData(PrintWriter writer) {
         writer.println();
         writer.println("=== DATOS PARA GRÁFICO (CSV) ===");
@@ -293,11 +367,14 @@ public class BenchmarkRunner {
         final int threadCount;
         final long avgExecutionTimeMs;
         final int urlCount;
+        final AdaptiveRunner.Measurement measurement;
         
-        BenchmarkResult(int threads, long time, int urls) {
+        // El tiempo representativo es la media sin outliers
+        BenchmarkResult(int threads, AdaptiveRunner.Measurement measurement, int urls) {
             this.threadCount = threads;
-            this.avgExecutionTimeMs = time;
+            this.avgExecutionTimeMs = Math.round(measurement.meanMs());
             this.urlCount = urls;
+            this.measurement = measurement;
         }
     }
     
@@ -328,7 +405,13 @@ public class BenchmarkRunner {
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
         
-        String chromePath = findChromePath();
+        // Parámetros del motor: --warmup=1 --min-iterations=3 --max-iterations=10 --target-error=0.05
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+        
+        // --backend=chrome|devtools|synthetic[:cpu=5,wait=50,...]; el sintético no necesita Chrome
+        String backendName = options.get("backend", "chrome");
+        String chromePath = backendName.startsWith("synthetic") ? null : findChromePath();
+        ConverterBackend backend = WebToPDFConverter.createBackend(backendName, chromePath);
         
         System.out.print("Directorio de salida [/home/santiago/Repositorios/Laboratorios-Sistemas-Distribuidos/lab-6/benchmark_output]: ");
         String outputDir = scanner.nextLine().trim();
@@ -353,8 +436,37 @@ public class BenchmarkRunner {
             }
         }
         
-        BenchmarkRunner runner = new BenchmarkRunner(chromePath, outputDir);
-        runner.runBenchmark(urlCount);
+        BenchmarkRunner runner = new BenchmarkRunner(backend, outputDir,
+            AdaptiveRunner.fromOptions(options, 3000));
+        
+        // --metrics-port=N publica las métricas durante el benchmark (por defecto solo JMX)
+        MetricsHttpServer metricsServer = MetricsHttpServer.expose("lab-6", options.getInt("metrics-port", -1));
+        
+        // Por defecto contra el servidor de fixtures local; --online usa los sitios reales
+        FixtureServer fixtures = null;
+        if (!options.getBoolean("online", false)) {
+            fixtures = new FixtureServer(Paths.get(options.get("fixtures", "fixtures")),
+                options.getLong("latency-ms", 50), options.getLong("bandwidth-kbps", 0) * 1024 / 8);
+            try {
+                fixtures.start(0);
+            } catch (IOException e) {
+                System.err.println("No se pudo iniciar el servidor de fixtures: " + e.getMessage());
+                System.exit(1);
+            }
+            runner.useFixtures(fixtures);
+        }
+        
+        try {
+            runner.runBenchmark(urlCount);
+        } finally {
+            if (fixtures != null) {
+                fixtures.stop();
+            }
+            backend.close();
+            if (metricsServer != null) {
+                metricsServer.stop();
+            }
+        }
         
         scanner.close();
     }
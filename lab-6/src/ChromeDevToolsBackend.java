@@ -0,0 +1,306 @@
+import java.io.*;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import common.convert.Capabilities;
+import common.convert.ConversionOutcome;
+import common.convert.ConversionRequest;
+import common.convert.ConverterBackend;
+import common.convert.Health;
+import common.json.JsonReader;
+import common.json.JsonWriter;
+import common.log.Log;
+import common.log.Logger;
+
+/*
+ * Un solo Chrome headless persistente controlado por el protocolo DevTools (CDP): cada
+ * conversión abre una pestaña, navega, espera el evento load e imprime con
+ * Page.printToPDF. Evita arrancar un navegador por URL, que es la mayor parte del
+ * tiempo de ChromeProcessBackend con páginas pequeñas.
+ */
+public class ChromeDevToolsBackend implements ConverterBackend {
+    private static final Logger LOG = Log.getLogger("Chrome DevTools");
+    private static final Pattern DEVTOOLS_URL = Pattern.compile("DevTools listening on (ws://\\S+)");
+    private static final long STARTUP_TIMEOUT_MS = 20_000;
+
+    private final String chromePath;
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final Map<Integer, CompletableFuture<Map<String, Object>>> pending = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Void>> loadEvents = new ConcurrentHashMap<>();
+    private Process chrome;
+    private Path profileDir;
+    private WebSocket socket;
+
+    public ChromeDevToolsBackend(String chromePath) {
+        this.chromePath = chromePath;
+    }
+
+    // Arranca Chrome si no está en marcha; si murió sin cerrar la conexión, lo sustituye
+    public synchronized void start() throws IOException {
+        if (socket != null && chrome != null && chrome.isAlive()) {
+            return;
+        }
+        if (socket != null || chrome != null) {
+            close();
+        }
+        profileDir = Files.createTempDirectory("chrome-cdp-");
+        ProcessBuilder pb = new ProcessBuilder(
+            chromePath,
+            "--headless",
+            "--disable-gpu",
+            "--no-sandbox",
+            "--disable-dev-shm-usage",
+            "--remote-debugging-port=0",
+            "--user-data-dir=" + profileDir,
+            "about:blank"
+        );
+        pb.redirectErrorStream(true);
+        chrome = pb.start();
+
+        // Chrome anuncia la URL del WebSocket del navegador en su salida. La lee otro hilo
+        // (readLine bloquea) que después descarta el resto; aquí se espera con plazo
+        CompletableFuture<String> announced = new CompletableFuture<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(chrome.getInputStream()));
+        Thread drainer = new Thread(() -> {
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Matcher matcher = DEVTOOLS_URL.matcher(line);
+                    if (!announced.isDone() && matcher.find()) {
+                        announced.complete(matcher.group(1));
+                    }
+                }
+            } catch (IOException e) {
+                // Chrome terminó
+            }
+            announced.complete(null);
+        }, "chrome-output");
+        drainer.setDaemon(true);
+        drainer.start();
+        String wsUrl;
+        try {
+            wsUrl = announced.get(STARTUP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            wsUrl = null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            wsUrl = null;
+        }
+        if (wsUrl == null) {
+            close();
+            throw new IOException("Chrome no publicó la URL de DevTools");
+        }
+
+        socket = HttpClient.newHttpClient().newWebSocketBuilder()
+            .buildAsync(URI.create(wsUrl), new Listener())
+            .join();
+    }
+
+    @Override
+    public String name() {
+        return "chrome-devtools";
+    }
+
+    @Override
+    public Capabilities capabilities() {
+        return new Capabilities(Set.of("url"), 0, true);
+    }
+
+    @Override
+    public Health health() {
+        if (chrome == null) {
+            return Health.down("no iniciado");
+        }
+        if (!chrome.isAlive()) {
+            return Health.down("Chrome terminó con código " + chrome.exitValue());
+        }
+        return Health.up("pid " + chrome.pid() + ", " + pending.size() + " comandos pendientes");
+    }
+
+    @Override
+    public ConversionOutcome convert(ConversionRequest request) {
+        long start = System.nanoTime();
+        String targetId = null;
+        try {
+            start();
+            String createdTarget = (String) send(null, "Target.createTarget",
+                json -> json.field("url", "about:blank"), request.timeoutMs).get("targetId");
+            targetId = createdTarget;
+            String sessionId = (String) send(null, "Target.attachToTarget",
+                json -> json.field("targetId", createdTarget).field("flatten", true),
+                request.timeoutMs).get("sessionId");
+
+            CompletableFuture<Void> loaded = new CompletableFuture<>();
+            loadEvents.put(sessionId, loaded);
+            try {
+                send(sessionId, "Page.enable", json -> { }, request.timeoutMs);
+                Map<String, Object> navigation = send(sessionId, "Page.navigate",
+                    json -> json.field("url", request.source), request.timeoutMs);
+                if (navigation.get("errorText") != null) {
+                    return ConversionOutcome.failed("Error de navegación: " + navigation.get("errorText"),
+                        ChromeProcessBackend.elapsedMs(start));
+                }
+                loaded.get(request.timeoutMs, TimeUnit.MILLISECONDS);
+            } finally {
+                loadEvents.remove(sessionId);
+            }
+
+            Map<String, Object> pdf = send(sessionId, "Page.printToPDF",
+                json -> json.field("printBackground", true), request.timeoutMs);
+            Files.write(request.output, Base64.getDecoder().decode((String) pdf.get("data")));
+            return ConversionOutcome.ok(request.output.toString(), ChromeProcessBackend.elapsedMs(start));
+
+        } catch (TimeoutException e) {
+            return ConversionOutcome.failed("Timeout: conversión excedió " + request.timeoutMs / 1000 + " segundos",
+                ChromeProcessBackend.elapsedMs(start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ConversionOutcome.failed("Interrumpido", ChromeProcessBackend.elapsedMs(start));
+        } catch (IOException | ExecutionException | RuntimeException e) {
+            return ConversionOutcome.failed("Error DevTools: " + e.getMessage(), ChromeProcessBackend.elapsedMs(start));
+        } finally {
+            if (targetId != null && socket != null) {
+                String closingTarget = targetId;
+                sendAsync(null, "Target.closeTarget", json -> json.field("targetId", closingTarget));
+            }
+        }
+    }
+
+    private Map<String, Object> send(String sessionId, String method, Consumer<JsonWriter> params, long timeoutMs)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        CompletableFuture<Map<String, Object>> response = sendAsync(sessionId, method, params);
+        try {
+            return response.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } finally {
+            response.cancel(false);
+        }
+    }
+
+    private CompletableFuture<Map<String, Object>> sendAsync(String sessionId, String method, Consumer<JsonWriter> params) {
+        int id = nextId.getAndIncrement();
+        CompletableFuture<Map<String, Object>> response = new CompletableFuture<>();
+        response.whenComplete((r, e) -> pending.remove(id));
+        pending.put(id, response);
+
+        JsonWriter message = new JsonWriter().beginObject().field("id", id).field("method", method);
+        if (sessionId != null) {
+            message.field("sessionId", sessionId);
+        }
+        message.name("params").beginObject();
+        params.accept(message);
+        String text = message.endObject().endObject().toString();
+
+        synchronized (this) {
+            if (socket == null) {
+                // Chrome se cayó mientras tanto (ver lost)
+                response.completeExceptionally(new IOException("Chrome no está en marcha"));
+                return response;
+            }
+            socket.sendText(text, true).join();
+        }
+        return response;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onMessage(String text) {
+        Map<String, Object> message = JsonReader.parseObject(text);
+        Object id = message.get("id");
+        if (id != null) {
+            CompletableFuture<Map<String, Object>> response = pending.get(((Number) id).intValue());
+            if (response == null) {
+                return;
+            }
+            if (message.get("error") != null) {
+                Map<String, Object> error = (Map<String, Object>) message.get("error");
+                response.completeExceptionally(new IOException(String.valueOf(error.get("message"))));
+            } else {
+                response.complete((Map<String, Object>) message.getOrDefault("result", Collections.emptyMap()));
+            }
+        } else if ("Page.loadEventFired".equals(message.get("method"))) {
+            CompletableFuture<Void> loaded = loadEvents.get(message.get("sessionId"));
+            if (loaded != null) {
+                loaded.complete(null);
+            }
+        }
+    }
+
+    private class Listener implements WebSocket.Listener {
+        private final StringBuilder buffer = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            buffer.append(data);
+            if (last) {
+                String text = buffer.toString();
+                buffer.setLength(0);
+                try {
+                    onMessage(text);
+                } catch (RuntimeException e) {
+                    LOG.warn("Mensaje DevTools inválido: {}", e.getMessage());
+                }
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            lost(webSocket, new IOException("Conexión DevTools cerrada: " + reason));
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            lost(webSocket, new IOException("Conexión DevTools perdida: " + error.getMessage(), error));
+        }
+    }
+
+    /*
+     * Chrome se cayó o cerró la conexión: fallan los comandos pendientes y se descartan
+     * conexión y proceso, así la siguiente conversión arranca otro Chrome.
+     */
+    private void lost(WebSocket webSocket, IOException cause) {
+        pending.values().forEach(f -> f.completeExceptionally(cause));
+        synchronized (this) {
+            if (socket == webSocket) {
+                LOG.warn("{}; se arrancará otro Chrome en la siguiente conversión", cause.getMessage());
+                close();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (socket != null) {
+            socket.abort();
+            socket = null;
+        }
+        if (chrome != null) {
+            chrome.destroy();
+            try {
+                if (!chrome.waitFor(5, TimeUnit.SECONDS)) {
+                    chrome.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                chrome.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (profileDir != null) {
+            try (var paths = Files.walk(profileDir)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            } catch (IOException e) {
+                // Ignorar errores de limpieza
+            }
+        }
+        chrome = null;
+        profileDir = null;
+    }
+}
@@ -0,0 +1,71 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import common.convert.Capabilities;
+import common.convert.ConversionOutcome;
+import common.convert.ConversionRequest;
+import common.convert.ConverterBackend;
+import common.convert.Health;
+import common.convert.ProcessRunner;
+
+// Un proceso de Chrome headless por conversión (comportamiento original de ConversionTask)
+public class ChromeProcessBackend implements ConverterBackend {
+    private final String chromePath;
+
+    public ChromeProcessBackend(String chromePath) {
+        this.chromePath = chromePath;
+    }
+
+    @Override
+    public String name() {
+        return "chrome-process";
+    }
+
+    @Override
+    public Capabilities capabilities() {
+        return new Capabilities(Set.of("url"), 0, false);
+    }
+
+    @Override
+    public Health health() {
+        return Files.isExecutable(Paths.get(chromePath))
+            ? Health.up(chromePath)
+            : Health.down("Chrome no encontrado en " + chromePath);
+    }
+
+    @Override
+    public ConversionOutcome convert(ConversionRequest request) {
+        long start = System.nanoTime();
+        try {
+            ProcessBuilder pb = new ProcessBuilder(
+                chromePath,
+                "--headless",
+                "--disable-gpu",
+                "--no-sandbox",
+                "--disable-dev-shm-usage",
+                "--print-to-pdf=" + request.output,
+                request.source
+            );
+
+            ProcessRunner.Result result = ProcessRunner.run(pb, request.timeoutMs);
+            if (result.exitCode != 0) {
+                return ConversionOutcome.failed("Chrome falló con código: " + result.exitCode, elapsedMs(start));
+            }
+            return ConversionOutcome.ok(request.output.toString(), elapsedMs(start));
+
+        } catch (TimeoutException e) {
+            return ConversionOutcome.failed("Timeout: conversión " + e.getMessage(), elapsedMs(start));
+        } catch (IOException e) {
+            return ConversionOutcome.failed("Error IO: " + e.getMessage(), elapsedMs(start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ConversionOutcome.failed("Interrumpido: " + e.getMessage(), elapsedMs(start));
+        }
+    }
+
+    static long elapsedMs(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -1,64 +1,67 @@
-import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.concurrent.Callable;
-import java.util.concurrent.TimeUnit;
+import common.convert.ConversionOutcome;
+import common.convert.ConversionRequest;
+import common.convert.ConverterBackend;
+import common.log.Log;
+import common.log.Logger;
+import common.metrics.Gauge;
+import common.metrics.MetricsRegistry;
 
 public class ConversionTask implements Callable<ConversionTask.Result> {
+    private static final long TIMEOUT_MS = 30_000;
+    private static final Logger LOG = Log.getLogger("Conversion");
+    private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+    private static final Gauge IN_FLIGHT = METRICS.gauge("pdf_conversions_in_flight", "Conversiones en curso");
+    
     private final String url;
     private final String outputPath;
-    private final String chromePath;
+    private final ConverterBackend backend;
     
     public ConversionTask(String url, String outputPath, String chromePath) {
+        this(url, outputPath, new ChromeProcessBackend(chromePath));
+    }
+    
+    public ConversionTask(String url, String outputPath, ConverterBackend backend) {
         this.url = url;
         this.outputPath = outputPath;
-        this.chromePath = chromePath;
+        this.backend = backend;
     }
     
     @Override
     public Result call() {
+        long start = System.nanoTime();
+        IN_FLIGHT.increment();
+        ConversionOutcome outcome;
         try {
-            ProcessBuilder pb = new ProcessBuilder(
-                chromePath,
-                "--headless",
-                "--disable-gpu",
-                "--no-sandbox",
-                "--disable-dev-shm-usage",
-                "--print-to-pdf=" + outputPath,
-                url
-            );
-            
-            pb.redirectErrorStream(true);
-            Process process = pb.start();
-            
-            boolean finished = process.waitFor(30, TimeUnit.SECONDS);
-            
-            if (!finished) {
-                process.destroyForcibly();
-                return new Result(false, outputPath, "Timeout: conversión excedió 30 segundos");
-            }
-            
-            if (process.exitValue() != 0) {
-                return new Result(false, outputPath, "Chrome falló con código: " + process.exitValue());
-            }
-            
-            return new Result(true, outputPath, null);
-            
-        } catch (IOException e) {
-            return new Result(false, outputPath, "Error IO: " + e.getMessage());
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            return new Result(false, outputPath, "Interrumpido: " + e.getMessage());
+            outcome = backend.convert(new ConversionRequest(url, Paths.get(outputPath), TIMEOUT_MS));
+        } finally {
+            IN_FLIGHT.decrement();
+        }
+        String status = outcome.success ? "ok" : "error";
+        if (outcome.success) {
+            LOG.debug("{} -> {} ({} ms, {})", url, outputPath, outcome.durationMs, backend.name());
+        } else {
+            LOG.warn("Error convirtiendo {}: {}", url, outcome.error);
         }
+        METRICS.counter("pdf_conversions_total", "Conversiones terminadas",
+            "backend", backend.name(), "status", status).increment();
+        METRICS.histogram("pdf_conversion_duration_seconds", "Duración de cada conversión",
+            "backend", backend.name(), "status", status).recordValue(System.nanoTime() - start);
+        return new Result(outcome.success, outputPath, outcome.error, outcome.durationMs);
     }
     
     public static class Result {
         public final boolean success;
         public final String outputPath;
         public final String error;
+        public final long durationMs;
         
-        public Result(boolean success, String outputPath, String error) {
+        public Result(boolean success, String outputPath, String error, long durationMs) {
             this.success = success;
             this.outputPath = outputPath;
             this.error = error;
+            this.durationMs = durationMs;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,242 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import common.bench.BenchmarkOptions;
+
+/*
+ * Servidor HTTP local con copias de las páginas del benchmark, para medir el conversor
+ * sin depender de internet. Sirve fixtures/<sitio>.html si existe (grabado con --record)
+ * y si no una página sintética determinista para ese sitio. La latencia y el ancho de
+ * banda por conexión se pueden simular.
+ *
+ *   java FixtureServer --record [--fixtures=fixtures]      graba las páginas de BenchmarkRunner
+ *   java FixtureServer [--port=8090] [--latency-ms=50] [--bandwidth-kbps=2048]
+ */
+public class FixtureServer {
+    // Solo recursos locales: las páginas grabadas no pueden salir a la red al imprimirse
+    private static final String CONTENT_SECURITY_POLICY =
+        "default-src 'self' data:; style-src 'self' 'unsafe-inline' data:; img-src 'self' data:; script-src 'none'";
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final Path fixturesDir;
+    private final long latencyMs;
+    private final long bandwidthBytesPerSecond;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public FixtureServer(Path fixturesDir, long latencyMs, long bandwidthBytesPerSecond) {
+        this.fixturesDir = fixturesDir;
+        this.latencyMs = latencyMs;
+        this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+    }
+
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 64);
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "fixture-server");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    public String describe() {
+        return "latencia " + latencyMs + " ms, ancho de banda " +
+            (bandwidthBytesPerSecond > 0 ? (bandwidthBytesPerSecond * 8 / 1024) + " kbps" : "sin límite");
+    }
+
+    // Cada URL real se sirve en http://127.0.0.1:<puerto>/<sitio>
+    public List<String> localUrls(List<String> urls) {
+        List<String> local = new ArrayList<>();
+        for (String url : urls) {
+            local.add("http://127.0.0.1:" + getPort() + "/" + siteName(url));
+        }
+        return local;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String site = exchange.getRequestURI().getPath().substring(1);
+            if (site.isEmpty() || !site.matches("[a-z0-9-]+")) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] body = loadPage(site);
+
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.getResponseHeaders().set("Content-Security-Policy", CONTENT_SECURITY_POLICY);
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            exchange.sendResponseHeaders(200, body.length);
+
+            try (OutputStream out = exchange.getResponseBody()) {
+                writeShaped(out, body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Envía por bloques y espera lo necesario para no superar el ancho de banda configurado
+    private void writeShaped(OutputStream out, byte[] body) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        for (int offset = 0; offset < body.length; offset += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, body.length - offset);
+            out.write(body, offset, length);
+            out.flush();
+            if (bandwidthBytesPerSecond > 0) {
+                long expectedNs = (offset + length) * 1_000_000_000L / bandwidthBytesPerSecond;
+                long aheadNs = expectedNs - (System.nanoTime() - start);
+                if (aheadNs > 0) {
+                    Thread.sleep(aheadNs / 1_000_000, (int) (aheadNs % 1_000_000));
+                }
+            }
+        }
+    }
+
+    private byte[] loadPage(String site) throws IOException {
+        Path recorded = fixturesDir.resolve(site + ".html");
+        if (Files.exists(recorded)) {
+            return Files.readAllBytes(recorded);
+        }
+        return syntheticPage(site).getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String siteName(String url) {
+        String host = URI.create(url).getHost();
+        if (host.startsWith("www.")) {
+            host = host.substring(4);
+        }
+        return host.replaceAll("[^a-z0-9]+", "-");
+    }
+
+    /*
+     * Página sintética determinista (misma semilla por sitio): encabezados, párrafos,
+     * una tabla y gráficos SVG en línea, entre ~40 y ~240 KB según el sitio.
+     */
+    static String syntheticPage(String site) {
+        Random random = new Random(site.hashCode());
+        String[] words = {"sistema", "distribuido", "servidor", "cliente", "latencia", "réplica",
+            "consenso", "mensaje", "protocolo", "nodo", "caché", "documento", "conversión", "hilo",
+            "cola", "evento", "registro", "transacción", "partición", "red"};
+        int sections = 8 + random.nextInt(40);
+
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html><html lang=\"es\"><head><meta charset=\"utf-8\"><title>")
+            .append(site).append("</title><style>")
+            .append("body{font-family:sans-serif;margin:2em;line-height:1.5}")
+            .append("table{border-collapse:collapse}td,th{border:1px solid #999;padding:4px 8px}")
+            .append("</style></head><body><h1>").append(site).append("</h1>");
+
+        for (int s = 0; s < sections; s++) {
+            html.append("<h2>Sección ").append(s + 1).append("</h2>");
+            int paragraphs = 2 + random.nextInt(4);
+            for (int p = 0; p < paragraphs; p++) {
+                html.append("<p>");
+                int count = 60 + random.nextInt(120);
+                for (int w = 0; w < count; w++) {
+                    html.append(words[random.nextInt(words.length)]).append(' ');
+                }
+                html.append("</p>");
+            }
+            if (s % 4 == 0) {
+                html.append("<table><tr><th>Nodo</th><th>Peticiones</th><th>Latencia (ms)</th></tr>");
+                for (int r = 0; r < 10; r++) {
+                    html.append("<tr><td>n").append(r).append("</td><td>").append(random.nextInt(100000))
+                        .append("</td><td>").append(random.nextInt(500)).append("</td></tr>");
+                }
+                html.append("</table>");
+            }
+            if (s % 5 == 0) {
+                html.append("<svg width=\"400\" height=\"120\" xmlns=\"http://www.w3.org/2000/svg\">");
+                for (int b = 0; b < 20; b++) {
+                    int h = 10 + random.nextInt(100);
+                    html.append("<rect x=\"").append(b * 20).append("\" y=\"").append(120 - h)
+                        .append("\" width=\"16\" height=\"").append(h).append("\" fill=\"#4a7\"/>");
+                }
+                html.append("</svg>");
+            }
+        }
+        html.append("</body></html>");
+        return html.toString();
+    }
+
+    // Descarga el documento principal de cada URL (sin recursos externos, la CSP los bloquea al servirlo)
+    public static void record(List<String> urls, Path fixturesDir) throws IOException {
+        Files.createDirectories(fixturesDir);
+        HttpClient client = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+        for (String url : urls) {
+            Path target = fixturesDir.resolve(siteName(url) + ".html");
+            try {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) lab-6 fixture recorder")
+                    .build();
+                HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                if (response.statusCode() != 200) {
+                    System.err.println("  " + url + ": HTTP " + response.statusCode() + ", se mantiene la página sintética");
+                    continue;
+                }
+                Files.write(target, response.body());
+                System.out.println("  Grabado " + url + " -> " + target + " (" + response.body().length / 1024 + " KB)");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                System.err.println("  " + url + ": " + e.getMessage());
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+        Path fixturesDir = Paths.get(options.get("fixtures", "fixtures"));
+
+        if (options.has("record")) {
+            System.out.println("Grabando páginas en " + fixturesDir.toAbsolutePath() + "...");
+            record(Arrays.asList(BenchmarkRunner.TEST_URLS), fixturesDir);
+            return;
+        }
+
+        FixtureServer fixtures = new FixtureServer(fixturesDir,
+            options.getLong("latency-ms", 0), options.getLong("bandwidth-kbps", 0) * 1024 / 8);
+        fixtures.start(options.getInt("port", 8090));
+        System.out.println("Servidor de fixtures en http://127.0.0.1:" + fixtures.getPort() + "/ (" + fixtures.describe() + ")");
+        for (String url : fixtures.localUrls(Arrays.asList(BenchmarkRunner.TEST_URLS))) {
+            System.out.println("  " + url);
+        }
+        System.out.println("Ctrl+C para detener");
+    }
+}
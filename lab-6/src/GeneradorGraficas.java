@@ -2,23 +2,31 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import javax.imageio.ImageIO;
 import java.io.File;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.List;
+import common.results.BenchmarkResults;
+import common.results.ThreadRun;
 
 public class GeneradorGraficas {
     
-    // Datos del benchmark principal (32 URLs)
-    private static final int[] HILOS = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
-    private static final long[] TIEMPOS = {151811, 91687, 67622, 58388, 58167, 54285, 60817, 56437, 
+    // Datos del benchmark principal (32 URLs); se reemplazan si se pasa un JSON de resultados
+    private static int[] HILOS = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16};
+    private static long[] TIEMPOS = {151811, 91687, 67622, 58388, 58167, 54285, 60817, 56437, 
                                           61026, 58941, 61541, 59396, 56971, 59868, 53597, 53903};
-    private static final double[] SPEEDUP = {1.00, 1.66, 2.24, 2.60, 2.61, 2.80, 2.50, 2.69,
+    private static double[] SPEEDUP = {1.00, 1.66, 2.24, 2.60, 2.61, 2.80, 2.50, 2.69,
                                             2.49, 2.58, 2.47, 2.56, 2.66, 2.54, 2.83, 2.82};
-    private static final double[] EFICIENCIA = {100.00, 82.79, 74.83, 65.00, 52.20, 46.61, 35.66, 33.62,
+    private static double[] EFICIENCIA = {100.00, 82.79, 74.83, 65.00, 52.20, 46.61, 35.66, 33.62,
                                                27.64, 25.76, 22.43, 21.30, 20.50, 18.11, 18.88, 17.60};
-    private static final double[] THROUGHPUT = {0.21, 0.35, 0.47, 0.55, 0.55, 0.59, 0.53, 0.57,
+    private static double[] THROUGHPUT = {0.21, 0.35, 0.47, 0.55, 0.55, 0.59, 0.53, 0.57,
                                                0.52, 0.54, 0.52, 0.54, 0.56, 0.53, 0.60, 0.59};
     
     public static void main(String[] args) {
         try {
+            if (args.length > 0) {
+                cargarDatos(args[0]);
+            }
+            
             generarGrafica1TiempoVsHilos();
             generarGrafica2SpeedupVsHilos();
             generarGrafica3ThroughputVsHilos();
@@ -33,6 +41,28 @@ public class GeneradorGraficas {
         }
     }
     
+    // Carga un benchmark_report_*.json generado por BenchmarkRunner
+    private static void cargarDatos(String jsonFile) throws Exception {
+        BenchmarkResults results = BenchmarkResults.load(Paths.get(jsonFile));
+        List<ThreadRun> runs = results.getRuns();
+        
+        HILOS = new int[runs.size()];
+        TIEMPOS = new long[runs.size()];
+        SPEEDUP = new double[runs.size()];
+        EFICIENCIA = new double[runs.size()];
+        THROUGHPUT = new double[runs.size()];
+        
+        for (int i = 0; i < runs.size(); i++) {
+            ThreadRun run = runs.get(i);
+            HILOS[i] = run.getThreads();
+            TIEMPOS[i] = Math.round(run.meanWallTimeMs());
+            SPEEDUP[i] = results.speedup(run);
+            EFICIENCIA[i] = results.efficiency(run) * 100;
+            THROUGHPUT[i] = run.throughputPerSecond();
+        }
+        System.out.println("Datos cargados desde: " + jsonFile);
+    }
+    
     private static void generarGrafica1TiempoVsHilos() throws Exception {
         int width = 800, height = 600;
         BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
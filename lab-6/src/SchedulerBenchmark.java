@@ -0,0 +1,42 @@
+import java.nio.file.*;
+import java.util.*;
+import common.bench.BenchmarkOptions;
+import common.bench.SampleStatistics;
+import common.convert.SyntheticBackend;
+
+/*
+ * Mide el planificador de WebToPDFConverter (pool de hilos, cola, recolección de
+ * resultados) con el backend sintético, sin Chrome ni red.
+ * Ejemplo: java SchedulerBenchmark --jobs=100000 --threads=1,4,16,64 --backend=cpu=0,wait=1
+ */
+public class SchedulerBenchmark {
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+        int jobs = options.getInt("jobs", 100_000);
+        int[] threadCounts = options.getIntList("threads", new int[] {1, 2, 4, 8, 16, 32, 64});
+        SyntheticBackend backend = SyntheticBackend.parse(options.get("backend", "cpu=0,wait=1"));
+
+        Path outputDir = Files.createTempDirectory("scheduler-bench-");
+        WebToPDFConverter converter = new WebToPDFConverter(outputDir.toString(), backend);
+        List<String> urls = new ArrayList<>(jobs);
+        for (int i = 0; i < jobs; i++) {
+            urls.add("http://127.0.0.1/job-" + i);
+        }
+
+        System.out.println("Backend: " + backend.name());
+        System.out.println("Trabajos por prueba: " + jobs + "\n");
+        System.out.printf("%-8s %-12s %-14s %-10s %-10s %-10s %-8s%n",
+            "Hilos", "Tiempo (ms)", "Trabajos/seg", "p50 (ms)", "p99 (ms)", "max (ms)", "Errores");
+
+        for (int threads : threadCounts) {
+            WebToPDFConverter.ConversionResult result = converter.convertUrls(urls, threads);
+            SampleStatistics latencies = SampleStatistics.of(result.jobLatenciesMs);
+            System.out.printf("%-8d %-12d %-14.0f %-10.0f %-10.0f %-10.0f %-8d%n",
+                threads, result.executionTimeMs, jobs * 1000.0 / Math.max(1, result.executionTimeMs),
+                latencies.median(), latencies.percentile(99), latencies.max(), result.errors.size());
+        }
+
+        System.out.println("\nEstado del backend: " + backend.health());
+        Files.deleteIfExists(outputDir);
+    }
+}
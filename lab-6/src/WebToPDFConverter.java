@@ -4,17 +4,41 @@ import java.util.*;
 import java.util.concurrent.*;
 import java.time.Duration;
 import java.time.Instant;
+import common.convert.ConverterBackend;
+import common.convert.SyntheticBackend;
 
 public class WebToPDFConverter {
     String outputDir;
-    private final String chromePath;
+    private final ConverterBackend backend;
     
     public WebToPDFConverter(String outputDir, String chromePath) {
+        this(outputDir, new ChromeProcessBackend(chromePath));
+    }
+    
+    public WebToPDFConverter(String outputDir, ConverterBackend backend) {
         this.outputDir = outputDir;
-        this.chromePath = chromePath;
+        this.backend = backend;
         createOutputDirectory();
     }
     
+    // chrome (un proceso por URL), devtools (un Chrome persistente) o synthetic[:cpu=5,wait=50,...]
+    public static ConverterBackend createBackend(String name, String chromePath) {
+        if (name.equals("chrome")) {
+            return new ChromeProcessBackend(chromePath);
+        }
+        if (name.equals("devtools")) {
+            return new ChromeDevToolsBackend(chromePath);
+        }
+        if (name.equals("synthetic") || name.startsWith("synthetic:")) {
+            return SyntheticBackend.parse(name.length() > "synthetic".length() ? name.substring("synthetic:".length()) : "");
+        }
+        throw new IllegalArgumentException("Backend desconocido: " + name + " (chrome, devtools, synthetic)");
+    }
+    
+    public ConverterBackend getBackend() {
+        return backend;
+    }
+    
     private void createOutputDirectory() {
         try {
             Files.createDirectories(Paths.get(outputDir));
@@ -27,6 +51,7 @@ public class WebToPDFConverter {
         Instant start = Instant.now();
         List<String> successfulPdfs = Collections.synchronizedList(new ArrayList<>());
         List<String> errors = Collections.synchronizedList(new ArrayList<>());
+        List<Long> jobLatencies = new ArrayList<>();
         
         try (// Usar ThreadPoolExecutor con configuración explícita
         ThreadPoolExecutor executor = new ThreadPoolExecutor(
@@ -44,7 +69,7 @@ public class WebToPDFConverter {
                 String filename = String.format("document_%d.pdf", i + 1);
                 String outputPath = Paths.get(outputDir, filename).toString();
                 
-                futures.add(executor.submit(new ConversionTask(url, outputPath, chromePath)));
+                futures.add(executor.submit(new ConversionTask(url, outputPath, backend)));
             }
             
             // Procesar resultados sin bloquear prematuramente
@@ -53,6 +78,7 @@ public class WebToPDFConverter {
                     ConversionTask.Result result = futures.get(i).get();
                     if (result.success) {
                         successfulPdfs.add(result.outputPath);
+                        jobLatencies.add(result.durationMs);
                     } else {
                         errors.add(String.format("URL %d: %s", i + 1, result.error));
                     }
@@ -78,18 +104,20 @@ public class WebToPDFConverter {
         
         Duration duration = Duration.between(start, Instant.now());
         
-        return new ConversionResult(successfulPdfs, errors, duration.toMillis(), threadCount);
+        return new ConversionResult(successfulPdfs, errors, jobLatencies, duration.toMillis(), threadCount);
     }
     
     public static class ConversionResult {
         public final List<String> successfulPdfs;
         public final List<String> errors;
+        public final List<Long> jobLatenciesMs;
         public final long executionTimeMs;
         public final int threadCount;
         
-        public ConversionResult(List<String> pdfs, List<String> errors, long time, int threads) {
+        public ConversionResult(List<String> pdfs, List<String> errors, List<Long> jobLatenciesMs, long time, int threads) {
             this.successfulPdfs = new ArrayList<>(pdfs);
             this.errors = new ArrayList<>(errors);
+            this.jobLatenciesMs = new ArrayList<>(jobLatenciesMs);
             this.executionTimeMs = time;
             this.threadCount = threads;
         }
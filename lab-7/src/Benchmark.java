@@ -1,60 +1,117 @@
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import common.bench.AdaptiveRunner;
+import common.bench.ScalingModel;
+import common.convert.ConverterBackend;
+import common.results.BenchmarkResults;
+import common.results.IterationResult;
+import common.results.ThreadRun;
 
 public class Benchmark {
     
     public static void runPerformanceAnalysis() {
-        List<String> inputFiles = FileManager.loadFilePaths();
-        
+        runPerformanceAnalysis(new AdaptiveRunner(1, 3, 10, 0.05, 0.95, 1000));
+    }
+    
+    public static void runPerformanceAnalysis(AdaptiveRunner engine) {
+        runPerformanceAnalysis(engine, PDFConverter.getDefaultBackend(), selectTestFiles(FileManager.loadFilePaths()));
+    }
+    
+    public static List<String> selectTestFiles(List<String> inputFiles) {
         if (inputFiles.size() < 32) {
             System.out.println("Advertencia: Se necesitan al menos 32 archivos para el análisis completo.");
             System.out.println("Archivos disponibles: " + inputFiles.size());
         }
         
         // Usar solo los primeros 32 archivos si hay más
-        List<String> testFiles = inputFiles.size() >= 32 
+        return inputFiles.size() >= 32 
             ? inputFiles.subList(0, 32) 
             : inputFiles;
+    }
+    
+    // Archivos ficticios para el backend sintético, que no lee la entrada
+    public static List<String> syntheticInputFiles(int count) {
+        String[] extensions = {"docx", "pptx", "xlsx", "odt"};
+        List<String> files = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            files.add("synthetic_" + i + "." + extensions[i % extensions.length]);
+        }
+        return files;
+    }
+    
+    public static void runPerformanceAnalysis(AdaptiveRunner engine, ConverterBackend backend, List<String> inputFiles) {
+        List<String> testFiles = inputFiles;
         
         System.out.println("\n=== Iniciando análisis de rendimiento ===");
         System.out.println("Archivos a procesar: " + testFiles.size());
+        System.out.println("Backend: " + backend.name());
         
         Map<Integer, Long> results = new LinkedHashMap<>();
+        Map<Integer, AdaptiveRunner.Measurement> measurements = new LinkedHashMap<>();
         String baseOutputDir = FileManager.getOutputDirectory();
         
         // Obtener información del sistema
         String systemInfo = getSystemInfo();
         
+        BenchmarkResults structuredResults = new BenchmarkResults("lab-7 Benchmark")
+            .putConfig("fileCount", testFiles.size())
+            .putConfig("backend", backend.name())
+            .putConfig("warmupIterations", engine.getWarmupIterations())
+            .putConfig("minIterations", engine.getMinIterations())
+            .putConfig("maxIterations", engine.getMaxIterations())
+            .putConfig("targetRelativeError", engine.getTargetRelativeError())
+            .putConfig("confidence", engine.getConfidence())
+            .putConfig("minThreads", 1)
+            .putConfig("maxThreads", 16)
+            .putConfig("libreOfficeConcurrencyLimit", backend.capabilities().maxConcurrency);
+        
         for (int threads = 1; threads <= 16; threads++) {
             System.out.println("\nPrueba con " + threads + " hilo(s)...");
             
-            String testOutputDir = baseOutputDir + "/test_" + threads + "_threads_" + 
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+            ThreadRun threadRun = new ThreadRun(threads, testFiles.size());
+            final int threadCount = threads;
+            AdaptiveRunner.Measurement measurement = engine.measure((iteration, warmup) -> {
+                String testOutputDir = baseOutputDir + "/test_" + threadCount + "_threads_" + 
+                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + "_" + iteration;
+                
+                long startTime = System.currentTimeMillis();
+                List<PDFConverter.JobResult> jobs = PDFConverter.convertToPDFWithTimings(testFiles, testOutputDir, threadCount, backend);
+                long executionTime = System.currentTimeMillis() - startTime;
+                
+                List<Long> latencies = new ArrayList<>();
+                for (PDFConverter.JobResult job : jobs) {
+                    if (job.success) {
+                        latencies.add(job.durationMs);
+                    }
+                }
+                threadRun.addIteration(new IterationResult(iteration, warmup, executionTime,
+                    latencies.size(), jobs.size() - latencies.size(), latencies));
+                
+                // Limpiar archivos temporales
+                FileManager.cleanupTempDirectory(testOutputDir);
+                return executionTime;
+            });
             
-            long startTime = System.currentTimeMillis();
-            List<String> converted = PDFConverter.convertToPDF(testFiles, testOutputDir, threads);
-            long endTime = System.currentTimeMillis();
-            
-            long executionTime = endTime - startTime;
-            results.put(threads, executionTime);
-            
-            System.out.println("Tiempo: " + executionTime + " ms");
-            System.out.println("Archivos convertidos: " + converted.size());
-            
-            // Limpiar archivos temporales
-            FileManager.cleanupTempDirectory(testOutputDir);
+            // El tiempo de cada configuración es la media sin outliers
+            results.put(threads, Math.round(measurement.meanMs()));
+            measurements.put(threads, measurement);
+            structuredResults.addRun(threadRun);
+            System.out.println(measurement.summary());
         }
         
         // Generar y guardar reporte
-        String report = generateReport(results, systemInfo, testFiles.size());
-        String fileName = "benchmark_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".txt";
-        FileManager.saveReport(report, fileName);
+        String report = generateReport(results, measurements, engine, systemInfo, testFiles.size());
+        String baseName = "benchmark_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        FileManager.saveReport(report, baseName + ".txt");
+        FileManager.saveResults(structuredResults, baseName + ".json");
+        RegressionTracker.recordAndCompare(structuredResults);
         
         printResults(results);
     }
     
-    private static String generateReport(Map<Integer, Long> results, String systemInfo, int fileCount) {
+    private static String generateReport(Map<Integer, Long> results, Map<Integer, AdaptiveRunner.Measurement> measurements,
+                                         AdaptiveRunner engine, String systemInfo, int fileCount) {
         StringBuilder report = new StringBuilder();
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
         
@@ -62,7 +119,8 @@ public class Benchmark {
         report.append("REPORTE DE RENDIMIENTO - CONVERSIÓN PDF\n");
         report.append("=".repeat(80)).append("\n");
         report.append("Fecha y hora: ").append(timestamp).append("\n");
-        report.append("Archivos procesados: ").append(fileCount).append("\n\n");
+        report.append("Archivos procesados: ").append(fileCount).append("\n");
+        report.append("Iteraciones: ").append(engine.describe()).append("\n\n");
         
         report.append("INFORMACIÓN DEL SISTEMA:\n");
         report.append(systemInfo).append("\n");
@@ -100,6 +158,39 @@ public class Benchmark {
         report.append("Mejora máxima: ").append(String.format("%.2fx", maxImprovement)).append("\n");
         report.append("Eficiencia por hilo: ").append(String.format("%.2f%%", (maxImprovement / optimalThreads) * 100)).append("\n");
         
+        report.append("\n").append("=".repeat(50)).append("\n");
+        report.append("ESTADÍSTICAS POR CONFIGURACIÓN:\n");
+        report.append(String.format("%-6s %-4s %-10s %-10s %-10s %-10s %-10s %-9s %-9s%n",
+            "Hilos", "n", "Media", "±IC", "Mediana", "p90", "p99", "Outliers", "Converge"));
+        for (Map.Entry<Integer, AdaptiveRunner.Measurement> entry : measurements.entrySet()) {
+            AdaptiveRunner.Measurement m = entry.getValue();
+            report.append(String.format("%-6d %-4d %-10.0f %-10.0f %-10.0f %-10.0f %-10.0f %-9d %-9s%n",
+                entry.getKey(), m.all.count(), m.meanMs(), m.ciHalfWidthMs(), m.all.median(),
+                m.all.percentile(90), m.all.percentile(99), m.outlierCount(), m.converged ? "sí" : "no"));
+        }
+        
+        report.append("\n").append("=".repeat(50)).append("\n");
+        report.append("MODELOS DE ESCALABILIDAD:\n");
+        int[] threadCounts = new int[results.size()];
+        double[] speedups = new double[results.size()];
+        int index = 0;
+        for (Map.Entry<Integer, Long> entry : results.entrySet()) {
+            threadCounts[index] = entry.getKey();
+            speedups[index] = (double) baselineTime / entry.getValue();
+            index++;
+        }
+        try {
+            ScalingModel usl = ScalingModel.fitUsl(threadCounts, speedups);
+            report.append(ScalingModel.fitAmdahl(threadCounts, speedups)).append("\n");
+            report.append(usl).append("\n");
+            if (!Double.isInfinite(usl.peakThreads())) {
+                report.append("Según USL, más de ").append(Math.round(usl.peakThreads()))
+                    .append(" hilos empeora el tiempo total\n");
+            }
+        } catch (IllegalArgumentException e) {
+            report.append("No se pudo ajustar el modelo: ").append(e.getMessage()).append("\n");
+        }
+        
         // Datos para gráficas en formato CSV
         report.append("\n").append("=".repeat(50)).append("\n");
         report.append("DATOS CSV (para gráficas):\n");
@@ -4,12 +4,16 @@ import javax.imageio.ImageIO;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import common.results.BenchmarkResults;
+import common.results.ThreadRun;
+
 public class BenchmarkChartGenerator {
     
     static class BenchmarkData {
@@ -39,7 +43,7 @@ public class BenchmarkChartGenerator {
                 File dirFile = new File(dir);
                 if (dirFile.exists() && dirFile.isDirectory()) {
                     String[] files = dirFile.list((d, name) -> 
-                        name.startsWith("benchmark_") && name.endsWith(".txt"));
+                        name.startsWith("benchmark_") && (name.endsWith(".json") || name.endsWith(".txt")));
                     if (files != null && files.length > 0) {
                         benchmarkDir = dir;
                         benchmarkFiles = files;
@@ -56,16 +60,27 @@ public class BenchmarkChartGenerator {
                 return;
             }
             
-            Arrays.sort(benchmarkFiles);
-            System.out.println("Encontrados " + benchmarkFiles.length + " archivos benchmark en: " + 
+            // Si una ejecución tiene .json y .txt se usa el .json
+            List<Path> candidates = new ArrayList<>();
+            for (String filename : benchmarkFiles) {
+                candidates.add(Paths.get(benchmarkDir, filename));
+            }
+            List<Path> selected = BenchmarkResults.preferStructured(candidates);
+            System.out.println("Encontrados " + selected.size() + " benchmarks en: " + 
                              new File(benchmarkDir).getAbsolutePath());
             
             // Parse datos
             List<BenchmarkData> benchmarks = new ArrayList<>();
-            for (String filename : benchmarkFiles) {
+            for (Path file : selected) {
+                String filename = file.getFileName().toString();
                 try {
-                    String fullPath = benchmarkDir.equals(".") ? filename : benchmarkDir + "/" + filename;
-                    BenchmarkData data = parseBenchmarkFile(fullPath);
+                    BenchmarkData data;
+                    if (filename.endsWith(".json")) {
+                        data = fromResults(BenchmarkResults.load(file));
+                    } else {
+                        System.out.println("Aviso: " + filename + " no tiene .json, se parsea el reporte de texto (formato antiguo)");
+                        data = parseBenchmarkFile(file.toString());
+                    }
                     if (data != null) {
                         benchmarks.add(data);
                         System.out.println("Parseado: " + filename);
@@ -94,6 +109,33 @@ public class BenchmarkChartGenerator {
         }
     }
     
+    private static BenchmarkData fromResults(BenchmarkResults results) {
+        String timestamp = results.getTimestamp().replace('T', ' ');
+        int filesProcessed = results.getRuns().isEmpty() ? 0 : results.getRuns().get(0).getWorkItems();
+        BenchmarkData data = new BenchmarkData(timestamp, filesProcessed);
+        
+        for (ThreadRun run : results.getRuns()) {
+            int threads = run.getThreads();
+            if (threads >= 1 && threads <= 16) {
+                data.tiempos[threads - 1] = run.meanWallTimeMs() / 1000.0;
+                data.mejoras[threads - 1] = results.speedup(run);
+            }
+        }
+        
+        ThreadRun fastest = results.fastestRun();
+        if (fastest != null) {
+            data.optimalThreads = fastest.getThreads();
+            data.minTime = fastest.meanWallTimeMs() / 1000.0;
+            data.maxImprovement = results.speedup(fastest);
+            data.efficiency = results.efficiency(fastest) * 100;
+        } else {
+            data.optimalThreads = 1;
+            data.maxImprovement = 1.0;
+        }
+        return data;
+    }
+    
+    // Reportes de texto anteriores al formato JSON
     private static BenchmarkData parseBenchmarkFile(String filename) throws IOException {
         String content = new String(Files.readAllBytes(Paths.get(filename)));
         
@@ -1,11 +1,14 @@
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import common.results.BenchmarkResults;
+import common.results.ResultsStore;
 
 public class FileManager {
     private static final String FILE_PATHS_FILE = "file_paths.txt";
     private static final String OUTPUT_DIRECTORY = "converted_pdfs";
     private static final String REPORTS_DIRECTORY = "reports";
+    private static final String RESULTS_STORE_DIRECTORY = "results-store";
     
     public static List<String> loadFilePaths() {
         List<String> paths = new ArrayList<>();
@@ -85,6 +88,20 @@ public class FileManager {
         }
     }
     
+    public static void saveResults(BenchmarkResults results, String fileName) {
+        try {
+            Path resultsPath = Paths.get(getReportsDirectory(), fileName);
+            results.writeJson(resultsPath);
+            System.out.println("Resultados JSON guardados: " + resultsPath.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Error guardando resultados JSON: " + e.getMessage());
+        }
+    }
+    
+    public static ResultsStore openResultsStore() throws IOException {
+        return new ResultsStore(Paths.get(RESULTS_STORE_DIRECTORY));
+    }
+    
     public static List<Path> getReportFiles() {
         try {
             Path reportsPath = Paths.get(getReportsDirectory());
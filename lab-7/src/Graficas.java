@@ -8,6 +8,9 @@ import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import common.results.BenchmarkResults;
+import common.results.ThreadRun;
+
 public class Graficas {
     
     private static final String GRAFICAS_DIR = "graficas";
@@ -48,7 +51,9 @@ public class Graficas {
         
         for (Path reportFile : reportFiles) {
             try {
-                BenchmarkData benchmark = parseBenchmarkFile(reportFile);
+                BenchmarkData benchmark = reportFile.toString().endsWith(".json")
+                        ? fromResults(reportFile.getFileName().toString(), BenchmarkResults.load(reportFile))
+                        : parseBenchmarkFile(reportFile);
                 if (benchmark != null) {
                     benchmarks.add(benchmark);
                 }
@@ -67,17 +72,37 @@ public class Graficas {
                 System.out.println("Directorio de reportes no encontrado: " + REPORTS_DIR);
                 return new ArrayList<>();
             }
-            return Files.list(reportsPath)
-                    .filter(path -> path.toString().endsWith(".txt"))
-                    .sorted()
+            List<Path> files = Files.list(reportsPath)
+                    .filter(path -> path.toString().endsWith(".txt") || path.toString().endsWith(".json"))
                     .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+            return BenchmarkResults.preferStructured(files);
         } catch (IOException e) {
             System.err.println("Error listando archivos de reportes: " + e.getMessage());
             return new ArrayList<>();
         }
     }
     
+    private static BenchmarkData fromResults(String fileName, BenchmarkResults results) {
+        BenchmarkData data = new BenchmarkData();
+        data.fileName = fileName;
+        data.timestamp = results.getTimestamp().replace('T', ' ');
+        data.fileCount = results.getRuns().isEmpty() ? 0 : results.getRuns().get(0).getWorkItems();
+        
+        for (ThreadRun run : results.getRuns()) {
+            double speedup = results.speedup(run);
+            data.threads.add(run.getThreads());
+            data.times.add(Math.round(run.meanWallTimeMs()));
+            data.speedups.add(speedup);
+            data.efficiency.add(results.efficiency(run) * 100);
+            data.throughput.add(run.throughputPerSecond());
+        }
+        
+        return data.threads.isEmpty() ? null : data;
+    }
+    
+    // Reportes de texto anteriores al formato JSON
     private static BenchmarkData parseBenchmarkFile(Path filePath) throws IOException {
+        System.out.println("Aviso: " + filePath.getFileName() + " no tiene .json, se parsea el reporte de texto (formato antiguo)");
         List<String> lines = Files.readAllLines(filePath);
         BenchmarkData data = new BenchmarkData();
         data.fileName = filePath.getFileName().toString();
@@ -117,7 +142,7 @@ public class Graficas {
     }
     
     private static void generarGraficasIndividuales(BenchmarkData data) throws Exception {
-        String prefix = data.fileName.replace(".txt", "");
+        String prefix = data.fileName.replace(".txt", "").replace(".json", "");
         
         generarGraficaTiempo(data, prefix + "_tiempo.png");
         generarGraficaSpeedup(data, prefix + "_speedup.png");
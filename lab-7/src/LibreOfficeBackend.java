@@ -0,0 +1,135 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeoutException;
+import common.convert.Capabilities;
+import common.convert.ConversionOutcome;
+import common.convert.ConversionRequest;
+import common.convert.ConverterBackend;
+import common.convert.ProcessRunner;
+
+/*
+ * Conversión con soffice --convert-to pdf. Las subclases deciden qué perfil de usuario
+ * usa cada conversión (uno nuevo cada vez o uno de un pool ya inicializado) y cuántas
+ * instancias pueden correr a la vez.
+ */
+public abstract class LibreOfficeBackend implements ConverterBackend {
+    static final String LIBREOFFICE_CMD = "libreoffice";
+    static final Set<String> SUPPORTED_FORMATS = Set.of("docx", "pptx", "xlsx", "png", "odt", "odp", "ods");
+
+    @Override
+    public Capabilities capabilities() {
+        return new Capabilities(SUPPORTED_FORMATS, maxConcurrency(), persistentProfiles());
+    }
+
+    protected abstract int maxConcurrency();
+
+    protected abstract boolean persistentProfiles();
+
+    @Override
+    public ConversionOutcome convert(ConversionRequest request) {
+        long start = System.nanoTime();
+        try {
+            Path inputPath = Paths.get(request.source);
+            if (!Files.exists(inputPath)) {
+                throw new FileNotFoundException("Archivo no encontrado: " + request.source);
+            }
+            if (!Files.isReadable(inputPath)) {
+                throw new IOException("No se puede leer el archivo: " + request.source);
+            }
+            if (!SUPPORTED_FORMATS.contains(request.format())) {
+                throw new UnsupportedOperationException("Formato no soportado: " + request.format());
+            }
+
+            Files.deleteIfExists(request.output);
+            convertFile(inputPath, request);
+            return ConversionOutcome.ok(request.output.toAbsolutePath().toString(), elapsedMs(start));
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ConversionOutcome.failed("Interrumpido", elapsedMs(start));
+        } catch (TimeoutException e) {
+            return ConversionOutcome.failed("Timeout en conversión de: " + request.source, elapsedMs(start));
+        } catch (Exception e) {
+            return ConversionOutcome.failed(e.getMessage(), elapsedMs(start));
+        }
+    }
+
+    // Obtiene un perfil, ejecuta runSoffice y lo libera
+    protected abstract void convertFile(Path inputPath, ConversionRequest request) throws Exception;
+
+    /*
+     * Ejecuta soffice con el perfil dado y mueve el PDF generado a la salida. Cada
+     * conversión escribe en un directorio temporal propio para no pisar archivos de otras.
+     */
+    protected void runSoffice(Path inputPath, ConversionRequest request, Path profileDir, boolean isolatedHome) throws Exception {
+        Path outputDir = request.output.toAbsolutePath().getParent();
+        String tempDirName = "temp_" + System.nanoTime() + "_" + Thread.currentThread().getId();
+        Path tempDir = outputDir.resolve(tempDirName);
+        Files.createDirectories(tempDir);
+
+        try {
+            ProcessBuilder pb = new ProcessBuilder(
+                LIBREOFFICE_CMD,
+                "-env:UserInstallation=" + profileDir.toUri(),
+                "--headless",
+                "--invisible",
+                "--nodefault",
+                "--nolockcheck",
+                "--nologo",
+                "--norestore",
+                "--convert-to", "pdf",
+                "--outdir", tempDir.toString(),
+                inputPath.toAbsolutePath().toString()
+            );
+
+            // Configurar entorno para evitar conflictos
+            if (isolatedHome) {
+                Map<String, String> env = pb.environment();
+                env.put("HOME", tempDir.toString());
+                env.put("TMPDIR", tempDir.toString());
+                env.put("XDG_CONFIG_HOME", tempDir.toString());
+                env.put("XDG_DATA_HOME", tempDir.toString());
+            }
+
+            ProcessRunner.Result result = ProcessRunner.run(pb, request.timeoutMs);
+            if (result.exitCode != 0) {
+                throw new RuntimeException("Error en LibreOffice (código " + result.exitCode + "): " + result.output);
+            }
+
+            // Buscar archivo PDF generado en directorio temporal
+            String outputFileName = request.output.getFileName().toString();
+            Path tempOutputPath = tempDir.resolve(outputFileName);
+            if (!Files.exists(tempOutputPath)) {
+                try (var stream = Files.list(tempDir)) {
+                    tempOutputPath = stream
+                        .filter(p -> p.toString().toLowerCase().endsWith(".pdf"))
+                        .findFirst()
+                        .orElseThrow(() -> new RuntimeException("Archivo PDF no fue creado. Salida: " + result.output));
+                }
+            }
+
+            Files.move(tempOutputPath, request.output, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            deleteRecursively(tempDir);
+        }
+    }
+
+    static void deleteRecursively(Path dir) {
+        try (var paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    // Ignorar errores de limpieza
+                }
+            });
+        } catch (IOException e) {
+            // Ignorar errores de limpieza
+        }
+    }
+
+    static long elapsedMs(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
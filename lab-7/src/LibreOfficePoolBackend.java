@@ -0,0 +1,99 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import common.convert.ConversionRequest;
+import common.convert.ProcessRunner;
+import common.convert.Health;
+import common.log.Log;
+import common.log.Logger;
+
+/*
+ * Pool de perfiles de usuario de LibreOffice ya inicializados. El primer arranque con un
+ * perfil vacío crea la configuración (varios segundos); con perfiles reutilizados cada
+ * conversión solo paga el arranque en caliente. Cada perfil lo usa una sola instancia a
+ * la vez, así que el tamaño del pool es también el límite de concurrencia.
+ */
+public class LibreOfficePoolBackend extends LibreOfficeBackend {
+    private static final Logger LOG = Log.getLogger("LibreOffice Pool");
+    
+    private final int size;
+    private final BlockingQueue<Path> available;
+    private final List<Path> profiles = new ArrayList<>();
+    private final Path root;
+
+    public LibreOfficePoolBackend(int size) throws IOException {
+        this.size = size;
+        this.available = new ArrayBlockingQueue<>(size);
+        this.root = Files.createTempDirectory("lo_pool_");
+        for (int i = 0; i < size; i++) {
+            Path profile = Files.createDirectories(root.resolve("profile_" + i));
+            profiles.add(profile);
+            available.add(profile);
+        }
+    }
+
+    // Inicializa todos los perfiles en paralelo antes de medir
+    public void prewarm() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(size);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Path profile : profiles) {
+                futures.add(executor.submit(() -> {
+                    ProcessBuilder pb = new ProcessBuilder(LIBREOFFICE_CMD,
+                        "-env:UserInstallation=" + profile.toUri(),
+                        "--headless", "--nologo", "--norestore", "--terminate_after_init");
+                    ProcessRunner.run(pb, 60_000);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    LOG.error("Error inicializando perfil de LibreOffice: {}", e.getCause().getMessage());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public String name() {
+        return "libreoffice-pool(" + size + ")";
+    }
+
+    @Override
+    protected int maxConcurrency() {
+        return size;
+    }
+
+    @Override
+    protected boolean persistentProfiles() {
+        return true;
+    }
+
+    @Override
+    public Health health() {
+        return Health.up(available.size() + "/" + size + " perfiles libres");
+    }
+
+    @Override
+    protected void convertFile(Path inputPath, ConversionRequest request) throws Exception {
+        Path profile = available.poll(request.timeoutMs, TimeUnit.MILLISECONDS);
+        if (profile == null) {
+            throw new RuntimeException("No se pudo obtener un perfil de LibreOffice - timeout");
+        }
+        try {
+            runSoffice(inputPath, request, profile, false);
+        } finally {
+            available.add(profile);
+        }
+    }
+
+    @Override
+    public void close() {
+        deleteRecursively(root);
+    }
+}
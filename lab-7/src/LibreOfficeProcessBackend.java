@@ -0,0 +1,55 @@
+import java.nio.file.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import common.convert.ConversionRequest;
+import common.convert.Health;
+
+/*
+ * Un soffice por archivo con un perfil de usuario nuevo en un directorio temporal
+ * (comportamiento original de PDFConverter.convertSingleFile). Un semáforo limita las
+ * instancias concurrentes de LibreOffice.
+ */
+public class LibreOfficeProcessBackend extends LibreOfficeBackend {
+    private final int maxInstances;
+    private final Semaphore libreOfficeSemaphore;
+
+    public LibreOfficeProcessBackend(int maxInstances) {
+        this.maxInstances = maxInstances;
+        this.libreOfficeSemaphore = new Semaphore(maxInstances);
+    }
+
+    @Override
+    public String name() {
+        return "libreoffice-process";
+    }
+
+    @Override
+    protected int maxConcurrency() {
+        return maxInstances;
+    }
+
+    @Override
+    protected boolean persistentProfiles() {
+        return false;
+    }
+
+    @Override
+    public Health health() {
+        return Health.up(libreOfficeSemaphore.availablePermits() + "/" + maxInstances + " instancias libres");
+    }
+
+    @Override
+    protected void convertFile(Path inputPath, ConversionRequest request) throws Exception {
+        // Limitar instancias concurrentes de LibreOffice
+        if (!libreOfficeSemaphore.tryAcquire(15, TimeUnit.SECONDS)) {
+            throw new RuntimeException("No se pudo obtener acceso a LibreOffice - timeout");
+        }
+        Path profileDir = Files.createTempDirectory("lo_profile_");
+        try {
+            runSoffice(inputPath, request, profileDir, true);
+        } finally {
+            deleteRecursively(profileDir);
+            libreOfficeSemaphore.release();
+        }
+    }
+}
@@ -2,13 +2,26 @@ import java.io.*;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
+import common.bench.AdaptiveRunner;
+import common.bench.BenchmarkOptions;
+import common.convert.ConversionOutcome;
+import common.convert.ConversionRequest;
+import common.convert.ConverterBackend;
+import common.convert.SyntheticBackend;
+import common.log.Log;
+import common.log.Logger;
+import common.metrics.Gauge;
+import common.metrics.MetricsHttpServer;
+import common.metrics.MetricsRegistry;
 
 public class PDFConverter {
-    private static final String LIBREOFFICE_CMD = "libreoffice";
-    private static final Set<String> SUPPORTED_FORMATS = Set.of("docx", "pptx", "xlsx", "png", "odt", "odp", "ods");
+    private static final long TIMEOUT_MS = 90_000;
+    private static final Logger LOG = Log.getLogger("PDF Converter");
+    private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+    private static final Gauge IN_FLIGHT = METRICS.gauge("pdf_conversions_in_flight", "Conversiones en curso");
     
-    // Semáforo para limitar instancias concurrentes de LibreOffice
-    private static final Semaphore libreOfficeSemaphore = new Semaphore(4);
+    // Hasta 4 instancias concurrentes de LibreOffice
+    private static final ConverterBackend DEFAULT_BACKEND = new LibreOfficeProcessBackend(4);
     
     public static void main(String[] args) {
         Scanner scanner = new Scanner(System.in);
@@ -27,7 +40,23 @@ public class PDFConverter {
                 runSingleConversion(scanner);
                 break;
             case 2:
-                Benchmark.runPerformanceAnalysis();
+                // Parámetros del motor: --warmup=1 --min-iterations=3 --max-iterations=10 --target-error=0.05
+                // Backend: --backend=libreoffice|pool:4|synthetic:cpu=5,wait=50 (--jobs=N con synthetic)
+                BenchmarkOptions options = BenchmarkOptions.parse(args);
+                // --metrics-port=N publica las métricas durante el análisis (por defecto solo JMX)
+                MetricsHttpServer metricsServer = MetricsHttpServer.expose("lab-7", options.getInt("metrics-port", -1));
+                String backendName = options.get("backend", "libreoffice");
+                try (ConverterBackend backend = createBackend(backendName)) {
+                    List<String> inputFiles = backendName.startsWith("synthetic")
+                        ? Benchmark.syntheticInputFiles(options.getInt("jobs", 32))
+                        : Benchmark.selectTestFiles(FileManager.loadFilePaths());
+                    Benchmark.runPerformanceAnalysis(AdaptiveRunner.fromOptions(options, 1000), backend, inputFiles);
+                } catch (IOException e) {
+                    System.err.println("Error iniciando backend: " + e.getMessage());
+                }
+                if (metricsServer != null) {
+                    metricsServer.stop();
+                }
                 break;
             case 3:
                 Graficas.generateReports();
@@ -74,39 +103,91 @@ public class PDFConverter {
     }
     
     public static List<String> convertToPDF(List<String> inputFiles, String outputDir, int threadCount) {
-        List<String> convertedFiles = Collections.synchronizedList(new ArrayList<>());
+        List<String> convertedFiles = new ArrayList<>();
+        for (JobResult job : convertToPDFWithTimings(inputFiles, outputDir, threadCount)) {
+            if (job.success) {
+                convertedFiles.add(job.outputPath);
+            }
+        }
+        return convertedFiles;
+    }
+    
+    public static ConverterBackend getDefaultBackend() {
+        return DEFAULT_BACKEND;
+    }
+    
+    // libreoffice (un proceso por archivo), pool[:n] (perfiles reutilizados) o synthetic[:cpu=5,wait=50,...]
+    public static ConverterBackend createBackend(String name) throws IOException {
+        if (name.equals("libreoffice")) {
+            return DEFAULT_BACKEND;
+        }
+        if (name.equals("pool") || name.startsWith("pool:")) {
+            int size = name.length() > "pool".length() ? Integer.parseInt(name.substring("pool:".length())) : 4;
+            LibreOfficePoolBackend pool = new LibreOfficePoolBackend(size);
+            try {
+                pool.prewarm();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return pool;
+        }
+        if (name.equals("synthetic") || name.startsWith("synthetic:")) {
+            return SyntheticBackend.parse(name.length() > "synthetic".length() ? name.substring("synthetic:".length()) : "");
+        }
+        throw new IllegalArgumentException("Backend desconocido: " + name + " (libreoffice, pool, synthetic)");
+    }
+    
+    // Igual que convertToPDF pero conserva el resultado y la duración de cada archivo
+    public static List<JobResult> convertToPDFWithTimings(List<String> inputFiles, String outputDir, int threadCount) {
+        return convertToPDFWithTimings(inputFiles, outputDir, threadCount, DEFAULT_BACKEND);
+    }
+    
+    public static List<JobResult> convertToPDFWithTimings(List<String> inputFiles, String outputDir, int threadCount,
+                                                          ConverterBackend backend) {
+        List<JobResult> jobs = Collections.synchronizedList(new ArrayList<>());
         ExecutorService executor = Executors.newFixedThreadPool(threadCount);
         
         try {
             Files.createDirectories(Paths.get(outputDir));
             
-            List<Future<String>> futures = new ArrayList<>();
+            List<Future<JobResult>> futures = new ArrayList<>();
             
             for (String inputFile : inputFiles) {
-                Future<String> future = executor.submit(() -> {
+                Future<JobResult> future = executor.submit(() -> {
+                    long start = System.nanoTime();
+                    ConversionRequest request = new ConversionRequest(inputFile, Paths.get(outputDir, pdfFileName(inputFile)), TIMEOUT_MS);
+                    IN_FLIGHT.increment();
+                    ConversionOutcome outcome;
                     try {
-                        return convertSingleFile(inputFile, outputDir);
-                    } catch (Exception e) {
-                        System.err.println("Error convirtiendo " + inputFile + ": " + e.getMessage());
-                        return null;
+                        outcome = backend.convert(request);
+                    } finally {
+                        IN_FLIGHT.decrement();
                     }
+                    String status = outcome.success ? "ok" : "error";
+                    // Las extensiones no soportadas se agrupan para acotar las etiquetas
+                    String format = LibreOfficeBackend.SUPPORTED_FORMATS.contains(request.format()) ? request.format() : "other";
+                    METRICS.counter("pdf_conversions_total", "Conversiones terminadas",
+                        "backend", backend.name(), "format", format, "status", status).increment();
+                    METRICS.histogram("pdf_conversion_duration_seconds", "Duración de cada conversión",
+                        "backend", backend.name(), "format", format, "status", status).recordValue(System.nanoTime() - start);
+                    if (!outcome.success) {
+                        LOG.error("Error convirtiendo {}: {}", inputFile, outcome.error);
+                    }
+                    return new JobResult(inputFile, outcome.outputPath, outcome.error, outcome.durationMs);
                 });
                 futures.add(future);
             }
             
-            for (Future<String> future : futures) {
+            for (Future<JobResult> future : futures) {
                 try {
-                    String result = future.get();
-                    if (result != null) {
-                        convertedFiles.add(result);
-                    }
+                    jobs.add(future.get());
                 } catch (Exception e) {
-                    System.err.println("Error obteniendo resultado: " + e.getMessage());
+                    LOG.error("Error obteniendo resultado: {}", e.getMessage());
                 }
             }
             
         } catch (IOException e) {
-            System.err.println("Error creando directorio de salida: " + e.getMessage());
+            LOG.error("Error creando directorio de salida: {}", e.getMessage());
         } finally {
             executor.shutdown();
             try {
@@ -119,142 +200,31 @@ public class PDFConverter {
             }
         }
         
-        return convertedFiles;
+        return jobs;
     }
     
-    private static String convertSingleFile(String inputFile, String outputDir) throws Exception {
-        Path inputPath = Paths.get(inputFile);
-        
-        if (!Files.exists(inputPath)) {
-            throw new FileNotFoundException("Archivo no encontrado: " + inputFile);
-        }
-        
-        if (!Files.isReadable(inputPath)) {
-            throw new IOException("No se puede leer el archivo: " + inputFile);
-        }
-        
-        String extension = getFileExtension(inputPath.getFileName().toString()).toLowerCase();
-        if (!SUPPORTED_FORMATS.contains(extension)) {
-            throw new UnsupportedOperationException("Formato no soportado: " + extension);
+    public static class JobResult {
+        public final String inputFile;
+        public final String outputPath;
+        public final String error;
+        public final boolean success;
+        public final long durationMs;
+        
+        public JobResult(String inputFile, String outputPath, String error, long durationMs) {
+            this.inputFile = inputFile;
+            this.outputPath = outputPath;
+            this.error = error;
+            this.success = outputPath != null;
+            this.durationMs = durationMs;
         }
-        
-        String outputFileName = inputPath.getFileName().toString();
+    }
+    
+    private static String pdfFileName(String inputFile) {
+        String outputFileName = Paths.get(inputFile).getFileName().toString();
         int lastDot = outputFileName.lastIndexOf('.');
         if (lastDot > 0) {
             outputFileName = outputFileName.substring(0, lastDot);
         }
-        outputFileName += ".pdf";
-        
-        Path outputPath = Paths.get(outputDir, outputFileName);
-        
-        // Eliminar archivo de salida si existe
-        if (Files.exists(outputPath)) {
-            Files.delete(outputPath);
-        }
-        
-        // Limitar instancias concurrentes de LibreOffice
-        boolean acquired = libreOfficeSemaphore.tryAcquire(15, TimeUnit.SECONDS);
-        if (!acquired) {
-            throw new RuntimeException("No se pudo obtener acceso a LibreOffice - timeout");
-        }
-        
-        try {
-            // Crear directorio temporal único para evitar conflictos
-            String tempDirName = "temp_" + System.currentTimeMillis() + "_" + Thread.currentThread().getId();
-            Path tempDir = Paths.get(outputDir, tempDirName);
-            Files.createDirectories(tempDir);
-            
-            try {
-                ProcessBuilder pb = new ProcessBuilder(
-                    LIBREOFFICE_CMD,
-                    "--headless",
-                    "--invisible",
-                    "--nodefault",
-                    "--nolockcheck",
-                    "--nologo",
-                    "--norestore",
-                    "--convert-to", "pdf",
-                    "--outdir", tempDir.toString(),
-                    inputPath.toAbsolutePath().toString()
-                );
-                
-                // Configurar entorno para evitar conflictos
-                Map<String, String> env = pb.environment();
-                env.put("HOME", tempDir.toString());
-                env.put("TMPDIR", tempDir.toString());
-                env.put("XDG_CONFIG_HOME", tempDir.toString());
-                env.put("XDG_DATA_HOME", tempDir.toString());
-                
-                pb.redirectErrorStream(true);
-                
-                Process process = pb.start();
-                
-                // Leer salida para diagnóstico
-                StringBuilder output = new StringBuilder();
-                try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                    String line;
-                    while ((line = reader.readLine()) != null) {
-                        output.append(line).append("\n");
-                    }
-                }
-                
-                boolean finished = process.waitFor(90, TimeUnit.SECONDS);
-                if (!finished) {
-                    process.destroyForcibly();
-                    throw new RuntimeException("Timeout en conversión de: " + inputFile);
-                }
-                
-                int exitCode = process.exitValue();
-                if (exitCode != 0) {
-                    throw new RuntimeException("Error en LibreOffice (código " + exitCode + "): " + output.toString());
-                }
-                
-                // Buscar archivo PDF generado en directorio temporal
-                Path tempOutputPath = tempDir.resolve(outputFileName);
-                if (!Files.exists(tempOutputPath)) {
-                    // Buscar cualquier PDF en el directorio temporal
-                    try (var stream = Files.list(tempDir)) {
-                        Optional<Path> pdfFile = stream
-                            .filter(p -> p.toString().toLowerCase().endsWith(".pdf"))
-                            .findFirst();
-                        
-                        if (pdfFile.isPresent()) {
-                            tempOutputPath = pdfFile.get();
-                        } else {
-                            throw new RuntimeException("Archivo PDF no fue creado. Salida: " + output.toString());
-                        }
-                    }
-                }
-                
-                // Mover archivo al directorio final
-                Files.move(tempOutputPath, outputPath, StandardCopyOption.REPLACE_EXISTING);
-                
-                return outputPath.toAbsolutePath().toString();
-                
-            } finally {
-                // Limpiar directorio temporal
-                try {
-                    Files.walk(tempDir)
-                        .sorted(Comparator.reverseOrder())
-                        .forEach(path -> {
-                            try {
-                                Files.deleteIfExists(path);
-                            } catch (IOException e) {
-                                // Ignorar errores de limpieza
-                            }
-                        });
-                } catch (IOException e) {
-                    // Ignorar errores de limpieza
-                }
-            }
-            
-        } finally {
-            libreOfficeSemaphore.release();
-        }
-    }
-    
-    private static String getFileExtension(String fileName) {
-        int lastDot = fileName.lastIndexOf('.');
-        return lastDot > 0 ? fileName.substring(lastDot + 1) : "";
+        return outputFileName + ".pdf";
     }
 }
\ No newline at end of file
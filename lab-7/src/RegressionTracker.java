@@ -0,0 +1,179 @@
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import common.bench.BenchmarkOptions;
+import common.results.BenchmarkResults;
+import common.results.IterationResult;
+import common.results.ResultsStore;
+import common.results.RunComparison;
+import common.results.ThreadRun;
+
+/*
+ * Seguimiento de regresiones de los benchmarks de conversión.
+ *
+ *   java RegressionTracker import               importa reports/ (.json y .txt antiguos) al almacén
+ *   java RegressionTracker list                 lista las ejecuciones guardadas
+ *   java RegressionTracker baseline [--run=id]  fija la línea base (por defecto la última)
+ *   java RegressionTracker check [--run=id] [--alpha=0.05] [--threshold=0.05]
+ *
+ * check termina con código 1 si hay regresiones y 2 si no se puede comparar.
+ */
+public class RegressionTracker {
+
+    static final String TOOL = "lab-7 Benchmark";
+    private static final double DEFAULT_ALPHA = 0.05;
+    private static final double DEFAULT_THRESHOLD = 0.05;
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.out.println("Uso: java RegressionTracker import|list|baseline|check [--opciones]");
+            System.exit(2);
+        }
+
+        BenchmarkOptions options = BenchmarkOptions.parse(Arrays.copyOfRange(args, 1, args.length));
+        try {
+            ResultsStore store = FileManager.openResultsStore();
+            switch (args[0]) {
+                case "import":
+                    importReports(store, Paths.get(options.get("reports", FileManager.getReportsDirectory())));
+                    break;
+                case "list":
+                    listRuns(store);
+                    break;
+                case "baseline":
+                    String id = options.get("run", store.latest(TOOL));
+                    if (id == null) {
+                        System.err.println("No hay ejecuciones en el almacén");
+                        System.exit(2);
+                    }
+                    store.setBaseline(TOOL, id);
+                    System.out.println("Línea base: " + id);
+                    break;
+                case "check":
+                    System.exit(check(store, options.get("run", store.latest(TOOL)),
+                        options.getDouble("alpha", DEFAULT_ALPHA), options.getDouble("threshold", DEFAULT_THRESHOLD)));
+                    break;
+                default:
+                    System.err.println("Comando desconocido: " + args[0]);
+                    System.exit(2);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    // Guarda una ejecución nueva y la compara con la línea base (la primera ejecución pasa a ser la base)
+    public static void recordAndCompare(BenchmarkResults results) {
+        try {
+            ResultsStore store = FileManager.openResultsStore();
+            String id = store.add(results);
+            System.out.println("Ejecución guardada en el almacén: " + id);
+
+            String baselineId = store.getBaseline(TOOL);
+            if (baselineId == null) {
+                store.setBaseline(TOOL, id);
+                System.out.println("Sin línea base previa, " + id + " queda como línea base");
+                return;
+            }
+            RunComparison comparison = RunComparison.compare(baselineId, store.load(baselineId), id, results,
+                DEFAULT_ALPHA, DEFAULT_THRESHOLD);
+            System.out.println("\n" + comparison.formatReport());
+        } catch (IOException e) {
+            System.err.println("Error guardando en el almacén de resultados: " + e.getMessage());
+        }
+    }
+
+    private static int check(ResultsStore store, String runId, double alpha, double threshold) throws IOException {
+        String baselineId = store.getBaseline(TOOL);
+        if (baselineId == null || runId == null) {
+            System.err.println("Se necesita una línea base y una ejecución para comparar (use import y baseline)");
+            return 2;
+        }
+        if (baselineId.equals(runId)) {
+            System.out.println("La ejecución " + runId + " es la línea base, no hay nada que comparar");
+            return 0;
+        }
+        RunComparison comparison = RunComparison.compare(baselineId, store.load(baselineId), runId, store.load(runId),
+            alpha, threshold);
+        if (comparison.getComparisons().isEmpty()) {
+            System.err.println("Las ejecuciones no tienen números de hilos en común");
+            return 2;
+        }
+        System.out.println(comparison.formatReport());
+        return comparison.hasRegressions() ? 1 : 0;
+    }
+
+    private static void listRuns(ResultsStore store) throws IOException {
+        String baselineId = store.getBaseline(TOOL);
+        for (String id : store.list(TOOL)) {
+            BenchmarkResults results = store.load(id);
+            ThreadRun fastest = results.fastestRun();
+            System.out.printf("%s %-32s %s%s%n", id.equals(baselineId) ? "*" : " ", id, results.getTimestamp(),
+                fastest == null ? "" : String.format("  óptimo %d hilos, %.0f ms", fastest.getThreads(), fastest.meanWallTimeMs()));
+        }
+    }
+
+    private static void importReports(ResultsStore store, Path reportsDir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(reportsDir, "benchmark_*.{json,txt}")) {
+            stream.forEach(files::add);
+        }
+
+        int imported = 0;
+        for (Path file : BenchmarkResults.preferStructured(files)) {
+            try {
+                BenchmarkResults results = file.toString().endsWith(".json")
+                    ? BenchmarkResults.load(file)
+                    : fromTextReport(file);
+                if (store.find(results.getTool(), results.getTimestamp()) == null) {
+                    System.out.println("Importado " + file.getFileName() + " -> " + store.add(results));
+                    imported++;
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Error importando " + file.getFileName() + ": " + e.getMessage());
+            }
+        }
+        System.out.println(imported + " ejecución(es) nuevas en el almacén");
+    }
+
+    // Reportes de texto antiguos: un solo tiempo por número de hilos
+    static BenchmarkResults fromTextReport(Path file) throws IOException {
+        String content = Files.readString(file);
+
+        Matcher timestampMatcher = Pattern.compile("Fecha y hora: (\\d{4}-\\d{2}-\\d{2}) (\\d{2}:\\d{2}:\\d{2})").matcher(content);
+        if (!timestampMatcher.find()) {
+            throw new IllegalArgumentException("reporte sin fecha");
+        }
+        Matcher filesMatcher = Pattern.compile("Archivos procesados: (\\d+)").matcher(content);
+        int fileCount = filesMatcher.find() ? Integer.parseInt(filesMatcher.group(1)) : 0;
+
+        Map<String, String> system = new LinkedHashMap<>();
+        Matcher javaMatcher = Pattern.compile("Java versión: (\\S+)").matcher(content);
+        if (javaMatcher.find()) {
+            system.put("javaVersion", javaMatcher.group(1));
+        }
+        Matcher coresMatcher = Pattern.compile("CPU Cores: (\\d+)").matcher(content);
+        if (coresMatcher.find()) {
+            system.put("availableProcessors", coresMatcher.group(1));
+        }
+
+        BenchmarkResults results = new BenchmarkResults(TOOL,
+            timestampMatcher.group(1) + "T" + timestampMatcher.group(2), system);
+        results.putConfig("fileCount", fileCount).putConfig("source", file.getFileName());
+
+        Matcher rowMatcher = Pattern.compile("(\\d+)\\s+\\|\\s+(\\d+)\\s+\\|\\s+([\\d,.]+)\\s+\\|\\s+([\\d,.]+)x").matcher(content);
+        while (rowMatcher.find()) {
+            ThreadRun run = new ThreadRun(Integer.parseInt(rowMatcher.group(1)), fileCount);
+            run.addIteration(new IterationResult(1, false, Long.parseLong(rowMatcher.group(2)),
+                fileCount, 0, Collections.emptyList()));
+            results.addRun(run);
+        }
+        if (results.getRuns().isEmpty()) {
+            throw new IllegalArgumentException("reporte sin tabla de resultados");
+        }
+        return results;
+    }
+}
@@ -0,0 +1,59 @@
+import common.bench.BenchmarkOptions;
+import common.bench.MicroBenchmark;
+import common.bench.SyntheticCatalogue;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Benchmark del códec SOAP del servidor: el XML construido a mano por createSOAPResponse,
+ * codificado a UTF-8 tal como se envía por el socket.
+ * Con --dump-dir=<dir> guarda las respuestas generadas (soap_<n>.xml) para que el
+ * CodecBenchmark del cliente (lab-8) mida el parseo de exactamente los mismos bytes.
+ * Ejemplo: java CodecBenchmark --sizes=1,100,10000 --dump-dir=soap-payloads --json=codec-lab8-server.json
+ */
+public class CodecBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {1, 10, 100, 1_000, 10_000, 100_000};
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+        int[] sizes = options.getIntList("sizes", DEFAULT_SIZES);
+        long seed = options.getLong("seed", 42);
+        String dumpDir = options.get("dump-dir", null);
+
+        MicroBenchmark bench = MicroBenchmark.fromOptions(options);
+        SOAPServer server = new SOAPServer(List.of());
+
+        for (int size : sizes) {
+            List<Song> results = SyntheticCatalogue.generate(size, seed, Song::new);
+            byte[] encoded = encode(server, results);
+
+            if (dumpDir != null) {
+                Path payload = Paths.get(dumpDir, "soap_" + size + ".xml");
+                Files.createDirectories(payload.getParent());
+                Files.write(payload, encoded);
+            }
+
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("codec", "soap-xml");
+            params.put("songs", String.valueOf(size));
+
+            bench.run("lab8.codec.encode", params, () -> encode(server, results))
+                .addSecondaryMetric("wire.bytes", encoded.length)
+                .addSecondaryMetric("wire.bytes.perSong", (double) encoded.length / size);
+        }
+
+        bench.printSummary();
+        bench.writeJson(Paths.get(options.get("json", "codec-lab8-server.json")));
+    }
+
+    private static byte[] encode(SOAPServer server, List<Song> results) {
+        return server.createSOAPResponse(results, "searchByMultipleCriteriaResponse")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,25 +1,76 @@
 import java.net.ServerSocket;
-import java.net.Socket;
-import java.io.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import common.bench.BenchmarkOptions;
+import common.catalogue.Autocomplete;
+import common.catalogue.CatalogueStore;
+import common.catalogue.Facets;
+import common.catalogue.MappedCatalogue;
+import common.catalogue.SearchEngine;
+import common.catalogue.SnapshotCatalogue;
+import common.catalogue.SongCodec;
+import common.catalogue.SongFilter;
+import common.gateway.AdmissionControl;
+import common.gateway.SoapFrontend;
+import common.log.Log;
+import common.log.Logger;
+import common.metrics.MetricsHttpServer;
+import common.trace.Tracer;
 //🐢
 public class SOAPServer {
     
-    private List<Song> database;
+    private static final Logger LOG = Log.getLogger("SOAP Server");
+    private static final SongCodec<Song> CODEC = SongCodec.of(Song::new, Song::getTitle, Song::getGenre,
+        Song::getAuthor, Song::getLanguage, Song::getYear);
+    public static final int MAX_COMPLETIONS = SearchEngine.MAX_COMPLETIONS;
+    
+    // Catálogo e índices; el protocolo SOAP lo atiende SoapFrontend sobre el mismo motor
+    private final SearchEngine<Song> engine;
     private ServerSocket serverSocket;
     
     public SOAPServer() {
-        initializeDatabase();
+        this(defaultCatalogue());
+    }
+    
+    // Servidor con un catálogo inicial dado (benchmarks y pruebas locales)
+    public SOAPServer(List<Song> database) {
+        this(new SnapshotCatalogue<>(database, SOAPServer::keyOf));
+    }
+    
+    // Servidor sobre un catálogo ya creado (p. ej. el de openStore)
+    public SOAPServer(SnapshotCatalogue<Song> catalogue) {
+        this(new SearchEngine<>(catalogue, CODEC));
+    }
+    
+    // Servidor de solo lectura sobre un fichero de catálogo; las escrituras devuelven false
+    public SOAPServer(MappedCatalogue<Song> mapped) {
+        this(new SearchEngine<>(mapped, CODEC));
+    }
+    
+    private SOAPServer(SearchEngine<Song> engine) {
+        this.engine = engine;
+    }
+    
+    public SearchEngine<Song> engine() {
+        return engine;
+    }
+    
+    // Catálogo persistente en directory; el de ejemplo solo se usa si el directorio está vacío
+    public static CatalogueStore<Song> openStore(Path directory, CatalogueStore.Sync sync, long checkpointBytes)
+            throws IOException {
+        return CatalogueStore.open(directory, CODEC, SOAPServer::keyOf, SOAPServer::defaultCatalogue, sync,
+            checkpointBytes);
     }
     
-    private void initializeDatabase() {
-        database = new ArrayList<>();
+    static String keyOf(Song song) {
+        return SnapshotCatalogue.key(song.getTitle(), song.getAuthor());
+    }
+    
+    private static List<Song> defaultCatalogue() {
+        List<Song> database = new ArrayList<>();
         database.add(new Song("One bite on the Dust", "Rock", "Queen", "English", 1975));
         database.add(new Song("Bohemian Rhapsody", "Rock", "Queen", "English", 1975));
         database.add(new Song("Hotel California", "Rock", "Eagles", "English", 1976));
@@ -36,226 +87,96 @@ public class SOAPServer {
         database.add(new Song("Careless Whisper", "Pop", "George Michael", "English", 1984));
         database.add(new Song("Sweet Child O' Mine", "Rock", "Guns N' Roses", "English", 1987));
         database.add(new Song("Thunderstruck", "Rock", "AC/DC", "English", 1990));
+        return database;
     }
     
-    public void start(int port) throws IOException {
+    // Límites de conexiones, concurrencia y ritmo por cliente: ver AdmissionControl.fromOptions
+    public void start(int port, AdmissionControl admission) throws IOException {
         serverSocket = new ServerSocket(port);
-        System.out.println("[SOAP Server]: Servidor iniciado en puerto " + port);
-        System.out.println("[SOAP Server]: Esperando conexiones SOAP...");
-        
-        while (true) {
-            Socket clientSocket = serverSocket.accept();
-            new Thread(new ClientHandler(clientSocket)).start();
-        }
+        LOG.info("Servidor iniciado en puerto {}", port);
+        new SoapFrontend<>(engine, admission).serve(serverSocket);
     }
     
-    private class ClientHandler implements Runnable {
-        private Socket clientSocket;
-        
-        public ClientHandler(Socket socket) {
-            this.clientSocket = socket;
-        }
-        
-        public void run() {
-            try {
-                BufferedReader reader = new BufferedReader(
-                    new InputStreamReader(clientSocket.getInputStream()));
-                PrintWriter writer = new PrintWriter(
-                    clientSocket.getOutputStream(), true);
-                
-                // Leer HTTP headers
-                String line;
-                int contentLength = 0;
-                while ((line = reader.readLine()) != null && !line.isEmpty()) {
-                    if (line.startsWith("Content-Length:")) {
-                        contentLength = Integer.parseInt(line.substring(16).trim());
-                    }
-                }
-                
-                // Leer SOAP body
-                char[] buffer = new char[contentLength];
-                reader.read(buffer, 0, contentLength);
-                String soapRequest = new String(buffer);
-                
-                // Procesar SOAP request
-                String soapResponse = processSOAPRequest(soapRequest);
-                
-                // Enviar HTTP response
-                writer.println("HTTP/1.1 200 OK");
-                writer.println("Content-Type: text/xml; charset=utf-8");
-                writer.println("Content-Length: " + soapResponse.length());
-                writer.println();
-                writer.print(soapResponse);
-                writer.flush();
-                
-                clientSocket.close();
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
+    String createSOAPResponse(List<Song> songs, String methodName) {
+        return SoapFrontend.createSOAPResponse(CODEC, songs, methodName);
     }
     
-    private String processSOAPRequest(String soapRequest) {
-        try {
-            System.out.println("[SOAP Server]: Procesando request: " + soapRequest);
-            
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(true);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new ByteArrayInputStream(soapRequest.getBytes()));
-            
-            // Buscar método en cualquier namespace
-            String[] possibleMethods = {"searchByTitle", "searchByGenre", "searchByAuthor", "searchByMultipleCriteria"};
-            
-            for (String method : possibleMethods) {
-                NodeList methodNodes = doc.getElementsByTagName("*");
-                for (int i = 0; i < methodNodes.getLength(); i++) {
-                    Element element = (Element) methodNodes.item(i);
-                    String localName = element.getLocalName();
-                    
-                    if (method.equals(localName)) {
-                        switch (method) {
-                            case "searchByTitle":
-                                String title = getParameterValue(element, "arg0");
-                                return createSOAPResponse(searchByTitle(title), "searchByTitleResponse");
-                                
-                            case "searchByGenre":
-                                String genre = getParameterValue(element, "arg0");
-                                return createSOAPResponse(searchByGenre(genre), "searchByGenreResponse");
-                                
-                            case "searchByAuthor":
-                                String author = getParameterValue(element, "arg0");
-                                return createSOAPResponse(searchByAuthor(author), "searchByAuthorResponse");
-                                
-                            case "searchByMultipleCriteria":
-                                String titleParam = getParameterValue(element, "arg0");
-                                String genreParam = getParameterValue(element, "arg1");
-                                String authorParam = getParameterValue(element, "arg2");
-                                return createSOAPResponse(
-                                    searchByMultipleCriteria(titleParam, genreParam, authorParam), 
-                                    "searchByMultipleCriteriaResponse");
-                        }
-                    }
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        
-        return createSOAPFault("Invalid request");
+    // Métodos de búsqueda
+    public List<Song> searchByTitle(String title) {
+        return engine.search(new SongFilter(title, null, null));
     }
     
-    private String getParameterValue(Element methodElement, String paramName) {
-        NodeList params = methodElement.getElementsByTagName(paramName);
-        if (params.getLength() > 0) {
-            return params.item(0).getTextContent();
-        }
-        return "";
+    public List<Song> searchByGenre(String genre) {
+        return engine.search(new SongFilter(null, genre, null));
     }
     
-    private String createSOAPResponse(List<Song> songs, String methodName) {
-        StringBuilder response = new StringBuilder();
-        response.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
-        response.append("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">");
-        response.append("<soap:Body>");
-        response.append("<ns2:").append(methodName).append(" xmlns:ns2=\"http://service.musiclibrary.com/\">");
-        
-        for (Song song : songs) {
-            response.append("<return>");
-            response.append("<title>").append(escapeXml(song.getTitle())).append("</title>");
-            response.append("<genre>").append(escapeXml(song.getGenre())).append("</genre>");
-            response.append("<author>").append(escapeXml(song.getAuthor())).append("</author>");
-            response.append("<language>").append(escapeXml(song.getLanguage())).append("</language>");
-            response.append("<year>").append(song.getYear()).append("</year>");
-            response.append("</return>");
-        }
-        
-        response.append("</ns2:").append(methodName).append(">");
-        response.append("</soap:Body>");
-        response.append("</soap:Envelope>");
-        
-        return response.toString();
+    public List<Song> searchByAuthor(String author) {
+        return engine.search(new SongFilter(null, null, author));
     }
     
-    private String createSOAPFault(String message) {
-        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
-               "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
-               "<soap:Body>" +
-               "<soap:Fault>" +
-               "<faultcode>Server</faultcode>" +
-               "<faultstring>" + escapeXml(message) + "</faultstring>" +
-               "</soap:Fault>" +
-               "</soap:Body>" +
-               "</soap:Envelope>";
+    public List<Song> searchByMultipleCriteria(String title, String genre, String author) {
+        return engine.search(new SongFilter(title, genre, author));
     }
     
-    private String escapeXml(String text) {
-        if (text == null) return "";
-        return text.replace("&", "&amp;")
-                   .replace("<", "&lt;")
-                   .replace(">", "&gt;")
-                   .replace("\"", "&quot;")
-                   .replace("'", "&apos;");
+    public Facets facets(String title, String genre, String author, int limit) {
+        return engine.facets(new SongFilter(title, genre, author), limit);
     }
     
-    // Métodos de búsqueda
-    public List<Song> searchByTitle(String title) {
-        List<Song> results = new ArrayList<>();
-        for (Song song : database) {
-            if (song.getTitle().toLowerCase().contains(title.toLowerCase())) {
-                results.add(song);
-            }
-        }
-        return results;
+    // Sugerencias de autocompletado, como mucho MAX_COMPLETIONS
+    public List<Autocomplete.Completion> complete(String prefix, String field, int limit) {
+        return engine.complete(prefix, Autocomplete.Field.of(field), limit);
     }
     
-    public List<Song> searchByGenre(String genre) {
-        List<Song> results = new ArrayList<>();
-        for (Song song : database) {
-            if (song.getGenre().toLowerCase().contains(genre.toLowerCase())) {
-                results.add(song);
-            }
-        }
-        return results;
+    // Escrituras
+    public boolean addSong(Song song) {
+        return engine.add(song);
     }
     
-    public List<Song> searchByAuthor(String author) {
-        List<Song> results = new ArrayList<>();
-        for (Song song : database) {
-            if (song.getAuthor().toLowerCase().contains(author.toLowerCase())) {
-                results.add(song);
-            }
-        }
-        return results;
+    public boolean updateSong(String title, String author, Song song) {
+        return engine.update(SearchEngine.key(title, author), song);
     }
     
-    public List<Song> searchByMultipleCriteria(String title, String genre, String author) {
-        List<Song> results = new ArrayList<>();
-        for (Song song : database) {
-            boolean matches = true;
-            if (title != null && !title.isEmpty() && !song.getTitle().toLowerCase().contains(title.toLowerCase())) {
-                matches = false;
-            }
-            if (genre != null && !genre.isEmpty() && !song.getGenre().toLowerCase().contains(genre.toLowerCase())) {
-                matches = false;
-            }
-            if (author != null && !author.isEmpty() && !song.getAuthor().toLowerCase().contains(author.toLowerCase())) {
-                matches = false;
-            }
-            if (matches) {
-                results.add(song);
-            }
-        }
-        return results;
+    public boolean deleteSong(String title, String author) {
+        return engine.remove(SearchEngine.key(title, author)) != null;
     }
     
     public static void main(String[] args) {
         try {
-            SOAPServer server = new SOAPServer();
-            server.start(8080);
+            // Métricas en JMX y en http://127.0.0.1:9408/metrics (--metrics-port=-1 lo desactiva)
+            BenchmarkOptions options = BenchmarkOptions.parse(args);
+            MetricsHttpServer.expose("lab-8-server", options.getInt("metrics-port", 9408));
+            // --trace-sample=0.01 muestrea también las peticiones que llegan sin traceparent
+            Tracer.configure("lab-8-server", options.getDouble("trace-sample", Tracer.getSampleRate()),
+                options.get("trace-file", null));
+            // --data-dir=data guarda el catálogo (snapshot + log de cambios) y lo recupera al reiniciar;
+            // --wal-sync=always|none y --checkpoint-mb=64 como en lab3
+            // --catalogue-file=data/catalogue.snap: solo lectura, busca sobre el fichero mapeado (--verify comprueba el CRC)
+            // --max-concurrent, --max-queued, --queue-ms, --client-rate, --max-connections y --idle-ms: ver AdmissionControl
+            String dataDir = options.get("data-dir", null);
+            String catalogueFile = options.get("catalogue-file", null);
+            SOAPServer server;
+            if (catalogueFile != null) {
+                server = new SOAPServer(MappedCatalogue.open(Paths.get(catalogueFile), CODEC,
+                    options.getBoolean("verify", false)));
+            } else if (dataDir != null) {
+                CatalogueStore<Song> store = openStore(Paths.get(dataDir),
+                    CatalogueStore.Sync.valueOf(options.get("wal-sync", "always").toUpperCase()),
+                    options.getLong("checkpoint-mb", 64) << 20);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        store.close();
+                    } catch (IOException e) {
+                        LOG.error("No se pudo cerrar el catálogo: {}", e.getMessage());
+                    }
+                }));
+                server = new SOAPServer(store.catalogue());
+            } else {
+                server = new SOAPServer();
+            }
+            server.engine().exposeGauges();
+            server.start(8080, AdmissionControl.fromOptions("soap", options));
         } catch (IOException e) {
-            System.err.println("[SOAP Server]: Error: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error: {}", e.getMessage(), e);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+import common.bench.BenchmarkOptions;
+import common.bench.MicroBenchmark;
+import common.bench.SyntheticCatalogue;
+import common.bench.SyntheticCatalogue.Field;
+import common.bench.SyntheticCatalogue.Selectivity;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Benchmark de las búsquedas del servidor SOAP sobre catálogos sintéticos.
+ * Ejemplo: java SearchBenchmark --sizes=1e3,1e5 --selectivity=HIGH,LOW --time=500
+ * Catálogos de 1e7 canciones necesitan alrededor de -Xmx4g.
+ */
+public class SearchBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+    private static final List<String> ALL_METHODS = List.of(
+        "searchByTitle", "searchByGenre", "searchByAuthor", "searchByMultipleCriteria");
+
+    public static void main(String[] args) {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+        int[] sizes = options.getIntList("sizes", DEFAULT_SIZES);
+        List<String> selectivities = options.getList("selectivity", List.of("ALL", "HIGH", "MEDIUM", "LOW", "NONE"));
+        List<String> methods = options.getList("methods", ALL_METHODS);
+        long seed = options.getLong("seed", 42);
+
+        MicroBenchmark bench = MicroBenchmark.fromOptions(options);
+
+        for (int size : sizes) {
+            System.out.println("\nGenerando catálogo sintético de " + size + " canciones...");
+            List<Song> catalogue = SyntheticCatalogue.generate(size, seed, Song::new);
+            SOAPServer server = new SOAPServer(catalogue);
+
+            for (String name : selectivities) {
+                Selectivity selectivity = Selectivity.valueOf(name.toUpperCase());
+                String title = SyntheticCatalogue.term(Field.TITLE, selectivity);
+                String genre = SyntheticCatalogue.term(Field.GENRE, selectivity);
+                String author = SyntheticCatalogue.term(Field.AUTHOR, selectivity);
+
+                if (methods.contains("searchByTitle")) {
+                    bench.run("lab8.searchByTitle", params(size, selectivity, server.searchByTitle(title).size()),
+                        () -> server.searchByTitle(title));
+                }
+                if (methods.contains("searchByGenre")) {
+                    bench.run("lab8.searchByGenre", params(size, selectivity, server.searchByGenre(genre).size()),
+                        () -> server.searchByGenre(genre));
+                }
+                if (methods.contains("searchByAuthor")) {
+                    bench.run("lab8.searchByAuthor", params(size, selectivity, server.searchByAuthor(author).size()),
+                        () -> server.searchByAuthor(author));
+                }
+                if (methods.contains("searchByMultipleCriteria")) {
+                    int matches = server.searchByMultipleCriteria(title, genre, "").size();
+                    bench.run("lab8.searchByMultipleCriteria", params(size, selectivity, matches),
+                        () -> server.searchByMultipleCriteria(title, genre, ""));
+                }
+            }
+        }
+
+        bench.printSummary();
+        if (options.has("json")) {
+            bench.writeJson(Paths.get(options.get("json", "")));
+        }
+    }
+
+    private static Map<String, String> params(int size, Selectivity selectivity, int matches) {
+        Map<String, String> params = new LinkedHashMap<>();
+        params.put("songs", String.valueOf(size));
+        params.put("selectivity", selectivity.name());
+        params.put("matches", String.valueOf(matches));
+        return params;
+    }
+}
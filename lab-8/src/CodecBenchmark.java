@@ -0,0 +1,58 @@
+import common.bench.BenchmarkOptions;
+import common.bench.MicroBenchmark;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Benchmark del parseo de respuestas SOAP del cliente (parseSearchResponse, DOM).
+ * Lee las respuestas generadas por el CodecBenchmark del servidor con --dump-dir.
+ * Ejemplo: java CodecBenchmark --payload-dir=../lab-8-server/soap-payloads --json=codec-lab8-client.json
+ */
+public class CodecBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+        Path payloadDir = Paths.get(options.get("payload-dir", "../lab-8-server/soap-payloads"));
+
+        if (!Files.isDirectory(payloadDir)) {
+            System.err.println("No existe el directorio de respuestas: " + payloadDir.toAbsolutePath());
+            System.err.println("Genérelo con: java CodecBenchmark --dump-dir=<dir> en lab-8-server");
+            System.exit(1);
+        }
+
+        // Ordenar por número de canciones
+        Map<Integer, Path> payloads = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(payloadDir, "soap_*.xml")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                payloads.put(Integer.parseInt(name.substring(5, name.length() - 4)), file);
+            }
+        }
+
+        MicroBenchmark bench = MicroBenchmark.fromOptions(options);
+        MusicLibraryClient client = new MusicLibraryClient();
+
+        for (Map.Entry<Integer, Path> entry : payloads.entrySet()) {
+            int size = entry.getKey();
+            byte[] encoded = Files.readAllBytes(entry.getValue());
+
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("codec", "soap-xml");
+            params.put("songs", String.valueOf(size));
+
+            bench.run("lab8.codec.decode", params,
+                    () -> client.parseSearchResponse(new String(encoded, StandardCharsets.UTF_8)))
+                .addSecondaryMetric("wire.bytes", encoded.length)
+                .addSecondaryMetric("wire.bytes.perSong", (double) encoded.length / size);
+        }
+
+        bench.printSummary();
+        bench.writeJson(Paths.get(options.get("json", "codec-lab8-client.json")));
+    }
+}
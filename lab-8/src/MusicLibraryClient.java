@@ -12,18 +12,35 @@ import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
 import org.w3c.dom.Element;
 import java.io.ByteArrayInputStream;
+import common.bench.BenchmarkOptions;
+import common.deadline.Deadline;
+import common.deadline.DeadlineExceededException;
+import common.gateway.ServerBusyException;
+import common.trace.Span;
+import common.trace.Tracer;
 //🐢
 public class MusicLibraryClient {
     
     private static final String SOAP_ENDPOINT = "http://localhost:8080";
+    private static final int DEFAULT_TIMEOUT_MS = 10_000;
     private Scanner scanner;
+    // Plazo de cada petición: conexión, envío y respuesta
+    private int timeoutMs;
     
     public MusicLibraryClient() {
+        this(DEFAULT_TIMEOUT_MS);
+    }
+    
+    public MusicLibraryClient(int timeoutMs) {
         this.scanner = new Scanner(System.in);
+        this.timeoutMs = timeoutMs;
     }
     
     public static void main(String[] args) {
-        MusicLibraryClient client = new MusicLibraryClient();
+        // --trace-sample=1 traza todas las consultas (traces-lab-8.jsonl); --timeout-ms=10000 por petición
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+        Tracer.configure("lab-8", options.getDouble("trace-sample", Tracer.getSampleRate()), options.get("trace-file", null));
+        MusicLibraryClient client = new MusicLibraryClient(options.getInt("timeout-ms", DEFAULT_TIMEOUT_MS));
         client.startClient();
     }
     
@@ -32,7 +49,7 @@ public class MusicLibraryClient {
         System.out.println("Conectado al servidor SOAP.");
         
         int choice = 0;
-        while (choice != 6) {
+        while (choice != 9) {
             showMenu();
             choice = scanner.nextInt();
             scanner.nextLine();
@@ -54,6 +71,15 @@ public class MusicLibraryClient {
                     searchByGenre();
                     break;
                 case 6:
+                    completeMenu();
+                    break;
+                case 7:
+                    showFacets();
+                    break;
+                case 8:
+                    searchRankedMenu();
+                    break;
+                case 9:
                     System.out.println("¡Hasta luego!");
                     break;
                 default:
@@ -69,7 +95,10 @@ public class MusicLibraryClient {
         System.out.println("3. Mostrar todas las canciones");
         System.out.println("4. Buscar por título");
         System.out.println("5. Buscar por género");
-        System.out.println("6. Salir");
+        System.out.println("6. Autocompletar título o autor");
+        System.out.println("7. Resumen por género, idioma, autor y década");
+        System.out.println("8. Búsqueda por relevancia (tolera erratas)");
+        System.out.println("9. Salir");
         System.out.print("Seleccione una opción: ");
     }
     
@@ -77,12 +106,8 @@ public class MusicLibraryClient {
         System.out.print("Ingrese el nombre del autor: ");
         String author = scanner.nextLine();
         
-        String soapRequest = createSOAPRequest("searchByAuthor", 
-            "<arg0>" + escapeXml(author) + "</arg0>");
-        
         try {
-            String response = sendSOAPRequest(soapRequest);
-            List<Song> results = parseSearchResponse(response);
+            List<Song> results = invoke("searchByAuthor", "<arg0>" + escapeXml(author) + "</arg0>");
             displayResults(results);
         } catch (Exception e) {
             System.out.println("[Music Client]: Error buscando por autor: " + e.getMessage());
@@ -93,12 +118,8 @@ public class MusicLibraryClient {
         System.out.print("Ingrese el título de la canción: ");
         String title = scanner.nextLine();
         
-        String soapRequest = createSOAPRequest("searchByTitle", 
-            "<arg0>" + escapeXml(title) + "</arg0>");
-        
         try {
-            String response = sendSOAPRequest(soapRequest);
-            List<Song> results = parseSearchResponse(response);
+            List<Song> results = invoke("searchByTitle", "<arg0>" + escapeXml(title) + "</arg0>");
             displayResults(results);
         } catch (Exception e) {
             System.out.println("[Music Client]: Error buscando por título: " + e.getMessage());
@@ -109,12 +130,8 @@ public class MusicLibraryClient {
         System.out.print("Ingrese el género: ");
         String genre = scanner.nextLine();
         
-        String soapRequest = createSOAPRequest("searchByGenre", 
-            "<arg0>" + escapeXml(genre) + "</arg0>");
-        
         try {
-            String response = sendSOAPRequest(soapRequest);
-            List<Song> results = parseSearchResponse(response);
+            List<Song> results = invoke("searchByGenre", "<arg0>" + escapeXml(genre) + "</arg0>");
             displayResults(results);
         } catch (Exception e) {
             System.out.println("[Music Client]: Error buscando por género: " + e.getMessage());
@@ -134,11 +151,8 @@ public class MusicLibraryClient {
                            "<arg1>" + escapeXml(genre) + "</arg1>" +
                            "<arg2>" + escapeXml(author) + "</arg2>";
         
-        String soapRequest = createSOAPRequest("searchByMultipleCriteria", parameters);
-        
         try {
-            String response = sendSOAPRequest(soapRequest);
-            List<Song> results = parseSearchResponse(response);
+            List<Song> results = invoke("searchByMultipleCriteria", parameters);
             displayResults(results);
         } catch (Exception e) {
             System.out.println("[Music Client]: Error en búsqueda múltiple: " + e.getMessage());
@@ -147,22 +161,120 @@ public class MusicLibraryClient {
     
     private void showAllSongs() {
         String parameters = "<arg0></arg0><arg1></arg1><arg2></arg2>";
-        String soapRequest = createSOAPRequest("searchByMultipleCriteria", parameters);
         
         try {
-            String response = sendSOAPRequest(soapRequest);
-            List<Song> results = parseSearchResponse(response);
+            List<Song> results = invoke("searchByMultipleCriteria", parameters);
             displayResults(results);
         } catch (Exception e) {
             System.out.println("[Music Client]: Error obteniendo todas las canciones: " + e.getMessage());
         }
     }
     
-    private String createSOAPRequest(String methodName, String parameters) {
+    private void searchRankedMenu() {
+        System.out.print("Buscar (título, autor o género): ");
+        String query = scanner.nextLine();
+        
+        try {
+            List<Song> results = invoke("searchRanked", "<arg0>" + escapeXml(query) + "</arg0><arg1>10</arg1>");
+            displayResults(results);
+        } catch (Exception e) {
+            System.out.println("[Music Client]: Error en búsqueda por relevancia: " + e.getMessage());
+        }
+    }
+    
+    private void completeMenu() {
+        System.out.print("Empiece a escribir un título o autor: ");
+        String prefix = scanner.nextLine();
+        
+        try {
+            List<String> completions = complete(prefix, "all", 10);
+            if (completions.isEmpty()) {
+                System.out.println("Sin sugerencias.");
+            }
+            for (String completion : completions) {
+                System.out.println("  " + completion);
+            }
+        } catch (Exception e) {
+            System.out.println("[Music Client]: Error autocompletando: " + e.getMessage());
+        }
+    }
+    
+    private void showFacets() {
+        System.out.print("Género (presione Enter para todos): ");
+        String genre = scanner.nextLine();
+        String parameters = "<arg0></arg0><arg1>" + escapeXml(genre) + "</arg1><arg2></arg2><arg3>10</arg3>";
+        
+        try (Span span = Tracer.startClientSpan("soap.client.facets")) {
+            String response = sendSOAPRequest(createSOAPRequest("facets", parameters, span.traceParent()), span.traceParent());
+            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            Document doc = builder.parse(new ByteArrayInputStream(response.getBytes()));
+            NodeList totals = doc.getElementsByTagName("total");
+            System.out.println("\n=== RESUMEN (" + (totals.getLength() > 0 ? totals.item(0).getTextContent() : "0")
+                + " canciones) ===");
+            printFacet(doc, "genres", "Géneros");
+            printFacet(doc, "languages", "Idiomas");
+            printFacet(doc, "authors", "Autores");
+            printFacet(doc, "decades", "Décadas");
+        } catch (Exception e) {
+            System.out.println("[Music Client]: Error obteniendo el resumen: " + e.getMessage());
+        }
+    }
+    
+    private void printFacet(Document doc, String element, String title) {
+        System.out.println(title + ":");
+        NodeList facets = doc.getElementsByTagName(element);
+        if (facets.getLength() == 0) {
+            return;
+        }
+        NodeList values = ((Element) facets.item(0)).getElementsByTagName("value");
+        for (int i = 0; i < values.getLength(); i++) {
+            Element value = (Element) values.item(i);
+            System.out.println("   " + value.getElementsByTagName("name").item(0).getTextContent() + ": "
+                + value.getElementsByTagName("count").item(0).getTextContent());
+        }
+    }
+    
+    // Textos sugeridos por el servidor, los más populares primero
+    List<String> complete(String prefix, String field, int limit) throws Exception {
+        String parameters = "<arg0>" + escapeXml(prefix) + "</arg0>" +
+                           "<arg1>" + escapeXml(field) + "</arg1>" +
+                           "<arg2>" + limit + "</arg2>";
+        try (Span span = Tracer.startClientSpan("soap.client.complete")) {
+            String response = sendSOAPRequest(createSOAPRequest("complete", parameters, span.traceParent()), span.traceParent());
+            DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            Document doc = builder.parse(new ByteArrayInputStream(response.getBytes()));
+            NodeList texts = doc.getElementsByTagName("text");
+            List<String> completions = new ArrayList<>();
+            for (int i = 0; i < texts.getLength(); i++) {
+                completions.add(texts.item(i).getTextContent());
+            }
+            span.tag("results", completions.size());
+            return completions;
+        }
+    }
+    
+    // Petición completa bajo un span cliente: construir el sobre, HTTP y parseo de la respuesta
+    private List<Song> invoke(String methodName, String parameters) throws Exception {
+        try (Span span = Tracer.startClientSpan("soap.client." + methodName)) {
+            String response = sendSOAPRequest(createSOAPRequest(methodName, parameters, span.traceParent()), span.traceParent());
+            try (Span parse = Tracer.startSpan("soap.parse_response")) {
+                parse.tag("response.length", response.length());
+                List<Song> results = parseSearchResponse(response);
+                span.tag("results", results.size());
+                return results;
+            }
+        }
+    }
+    
+    private String createSOAPRequest(String methodName, String parameters, String traceParent) {
+        // Contexto de traza W3C en la cabecera SOAP; sin traza la cabecera queda vacía
+        String header = traceParent == null ? "<soap:Header/>"
+            : "<soap:Header><tc:traceparent xmlns:tc=\"https://www.w3.org/TR/trace-context/\">" +
+              traceParent + "</tc:traceparent></soap:Header>";
         return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
                "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\" " +
                "xmlns:ser=\"http://service.musiclibrary.com/\">" +
-               "<soap:Header/>" +
+               header +
                "<soap:Body>" +
                "<ser:" + methodName + ">" +
                parameters +
@@ -171,22 +283,45 @@ public class MusicLibraryClient {
                "</soap:Envelope>";
     }
     
-    private String sendSOAPRequest(String soapRequest) throws Exception {
+    /*
+     * El servidor recibe el plazo en X-Request-Timeout-Ms y abandona la petición al agotarse
+     * (504); aquí, pasado el plazo, la conexión o la lectura fallan con SocketTimeoutException.
+     * Con timeoutMs <= 0 no hay plazo.
+     */
+    private String sendSOAPRequest(String soapRequest, String traceParent) throws Exception {
+        Deadline deadline = timeoutMs > 0 ? Deadline.after(timeoutMs) : null;
         URL url = new URL(SOAP_ENDPOINT);
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(Math.max(0, timeoutMs));
         
         connection.setRequestMethod("POST");
         connection.setRequestProperty("Content-Type", "text/xml; charset=utf-8");
         connection.setRequestProperty("SOAPAction", "");
+        if (traceParent != null) {
+            connection.setRequestProperty("traceparent", traceParent);
+        }
+        if (deadline != null) {
+            connection.setRequestProperty(Deadline.HEADER, String.valueOf(deadline.propagate()));
+        }
         connection.setDoOutput(true);
         
         try (OutputStream os = connection.getOutputStream()) {
             os.write(soapRequest.getBytes("UTF-8"));
         }
         
+        connection.setReadTimeout(deadline == null ? 0 : (int) deadline.propagate());
+        int status = connection.getResponseCode();
+        ServerBusyException busy = ServerBusyException.fromHttp(status, connection.getHeaderField("Retry-After"));
+        if (busy != null) {
+            throw busy;
+        }
+        if (status == DeadlineExceededException.HTTP_STATUS) {
+            throw new DeadlineExceededException(deadline == null ? 0 : Math.max(0, -deadline.remainingMillis()));
+        }
+        
         StringBuilder response = new StringBuilder();
         try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(connection.getInputStream()))) {
+                new InputStreamReader(connection.getInputStream(), "UTF-8"))) {
             String line;
             while ((line = reader.readLine()) != null) {
                 response.append(line);
@@ -196,7 +331,7 @@ public class MusicLibraryClient {
         return response.toString();
     }
     
-    private List<Song> parseSearchResponse(String xmlResponse) throws Exception {
+    List<Song> parseSearchResponse(String xmlResponse) throws Exception {
         List<Song> songs = new ArrayList<>();
         
         DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
@@ -273,7 +408,7 @@ public class MusicLibraryClient {
     }
     
     // Song class for client-side representation
-    private static class Song {
+    static class Song {
         private String title;
         private String genre;
         private String author;
@@ -0,0 +1,175 @@
+package common.balance;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/*
+ * Balanceo en el cliente entre réplicas equivalentes (solo operaciones de lectura, que se
+ * pueden repetir en otra réplica). Estrategias:
+ *   P2C    dos réplicas al azar y la que tenga menos peticiones en curso
+ *   LEAST  la réplica con menos peticiones en curso (empates al azar)
+ * Si una llamada falla con un error reintentable la réplica queda fuera durante cooldownMs
+ * y la petición se repite en otra que no se haya probado todavía.
+ */
+public class LoadBalancer<T> {
+
+    public enum Strategy { P2C, LEAST }
+
+    @FunctionalInterface
+    public interface Call<T, R> {
+        R call(T target) throws Exception;
+    }
+
+    public static final class Node<T> {
+        public final String name;
+        public final T target;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final LongAdder requests = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        volatile long downUntilNanos;
+
+        Node(String name, T target) {
+            this.name = name;
+            this.target = target;
+        }
+
+        boolean isDown(long now) {
+            return downUntilNanos - now > 0;
+        }
+    }
+
+    private final Strategy strategy;
+    private final Predicate<Exception> retryable;
+    private final long cooldownNanos;
+    private final LongAdder failovers = new LongAdder();
+    private volatile List<Node<T>> nodes = List.of();
+
+    public LoadBalancer(Strategy strategy, Predicate<Exception> retryable, long cooldownMs) {
+        this.strategy = strategy;
+        this.retryable = retryable;
+        this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMs);
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /*
+     * Sustituye la lista de réplicas (p. ej. tras volver a consultar el registro). Las que ya
+     * existían (mismo nombre y mismo destino) conservan sus contadores y su estado.
+     */
+    public synchronized void setTargets(Map<String, T> targets) {
+        Map<String, Node<T>> current = new LinkedHashMap<>();
+        for (Node<T> node : nodes) {
+            current.put(node.name, node);
+        }
+        List<Node<T>> updated = new ArrayList<>(targets.size());
+        for (Map.Entry<String, T> entry : targets.entrySet()) {
+            Node<T> existing = current.get(entry.getKey());
+            updated.add(existing != null && existing.target.equals(entry.getValue())
+                ? existing : new Node<>(entry.getKey(), entry.getValue()));
+        }
+        nodes = List.copyOf(updated);
+    }
+
+    public <R> R execute(Call<T, R> call) throws Exception {
+        List<Node<T>> snapshot = nodes;
+        if (snapshot.isEmpty()) {
+            throw new IllegalStateException("No hay réplicas disponibles");
+        }
+        boolean[] tried = new boolean[snapshot.size()];
+        Exception last = null;
+        for (int attempt = 0; attempt < snapshot.size(); attempt++) {
+            int index = select(snapshot, tried);
+            tried[index] = true;
+            Node<T> node = snapshot.get(index);
+            node.outstanding.incrementAndGet();
+            node.requests.increment();
+            try {
+                return call.call(node.target);
+            } catch (Exception e) {
+                if (!retryable.test(e)) {
+                    throw e;
+                }
+                node.failures.increment();
+                node.downUntilNanos = System.nanoTime() + cooldownNanos;
+                failovers.increment();
+                last = e;
+            } finally {
+                node.outstanding.decrementAndGet();
+            }
+        }
+        throw last;
+    }
+
+    // Réplicas sin probar y no caídas; si todas están caídas se prueban igualmente
+    private int select(List<Node<T>> snapshot, boolean[] tried) {
+        long now = System.nanoTime();
+        int[] candidates = new int[snapshot.size()];
+        int count = 0;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (!tried[i] && !snapshot.get(i).isDown(now)) {
+                candidates[count++] = i;
+            }
+        }
+        if (count == 0) {
+            for (int i = 0; i < snapshot.size(); i++) {
+                if (!tried[i]) {
+                    candidates[count++] = i;
+                }
+            }
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (count == 1) {
+            return candidates[0];
+        }
+        if (strategy == Strategy.P2C) {
+            int i = random.nextInt(count);
+            int j = random.nextInt(count - 1);
+            if (j >= i) {
+                j++;
+            }
+            int a = candidates[i];
+            int b = candidates[j];
+            return snapshot.get(b).outstanding.get() < snapshot.get(a).outstanding.get() ? b : a;
+        }
+        int best = -1;
+        int bestLoad = Integer.MAX_VALUE;
+        int ties = 0;
+        for (int c = 0; c < count; c++) {
+            int load = snapshot.get(candidates[c]).outstanding.get();
+            if (load < bestLoad) {
+                best = candidates[c];
+                bestLoad = load;
+                ties = 1;
+            } else if (load == bestLoad && random.nextInt(++ties) == 0) {
+                best = candidates[c];
+            }
+        }
+        return best;
+    }
+
+    public long getFailovers() {
+        return failovers.sum();
+    }
+
+    // nombre -> peticiones enviadas (incluye las que fallaron)
+    public Map<String, Long> requestCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Node<T> node : nodes) {
+            counts.put(node.name, node.requests.sum());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,165 @@
+package common.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * Motor para benchmarks de pocas iteraciones largas (conversiones completas): hace el
+ * warmup y repite la medición hasta que el intervalo de confianza de la media, sin
+ * outliers, queda por debajo del error relativo objetivo o se llega al máximo de
+ * iteraciones.
+ */
+public class AdaptiveRunner {
+
+    @FunctionalInterface
+    public interface Trial {
+        // Ejecuta una iteración (numeradas desde 1) y devuelve el tiempo medido en ms
+        long run(int iteration, boolean warmup) throws Exception;
+    }
+
+    private final int warmupIterations;
+    private final int minIterations;
+    private final int maxIterations;
+    private final double targetRelativeError;
+    private final double confidence;
+    private final long pauseMs;
+
+    public AdaptiveRunner(int warmupIterations, int minIterations, int maxIterations,
+                          double targetRelativeError, double confidence, long pauseMs) {
+        if (minIterations < 2 || maxIterations < minIterations) {
+            throw new IllegalArgumentException("Se necesitan al menos 2 iteraciones y max >= min");
+        }
+        if (confidence <= 0 || confidence >= 1) {
+            throw new IllegalArgumentException("El nivel de confianza debe estar entre 0 y 1");
+        }
+        this.warmupIterations = warmupIterations;
+        this.minIterations = minIterations;
+        this.maxIterations = maxIterations;
+        this.targetRelativeError = targetRelativeError;
+        this.confidence = confidence;
+        this.pauseMs = pauseMs;
+    }
+
+    public static AdaptiveRunner fromOptions(BenchmarkOptions options, long defaultPauseMs) {
+        return new AdaptiveRunner(
+            options.getInt("warmup", 1),
+            options.getInt("min-iterations", 3),
+            options.getInt("max-iterations", 10),
+            options.getDouble("target-error", 0.05),
+            options.getDouble("confidence", 0.95),
+            options.getLong("pause-ms", defaultPauseMs));
+    }
+
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    public int getMinIterations() {
+        return minIterations;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public double getTargetRelativeError() {
+        return targetRelativeError;
+    }
+
+    public double getConfidence() {
+        return confidence;
+    }
+
+    public String describe() {
+        return String.format(Locale.ROOT, "warmup %d, entre %d y %d iteraciones, IC %.0f%% con error relativo <= %.1f%%",
+            warmupIterations, minIterations, maxIterations, confidence * 100, targetRelativeError * 100);
+    }
+
+    public Measurement measure(Trial trial) {
+        List<Long> samples = new ArrayList<>();
+        int iteration = 0;
+        boolean converged = false;
+
+        try {
+            for (int i = 0; i < warmupIterations; i++) {
+                pause(iteration);
+                iteration++;
+                long time = trial.run(iteration, true);
+                System.out.printf("  Warmup %d: %dms%n", i + 1, time);
+            }
+
+            while (samples.size() < maxIterations) {
+                pause(iteration);
+                iteration++;
+                long time = trial.run(iteration, false);
+                samples.add(time);
+
+                SampleStatistics kept = SampleStatistics.of(samples).withoutOutliers();
+                double relativeError = kept.relativeCiHalfWidth(confidence);
+                if (samples.size() >= 2) {
+                    System.out.printf(Locale.ROOT, "  Iteración %d: %dms (error relativo %.1f%%)%n",
+                        samples.size(), time, relativeError * 100);
+                } else {
+                    System.out.printf("  Iteración %d: %dms%n", samples.size(), time);
+                }
+
+                if (samples.size() >= minIterations && kept.count() >= 2 && relativeError <= targetRelativeError) {
+                    converged = true;
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            throw new RuntimeException("Fallo en la iteración " + iteration + ": " + e.getMessage(), e);
+        }
+
+        if (!converged && !samples.isEmpty()) {
+            System.out.println("  Aviso: no se alcanzó el error objetivo en " + samples.size() + " iteraciones");
+        }
+        return new Measurement(SampleStatistics.of(samples), converged);
+    }
+
+    private void pause(int completedIterations) throws InterruptedException {
+        // Pausa entre iteraciones para estabilizar el sistema
+        if (completedIterations > 0 && pauseMs > 0) {
+            Thread.sleep(pauseMs);
+        }
+    }
+
+    public class Measurement {
+        public final SampleStatistics all;
+        public final SampleStatistics kept;
+        public final boolean converged;
+
+        Measurement(SampleStatistics all, boolean converged) {
+            this.all = all;
+            this.kept = all.withoutOutliers();
+            this.converged = converged;
+        }
+
+        public double meanMs() {
+            return kept.mean();
+        }
+
+        public double ciHalfWidthMs() {
+            return kept.ciHalfWidth(confidence);
+        }
+
+        public double relativeError() {
+            return kept.relativeCiHalfWidth(confidence);
+        }
+
+        public int outlierCount() {
+            return all.count() - kept.count();
+        }
+
+        public String summary() {
+            return String.format(Locale.ROOT,
+                "media %.0fms ± %.0fms (IC %.0f%%), mediana %.0fms, p90 %.0fms, p99 %.0fms, n=%d, outliers=%d%s",
+                meanMs(), ciHalfWidthMs(), confidence * 100, all.median(), all.percentile(90), all.percentile(99),
+                all.count(), outlierCount(), converged ? "" : " (sin converger)");
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package common.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Opciones de línea de comandos con la forma --clave=valor (o --bandera)
+public class BenchmarkOptions {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    public static BenchmarkOptions parse(String[] args) {
+        BenchmarkOptions options = new BenchmarkOptions();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Argumento inválido: " + arg + " (use --clave=valor)");
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.values.put(arg.substring(2), "true");
+            } else {
+                options.values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    public boolean has(String key) {
+        return values.containsKey(key);
+    }
+
+    public String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Long.parseLong(value.trim());
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Double.parseDouble(value.trim());
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Boolean.parseBoolean(value.trim());
+    }
+
+    public List<String> getList(String key, List<String> defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        List<String> items = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                items.add(item.trim());
+            }
+        }
+        return items;
+    }
+
+    // Tamaños con notación 1e6
+    public int getSize(String key, int defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : parseSize(value.trim());
+    }
+
+    public int[] getIntList(String key, int[] defaultValue) {
+        String value = values.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        List<String> items = getList(key, List.of());
+        int[] result = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            result[i] = parseSize(items.get(i));
+        }
+        return result;
+    }
+
+    // Admite notación 1e6 además de enteros normales
+    private static int parseSize(String text) {
+        if (text.contains("e") || text.contains("E")) {
+            return (int) Double.parseDouble(text);
+        }
+        return Integer.parseInt(text);
+    }
+}
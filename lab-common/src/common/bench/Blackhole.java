@@ -0,0 +1,26 @@
+package common.bench;
+
+// Consume los resultados de cada operación para que el JIT no elimine el trabajo medido
+public final class Blackhole {
+
+    private volatile int sink;
+    private int accumulator;
+
+    public void consume(Object value) {
+        if (value != null) {
+            accumulator += System.identityHashCode(value);
+        }
+    }
+
+    public void consume(int value) {
+        accumulator += value;
+    }
+
+    public void consume(long value) {
+        accumulator += (int) (value ^ (value >>> 32));
+    }
+
+    void flush() {
+        sink = accumulator;
+    }
+}
@@ -0,0 +1,283 @@
+package common.bench;
+
+import common.json.JsonWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Arnés de microbenchmarks al estilo JMH (modo throughput) para proyectos sin gestor
+ * de dependencias: warmup e iteraciones por tiempo, y un perfilador de GC equivalente
+ * a "-prof gc" (tasa de asignación, bytes por operación, número y tiempo de GC).
+ */
+public class MicroBenchmark {
+
+    @FunctionalInterface
+    public interface Operation {
+        Object run() throws Exception;
+    }
+
+    private final int warmupIterations;
+    private final int measurementIterations;
+    private final long iterationTimeMs;
+    private final boolean gcProfiler;
+    private final List<Result> results = new ArrayList<>();
+    private final Blackhole blackhole = new Blackhole();
+
+    public MicroBenchmark(int warmupIterations, int measurementIterations, long iterationTimeMs, boolean gcProfiler) {
+        if (measurementIterations <= 0 || iterationTimeMs <= 0) {
+            throw new IllegalArgumentException("Se necesita al menos una iteración de medición con duración positiva");
+        }
+        this.warmupIterations = warmupIterations;
+        this.measurementIterations = measurementIterations;
+        this.iterationTimeMs = iterationTimeMs;
+        this.gcProfiler = gcProfiler;
+    }
+
+    public static MicroBenchmark fromOptions(BenchmarkOptions options) {
+        return new MicroBenchmark(
+            options.getInt("warmup", 3),
+            options.getInt("iterations", 5),
+            options.getLong("time", 1000),
+            !options.getBoolean("no-gc", false));
+    }
+
+    public Result run(String name, Map<String, String> params, Operation operation) {
+        System.out.printf("# Benchmark: %s %s%n", name, params);
+
+        try {
+            for (int i = 0; i < warmupIterations; i++) {
+                Iteration warmup = runIteration(operation);
+                System.out.printf("  Warmup %d: %.3f ops/s%n", i + 1, warmup.opsPerSecond());
+            }
+
+            List<Iteration> iterations = new ArrayList<>();
+            for (int i = 0; i < measurementIterations; i++) {
+                Iteration iteration = runIteration(operation);
+                iterations.add(iteration);
+                System.out.printf("  Iteración %d: %.3f ops/s%n", i + 1, iteration.opsPerSecond());
+            }
+
+            Result result = new Result(name, params, iterations, gcProfiler);
+            results.add(result);
+            return result;
+        } catch (Exception e) {
+            throw new RuntimeException("Fallo ejecutando benchmark " + name + ": " + e.getMessage(), e);
+        } finally {
+            blackhole.flush();
+        }
+    }
+
+    private Iteration runIteration(Operation operation) throws Exception {
+        long gcCountBefore = gcProfiler ? totalGcCount() : 0;
+        long gcTimeBefore = gcProfiler ? totalGcTimeMs() : 0;
+        long allocatedBefore = gcProfiler ? currentThreadAllocatedBytes() : 0;
+
+        long deadline = System.nanoTime() + iterationTimeMs * 1_000_000L;
+        long start = System.nanoTime();
+        long operations = 0;
+        long now;
+        do {
+            blackhole.consume(operation.run());
+            operations++;
+            now = System.nanoTime();
+        } while (now < deadline);
+        long elapsedNs = now - start;
+
+        long allocated = gcProfiler ? currentThreadAllocatedBytes() - allocatedBefore : 0;
+        long gcCount = gcProfiler ? totalGcCount() - gcCountBefore : 0;
+        long gcTimeMs = gcProfiler ? totalGcTimeMs() - gcTimeBefore : 0;
+
+        return new Iteration(operations, elapsedNs, allocated, gcCount, gcTimeMs);
+    }
+
+    private static long currentThreadAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    private static long totalGcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long totalGcTimeMs() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    public List<Result> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    public void printSummary() {
+        System.out.println();
+        System.out.println("=== RESULTADOS ===");
+        System.out.printf("%-28s %-40s %15s %12s %14s %14s %8s %8s%n",
+            "Benchmark", "Parámetros", "ops/s", "± desv.", "MB/s asig.", "B/op", "GCs", "GC ms");
+        for (Result r : results) {
+            System.out.printf("%-28s %-40s %15.3f %12.3f %14.3f %14.1f %8d %8d%n",
+                r.name, r.paramsAsString(), r.meanOpsPerSecond, r.stdDevOpsPerSecond,
+                r.allocRateMBPerSecond, r.allocBytesPerOp, r.gcCount, r.gcTimeMs);
+        }
+    }
+
+    // Formato compatible con la salida "-rf json" de JMH
+    public void writeJson(Path file) {
+        JsonWriter json = new JsonWriter().beginArray();
+        for (Result r : results) {
+            json.beginObject()
+                .field("benchmark", r.name)
+                .field("mode", "thrpt")
+                .field("warmupIterations", warmupIterations)
+                .field("measurementIterations", measurementIterations)
+                .field("measurementTime", iterationTimeMs + " ms")
+                .stringMap("params", r.params);
+            json.name("primaryMetric").beginObject()
+                .field("score", r.meanOpsPerSecond)
+                .field("scoreError", r.scoreErrorOpsPerSecond)
+                .field("scoreUnit", "ops/s")
+                .name("rawData").beginArray();
+            json.beginArray();
+            for (double ops : r.opsPerSecond) {
+                json.value(ops);
+            }
+            json.endArray().endArray().endObject();
+            json.name("secondaryMetrics").beginObject();
+            if (gcProfiler) {
+                json.field("gc.alloc.rate", r.allocRateMBPerSecond)
+                    .field("gc.alloc.rate.norm", r.allocBytesPerOp)
+                    .field("gc.count", r.gcCount)
+                    .field("gc.time", r.gcTimeMs);
+            }
+            for (Map.Entry<String, Double> metric : r.secondaryMetrics.entrySet()) {
+                json.field(metric.getKey(), metric.getValue());
+            }
+            json.endObject().endObject();
+        }
+        json.endArray();
+
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Files.writeString(file, json.toString() + "\n", StandardCharsets.UTF_8);
+            System.out.println("Resultados JSON guardados en: " + file.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Error guardando resultados JSON: " + e.getMessage());
+        }
+    }
+
+    static class Iteration {
+        final long operations;
+        final long elapsedNs;
+        final long allocatedBytes;
+        final long gcCount;
+        final long gcTimeMs;
+
+        Iteration(long operations, long elapsedNs, long allocatedBytes, long gcCount, long gcTimeMs) {
+            this.operations = operations;
+            this.elapsedNs = elapsedNs;
+            this.allocatedBytes = allocatedBytes;
+            this.gcCount = gcCount;
+            this.gcTimeMs = gcTimeMs;
+        }
+
+        double opsPerSecond() {
+            return operations * 1e9 / elapsedNs;
+        }
+    }
+
+    public static class Result {
+        private static final double SCORE_CONFIDENCE = 0.999;
+
+        public final String name;
+        public final Map<String, String> params;
+        public final double[] opsPerSecond;
+        public final double meanOpsPerSecond;
+        public final double stdDevOpsPerSecond;
+        // Semiamplitud del intervalo de confianza al 99.9% de la media, como el scoreError de JMH
+        public final double scoreErrorOpsPerSecond;
+        public final double allocRateMBPerSecond;
+        public final double allocBytesPerOp;
+        public final long gcCount;
+        public final long gcTimeMs;
+        final Map<String, Double> secondaryMetrics = new LinkedHashMap<>();
+
+        Result(String name, Map<String, String> params, List<Iteration> iterations, boolean gcProfiled) {
+            this.name = name;
+            this.params = new LinkedHashMap<>(params);
+            this.opsPerSecond = new double[iterations.size()];
+
+            long totalOps = 0;
+            long totalNs = 0;
+            long totalAllocated = 0;
+            long totalGcCount = 0;
+            long totalGcTime = 0;
+            for (int i = 0; i < iterations.size(); i++) {
+                Iteration it = iterations.get(i);
+                opsPerSecond[i] = it.opsPerSecond();
+                totalOps += it.operations;
+                totalNs += it.elapsedNs;
+                totalAllocated += it.allocatedBytes;
+                totalGcCount += it.gcCount;
+                totalGcTime += it.gcTimeMs;
+            }
+
+            double sum = 0;
+            for (double ops : opsPerSecond) {
+                sum += ops;
+            }
+            this.meanOpsPerSecond = sum / opsPerSecond.length;
+
+            double squares = 0;
+            for (double ops : opsPerSecond) {
+                squares += (ops - meanOpsPerSecond) * (ops - meanOpsPerSecond);
+            }
+            this.stdDevOpsPerSecond = opsPerSecond.length > 1 ? Math.sqrt(squares / (opsPerSecond.length - 1)) : 0;
+            // Con una sola iteración no hay intervalo (JMH escribe NaN; en el JSON queda null)
+            this.scoreErrorOpsPerSecond = opsPerSecond.length > 1
+                ? new SampleStatistics(opsPerSecond).ciHalfWidth(SCORE_CONFIDENCE) : Double.NaN;
+
+            this.allocRateMBPerSecond = gcProfiled ? (totalAllocated / (1024.0 * 1024.0)) / (totalNs / 1e9) : 0;
+            this.allocBytesPerOp = gcProfiled && totalOps > 0 ? (double) totalAllocated / totalOps : 0;
+            this.gcCount = totalGcCount;
+            this.gcTimeMs = totalGcTime;
+        }
+
+        public Result addSecondaryMetric(String metric, double value) {
+            secondaryMetrics.put(metric, value);
+            return this;
+        }
+
+        public double meanTimePerOpNs() {
+            return 1e9 / meanOpsPerSecond;
+        }
+
+        String paramsAsString() {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, String> entry : params.entrySet()) {
+                if (sb.length() > 0) sb.append(' ');
+                sb.append(entry.getKey()).append('=').append(entry.getValue());
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package common.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Estadísticos de una muestra de tiempos: media, desviación, mediana, percentiles,
+ * intervalo de confianza de la media (t de Student) y outliers por el criterio de Tukey
+ * (fuera de [Q1 - 1.5 IQR, Q3 + 1.5 IQR]).
+ */
+public class SampleStatistics {
+
+    private static final double TUKEY_K = 1.5;
+
+    private final double[] sorted;
+
+    public SampleStatistics(double[] samples) {
+        this.sorted = samples.clone();
+        Arrays.sort(this.sorted);
+    }
+
+    public static SampleStatistics of(List<? extends Number> samples) {
+        double[] values = new double[samples.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = samples.get(i).doubleValue();
+        }
+        return new SampleStatistics(values);
+    }
+
+    // Valores ordenados de menor a mayor
+    public double[] values() {
+        return sorted.clone();
+    }
+
+    public int count() {
+        return sorted.length;
+    }
+
+    public double min() {
+        return sorted.length == 0 ? 0 : sorted[0];
+    }
+
+    public double max() {
+        return sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+    }
+
+    public double mean() {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (double v : sorted) {
+            sum += v;
+        }
+        return sum / sorted.length;
+    }
+
+    // Desviación estándar muestral (n - 1)
+    public double stdDev() {
+        if (sorted.length < 2) {
+            return 0;
+        }
+        double mean = mean();
+        double squares = 0;
+        for (double v : sorted) {
+            squares += (v - mean) * (v - mean);
+        }
+        return Math.sqrt(squares / (sorted.length - 1));
+    }
+
+    public double coefficientOfVariation() {
+        double mean = mean();
+        return mean == 0 ? 0 : stdDev() / mean;
+    }
+
+    public double median() {
+        return percentile(50);
+    }
+
+    // Interpolación lineal entre rangos (mismo criterio que R tipo 7 y numpy por defecto)
+    public double percentile(double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        double rank = Math.min(Math.max(percentile, 0), 100) / 100.0 * (sorted.length - 1);
+        int lower = (int) Math.floor(rank);
+        int upper = (int) Math.ceil(rank);
+        return sorted[lower] + (sorted[upper] - sorted[lower]) * (rank - lower);
+    }
+
+    // Semiamplitud del intervalo de confianza bilateral de la media
+    public double ciHalfWidth(double confidence) {
+        if (sorted.length < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return studentT(confidence, sorted.length - 1) * stdDev() / Math.sqrt(sorted.length);
+    }
+
+    public double relativeCiHalfWidth(double confidence) {
+        double mean = mean();
+        return mean == 0 ? Double.POSITIVE_INFINITY : ciHalfWidth(confidence) / mean;
+    }
+
+    public double lowerFence() {
+        return percentile(25) - TUKEY_K * (percentile(75) - percentile(25));
+    }
+
+    public double upperFence() {
+        return percentile(75) + TUKEY_K * (percentile(75) - percentile(25));
+    }
+
+    public boolean isOutlier(double value) {
+        return sorted.length >= 4 && (value < lowerFence() || value > upperFence());
+    }
+
+    public List<Double> outliers() {
+        List<Double> outliers = new ArrayList<>();
+        for (double v : sorted) {
+            if (isOutlier(v)) {
+                outliers.add(v);
+            }
+        }
+        return outliers;
+    }
+
+    public SampleStatistics withoutOutliers() {
+        double[] kept = Arrays.stream(sorted).filter(v -> !isOutlier(v)).toArray();
+        return kept.length == sorted.length ? this : new SampleStatistics(kept);
+    }
+
+    /*
+     * Cuantil bilateral de la t de Student. Para 1 y 2 grados de libertad hay fórmula
+     * cerrada; para el resto se busca por bisección el t cuyo p-valor bilateral
+     * (SignificanceTest.studentTwoSidedP, con la beta incompleta) es 1 - confidence. La
+     * expansión de Cornish-Fisher sobre el cuantil normal solo da el punto de partida: en
+     * las colas (99.9% con pocos grados de libertad) se queda varios puntos por debajo.
+     */
+    public static double studentT(double confidence, int degreesOfFreedom) {
+        double p = 1 - (1 - confidence) / 2;
+        if (degreesOfFreedom == 1) {
+            return Math.tan(Math.PI * (p - 0.5));
+        }
+        if (degreesOfFreedom == 2) {
+            return (2 * p - 1) / Math.sqrt(2 * p * (1 - p));
+        }
+        double alpha = 1 - confidence;
+        // El cuantil normal siempre queda por debajo del de la t
+        double low = normalQuantile(p);
+        double high = cornishFisher(low, degreesOfFreedom);
+        while (SignificanceTest.studentTwoSidedP(high, degreesOfFreedom) > alpha) {
+            low = high;
+            high *= 2;
+        }
+        for (int i = 0; i < 200 && high - low > 1e-12 * high; i++) {
+            double mid = (low + high) / 2;
+            if (SignificanceTest.studentTwoSidedP(mid, degreesOfFreedom) > alpha) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return (low + high) / 2;
+    }
+
+    private static double cornishFisher(double z, double degreesOfFreedom) {
+        double n = degreesOfFreedom;
+        double z3 = z * z * z, z5 = z3 * z * z, z7 = z5 * z * z, z9 = z7 * z * z;
+        return z
+            + (z3 + z) / (4 * n)
+            + (5 * z5 + 16 * z3 + 3 * z) / (96 * n * n)
+            + (3 * z7 + 19 * z5 + 17 * z3 - 15 * z) / (384 * n * n * n)
+            + (79 * z9 + 776 * z7 + 1482 * z5 - 1920 * z3 - 945 * z) / (92160 * n * n * n * n);
+    }
+
+    // Aproximación racional de Acklam para la inversa de la normal estándar
+    static double normalQuantile(double p) {
+        double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+            1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+            6.680131188771972e+01, -1.328068155288572e+01};
+        double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+            -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+            3.754408661907416e+00};
+        double low = 0.02425;
+
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            return -normalQuantile(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+            / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+}
@@ -0,0 +1,141 @@
+package common.bench;
+
+import java.util.Locale;
+
+/*
+ * Ajuste de la curva de speedup a la ley de Amdahl y a la Universal Scalability Law:
+ *
+ *   S(n) = n / (1 + sigma (n - 1) + kappa n (n - 1))
+ *
+ * sigma es la fracción serial (contención) y kappa el coste de coherencia entre hilos.
+ * Amdahl es el caso kappa = 0. Se ajusta por mínimos cuadrados sobre la forma
+ * linealizada n / S(n) - 1 = sigma (n - 1) + kappa n (n - 1).
+ */
+public class ScalingModel {
+
+    private final String name;
+    private final double sigma;
+    private final double kappa;
+    private final double rSquared;
+
+    private ScalingModel(String name, double sigma, double kappa, int[] threads, double[] speedups) {
+        this.name = name;
+        this.sigma = sigma;
+        this.kappa = kappa;
+        this.rSquared = computeRSquared(threads, speedups);
+    }
+
+    public static ScalingModel fitAmdahl(int[] threads, double[] speedups) {
+        checkInput(threads, speedups);
+        return new ScalingModel("Amdahl", Math.max(0, fitSingle(threads, speedups, false)), 0, threads, speedups);
+    }
+
+    public static ScalingModel fitUsl(int[] threads, double[] speedups) {
+        checkInput(threads, speedups);
+        double sxx = 0, sxz = 0, szz = 0, sxy = 0, szy = 0;
+        for (int i = 0; i < threads.length; i++) {
+            double n = threads[i];
+            double x = n - 1;
+            double z = n * (n - 1);
+            double y = n / speedups[i] - 1;
+            sxx += x * x;
+            sxz += x * z;
+            szz += z * z;
+            sxy += x * y;
+            szy += z * y;
+        }
+        double det = sxx * szz - sxz * sxz;
+        double sigma = det != 0 ? (sxy * szz - szy * sxz) / det : 0;
+        double kappa = det != 0 ? (szy * sxx - sxy * sxz) / det : 0;
+
+        // Con coeficientes negativos el modelo no tiene sentido físico: se fija a 0 y se reajusta el otro
+        if (kappa < 0 || det == 0) {
+            kappa = 0;
+            sigma = fitSingle(threads, speedups, false);
+        }
+        if (sigma < 0) {
+            sigma = 0;
+            kappa = Math.max(0, fitSingle(threads, speedups, true));
+        }
+        return new ScalingModel("USL", sigma, kappa, threads, speedups);
+    }
+
+    // Mínimos cuadrados sin intercepto para un solo coeficiente (sigma o kappa)
+    private static double fitSingle(int[] threads, double[] speedups, boolean coherence) {
+        double sxx = 0, sxy = 0;
+        for (int i = 0; i < threads.length; i++) {
+            double n = threads[i];
+            double x = coherence ? n * (n - 1) : n - 1;
+            double y = n / speedups[i] - 1;
+            sxx += x * x;
+            sxy += x * y;
+        }
+        return sxx == 0 ? 0 : sxy / sxx;
+    }
+
+    private static void checkInput(int[] threads, double[] speedups) {
+        if (threads.length != speedups.length || threads.length < 2) {
+            throw new IllegalArgumentException("Se necesitan al menos 2 puntos (hilos, speedup)");
+        }
+        for (double s : speedups) {
+            if (!(s > 0)) {
+                throw new IllegalArgumentException("Speedup no válido: " + s);
+            }
+        }
+    }
+
+    private double computeRSquared(int[] threads, double[] speedups) {
+        double mean = 0;
+        for (double s : speedups) {
+            mean += s;
+        }
+        mean /= speedups.length;
+        double ssTot = 0, ssRes = 0;
+        for (int i = 0; i < threads.length; i++) {
+            double residual = speedups[i] - predict(threads[i]);
+            ssRes += residual * residual;
+            ssTot += (speedups[i] - mean) * (speedups[i] - mean);
+        }
+        return ssTot == 0 ? 1 : 1 - ssRes / ssTot;
+    }
+
+    public double predict(double threads) {
+        return threads / (1 + sigma * (threads - 1) + kappa * threads * (threads - 1));
+    }
+
+    // Número de hilos con speedup máximo; sin coherencia (Amdahl) el speedup solo se aplana
+    public double peakThreads() {
+        return kappa > 0 ? Math.sqrt((1 - sigma) / kappa) : Double.POSITIVE_INFINITY;
+    }
+
+    // Límite de Amdahl 1 / sigma, o el speedup en el pico para USL
+    public double maxSpeedup() {
+        if (kappa > 0) {
+            return predict(Math.max(1, peakThreads()));
+        }
+        return sigma > 0 ? 1 / sigma : Double.POSITIVE_INFINITY;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getSigma() {
+        return sigma;
+    }
+
+    public double getKappa() {
+        return kappa;
+    }
+
+    public double getRSquared() {
+        return rSquared;
+    }
+
+    @Override
+    public String toString() {
+        String peak = Double.isInfinite(peakThreads()) ? "sin pico" : String.format(Locale.ROOT, "pico en %.1f hilos", peakThreads());
+        return String.format(Locale.ROOT, "%s: sigma=%.4f kappa=%.6f R2=%.3f, speedup máximo %.2fx, %s",
+            name, sigma, kappa, rSquared, maxSpeedup(), peak);
+    }
+}
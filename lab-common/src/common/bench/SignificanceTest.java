@@ -0,0 +1,166 @@
+package common.bench;
+
+import java.util.Arrays;
+
+/*
+ * Pruebas de significancia para comparar dos muestras de tiempos: t de Welch (varianzas
+ * distintas) y U de Mann-Whitney (no paramétrica, con aproximación normal). Ambas
+ * devuelven el p-valor bilateral.
+ */
+public class SignificanceTest {
+
+    private SignificanceTest() {
+    }
+
+    public static double welchTTest(SampleStatistics a, SampleStatistics b) {
+        if (a.count() < 2 || b.count() < 2) {
+            return Double.NaN;
+        }
+        double va = a.stdDev() * a.stdDev() / a.count();
+        double vb = b.stdDev() * b.stdDev() / b.count();
+        if (va + vb == 0) {
+            return a.mean() == b.mean() ? 1 : 0;
+        }
+        double t = (a.mean() - b.mean()) / Math.sqrt(va + vb);
+        double df = (va + vb) * (va + vb)
+            / (va * va / (a.count() - 1) + vb * vb / (b.count() - 1));
+        return studentTwoSidedP(t, df);
+    }
+
+    // Contra un valor fijo, para líneas base con una sola medición
+    public static double oneSampleTTest(SampleStatistics a, double expectedMean) {
+        if (a.count() < 2) {
+            return Double.NaN;
+        }
+        double standardError = a.stdDev() / Math.sqrt(a.count());
+        if (standardError == 0) {
+            return a.mean() == expectedMean ? 1 : 0;
+        }
+        return studentTwoSidedP((a.mean() - expectedMean) / standardError, a.count() - 1);
+    }
+
+    public static double mannWhitneyU(double[] a, double[] b) {
+        int n1 = a.length, n2 = b.length;
+        if (n1 == 0 || n2 == 0) {
+            return Double.NaN;
+        }
+        double[][] all = new double[n1 + n2][];
+        for (int i = 0; i < n1; i++) {
+            all[i] = new double[] {a[i], 0};
+        }
+        for (int i = 0; i < n2; i++) {
+            all[n1 + i] = new double[] {b[i], 1};
+        }
+        Arrays.sort(all, (x, y) -> Double.compare(x[0], y[0]));
+
+        // Rangos promedio para empates, con la corrección de varianza correspondiente
+        double rankSumA = 0;
+        double tieCorrection = 0;
+        int i = 0;
+        while (i < all.length) {
+            int j = i;
+            while (j + 1 < all.length && all[j + 1][0] == all[i][0]) {
+                j++;
+            }
+            double rank = (i + j) / 2.0 + 1;
+            int ties = j - i + 1;
+            tieCorrection += (double) ties * ties * ties - ties;
+            for (int k = i; k <= j; k++) {
+                if (all[k][1] == 0) {
+                    rankSumA += rank;
+                }
+            }
+            i = j + 1;
+        }
+
+        double u = rankSumA - n1 * (n1 + 1) / 2.0;
+        double n = n1 + n2;
+        double mean = n1 * n2 / 2.0;
+        double variance = n1 * n2 / 12.0 * ((n + 1) - tieCorrection / (n * (n - 1)));
+        if (variance <= 0) {
+            return 1;
+        }
+        double z = (Math.abs(u - mean) - 0.5) / Math.sqrt(variance);
+        return Math.min(1, 2 * normalUpperTail(Math.max(0, z)));
+    }
+
+    // P(|T| > |t|) con T ~ t de Student: I_{df/(df+t^2)}(df/2, 1/2)
+    static double studentTwoSidedP(double t, double df) {
+        return regularizedIncompleteBeta(df / (df + t * t), df / 2, 0.5);
+    }
+
+    static double normalUpperTail(double z) {
+        return 0.5 * erfc(z / Math.sqrt(2));
+    }
+
+    // Aproximación de Numerical Recipes (error relativo < 1.2e-7)
+    private static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1 / (1 + 0.5 * z);
+        double r = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+            + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+            + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? r : 2 - r;
+    }
+
+    private static double regularizedIncompleteBeta(double x, double a, double b) {
+        if (x <= 0) {
+            return 0;
+        }
+        if (x >= 1) {
+            return 1;
+        }
+        double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b)
+            + a * Math.log(x) + b * Math.log(1 - x));
+        if (x < (a + 1) / (a + b + 2)) {
+            return front * betaContinuedFraction(x, a, b) / a;
+        }
+        return 1 - front * betaContinuedFraction(1 - x, b, a) / b;
+    }
+
+    // Fracción continua de Lentz para la beta incompleta
+    private static double betaContinuedFraction(double x, double a, double b) {
+        double tiny = 1e-30;
+        double c = 1;
+        double d = 1 - (a + b) * x / (a + 1);
+        d = Math.abs(d) < tiny ? tiny : d;
+        d = 1 / d;
+        double h = d;
+        for (int m = 1; m <= 200; m++) {
+            int m2 = 2 * m;
+            double aa = m * (b - m) * x / ((a + m2 - 1) * (a + m2));
+            d = 1 + aa * d;
+            d = Math.abs(d) < tiny ? tiny : d;
+            c = 1 + aa / c;
+            c = Math.abs(c) < tiny ? tiny : c;
+            d = 1 / d;
+            h *= d * c;
+            aa = -(a + m) * (a + b + m) * x / ((a + m2) * (a + m2 + 1));
+            d = 1 + aa * d;
+            d = Math.abs(d) < tiny ? tiny : d;
+            c = 1 + aa / c;
+            c = Math.abs(c) < tiny ? tiny : c;
+            d = 1 / d;
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1) < 1e-12) {
+                break;
+            }
+        }
+        return h;
+    }
+
+    // Aproximación de Lanczos
+    private static double logGamma(double x) {
+        double[] coefficients = {76.18009172947146, -86.50532032941677, 24.01409824083091,
+            -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5};
+        double y = x;
+        double tmp = x + 5.5;
+        tmp -= (x + 0.5) * Math.log(tmp);
+        double series = 1.000000000190015;
+        for (double coefficient : coefficients) {
+            series += coefficient / ++y;
+        }
+        return -tmp + Math.log(2.5066282746310005 * series / x);
+    }
+}
@@ -0,0 +1,132 @@
+package common.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import common.shard.Sharding;
+
+/*
+ * Genera catálogos sintéticos y reproducibles (misma semilla, mismo catálogo).
+ * El género, la palabra temática del título y el apellido del autor siguen una
+ * distribución geométrica (el valor k aparece en ~1/2^(k+1) de las canciones),
+ * así cada nivel de selectividad tiene un término de búsqueda con fracción conocida.
+ * Ningún término es subcadena de otro valor, por lo que "contains" no mezcla niveles.
+ */
+public class SyntheticCatalogue {
+
+    public enum Field { TITLE, GENRE, AUTHOR }
+
+    public enum Selectivity {
+        ALL(-1, 1.0),
+        HIGH(0, 0.5),
+        MEDIUM(6, 1.0 / 128),
+        LOW(12, 1.0 / 8192),
+        NONE(-1, 0.0);
+
+        final int index;
+        public final double expectedFraction;
+
+        Selectivity(int index, double expectedFraction) {
+            this.index = index;
+            this.expectedFraction = expectedFraction;
+        }
+    }
+
+    @FunctionalInterface
+    public interface SongFactory<T> {
+        T create(String title, String genre, String author, String language, int year);
+    }
+
+    private static final String[] GENRES = {
+        "Rock", "Pop", "Jazz", "Salsa", "Reggaeton", "Cumbia", "Blues",
+        "Metal", "Vallenato", "Tango", "Bolero", "Flamenco", "Gospel", "Ska"
+    };
+
+    private static final String[] THEMES = {
+        "Love", "Night", "Fire", "Dream", "River", "Heart", "Storm",
+        "Shadow", "Light", "Ocean", "Winter", "Thunder", "Silver", "Echo"
+    };
+
+    private static final String[] NOUNS = {
+        "Road", "Song", "Dance", "City", "Sky", "Rain", "Moon",
+        "Street", "Garden", "Train", "Mirror", "Window", "Bridge", "Letter"
+    };
+
+    private static final String[] FIRST_NAMES = {
+        "Ana", "Carlos", "Maria", "John", "Laura", "Pedro", "Sofia",
+        "David", "Elena", "Jorge", "Lucia", "Miguel", "Paula", "Diego"
+    };
+
+    private static final String[] LAST_NAMES = {
+        "Garcia", "Smith", "Lopez", "Martinez", "Brown", "Rodriguez", "Johnson",
+        "Perez", "Gomez", "Torres", "Wilson", "Castro", "Herrera", "Romero"
+    };
+
+    private static final String[] LANGUAGES = {
+        "English", "Spanish", "Portuguese", "French", "Italian", "German"
+    };
+
+    private static final String NO_MATCH = "zzzz";
+
+    public static <T> List<T> generate(int size, long seed, SongFactory<T> factory) {
+        return generateShard(size, seed, Field.TITLE, 0, 1, factory);
+    }
+
+    /*
+     * Solo las canciones del catálogo completo cuya clave (título o autor) cae en el shard
+     * dado, en el mismo orden. Cada nodo genera su parte sin tener nunca el catálogo entero.
+     */
+    public static <T> List<T> generateShard(int size, long seed, Field key, int shard, int shards,
+                                            SongFactory<T> factory) {
+        if (key == Field.GENRE) {
+            throw new IllegalArgumentException("Clave de shard no soportada: " + key);
+        }
+        Random random = new Random(seed);
+
+        // Autores precalculados para compartir las cadenas entre canciones
+        String[][] authors = new String[FIRST_NAMES.length][LAST_NAMES.length];
+        for (int f = 0; f < FIRST_NAMES.length; f++) {
+            for (int l = 0; l < LAST_NAMES.length; l++) {
+                authors[f][l] = FIRST_NAMES[f] + " " + LAST_NAMES[l];
+            }
+        }
+
+        List<T> songs = new ArrayList<>(size / shards);
+        for (int i = 0; i < size; i++) {
+            String title = THEMES[geometric(random, THEMES.length)] + " "
+                + NOUNS[random.nextInt(NOUNS.length)] + " " + i;
+            String genre = GENRES[geometric(random, GENRES.length)];
+            String author = authors[random.nextInt(FIRST_NAMES.length)][geometric(random, LAST_NAMES.length)];
+            String language = LANGUAGES[random.nextInt(LANGUAGES.length)];
+            int year = 1950 + random.nextInt(75);
+            if (shards > 1 && Sharding.shardOf(key == Field.TITLE ? title : author, shards) != shard) {
+                continue;
+            }
+            songs.add(factory.create(title, genre, author, language, year));
+        }
+        return songs;
+    }
+
+    public static String term(Field field, Selectivity selectivity) {
+        if (selectivity == Selectivity.ALL) {
+            return "";
+        }
+        if (selectivity == Selectivity.NONE) {
+            return NO_MATCH;
+        }
+        switch (field) {
+            case TITLE:
+                return THEMES[selectivity.index];
+            case GENRE:
+                return GENRES[selectivity.index];
+            case AUTHOR:
+                return LAST_NAMES[selectivity.index];
+            default:
+                throw new IllegalArgumentException("Campo no soportado: " + field);
+        }
+    }
+
+    private static int geometric(Random random, int bound) {
+        return Math.min(Long.numberOfTrailingZeros(random.nextLong()), bound - 1);
+    }
+}
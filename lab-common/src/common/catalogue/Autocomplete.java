@@ -0,0 +1,316 @@
+package common.catalogue;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import common.log.Log;
+import common.log.Logger;
+
+/*
+ * Autocompletado de títulos y autores por prefijo. Los valores distintos se guardan ordenados
+ * por su forma normalizada (minúsculas y sin tildes), que es un trie aplanado: los valores
+ * que empiezan por un prefijo, los de un nodo del trie, son un rango contiguo que se encuentra
+ * con dos búsquedas binarias. Encima hay un árbol de segmentos con la posición de máxima
+ * popularidad de cada rango, así las n mejores salen con n consultas de O(log m) sin recorrer
+ * el rango, por corto que sea el prefijo.
+ * Las claves son los String de las canciones (la escritura más frecuente de cada forma
+ * normalizada) y en las búsquedas se normaliza carácter a carácter al comparar.
+ * Popularidad = canciones con ese título o ese autor.
+ * Con un SnapshotCatalogue el índice se rehace en segundo plano cuando cambia la versión y
+ * mientras tanto se responde con el anterior.
+ */
+public final class Autocomplete<T> {
+
+    private static final Logger LOG = Log.getLogger("Autocomplete");
+    // Minúscula sin tilde de los caracteres latinos (U+0000..U+024F)
+    private static final char[] FOLD = new char[0x250];
+
+    static {
+        for (char c = 0; c < FOLD.length; c++) {
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            FOLD[c] = Character.toLowerCase(decomposed.charAt(0));
+        }
+    }
+
+    public enum Field {
+        TITLE, AUTHOR, ALL;
+
+        public static Field of(String name) {
+            return name == null || name.isEmpty() ? ALL : valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public static final class Completion {
+        public final String text;
+        public final Field field;
+        public final int songs;
+
+        Completion(String text, Field field, int songs) {
+            this.text = text;
+            this.field = field;
+            this.songs = songs;
+        }
+
+        @Override
+        public String toString() {
+            return text + " (" + field.name().toLowerCase(Locale.ROOT) + ", " + songs + ")";
+        }
+    }
+
+    private final SnapshotCatalogue<T> catalogue;
+    private final SongCodec<T> codec;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ExecutorService builder;
+    private volatile Index titles;
+    private volatile Index authors;
+    private volatile long version = -1;
+
+    // Sigue a catalogue: el índice se construye en la primera consulta y se rehace si cambia
+    public Autocomplete(SnapshotCatalogue<T> catalogue, SongCodec<T> codec) {
+        this.catalogue = catalogue;
+        this.codec = codec;
+        this.builder = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "autocomplete-build");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Índice fijo sobre un catálogo de solo lectura
+    public Autocomplete(MappedCatalogue<T> mapped, SongCodec<T> codec) {
+        this.catalogue = null;
+        this.codec = codec;
+        this.builder = null;
+        List<String> titleValues = new ArrayList<>(mapped.size());
+        List<String> authorValues = new ArrayList<>(mapped.size());
+        mapped.forEach(song -> {
+            titleValues.add(codec.title(song));
+            authorValues.add(codec.author(song));
+        });
+        this.titles = new Index(titleValues.toArray(new String[0]));
+        this.authors = new Index(authorValues.toArray(new String[0]));
+        this.version = mapped.version();
+    }
+
+    /*
+     * Las limit completaciones más populares de prefix (sin distinguir mayúsculas ni tildes);
+     * con ALL se mezclan títulos y autores por popularidad.
+     */
+    public List<Completion> complete(String prefix, Field field, int limit) {
+        refresh();
+        String query = prefix.stripLeading();
+        List<Completion> results = new ArrayList<>();
+        if (field != Field.AUTHOR) {
+            titles.top(query, limit, Field.TITLE, results);
+        }
+        if (field != Field.TITLE) {
+            authors.top(query, limit, Field.AUTHOR, results);
+        }
+        if (field == Field.ALL) {
+            results.sort(Comparator.comparingInt((Completion c) -> -c.songs));
+            if (results.size() > limit) {
+                results = new ArrayList<>(results.subList(0, limit));
+            }
+        }
+        return results;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    private void refresh() {
+        if (catalogue == null) {
+            return;
+        }
+        if (titles == null) {
+            synchronized (this) {
+                if (titles == null) {
+                    build();
+                }
+            }
+            return;
+        }
+        if (catalogue.version() != version && rebuilding.compareAndSet(false, true)) {
+            builder.execute(() -> {
+                try {
+                    build();
+                } catch (RuntimeException e) {
+                    LOG.error("No se pudo reconstruir el índice de autocompletado: {}", e.getMessage(), e);
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        }
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        SnapshotCatalogue.Snapshot<T> snapshot = catalogue.snapshot();
+        String[] titleValues = new String[snapshot.size()];
+        String[] authorValues = new String[snapshot.size()];
+        int[] next = new int[1];
+        snapshot.forEach(song -> {
+            titleValues[next[0]] = codec.title(song);
+            authorValues[next[0]++] = codec.author(song);
+        });
+        Index newTitles = new Index(titleValues);
+        Index newAuthors = new Index(authorValues);
+        titles = newTitles;
+        authors = newAuthors;
+        version = snapshot.version();
+        LOG.debug("Índice de autocompletado (versión {}): {} títulos y {} autores en {} ms", version,
+            newTitles.keys.length, newAuthors.keys.length, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    static char fold(char c) {
+        return c < FOLD.length ? FOLD[c] : Character.toLowerCase(c);
+    }
+
+    static String fold(String text) {
+        char[] folded = new char[text.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = fold(text.charAt(i));
+        }
+        return new String(folded);
+    }
+
+    // < 0 si key va antes que los que empiezan por prefix, 0 si empieza por él, > 0 si va después
+    static int comparePrefix(String key, String prefix) {
+        int length = Math.min(key.length(), prefix.length());
+        for (int i = 0; i < length; i++) {
+            char x = fold(key.charAt(i));
+            char y = fold(prefix.charAt(i));
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return key.length() < prefix.length() ? -1 : 0;
+    }
+
+    // Valores distintos de un campo (los que solo difieren en mayúsculas o tildes van juntos)
+    private static final class Index {
+        final String[] keys;
+        final int[] counts;
+        // tree[m + i] = i; tree[j] = posición con más canciones de los dos hijos
+        final int[] tree;
+        final int size;
+
+        Index(String[] values) {
+            // Primero se cuentan las escrituras exactas: solo se normalizan y ordenan las distintas
+            Map<String, int[]> exact = new HashMap<>();
+            for (String value : values) {
+                if (value != null) {
+                    exact.computeIfAbsent(value, v -> new int[1])[0]++;
+                }
+            }
+            // La forma normalizada solo existe mientras se ordena
+            String[][] sorted = new String[exact.size()][];
+            int next = 0;
+            for (String value : exact.keySet()) {
+                sorted[next++] = new String[] {fold(value), value};
+            }
+            Arrays.parallelSort(sorted, Comparator.<String[], String>comparing(entry -> entry[0])
+                .thenComparing(entry -> entry[1]));
+            List<String> distinct = new ArrayList<>();
+            int[] songs = new int[sorted.length];
+            int i = 0;
+            while (i < sorted.length) {
+                // Grupo con la misma forma normalizada; se muestra la escritura más frecuente
+                int groupEnd = i;
+                String display = sorted[i][1];
+                int displayCount = 0;
+                int total = 0;
+                while (groupEnd < sorted.length && sorted[groupEnd][0].equals(sorted[i][0])) {
+                    int count = exact.get(sorted[groupEnd][1])[0];
+                    if (count > displayCount) {
+                        display = sorted[groupEnd][1];
+                        displayCount = count;
+                    }
+                    total += count;
+                    groupEnd++;
+                }
+                songs[distinct.size()] = total;
+                distinct.add(display);
+                i = groupEnd;
+            }
+            this.keys = distinct.toArray(new String[0]);
+            this.size = keys.length;
+            this.counts = Arrays.copyOf(songs, size);
+            this.tree = new int[2 * Math.max(1, size)];
+            for (int k = 0; k < size; k++) {
+                tree[size + k] = k;
+            }
+            for (int k = size - 1; k > 0; k--) {
+                tree[k] = better(tree[2 * k], tree[2 * k + 1]);
+            }
+        }
+
+        void top(String prefix, int limit, Field field, List<Completion> results) {
+            int low = bound(prefix, false);
+            int high = bound(prefix, true);
+            // Rangos pendientes ordenados por su mejor posición; cada una que sale parte su rango en dos
+            PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> better(a[2], b[2]) == a[2] ? -1 : 1);
+            if (low < high) {
+                ranges.add(new int[] {low, high, best(low, high)});
+            }
+            int added = 0;
+            while (added < limit && !ranges.isEmpty()) {
+                int[] range = ranges.poll();
+                int position = range[2];
+                results.add(new Completion(keys[position], field, counts[position]));
+                added++;
+                if (range[0] < position) {
+                    ranges.add(new int[] {range[0], position, best(range[0], position)});
+                }
+                if (position + 1 < range[1]) {
+                    ranges.add(new int[] {position + 1, range[1], best(position + 1, range[1])});
+                }
+            }
+        }
+
+        // Primera clave que empieza por prefix (upper = false) o primera que va detrás (upper = true)
+        private int bound(String prefix, boolean upper) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int cmp = comparePrefix(keys[middle], prefix);
+                if (cmp < 0 || (upper && cmp == 0)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // Posición con más canciones en [from, to)
+        private int best(int from, int to) {
+            int result = from;
+            for (int l = from + size, r = to + size; l < r; l >>= 1, r >>= 1) {
+                if ((l & 1) == 1) {
+                    result = better(result, tree[l++]);
+                }
+                if ((r & 1) == 1) {
+                    result = better(result, tree[--r]);
+                }
+            }
+            return result;
+        }
+
+        // A igual popularidad, la primera en orden alfabético
+        private int better(int a, int b) {
+            return counts[a] > counts[b] || (counts[a] == counts[b] && a < b) ? a : b;
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package common.catalogue;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * Formato binario de los snapshots del catálogo (todos los enteros en big-endian):
+ *
+ *   cabecera (64 bytes)  magic "MLCA", formato, versión del catálogo, canciones, ancho de fila,
+ *                        tamaño de los tres diccionarios y posición/longitud de cada sección
+ *   filas                una por canción, ROW bytes: título (posición u32 y longitud u16 en el
+ *                        heap), año (s16) e identificadores de género, autor e idioma
+ *   diccionarios         género, autor e idioma: valores distintos ordenados, (posición, longitud)
+ *   heap                 texto UTF-8: primero los valores de los diccionarios, luego los títulos
+ *   CRC32C               de todo lo que va detrás de la cabecera
+ *
+ * Las filas tienen ancho fijo, así que la carga reparte las canciones entre varios hilos leyendo
+ * directamente del fichero mapeado, y MappedCatalogue puede buscar sobre el fichero sin cargarlo. Cada sección cabe en un MappedByteBuffer (menos de 2 GB),
+ * unos 80 millones de canciones; catálogos mayores se reparten en shards.
+ */
+public final class CatalogueFile {
+
+    static final int MAGIC = 0x4D4C4341;
+    static final int FORMAT = 1;
+    static final int HEADER = 64;
+    static final int ROW = 20;
+    static final int ROW_TITLE = 0;
+    static final int ROW_TITLE_LENGTH = 4;
+    static final int ROW_YEAR = 6;
+    static final int ROW_GENRE = 8;
+    static final int ROW_AUTHOR = 12;
+    static final int ROW_LANGUAGE = 16;
+    static final int DICT_ENTRY = 8;
+    private static final int LOAD_BLOCK = 1 << 16;
+
+    public static final class Loaded<T> {
+        public final List<T> songs;
+        public final long version;
+
+        Loaded(List<T> songs, long version) {
+            this.songs = songs;
+            this.version = version;
+        }
+    }
+
+    private CatalogueFile() {
+    }
+
+    /*
+     * Por qué song no se puede guardar (null si se puede): el año va en un s16 de la fila y cada
+     * texto en un registro writeUTF del log, que admite hasta 65535 bytes en UTF-8 modificado
+     * (siempre al menos tantos como en UTF-8, así que también cabe el título en la fila). Las
+     * escrituras se rechazan antes de aplicarse; si no, el snapshot siguiente fallaría.
+     */
+    public static <T> String rejectionReason(SongCodec<T> codec, T song) {
+        int year = codec.year(song);
+        if (year < Short.MIN_VALUE || year > Short.MAX_VALUE) {
+            return "año fuera de rango: " + year;
+        }
+        for (String value : List.of(text(codec.title(song)), text(codec.genre(song)), text(codec.author(song)),
+                text(codec.language(song)))) {
+            if (modifiedUtf8Length(value) > 0xFFFF) {
+                return "texto demasiado largo (" + value.length() + " caracteres)";
+            }
+        }
+        return null;
+    }
+
+    private static long modifiedUtf8Length(String value) {
+        long length = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == 0 || c > 0x7F) {
+                length += c > 0x7FF ? 2 : 1;
+            }
+        }
+        return length;
+    }
+
+    /*
+     * Escribe el snapshot en un fichero temporal y lo renombra sobre path solo cuando está
+     * completo y sincronizado, así un corte a medias deja el snapshot anterior intacto.
+     */
+    public static <T> void write(Path path, SnapshotCatalogue.Snapshot<T> snapshot, SongCodec<T> codec) throws IOException {
+        Map<String, Integer> genres = new HashMap<>();
+        Map<String, Integer> authors = new HashMap<>();
+        Map<String, Integer> languages = new HashMap<>();
+        long titleBytes = 0;
+        int count = 0;
+        for (T song : snapshot) {
+            genres.putIfAbsent(text(codec.genre(song)), 0);
+            authors.putIfAbsent(text(codec.author(song)), 0);
+            languages.putIfAbsent(text(codec.language(song)), 0);
+            int length = utf8Length(text(codec.title(song)));
+            if (length > 0xFFFF) {
+                throw new IOException("Título demasiado largo para el snapshot: " + codec.title(song));
+            }
+            int year = codec.year(song);
+            if (year < Short.MIN_VALUE || year > Short.MAX_VALUE) {
+                throw new IOException("Año fuera de rango en el snapshot: " + year);
+            }
+            titleBytes += length;
+            count++;
+        }
+        String[] genreValues = dictionary(genres);
+        String[] authorValues = dictionary(authors);
+        String[] languageValues = dictionary(languages);
+        long dictBytes = 0;
+        for (String[] values : List.of(genreValues, authorValues, languageValues)) {
+            for (String value : values) {
+                dictBytes += utf8Length(value);
+            }
+        }
+        long heapLength = dictBytes + titleBytes;
+        int dictCount = genreValues.length + authorValues.length + languageValues.length;
+        if (heapLength > Integer.MAX_VALUE || (long) count * ROW > Integer.MAX_VALUE) {
+            throw new IOException("Catálogo demasiado grande para un solo snapshot (" + count
+                + " canciones); repártalo en shards");
+        }
+        long dictOffset = HEADER + (long) count * ROW;
+        long heapOffset = dictOffset + (long) dictCount * DICT_ENTRY;
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            header.putInt(MAGIC).putInt(FORMAT).putLong(snapshot.version()).putInt(count).putInt(ROW)
+                .putInt(genreValues.length).putInt(authorValues.length).putInt(languageValues.length).putInt(0)
+                .putLong(dictOffset).putLong(heapOffset).putLong(heapLength);
+            writeFully(channel, header.flip());
+
+            CRC32C crc = new CRC32C();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+            long titleOffset = dictBytes;
+            for (T song : snapshot) {
+                int length = utf8Length(text(codec.title(song)));
+                out.writeInt((int) titleOffset);
+                out.writeShort(length);
+                out.writeShort(codec.year(song));
+                out.writeInt(genres.get(text(codec.genre(song))));
+                out.writeInt(authors.get(text(codec.author(song))));
+                out.writeInt(languages.get(text(codec.language(song))));
+                titleOffset += length;
+            }
+            int offset = 0;
+            for (String[] values : List.of(genreValues, authorValues, languageValues)) {
+                for (String value : values) {
+                    int length = utf8Length(value);
+                    out.writeInt(offset);
+                    out.writeInt(length);
+                    offset += length;
+                }
+            }
+            for (String[] values : List.of(genreValues, authorValues, languageValues)) {
+                for (String value : values) {
+                    out.write(value.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            for (T song : snapshot) {
+                out.write(text(codec.title(song)).getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+            writeFully(channel, ByteBuffer.allocate(8).putLong(crc.getValue()).flip());
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(path.toAbsolutePath().getParent());
+    }
+
+    // Secciones del fichero ya mapeadas; siguen siendo válidas después de cerrar el canal
+    static final class Sections {
+        final long version;
+        final int count;
+        final ByteBuffer rows;
+        final ByteBuffer heap;
+        final String[] genres;
+        final String[] authors;
+        final String[] languages;
+
+        Sections(long version, int count, ByteBuffer rows, ByteBuffer heap, String[] genres, String[] authors,
+                 String[] languages) {
+            this.version = version;
+            this.count = count;
+            this.rows = rows;
+            this.heap = heap;
+            this.genres = genres;
+            this.authors = authors;
+            this.languages = languages;
+        }
+    }
+
+    /*
+     * Mapea el fichero y lee los diccionarios (pocos valores distintos). Con verify se comprueba
+     * el CRC, lo que obliga a leer el fichero entero; sin él solo se tocan las páginas que se usan.
+     */
+    static Sections map(Path path, boolean verify) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER + 8) {
+                throw new IOException(path + ": snapshot incompleto");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT || header.getInt(20) != ROW) {
+                throw new IOException(path + ": no es un snapshot de catálogo compatible");
+            }
+            long version = header.getLong(8);
+            int count = header.getInt(16);
+            int genreCount = header.getInt(24);
+            int authorCount = header.getInt(28);
+            int languageCount = header.getInt(32);
+            long dictOffset = header.getLong(40);
+            long heapOffset = header.getLong(48);
+            long heapLength = header.getLong(56);
+            if (heapOffset + heapLength + 8 != fileSize) {
+                throw new IOException(path + ": snapshot incompleto");
+            }
+
+            MappedByteBuffer rows = channel.map(FileChannel.MapMode.READ_ONLY, HEADER, (long) count * ROW);
+            MappedByteBuffer dicts = channel.map(FileChannel.MapMode.READ_ONLY, dictOffset, heapOffset - dictOffset);
+            MappedByteBuffer heap = channel.map(FileChannel.MapMode.READ_ONLY, heapOffset, heapLength);
+            if (verify) {
+                CRC32C crc = new CRC32C();
+                crc.update(rows.duplicate());
+                crc.update(dicts.duplicate());
+                crc.update(heap.duplicate());
+                if (channel.map(FileChannel.MapMode.READ_ONLY, heapOffset + heapLength, 8).getLong(0) != crc.getValue()) {
+                    throw new IOException(path + ": CRC incorrecto, snapshot dañado");
+                }
+            }
+            return new Sections(version, count, rows, heap,
+                readDictionary(dicts, heap, 0, genreCount),
+                readDictionary(dicts, heap, genreCount, authorCount),
+                readDictionary(dicts, heap, genreCount + authorCount, languageCount));
+        }
+    }
+
+    // Mapea el fichero, comprueba el CRC y reconstruye las canciones en paralelo por bloques de filas
+    @SuppressWarnings("unchecked")
+    public static <T> Loaded<T> read(Path path, SongCodec<T> codec) throws IOException {
+        Sections file = map(path, true);
+        ByteBuffer rows = file.rows;
+        Object[] songs = new Object[file.count];
+        IntStream.range(0, (file.count + LOAD_BLOCK - 1) / LOAD_BLOCK).parallel().forEach(block -> {
+            byte[] buffer = new byte[256];
+            int end = Math.min(file.count, (block + 1) * LOAD_BLOCK);
+            for (int i = block * LOAD_BLOCK; i < end; i++) {
+                int row = i * ROW;
+                int length = rows.getChar(row + ROW_TITLE_LENGTH);
+                if (length > buffer.length) {
+                    buffer = new byte[Math.max(length, buffer.length * 2)];
+                }
+                file.heap.get(rows.getInt(row + ROW_TITLE), buffer, 0, length);
+                songs[i] = codec.create(new String(buffer, 0, length, StandardCharsets.UTF_8),
+                    file.genres[rows.getInt(row + ROW_GENRE)], file.authors[rows.getInt(row + ROW_AUTHOR)],
+                    file.languages[rows.getInt(row + ROW_LANGUAGE)], rows.getShort(row + ROW_YEAR));
+            }
+        });
+        return new Loaded<>((List<T>) Arrays.asList(songs), file.version);
+    }
+
+    private static String[] readDictionary(ByteBuffer dicts, ByteBuffer heap, int first, int count) {
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            int entry = (first + i) * DICT_ENTRY;
+            byte[] bytes = new byte[dicts.getInt(entry + 4)];
+            heap.get(dicts.getInt(entry), bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return values;
+    }
+
+    // Valores ordenados; en el mapa queda el identificador (posición) de cada uno
+    private static String[] dictionary(Map<String, Integer> ids) {
+        String[] values = ids.keySet().toArray(new String[0]);
+        Arrays.sort(values);
+        for (int i = 0; i < values.length; i++) {
+            ids.put(values[i], i);
+        }
+        return values;
+    }
+
+    private static String text(String value) {
+        return value == null ? "" : value;
+    }
+
+    // Bytes que ocupa value en UTF-8 (lo mismo que getBytes(UTF_8).length, sin crear el array)
+    static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    // Para que el renombrado sobreviva a un corte de luz; no todos los sistemas lo permiten
+    static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Windows no abre directorios como ficheros
+        }
+    }
+}
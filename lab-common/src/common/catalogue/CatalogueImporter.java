@@ -0,0 +1,335 @@
+package common.catalogue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import common.json.JsonReader;
+
+/*
+ * Importación masiva de volcados de canciones. El fichero se corta en trozos que acaban en
+ * final de línea y cada trozo se analiza en un ForkJoinPool; los resultados se entregan al
+ * destino por lotes, en el orden del fichero y siempre en el hilo que llamó a importFile, así
+ * el destino (p. ej. SnapshotCatalogue.addAll, que va construyendo el índice de claves lote a
+ * lote) no necesita ser concurrente. Como mucho hay 2 x paralelismo trozos analizados
+ * esperando, lo que acota la memoria aunque el volcado no quepa en ella.
+ * Formatos, una canción por línea:
+ *   CSV   cabecera con title,genre,author,language,year (en cualquier orden; sin cabecera se
+ *         supone ese orden). Comillas dobles como en RFC 4180, sin saltos de línea dentro.
+ *   JSON  un objeto por línea (JSON Lines) o un arreglo con un objeto por línea.
+ * Género, autor e idioma se internan: millones de canciones comparten unos pocos objetos.
+ * Las líneas que no se pueden leer se cuentan y se guardan las primeras MAX_ERRORS.
+ */
+public class CatalogueImporter<T> {
+
+    public enum Format {
+        CSV, JSON;
+
+        public static Format of(Path path) {
+            String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".json") || name.endsWith(".jsonl") || name.endsWith(".ndjson") ? JSON : CSV;
+        }
+    }
+
+    @FunctionalInterface
+    public interface BatchSink<T> {
+        void accept(List<T> batch) throws Exception;
+    }
+
+    public static final class Result {
+        public final long songs;
+        public final long skipped;
+        public final long bytes;
+        public final long elapsedNanos;
+        public final List<String> errors;
+
+        Result(long songs, long skipped, long bytes, long elapsedNanos, List<String> errors) {
+            this.songs = songs;
+            this.skipped = skipped;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+            this.errors = errors;
+        }
+
+        public double songsPerSecond() {
+            return elapsedNanos == 0 ? 0 : songs * 1e9 / elapsedNanos;
+        }
+    }
+
+    static final int MAX_ERRORS = 20;
+    private static final long MIN_SPLIT = 1 << 20;
+    private static final long MAX_SPLIT = 64 << 20;
+    private static final String[] COLUMNS = {"title", "genre", "author", "language", "year"};
+    private static final int[] DEFAULT_COLUMNS = {0, 1, 2, 3, 4};
+
+    private final SongCodec<T> codec;
+    private final int batchSize;
+    private final int parallelism;
+    private final Map<String, String> interned = new ConcurrentHashMap<>();
+    private final AtomicLong skipped = new AtomicLong();
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+    public CatalogueImporter(SongCodec<T> codec, int batchSize, int parallelism) {
+        this.codec = codec;
+        this.batchSize = batchSize;
+        this.parallelism = parallelism;
+    }
+
+    // Una importación cada vez por instancia
+    public synchronized Result importFile(Path path, Format format, BatchSink<T> sink) throws IOException {
+        long start = System.nanoTime();
+        long songs = 0;
+        skipped.set(0);
+        errors.clear();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = splits(channel, size, parallelism);
+            int[] columns = format == Format.CSV ? csvColumns(channel, size) : null;
+            long first = columns != null && columns != DEFAULT_COLUMNS ? lineEnd(channel, 0, size) : 0;
+            int window = parallelism * 2;
+            Deque<Future<List<T>>> pending = new ArrayDeque<>();
+            int next = 0;
+            while (next < bounds.length - 1 || !pending.isEmpty()) {
+                while (next < bounds.length - 1 && pending.size() < window) {
+                    long from = Math.max(bounds[next], first);
+                    long to = bounds[next + 1];
+                    pending.add(pool.submit(() -> parse(channel, from, to, format, columns)));
+                    next++;
+                }
+                List<T> parsed = pending.poll().get();
+                for (int i = 0; i < parsed.size(); i += batchSize) {
+                    sink.accept(parsed.subList(i, Math.min(parsed.size(), i + batchSize)));
+                }
+                songs += parsed.size();
+            }
+            return new Result(songs, skipped.get(), size, System.nanoTime() - start, new ArrayList<>(errors));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Importación interrumpida");
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("El destino rechazó un lote: " + e.getMessage(), e);
+        } finally {
+            pool.shutdownNow();
+            interned.clear();
+        }
+    }
+
+    // Límites de los trozos: cada uno empieza justo después de un salto de línea
+    private static long[] splits(FileChannel channel, long size, int parallelism) throws IOException {
+        long target = Math.max(MIN_SPLIT, Math.min(MAX_SPLIT, size / (parallelism * 4L)));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long position = target;
+        while (position < size) {
+            long end = lineEnd(channel, position - 1, size);
+            if (end >= size) {
+                break;
+            }
+            bounds.add(end);
+            position = end + target;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // Posición siguiente al primer '\n' desde from (o size)
+    private static long lineEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    // Posición de cada campo según la cabecera; DEFAULT_COLUMNS si la primera línea no es cabecera
+    private static int[] csvColumns(FileChannel channel, long size) throws IOException {
+        long end = lineEnd(channel, 0, size);
+        ByteBuffer line = ByteBuffer.allocate((int) Math.min(end, 1 << 16));
+        channel.read(line, 0);
+        List<String> header = splitCsv(stripBom(new String(line.array(), 0, line.position(), StandardCharsets.UTF_8).trim()));
+        int[] columns = new int[COLUMNS.length];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            columns[c] = -1;
+            for (int i = 0; header != null && i < header.size(); i++) {
+                if (header.get(i).trim().equalsIgnoreCase(COLUMNS[c])) {
+                    columns[c] = i;
+                }
+            }
+            if (columns[c] < 0) {
+                return DEFAULT_COLUMNS;
+            }
+        }
+        return columns;
+    }
+
+    private List<T> parse(FileChannel channel, long from, long to, Format format, int[] columns) throws IOException {
+        List<T> songs = new ArrayList<>((int) ((to - from) / 48));
+        if (from >= to) {
+            return songs;
+        }
+        ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        byte[] buffer = new byte[512];
+        int length = data.limit();
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            while (end < length && data.get(end) != '\n') {
+                end++;
+            }
+            int lineLength = end - start;
+            if (lineLength > 0 && data.get(end - 1) == '\r') {
+                lineLength--;
+            }
+            if (lineLength > buffer.length) {
+                buffer = new byte[Math.max(lineLength, buffer.length * 2)];
+            }
+            data.get(start, buffer, 0, lineLength);
+            String line = new String(buffer, 0, lineLength, StandardCharsets.UTF_8);
+            try {
+                T song = format == Format.CSV ? fromCsv(line, columns) : fromJson(line);
+                if (song != null) {
+                    songs.add(song);
+                }
+            } catch (RuntimeException e) {
+                skip(from + start, e.getMessage());
+            }
+            start = end + 1;
+        }
+        return songs;
+    }
+
+    private T fromCsv(String line, int[] columns) {
+        if (line.isBlank()) {
+            return null;
+        }
+        List<String> fields = splitCsv(stripBom(line));
+        if (fields == null) {
+            throw new IllegalArgumentException("comillas sin cerrar");
+        }
+        for (int column : columns) {
+            if (column >= fields.size()) {
+                throw new IllegalArgumentException("faltan campos (" + fields.size() + ")");
+            }
+        }
+        return song(fields.get(columns[0]), fields.get(columns[1]), fields.get(columns[2]),
+            fields.get(columns[3]), Integer.parseInt(fields.get(columns[4]).trim()));
+    }
+
+    private T fromJson(String line) {
+        String text = line.trim();
+        if (text.endsWith(",")) {
+            text = text.substring(0, text.length() - 1).trim();
+        }
+        if (text.startsWith("[")) {
+            text = text.substring(1).trim();
+        }
+        if (text.endsWith("]")) {
+            text = text.substring(0, text.length() - 1).trim();
+        }
+        if (text.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> object = JsonReader.parseObject(stripBom(text));
+        Object year = object.get("year");
+        if (!(year instanceof Number)) {
+            throw new IllegalArgumentException("year no es un número");
+        }
+        return song(string(object, "title"), string(object, "genre"), string(object, "author"),
+            string(object, "language"), ((Number) year).intValue());
+    }
+
+    private T song(String title, String genre, String author, String language, int year) {
+        T song = codec.create(title, intern(genre), intern(author), intern(language), year);
+        String rejected = SearchEngine.rejectionReason(codec, song);
+        if (rejected != null) {
+            throw new IllegalArgumentException(rejected);
+        }
+        return song;
+    }
+
+    private String intern(String value) {
+        String existing = interned.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    private void skip(long offset, String reason) {
+        skipped.incrementAndGet();
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("byte " + offset + ": " + reason);
+        }
+    }
+
+    private static String string(Map<String, Object> object, String field) {
+        Object value = object.get(field);
+        return value == null ? "" : value.toString();
+    }
+
+    private static String stripBom(String text) {
+        return text.startsWith("\uFEFF") ? text.substring(1) : text;
+    }
+
+    // Campos de una línea CSV; null si hay comillas sin cerrar
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
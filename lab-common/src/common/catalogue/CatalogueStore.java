@@ -0,0 +1,493 @@
+package common.catalogue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import common.log.Log;
+import common.log.Logger;
+import common.metrics.MetricsRegistry;
+
+/*
+ * Persistencia de un SnapshotCatalogue en un directorio:
+ *   catalogue.snap   último snapshot completo (CatalogueFile)
+ *   wal-<v>.log      cambios desde la versión v, cada uno escrito antes de publicarse
+ *   catalogue.lock   impide que dos procesos usen el mismo directorio
+ * Al abrir se mapea el snapshot y se aplican los cambios del log con versión posterior. Cuando
+ * el segmento actual pasa de checkpointBytes se empieza otro y el snapshot de la versión
+ * anterior se escribe en segundo plano (es inmutable, las escrituras no esperan); al terminar
+ * se borran los segmentos que ya cubre.
+ * Sync.ALWAYS sincroniza cada cambio con el disco antes de confirmarlo; con NONE un fallo del
+ * proceso no pierde nada pero un corte de luz puede perder los últimos cambios.
+ */
+public class CatalogueStore<T> implements SnapshotCatalogue.WriteListener<T>, AutoCloseable {
+
+    public enum Sync { ALWAYS, NONE }
+
+    @FunctionalInterface
+    public interface BulkLoader<T, R> {
+        R load(SnapshotCatalogue<T> catalogue) throws IOException;
+    }
+
+    static final String SNAPSHOT = "catalogue.snap";
+    private static final String LOCK = "catalogue.lock";
+    private static final byte ADD = 1;
+    private static final byte UPDATE = 2;
+    private static final byte REMOVE = 3;
+
+    private static final Logger LOG = Log.getLogger("Catalogue Store");
+    private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+
+    private final Path directory;
+    private final SongCodec<T> codec;
+    private final Sync sync;
+    private final long checkpointBytes;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final ExecutorService checkpointer;
+    private final AtomicBoolean checkpointPending = new AtomicBoolean();
+    private SnapshotCatalogue<T> catalogue;
+    // Solo se cambia con el cerrojo de escritura del catálogo
+    private volatile WriteAheadLog log;
+    private volatile long snapshotVersion = -1;
+    private boolean closed;
+    // Durante bulkLoad los cambios no van al log (con el cerrojo de escritura del catálogo)
+    private boolean bulk;
+
+    private CatalogueStore(Path directory, SongCodec<T> codec, Sync sync, long checkpointBytes) throws IOException {
+        this.directory = directory;
+        this.codec = codec;
+        this.sync = sync;
+        this.checkpointBytes = checkpointBytes;
+        Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve(LOCK), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock acquired;
+        try {
+            acquired = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            acquired = null;
+        }
+        if (acquired == null) {
+            lockChannel.close();
+            throw new IOException("Otro proceso está usando " + directory);
+        }
+        this.lock = acquired;
+        this.checkpointer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "catalogue-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+     * Recupera el catálogo guardado en directory o, si está vacío, lo crea con initial y guarda
+     * su primer snapshot. Las escrituras del catálogo devuelto quedan registradas en el log.
+     */
+    public static <T> CatalogueStore<T> open(Path directory, SongCodec<T> codec, Function<T, String> keyOf,
+                                             Supplier<? extends Collection<T>> initial, Sync sync,
+                                             long checkpointBytes) throws IOException {
+        CatalogueStore<T> store = new CatalogueStore<>(directory, codec, sync, checkpointBytes);
+        try {
+            store.recover(keyOf, initial);
+        } catch (IOException | RuntimeException e) {
+            store.release();
+            throw e;
+        }
+        return store;
+    }
+
+    public SnapshotCatalogue<T> catalogue() {
+        return catalogue;
+    }
+
+    /*
+     * Carga masiva: loader añade canciones (addAll por lotes) sin escribirlas en el log, y al
+     * terminar, aunque sea con error, se guarda un snapshot con lo que haya entrado. Mientras
+     * dura, las demás escrituras esperan; las lecturas no. Si el proceso cae antes de guardar
+     * el snapshot el directorio queda como estaba antes de la carga.
+     */
+    public <R> R bulkLoad(BulkLoader<T, R> loader) throws IOException {
+        try {
+            return catalogue.exclusive(current -> {
+                bulk = true;
+                try {
+                    return loader.load(catalogue);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    bulk = false;
+                    if (catalogue.version() != current.version()) {
+                        persistBulk();
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /*
+     * Primero el snapshot y luego el segmento nuevo: hasta que el snapshot está en disco los
+     * segmentos siguen terminando en la versión del snapshot anterior y recuperar da el
+     * catálogo de antes de la carga. Si luego no se puede rotar, los cambios siguientes van al
+     * segmento actual, que el snapshot ya cubre hasta su última versión.
+     */
+    private void persistBulk() {
+        try {
+            writeSnapshot(catalogue.snapshot());
+        } catch (IOException e) {
+            // El catálogo en memoria tiene cambios que no están en disco ni en el log
+            closed = true;
+            LOG.error("No se pudo guardar la carga masiva; no se aceptan más escrituras: {}", e.getMessage(), e);
+            throw new UncheckedIOException(e);
+        }
+        try {
+            rotate(catalogue.version() + 1);
+            dropCoveredSegments(catalogue.version());
+        } catch (IOException e) {
+            LOG.warn("No se pudo empezar un segmento nuevo del log tras la carga masiva: {}", e.getMessage());
+        }
+    }
+
+    private void recover(Function<T, String> keyOf, Supplier<? extends Collection<T>> initial) throws IOException {
+        long start = System.nanoTime();
+        Path snapshotPath = directory.resolve(SNAPSHOT);
+        boolean fresh = !Files.exists(snapshotPath);
+        if (fresh) {
+            if (!WriteAheadLog.segments(directory).isEmpty()) {
+                throw new IOException(directory + ": hay log de cambios pero falta " + SNAPSHOT);
+            }
+            catalogue = new SnapshotCatalogue<>(initial.get(), keyOf);
+            CatalogueFile.write(snapshotPath, catalogue.snapshot(), codec);
+            snapshotVersion = catalogue.version();
+        } else {
+            CatalogueFile.Loaded<T> loaded = CatalogueFile.read(snapshotPath, codec);
+            catalogue = SnapshotCatalogue.restore(loaded.songs, keyOf, loaded.version);
+            snapshotVersion = loaded.version;
+        }
+        long loadedAt = System.nanoTime();
+        int replayed = replay();
+        log = new WriteAheadLog(directory, catalogue.version() + 1);
+        catalogue.setWriteListener(this);
+        registerMetrics();
+        LOG.info("Catálogo {} en {}: {} canciones, versión {} ({} cambios del log) en {} ms (snapshot {} ms)",
+            fresh ? "creado" : "recuperado", directory, catalogue.size(), catalogue.version(), replayed,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), TimeUnit.NANOSECONDS.toMillis(loadedAt - start));
+
+        // El índice de claves solo hace falta para escribir: se construye sin retrasar el arranque
+        checkpointer.execute(catalogue::buildIndex);
+        if (replayed > 0) {
+            startCheckpoint();
+        }
+    }
+
+    private void registerMetrics() {
+        METRICS.gauge("catalogue_wal_bytes", "Tamaño del segmento actual del log", () -> log.size());
+        METRICS.gauge("catalogue_snapshot_version", "Versión del último snapshot guardado", () -> snapshotVersion);
+    }
+
+    private int replay() throws IOException {
+        List<WriteAheadLog.Segment> segments = WriteAheadLog.segments(directory);
+        int[] replayed = {0};
+        for (int i = 0; i < segments.size(); i++) {
+            WriteAheadLog.Segment segment = segments.get(i);
+            if (segment.firstVersion > catalogue.version() + 1) {
+                throw new IOException("Falta el log de cambios desde la versión " + (catalogue.version() + 1)
+                    + " (siguiente segmento: " + segment.path.getFileName() + ")");
+            }
+            long valid = WriteAheadLog.replay(segment.path, payload -> {
+                if (apply(payload)) {
+                    replayed[0]++;
+                }
+            });
+            long size = Files.size(segment.path);
+            if (valid < size) {
+                if (i < segments.size() - 1) {
+                    throw new IOException(segment.path + ": registro dañado en medio del log");
+                }
+                LOG.warn("{}: se descartan {} bytes incompletos al final del log", segment.path.getFileName(), size - valid);
+                WriteAheadLog.truncate(segment.path, valid);
+            }
+        }
+        return replayed[0];
+    }
+
+    // Aplica un registro del log; false si el snapshot ya lo incluía
+    private boolean apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte operation = in.readByte();
+        long version = in.readLong();
+        if (version <= catalogue.version()) {
+            return false;
+        }
+        if (version != catalogue.version() + 1) {
+            throw new IOException("Log discontinuo: se esperaba la versión " + (catalogue.version() + 1)
+                + " y aparece la " + version);
+        }
+        boolean applied;
+        switch (operation) {
+            case ADD:
+                int count = in.readInt();
+                List<T> songs = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    songs.add(readSong(in));
+                }
+                applied = catalogue.addAll(songs) == count;
+                break;
+            case UPDATE:
+                applied = catalogue.update(in.readUTF(), readSong(in));
+                break;
+            case REMOVE:
+                applied = catalogue.remove(in.readUTF()) != null;
+                break;
+            default:
+                throw new IOException("Operación desconocida en el log: " + operation);
+        }
+        if (!applied || catalogue.version() != version) {
+            throw new IOException("El log no coincide con el catálogo en la versión " + version);
+        }
+        return true;
+    }
+
+    @Override
+    public void added(long version, List<T> songs) throws IOException {
+        if (bulk) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + 64 * songs.size());
+        DataOutputStream out = record(bytes, ADD, version);
+        out.writeInt(songs.size());
+        for (T song : songs) {
+            writeSong(out, song);
+        }
+        append(version, "add", bytes);
+    }
+
+    @Override
+    public void updated(long version, String key, T song) throws IOException {
+        if (bulk) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream out = record(bytes, UPDATE, version);
+        out.writeUTF(key);
+        writeSong(out, song);
+        append(version, "update", bytes);
+    }
+
+    @Override
+    public void removed(long version, String key) throws IOException {
+        if (bulk) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        record(bytes, REMOVE, version).writeUTF(key);
+        append(version, "remove", bytes);
+    }
+
+    private static DataOutputStream record(ByteArrayOutputStream bytes, byte operation, long version) throws IOException {
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(operation);
+        out.writeLong(version);
+        return out;
+    }
+
+    private void writeSong(DataOutputStream out, T song) throws IOException {
+        out.writeUTF(text(codec.title(song)));
+        out.writeUTF(text(codec.genre(song)));
+        out.writeUTF(text(codec.author(song)));
+        out.writeUTF(text(codec.language(song)));
+        out.writeInt(codec.year(song));
+    }
+
+    private T readSong(DataInputStream in) throws IOException {
+        return codec.create(in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF(), in.readInt());
+    }
+
+    private static String text(String value) {
+        return value == null ? "" : value;
+    }
+
+    // Con el cerrojo de escritura del catálogo: el orden del log es el de las versiones
+    private void append(long version, String operation, ByteArrayOutputStream bytes) throws IOException {
+        if (closed) {
+            throw new IOException("El almacén del catálogo está cerrado");
+        }
+        if (log.size() >= checkpointBytes && checkpointPending.compareAndSet(false, true)) {
+            // Este cambio abre el segmento nuevo; el snapshot es la versión anterior, aún vigente
+            try {
+                rotate(version);
+            } catch (IOException e) {
+                checkpointPending.set(false);
+                throw e;
+            }
+            SnapshotCatalogue.Snapshot<T> snapshot = catalogue.snapshot();
+            checkpointer.execute(() -> checkpointInBackground(snapshot));
+        }
+        long start = System.nanoTime();
+        long before = log.size();
+        log.append(bytes.toByteArray());
+        if (sync == Sync.ALWAYS) {
+            try {
+                log.sync();
+            } catch (IOException e) {
+                // El catálogo descarta esta versión y el siguiente cambio la reutiliza: el registro
+                // no puede quedarse en el log o al recuperar se aplicaría en lugar del aceptado
+                try {
+                    log.truncate(before);
+                } catch (IOException truncateError) {
+                    e.addSuppressed(truncateError);
+                    closed = true;
+                    LOG.error("No se pudo deshacer un cambio sin sincronizar; no se aceptan más escrituras: {}",
+                        e.getMessage(), e);
+                }
+                throw e;
+            }
+        }
+        METRICS.counter("catalogue_wal_records_total", "Cambios escritos en el log", "operation", operation).increment();
+        METRICS.histogram("catalogue_wal_append_duration_seconds", "Tiempo de escritura (y sincronización) de cada cambio")
+            .recordValue(System.nanoTime() - start);
+    }
+
+    private void rotate(long firstVersion) throws IOException {
+        if (log.firstVersion == firstVersion) {
+            return;
+        }
+        WriteAheadLog previous = log;
+        log = new WriteAheadLog(directory, firstVersion);
+        previous.close();
+    }
+
+    // Escribe en segundo plano el snapshot de la versión vigente y empieza un segmento nuevo
+    private void startCheckpoint() {
+        if (!checkpointPending.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            SnapshotCatalogue.Snapshot<T> snapshot = catalogue.exclusive(current -> {
+                try {
+                    rotate(current.version() + 1);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return current;
+            });
+            checkpointer.execute(() -> checkpointInBackground(snapshot));
+        } catch (UncheckedIOException e) {
+            checkpointPending.set(false);
+            LOG.error("No se pudo empezar un segmento nuevo del log: {}", e.getMessage(), e);
+        }
+    }
+
+    private void checkpointInBackground(SnapshotCatalogue.Snapshot<T> snapshot) {
+        try {
+            writeSnapshot(snapshot);
+        } catch (IOException | RuntimeException e) {
+            LOG.error("No se pudo guardar el snapshot del catálogo: {}", e.getMessage(), e);
+        } finally {
+            checkpointPending.set(false);
+        }
+    }
+
+    // Guarda el snapshot de la versión vigente y espera a que esté en disco
+    public void checkpoint() throws IOException {
+        SnapshotCatalogue.Snapshot<T> snapshot = catalogue.exclusive(current -> {
+            try {
+                if (log.size() > 0) {
+                    rotate(current.version() + 1);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return current;
+        });
+        Future<?> done = checkpointer.submit(() -> {
+            writeSnapshot(snapshot);
+            return null;
+        });
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Checkpoint interrumpido");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    // Sincronizado: dos snapshots no se escriben a la vez (comparten el fichero temporal)
+    private synchronized void writeSnapshot(SnapshotCatalogue.Snapshot<T> snapshot) throws IOException {
+        if (snapshot.version() <= snapshotVersion) {
+            return;
+        }
+        long start = System.nanoTime();
+        CatalogueFile.write(directory.resolve(SNAPSHOT), snapshot, codec);
+        snapshotVersion = snapshot.version();
+        dropCoveredSegments(snapshot.version());
+        METRICS.counter("catalogue_checkpoints_total", "Snapshots del catálogo guardados").increment();
+        LOG.info("Snapshot del catálogo guardado: versión {}, {} canciones en {} ms", snapshot.version(),
+            snapshot.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    // Un segmento sobra cuando el siguiente empieza como mucho justo después del snapshot
+    private synchronized void dropCoveredSegments(long version) throws IOException {
+        List<WriteAheadLog.Segment> segments = WriteAheadLog.segments(directory);
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (segments.get(i + 1).firstVersion <= version + 1) {
+                Files.deleteIfExists(segments.get(i).path);
+            }
+        }
+    }
+
+    // Guarda un último snapshot (el próximo arranque no tendrá que aplicar el log) y libera el directorio
+    @Override
+    public void close() throws IOException {
+        try {
+            if (catalogue.version() > snapshotVersion) {
+                checkpoint();
+            }
+        } finally {
+            catalogue.exclusive(current -> {
+                closed = true;
+                try {
+                    log.close();
+                } catch (IOException e) {
+                    LOG.warn("Error al cerrar el log: {}", e.getMessage());
+                }
+                return null;
+            });
+            release();
+        }
+    }
+
+    private void release() throws IOException {
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.release();
+        lockChannel.close();
+    }
+}
@@ -0,0 +1,203 @@
+package common.catalogue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Índices de un bloque del catálogo para SongFilter: las posiciones ordenadas por año (un
+ * rango son dos búsquedas binarias) y un SlotBitmap por idioma y por género. Para Facets cada
+ * campo (también autor y década) guarda el identificador del valor de cada posición y cuántas
+ * tiene cada valor: sin filtro los recuentos ya están hechos y con filtro se cuentan las
+ * posiciones seleccionadas. Los bloques no cambian nunca (una escritura copia el bloque), así
+ * que el índice se construye la primera vez que se filtra sobre el bloque y sirve mientras el
+ * bloque siga en el catálogo.
+ */
+final class ChunkIndex {
+
+    final SongCodec<?> codec;
+    // (año << CHUNK_BITS) | posición, ordenado
+    private final long[] years;
+    private final Column languages;
+    private final Column genres;
+    private final Column authors;
+    private final Column decades;
+    private final int size;
+
+    private ChunkIndex(SongCodec<?> codec, long[] years, Column languages, Column genres, Column authors, Column decades) {
+        this.codec = codec;
+        this.years = years;
+        this.languages = languages;
+        this.genres = genres;
+        this.authors = authors;
+        this.decades = decades;
+        this.size = years.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> ChunkIndex build(SongCodec<T> codec, Object[] chunk, int limit) {
+        long[] years = new long[limit];
+        String[] languages = new String[limit];
+        String[] genres = new String[limit];
+        String[] authors = new String[limit];
+        String[] decades = new String[limit];
+        int count = 0;
+        for (int i = 0; i < limit; i++) {
+            T song = (T) chunk[i];
+            if (song == null) {
+                continue;
+            }
+            years[count++] = ((long) codec.year(song) << SnapshotCatalogue.CHUNK_BITS) | i;
+            languages[i] = codec.language(song);
+            genres[i] = codec.genre(song);
+            authors[i] = codec.author(song);
+            decades[i] = Facets.decade(codec.year(song));
+        }
+        years = Arrays.copyOf(years, count);
+        Arrays.sort(years);
+        return new ChunkIndex(codec, years, new Column(languages, true), new Column(genres, true),
+            new Column(authors, false), new Column(decades, false));
+    }
+
+    /*
+     * Posiciones que cumplen año, idioma y género del filtro (intersección de los bitmaps);
+     * null si el filtro no usa ninguno de los tres y hay que recorrer el bloque.
+     */
+    SlotBitmap select(SongFilter filter) {
+        SlotBitmap result = null;
+        if (filter.language != null) {
+            result = SlotBitmap.EMPTY;
+            for (int id = 0; id < languages.names.length; id++) {
+                if (languages.names[id].equalsIgnoreCase(filter.language)) {
+                    result = result.or(languages.bitmaps[id]);
+                }
+            }
+        }
+        if (filter.genre != null && (result == null || !result.isEmpty())) {
+            SlotBitmap matching = SlotBitmap.EMPTY;
+            for (int id = 0; id < genres.names.length; id++) {
+                if (genres.names[id].toLowerCase().contains(filter.genre)) {
+                    matching = matching.or(genres.bitmaps[id]);
+                }
+            }
+            result = result == null ? matching : result.and(matching);
+        }
+        if (filter.hasYear() && (result == null || !result.isEmpty())) {
+            SlotBitmap inRange = years(filter.minYear(), filter.maxYear());
+            result = result == null ? inRange : result.and(inRange);
+        }
+        return result;
+    }
+
+    // Suma a tally las canciones de selected por valor (selected null: todo el bloque)
+    void count(SlotBitmap selected, Facets.Tally tally) {
+        tally.total += selected == null ? size : selected.cardinality();
+        genres.count(selected, tally.genres);
+        languages.count(selected, tally.languages);
+        authors.count(selected, tally.authors);
+        decades.count(selected, tally.decades);
+    }
+
+    private SlotBitmap years(int from, int to) {
+        if (from > to) {
+            return SlotBitmap.EMPTY;
+        }
+        int low = lowerBound((long) from << SnapshotCatalogue.CHUNK_BITS);
+        int high = lowerBound(((long) to + 1) << SnapshotCatalogue.CHUNK_BITS);
+        short[] offsets = new short[high - low];
+        for (int i = low; i < high; i++) {
+            offsets[i - low] = (short) (years[i] & (SnapshotCatalogue.CHUNK - 1));
+        }
+        return SlotBitmap.of(offsets, 0, offsets.length);
+    }
+
+    // Primera posición de years con valor >= key
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = years.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (years[middle] < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Valores distintos de un campo en el bloque; values[i] es null en los huecos
+    private static final class Column {
+        final String[] names;
+        // Identificador (índice en names) del valor de cada posición, -1 en los huecos
+        final short[] ids;
+        final int[] counts;
+        // Un bitmap por valor, solo en los campos que filtra select
+        final SlotBitmap[] bitmaps;
+
+        Column(String[] values, boolean withBitmaps) {
+            Map<String, Integer> idOf = new HashMap<>();
+            ids = new short[values.length];
+            int[] counts = new int[8];
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    ids[i] = -1;
+                    continue;
+                }
+                Integer id = idOf.get(values[i]);
+                if (id == null) {
+                    id = idOf.size();
+                    idOf.put(values[i], id);
+                    if (id == counts.length) {
+                        counts = Arrays.copyOf(counts, id * 2);
+                    }
+                }
+                ids[i] = (short) (int) id;
+                counts[id]++;
+            }
+            this.names = new String[idOf.size()];
+            for (Map.Entry<String, Integer> entry : idOf.entrySet()) {
+                names[entry.getValue()] = entry.getKey();
+            }
+            this.counts = Arrays.copyOf(counts, names.length);
+            this.bitmaps = withBitmaps ? bitmaps() : null;
+        }
+
+        // Posiciones agrupadas por valor, cada grupo en orden
+        private SlotBitmap[] bitmaps() {
+            int[] starts = new int[names.length + 1];
+            for (int id = 0; id < names.length; id++) {
+                starts[id + 1] = starts[id] + counts[id];
+            }
+            short[] offsets = new short[starts[names.length]];
+            int[] next = Arrays.copyOf(starts, names.length);
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] >= 0) {
+                    offsets[next[ids[i]]++] = (short) i;
+                }
+            }
+            SlotBitmap[] bitmaps = new SlotBitmap[names.length];
+            for (int id = 0; id < names.length; id++) {
+                bitmaps[id] = SlotBitmap.of(offsets, starts[id], starts[id + 1]);
+            }
+            return bitmaps;
+        }
+
+        void count(SlotBitmap selected, Map<String, int[]> target) {
+            int[] selectedCounts = counts;
+            if (selected != null) {
+                int[] local = new int[names.length];
+                // Las canciones sin este campo (id -1) no cuentan para ningún valor
+                selected.forEach(i -> {
+                    if (ids[i] >= 0) {
+                        local[ids[i]]++;
+                    }
+                });
+                selectedCounts = local;
+            }
+            for (int id = 0; id < names.length; id++) {
+                Facets.Tally.add(target, names[id], selectedCounts[id]);
+            }
+        }
+    }
+}
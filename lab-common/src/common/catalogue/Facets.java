@@ -0,0 +1,109 @@
+package common.catalogue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Cuántas canciones de las que cumplen un filtro hay de cada género, idioma, autor y década
+ * (la de 1990 es "1990"), para no tener que traer las canciones y contarlas en el cliente.
+ * Géneros, idiomas y autores van de más a menos canciones y las décadas en orden; cada mapa
+ * tiene como mucho limit valores (limit <= 0: todos) y total cuenta todas las canciones.
+ */
+public final class Facets implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public final int total;
+    // LinkedHashMap y no Map: viajan por RMI y tienen que ser serializables con su orden
+    public final LinkedHashMap<String, Integer> genres;
+    public final LinkedHashMap<String, Integer> languages;
+    public final LinkedHashMap<String, Integer> authors;
+    public final LinkedHashMap<String, Integer> decades;
+    // Recuento de shards en el que faltó alguno
+    public final boolean partial;
+
+    Facets(int total, LinkedHashMap<String, Integer> genres, LinkedHashMap<String, Integer> languages,
+           LinkedHashMap<String, Integer> authors, LinkedHashMap<String, Integer> decades, boolean partial) {
+        this.total = total;
+        this.genres = genres;
+        this.languages = languages;
+        this.authors = authors;
+        this.decades = decades;
+        this.partial = partial;
+    }
+
+    // Suma los recuentos de cada parte (p. ej. uno por shard, pedidos con limit <= 0 para que sean exactos)
+    public static Facets merge(List<Facets> parts, int limit, boolean partial) {
+        Tally tally = new Tally();
+        for (Facets part : parts) {
+            tally.total += part.total;
+            part.genres.forEach((value, count) -> Tally.add(tally.genres, value, count));
+            part.languages.forEach((value, count) -> Tally.add(tally.languages, value, count));
+            part.authors.forEach((value, count) -> Tally.add(tally.authors, value, count));
+            part.decades.forEach((value, count) -> Tally.add(tally.decades, value, count));
+        }
+        return tally.facets(limit, partial);
+    }
+
+    static String decade(int year) {
+        return String.valueOf(Math.floorDiv(year, 10) * 10);
+    }
+
+    @Override
+    public String toString() {
+        return "total=" + total + " genres=" + genres + " languages=" + languages + " authors=" + authors
+            + " decades=" + decades + (partial ? " (parcial)" : "");
+    }
+
+    // Recuentos en construcción
+    static final class Tally {
+        int total;
+        final Map<String, int[]> genres = new HashMap<>();
+        final Map<String, int[]> languages = new HashMap<>();
+        final Map<String, int[]> authors = new HashMap<>();
+        final Map<String, int[]> decades = new HashMap<>();
+
+        static void add(Map<String, int[]> counts, String value, int count) {
+            if (count > 0) {
+                counts.computeIfAbsent(value, v -> new int[1])[0] += count;
+            }
+        }
+
+        Facets facets(int limit, boolean partial) {
+            return new Facets(total, top(genres, limit), top(languages, limit), top(authors, limit),
+                chronological(decades, limit), partial);
+        }
+
+        private static LinkedHashMap<String, Integer> top(Map<String, int[]> counts, int limit) {
+            List<Map.Entry<String, int[]>> entries = new ArrayList<>(counts.entrySet());
+            entries.sort((a, b) -> a.getValue()[0] != b.getValue()[0]
+                ? Integer.compare(b.getValue()[0], a.getValue()[0]) : a.getKey().compareTo(b.getKey()));
+            return toMap(entries, limit);
+        }
+
+        // Las limit décadas con más canciones, en orden cronológico
+        private static LinkedHashMap<String, Integer> chronological(Map<String, int[]> counts, int limit) {
+            Map<String, Integer> kept = top(counts, limit);
+            List<Map.Entry<String, int[]>> entries = new ArrayList<>();
+            for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+                if (kept.containsKey(entry.getKey())) {
+                    entries.add(entry);
+                }
+            }
+            entries.sort((a, b) -> Integer.compare(Integer.parseInt(a.getKey()), Integer.parseInt(b.getKey())));
+            return toMap(entries, 0);
+        }
+
+        private static LinkedHashMap<String, Integer> toMap(List<Map.Entry<String, int[]>> entries, int limit) {
+            int size = limit > 0 ? Math.min(limit, entries.size()) : entries.size();
+            LinkedHashMap<String, Integer> result = new LinkedHashMap<>(size * 2);
+            for (Map.Entry<String, int[]> entry : entries.subList(0, size)) {
+                result.put(entry.getKey(), entry.getValue()[0]);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package common.catalogue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import common.deadline.Deadline;
+
+/*
+ * Catálogo de solo lectura sobre un fichero CatalogueFile mapeado en memoria. Las búsquedas
+ * recorren las filas del fichero sin crear objetos: género y autor se comparan una vez por
+ * valor del diccionario y luego por identificador, y el título directamente sobre los bytes
+ * UTF-8 del heap. Solo las canciones que coinciden se convierten en T.
+ * Abrir no lee las canciones, así que el arranque no depende del tamaño del catálogo, y varios
+ * procesos que mapean el mismo fichero comparten la caché de páginas del sistema en lugar de
+ * tener cada uno su copia en el montón. Si el fichero se sustituye (un snapshot nuevo se
+ * renombra encima) el mapeo sigue viendo el anterior hasta que se vuelve a abrir.
+ */
+public final class MappedCatalogue<T> {
+
+    // Filas entre comprobaciones del plazo de la petición (Deadline.check)
+    static final int DEADLINE_ROWS = 4096;
+
+    private final Path path;
+    private final SongCodec<T> codec;
+    private final CatalogueFile.Sections file;
+
+    private MappedCatalogue(Path path, SongCodec<T> codec, CatalogueFile.Sections file) {
+        this.path = path;
+        this.codec = codec;
+        this.file = file;
+    }
+
+    // verify comprueba el CRC leyendo el fichero entero; sin él abrir es inmediato
+    public static <T> MappedCatalogue<T> open(Path path, SongCodec<T> codec, boolean verify) throws IOException {
+        return new MappedCatalogue<>(path, codec, CatalogueFile.map(path, verify));
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public int size() {
+        return file.count;
+    }
+
+    public long version() {
+        return file.version;
+    }
+
+    /*
+     * Canciones cuyo título, género y autor contienen el texto dado sin distinguir mayúsculas,
+     * como las búsquedas de los servidores; null o vacío no filtra ese campo.
+     */
+    public List<T> search(String title, String genre, String author) {
+        return search(new SongFilter(title, genre, author));
+    }
+
+    // Año e idioma se comparan en la fila (año) o una vez por valor del diccionario (idioma)
+    public List<T> search(SongFilter filter) {
+        List<T> results = new ArrayList<>();
+        forEachMatch(filter, i -> results.add(song(i)));
+        return results;
+    }
+
+    /*
+     * Como Snapshot.facets: los recuentos se llevan por identificador del diccionario (un
+     * int[] por campo) y los nombres solo se ponen al final, sin crear ninguna canción.
+     */
+    public Facets facets(SongFilter filter, int limit) {
+        ByteBuffer rows = file.rows;
+        int[] genres = new int[file.genres.length];
+        int[] languages = new int[file.languages.length];
+        int[] authors = new int[file.authors.length];
+        // Décadas de todo el rango de un short, también las de años negativos
+        int firstDecade = Math.floorDiv(Short.MIN_VALUE, 10);
+        int[] decades = new int[Math.floorDiv(Short.MAX_VALUE, 10) - firstDecade + 1];
+        forEachMatch(filter, i -> {
+            int row = i * CatalogueFile.ROW;
+            genres[rows.getInt(row + CatalogueFile.ROW_GENRE)]++;
+            languages[rows.getInt(row + CatalogueFile.ROW_LANGUAGE)]++;
+            authors[rows.getInt(row + CatalogueFile.ROW_AUTHOR)]++;
+            decades[Math.floorDiv(rows.getShort(row + CatalogueFile.ROW_YEAR), 10) - firstDecade]++;
+        });
+        Facets.Tally tally = new Facets.Tally();
+        for (int id = 0; id < genres.length; id++) {
+            Facets.Tally.add(tally.genres, file.genres[id], genres[id]);
+            tally.total += genres[id];
+        }
+        for (int id = 0; id < languages.length; id++) {
+            Facets.Tally.add(tally.languages, file.languages[id], languages[id]);
+        }
+        for (int id = 0; id < authors.length; id++) {
+            Facets.Tally.add(tally.authors, file.authors[id], authors[id]);
+        }
+        for (int i = 0; i < decades.length; i++) {
+            if (decades[i] > 0) {
+                Facets.Tally.add(tally.decades, Facets.decade((firstDecade + i) * 10), decades[i]);
+            }
+        }
+        return tally.facets(limit, false);
+    }
+
+    // Índice de cada fila que cumple filter, en orden
+    private void forEachMatch(SongFilter filter, IntConsumer action) {
+        boolean[] genres = matches(file.genres, filter.genre);
+        boolean[] authors = matches(file.authors, filter.author);
+        boolean[] languages = null;
+        if (filter.language != null) {
+            languages = new boolean[file.languages.length];
+            for (int i = 0; i < languages.length; i++) {
+                languages[i] = file.languages[i].equalsIgnoreCase(filter.language);
+            }
+        }
+        int minYear = filter.minYear();
+        int maxYear = filter.maxYear();
+        TitleMatcher titles = filter.title == null ? null : new TitleMatcher(filter.title);
+        ByteBuffer rows = file.rows;
+        for (int i = 0; i < file.count; i++) {
+            if ((i & (DEADLINE_ROWS - 1)) == 0) {
+                Deadline.check();
+            }
+            int row = i * CatalogueFile.ROW;
+            int year = rows.getShort(row + CatalogueFile.ROW_YEAR);
+            if ((genres == null || genres[rows.getInt(row + CatalogueFile.ROW_GENRE)])
+                    && (authors == null || authors[rows.getInt(row + CatalogueFile.ROW_AUTHOR)])
+                    && (languages == null || languages[rows.getInt(row + CatalogueFile.ROW_LANGUAGE)])
+                    && year >= minYear && year <= maxYear
+                    && (titles == null || titles.matches(row))) {
+                action.accept(i);
+            }
+        }
+    }
+
+    // Como RelevanceScorer.top, pero solo se crean las limit canciones que se devuelven
+    public List<T> ranked(String query, int limit) {
+        RelevanceScorer scorer = new RelevanceScorer(query);
+        List<T> results = new ArrayList<>();
+        if (scorer.isEmpty()) {
+            return results;
+        }
+        ByteBuffer rows = file.rows;
+        TopK<Integer> top = new TopK<>(limit);
+        for (int i = 0; i < file.count; i++) {
+            if ((i & (DEADLINE_ROWS - 1)) == 0) {
+                Deadline.check();
+            }
+            int row = i * CatalogueFile.ROW;
+            double score = scorer.score(title(row), file.genres[rows.getInt(row + CatalogueFile.ROW_GENRE)],
+                file.authors[rows.getInt(row + CatalogueFile.ROW_AUTHOR)]);
+            if (score > 0 && score > top.threshold()) {
+                top.offer(score, i);
+            }
+        }
+        for (int index : top.drain()) {
+            results.add(song(index));
+        }
+        return results;
+    }
+
+    // Canciones [offset, offset + limit) en el orden del fichero
+    public List<T> page(int offset, int limit) {
+        int from = Math.max(0, offset);
+        int to = (int) Math.min(file.count, (long) from + Math.max(0, limit));
+        List<T> page = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            page.add(song(i));
+        }
+        return page;
+    }
+
+    // Recorre el fichero creando cada canción; para búsquedas mejor search, que no las crea
+    public void forEach(Consumer<? super T> action) {
+        for (int i = 0; i < file.count; i++) {
+            action.accept(song(i));
+        }
+    }
+
+    public T song(int index) {
+        ByteBuffer rows = file.rows;
+        int row = index * CatalogueFile.ROW;
+        return codec.create(title(row), file.genres[rows.getInt(row + CatalogueFile.ROW_GENRE)],
+            file.authors[rows.getInt(row + CatalogueFile.ROW_AUTHOR)],
+            file.languages[rows.getInt(row + CatalogueFile.ROW_LANGUAGE)],
+            rows.getShort(row + CatalogueFile.ROW_YEAR));
+    }
+
+    private String title(int row) {
+        int length = file.rows.getChar(row + CatalogueFile.ROW_TITLE_LENGTH);
+        byte[] bytes = new byte[length];
+        file.heap.get(file.rows.getInt(row + CatalogueFile.ROW_TITLE), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Qué valores del diccionario contienen lowered (ya en minúsculas); null si no se filtra
+    private static boolean[] matches(String[] dictionary, String lowered) {
+        if (lowered == null) {
+            return null;
+        }
+        boolean[] matches = new boolean[dictionary.length];
+        for (int i = 0; i < dictionary.length; i++) {
+            matches[i] = dictionary[i].toLowerCase().contains(lowered);
+        }
+        return matches;
+    }
+
+    /*
+     * contains sin distinguir mayúsculas sobre los bytes del título. Los títulos ASCII (casi
+     * todos) se comparan byte a byte; los demás se decodifican y se usa toLowerCase(), porque
+     * fuera de ASCII pasar a minúsculas puede cambiar la longitud.
+     */
+    private final class TitleMatcher {
+        private final String lowered;
+        // null si la consulta en minúsculas no es ASCII: ningún título ASCII puede contenerla
+        private final byte[] needle;
+
+        TitleMatcher(String query) {
+            this.lowered = query.toLowerCase();
+            byte[] bytes = lowered.getBytes(StandardCharsets.UTF_8);
+            this.needle = bytes.length == lowered.length() ? bytes : null;
+        }
+
+        boolean matches(int row) {
+            ByteBuffer heap = file.heap;
+            int offset = file.rows.getInt(row + CatalogueFile.ROW_TITLE);
+            int length = file.rows.getChar(row + CatalogueFile.ROW_TITLE_LENGTH);
+            for (int i = 0; i < length; i++) {
+                if (heap.get(offset + i) < 0) {
+                    return title(row).toLowerCase().contains(lowered);
+                }
+            }
+            if (needle == null) {
+                return false;
+            }
+            int last = length - needle.length;
+            byte first = needle[0];
+            for (int start = 0; start <= last; start++) {
+                if (lower(heap.get(offset + start)) != first) {
+                    continue;
+                }
+                int j = 1;
+                while (j < needle.length && lower(heap.get(offset + start + j)) == needle[j]) {
+                    j++;
+                }
+                if (j == needle.length) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private byte lower(byte b) {
+            return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package common.catalogue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import common.deadline.Deadline;
+
+/*
+ * Relevancia de una canción para una consulta de texto libre. La consulta se parte en palabras
+ * y cada una se compara con las palabras de título, autor y género:
+ *   igual 1, prefijo de la palabra 0,8 (lo que se está escribiendo), a distancia de edición 1
+ *   0,6 o 2 0,4 (erratas; 1 desde 4 letras y 2 desde 8; cambiar dos letras seguidas de sitio
+ *   cuenta como una), contenida en la palabra 0,3.
+ * Cada palabra de la consulta se queda con su mejor coincidencia multiplicada por el peso del
+ * campo (título 3, autor 2, género 1) y la puntuación es la suma; si alguna palabra no
+ * coincide con nada la canción no cuenta (0). Que el título empiece por la consulta entera
+ * suma 1, y que sea igual 2.
+ * La distancia se calcula con la tabla de Levenshtein (con trasposiciones) limitada a la banda
+ * de k diagonales y se abandona en cuanto una fila entera pasa de k, que es lo que hace un
+ * autómata de Levenshtein de grado k recorrido sobre la palabra. Género y autor se repiten
+ * mucho, así que su puntuación se guarda por valor. Una instancia por consulta y por hilo.
+ */
+public final class RelevanceScorer {
+
+    static final double EXACT = 1.0;
+    static final double PREFIX = 0.8;
+    static final double FUZZY = 0.8;
+    static final double FUZZY_STEP = 0.2;
+    static final double SUBSTRING = 0.3;
+    static final double TITLE_WEIGHT = 3;
+    static final double AUTHOR_WEIGHT = 2;
+    static final double GENRE_WEIGHT = 1;
+    static final double PHRASE_PREFIX = 1;
+    static final double PHRASE_EXACT = 2;
+    private static final int MAX_CACHED = 1 << 16;
+
+    private final String query;
+    private final char[][] tokens;
+    private final Map<String, double[]> cached = new HashMap<>();
+    private int[] beforePrevious;
+    private int[] previous;
+    private int[] current;
+
+    public RelevanceScorer(String query) {
+        this.query = query.trim().toLowerCase();
+        List<char[]> words = new ArrayList<>();
+        int i = 0;
+        while (i < this.query.length()) {
+            while (i < this.query.length() && !Character.isLetterOrDigit(this.query.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < this.query.length() && Character.isLetterOrDigit(this.query.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                words.add(this.query.substring(start, i).toCharArray());
+            }
+        }
+        this.tokens = words.toArray(new char[0][]);
+        int longest = 0;
+        for (char[] token : tokens) {
+            longest = Math.max(longest, token.length);
+        }
+        this.beforePrevious = new int[longest + 1];
+        this.previous = new int[longest + 1];
+        this.current = new int[longest + 1];
+    }
+
+    // Consulta sin palabras (vacía o solo signos): no coincide con nada
+    public boolean isEmpty() {
+        return tokens.length == 0;
+    }
+
+    /*
+     * Las limit canciones más relevantes de songs, de más a menos; a igual puntuación, en el
+     * orden en que aparecen. Solo se guardan limit a la vez.
+     */
+    public static <T> List<T> top(Iterable<T> songs, SongCodec<T> codec, String query, int limit) {
+        RelevanceScorer scorer = new RelevanceScorer(query);
+        if (scorer.isEmpty()) {
+            return new ArrayList<>();
+        }
+        TopK<T> top = new TopK<>(limit);
+        int[] scanned = new int[1];
+        songs.forEach(song -> {
+            if ((scanned[0]++ & (MappedCatalogue.DEADLINE_ROWS - 1)) == 0) {
+                Deadline.check();
+            }
+            double score = scorer.score(codec.title(song), codec.genre(song), codec.author(song));
+            if (score > 0 && score > top.threshold()) {
+                top.offer(score, song);
+            }
+        });
+        return top.drain();
+    }
+
+    public double score(String title, String genre, String author) {
+        double[] authorScores = cachedScores(author, AUTHOR_WEIGHT);
+        double[] genreScores = cachedScores(genre, GENRE_WEIGHT);
+        double total = 0;
+        for (int t = 0; t < tokens.length; t++) {
+            double best = Math.max(authorScores[t], genreScores[t]);
+            best = Math.max(best, TITLE_WEIGHT * fieldScore(title, tokens[t]));
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        if (title.length() >= query.length() && title.regionMatches(true, 0, query, 0, query.length())) {
+            total += title.length() == query.length() ? PHRASE_EXACT : PHRASE_PREFIX;
+        }
+        return total;
+    }
+
+    private double[] cachedScores(String field, double weight) {
+        double[] scores = cached.get(field);
+        if (scores == null) {
+            scores = new double[tokens.length];
+            for (int t = 0; t < tokens.length; t++) {
+                scores[t] = weight * fieldScore(field, tokens[t]);
+            }
+            if (cached.size() >= MAX_CACHED) {
+                cached.clear();
+            }
+            cached.put(field, scores);
+        }
+        return scores;
+    }
+
+    // Mejor coincidencia de token con alguna palabra de text
+    private double fieldScore(String text, char[] token) {
+        double best = 0;
+        int length = text.length();
+        int i = 0;
+        while (i < length && best < EXACT) {
+            while (i < length && !Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i > start) {
+                best = Math.max(best, wordScore(token, text, start, i));
+            }
+        }
+        return best;
+    }
+
+    private double wordScore(char[] token, String text, int start, int end) {
+        int length = end - start;
+        int common = 0;
+        while (common < token.length && common < length
+                && Character.toLowerCase(text.charAt(start + common)) == token[common]) {
+            common++;
+        }
+        if (common == token.length) {
+            return length == token.length ? EXACT : PREFIX;
+        }
+        int edits = maxEdits(token.length);
+        if (edits > 0 && Math.abs(length - token.length) <= edits) {
+            int distance = distance(token, text, start, end, edits);
+            if (distance <= edits) {
+                return FUZZY - FUZZY_STEP * distance;
+            }
+        }
+        if (length > token.length && contains(text, start, end, token)) {
+            return SUBSTRING;
+        }
+        return 0;
+    }
+
+    static int maxEdits(int length) {
+        return length >= 8 ? 2 : length >= 4 ? 1 : 0;
+    }
+
+    /*
+     * Distancia entre token y text[start, end) (Levenshtein más trasposición de dos letras
+     * seguidas), o k + 1 si pasa de k. Las longitudes no pueden diferir en más de k.
+     */
+    private int distance(char[] token, String text, int start, int end, int k) {
+        int m = token.length;
+        int n = end - start;
+        int over = k + 1;
+        int[] before = beforePrevious;
+        int[] prev = previous;
+        int[] cur = current;
+        for (int j = 0; j <= m; j++) {
+            prev[j] = j;
+        }
+        char last = 0;
+        for (int i = 1; i <= n; i++) {
+            char c = Character.toLowerCase(text.charAt(start + i - 1));
+            int low = Math.max(1, i - k);
+            int high = Math.min(m, i + k);
+            cur[0] = i;
+            if (low > 1) {
+                cur[low - 1] = over;
+            }
+            int rowMin = low == 1 ? i : over;
+            for (int j = low; j <= high; j++) {
+                int value = prev[j - 1] + (token[j - 1] == c ? 0 : 1);
+                value = Math.min(value, prev[j] + 1);
+                value = Math.min(value, cur[j - 1] + 1);
+                if (i > 1 && j > 1 && token[j - 1] == last && token[j - 2] == c) {
+                    value = Math.min(value, before[j - 2] + 1);
+                }
+                cur[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (high < m) {
+                cur[high + 1] = over;
+            }
+            if (rowMin > k) {
+                return over;
+            }
+            int[] swap = before;
+            before = prev;
+            prev = cur;
+            cur = swap;
+            last = c;
+        }
+        return Math.min(prev[m], over);
+    }
+
+    private static boolean contains(String text, int start, int end, char[] token) {
+        for (int from = start; from + token.length <= end; from++) {
+            int j = 0;
+            while (j < token.length && Character.toLowerCase(text.charAt(from + j)) == token[j]) {
+                j++;
+            }
+            if (j == token.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,203 @@
+package common.catalogue;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Lo que necesita una réplica para copiar un SnapshotCatalogue y seguirlo sin parar las
+ * escrituras del primario:
+ *   page          páginas de una versión fija del catálogo. La primera página fija la versión
+ *                 vigente y las siguientes se sirven de esa misma foto aunque mientras tanto
+ *                 el catálogo cambie o se compacte (se guardan las últimas PINNED, PIN_MS cada una).
+ *   since         los cambios publicados después de una versión, en orden, de los últimos
+ *                 capacity que se guardan en memoria.
+ * Se engancha como WriteListener detrás del que ya tuviera el catálogo (p. ej. CatalogueStore):
+ * un cambio solo entra aquí si el anterior lo aceptó. epoch identifica esta instancia; una
+ * réplica que viene de otro arranque del primario, o que se ha quedado más atrás de lo que se
+ * guarda, recibe null y tiene que copiar el catálogo de nuevo.
+ */
+public final class ReplicationSource<T> implements SnapshotCatalogue.WriteListener<T> {
+
+    private static final int PINNED = 4;
+    private static final long PIN_MS = TimeUnit.MINUTES.toMillis(10);
+
+    public static final class Change<T> implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        public enum Kind { ADD, UPDATE, REMOVE }
+
+        public final Kind kind;
+        public final long version;
+        // Clave de la canción cambiada o borrada (null en ADD)
+        public final String key;
+        // ADD: las canciones que entraron; UPDATE: la nueva; REMOVE: ninguna
+        public final ArrayList<T> songs;
+
+        Change(Kind kind, long version, String key, ArrayList<T> songs) {
+            this.kind = kind;
+            this.version = version;
+            this.key = key;
+            this.songs = songs;
+        }
+
+        // Aplica el cambio a la copia de una réplica; false si no encaja con lo que tiene
+        public boolean applyTo(SnapshotCatalogue<T> catalogue) {
+            switch (kind) {
+                case ADD:
+                    return catalogue.addAll(songs) == songs.size();
+                case UPDATE:
+                    return catalogue.update(key, songs.get(0));
+                default:
+                    return catalogue.remove(key) != null;
+            }
+        }
+    }
+
+    public static final class Page<T> implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        public final long epoch;
+        public final long version;
+        public final ArrayList<T> songs;
+
+        public Page(long epoch, long version, List<T> songs) {
+            this.epoch = epoch;
+            this.version = version;
+            this.songs = new ArrayList<>(songs);
+        }
+    }
+
+    private static final class Pin<T> {
+        final SnapshotCatalogue.Snapshot<T> snapshot;
+        long usedAt;
+
+        Pin(SnapshotCatalogue.Snapshot<T> snapshot, long usedAt) {
+            this.snapshot = snapshot;
+            this.usedAt = usedAt;
+        }
+    }
+
+    private final SnapshotCatalogue<T> catalogue;
+    private final SnapshotCatalogue.WriteListener<T> next;
+    private final long epoch = ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE;
+    // Las versiones son consecutivas: la de cada cambio decide su posición en el anillo
+    private final Change<?>[] changes;
+    // Última versión que ya no está en changes; los guardados son (evicted, evicted + count]
+    private long evicted;
+    private int count;
+    private final Map<Long, Pin<T>> pinned = new LinkedHashMap<>();
+
+    private ReplicationSource(SnapshotCatalogue<T> catalogue, SnapshotCatalogue.WriteListener<T> next,
+                              int capacity, long version) {
+        this.catalogue = catalogue;
+        this.next = next;
+        this.changes = new Change<?>[capacity];
+        this.evicted = version;
+    }
+
+    // Empieza a guardar los cambios de catalogue a partir de su versión vigente
+    public static <T> ReplicationSource<T> attach(SnapshotCatalogue<T> catalogue, int capacity) {
+        return catalogue.exclusive(current -> {
+            ReplicationSource<T> source = new ReplicationSource<>(catalogue, catalogue.writeListener(), capacity,
+                current.version());
+            catalogue.setWriteListener(source);
+            return source;
+        });
+    }
+
+    public long epoch() {
+        return epoch;
+    }
+
+    /*
+     * Canciones [offset, offset + limit) de la versión dada, o de la vigente con version < 0.
+     * null si esa versión ya no está fijada (la réplica tiene que empezar la copia otra vez).
+     */
+    public synchronized Page<T> page(long version, int offset, int limit) {
+        long now = System.currentTimeMillis();
+        pinned.values().removeIf(pin -> now - pin.usedAt > PIN_MS);
+        Pin<T> pin;
+        if (version < 0) {
+            SnapshotCatalogue.Snapshot<T> snapshot = catalogue.snapshot();
+            pin = pinned.computeIfAbsent(snapshot.version(), v -> new Pin<>(snapshot, now));
+            if (pinned.size() > PINNED) {
+                Iterator<Long> oldest = pinned.keySet().iterator();
+                oldest.next();
+                oldest.remove();
+            }
+        } else {
+            pin = pinned.get(version);
+            if (pin == null) {
+                return null;
+            }
+        }
+        pin.usedAt = now;
+        return new Page<>(epoch, pin.snapshot.version(), pin.snapshot.page(offset, limit));
+    }
+
+    /*
+     * Cambios publicados después de version (como mucho limit), en orden. null si epoch no es
+     * el de esta instancia o si alguno ya no se guarda: la réplica tiene que copiar de nuevo.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<Change<T>> since(long epoch, long version, int limit) {
+        // Solo lo publicado: el cambio de la versión siguiente se guarda justo antes de publicarse
+        long published = Math.min(catalogue.version(), evicted + count);
+        if (epoch != this.epoch || version < evicted || version > published) {
+            return null;
+        }
+        long last = Math.min(published, version + Math.max(0, limit));
+        List<Change<T>> result = new ArrayList<>((int) (last - version));
+        for (long v = version + 1; v <= last; v++) {
+            result.add((Change<T>) changes[(int) (v % changes.length)]);
+        }
+        return result;
+    }
+
+    @Override
+    public void added(long version, List<T> songs) throws IOException {
+        if (next != null) {
+            next.added(version, songs);
+        }
+        record(new Change<>(Change.Kind.ADD, version, null, new ArrayList<>(songs)));
+    }
+
+    @Override
+    public void updated(long version, String key, T song) throws IOException {
+        if (next != null) {
+            next.updated(version, key, song);
+        }
+        ArrayList<T> songs = new ArrayList<>(1);
+        songs.add(song);
+        record(new Change<>(Change.Kind.UPDATE, version, key, songs));
+    }
+
+    @Override
+    public void removed(long version, String key) throws IOException {
+        if (next != null) {
+            next.removed(version, key);
+        }
+        record(new Change<>(Change.Kind.REMOVE, version, key, new ArrayList<>(0)));
+    }
+
+    private synchronized void record(Change<T> change) {
+        if (change.version != evicted + count + 1) {
+            // No debería pasar (las versiones van de una en una); se empieza de cero
+            evicted = change.version - 1;
+            count = 0;
+        }
+        changes[(int) (change.version % changes.length)] = change;
+        if (count == changes.length) {
+            evicted++;
+        } else {
+            count++;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package common.catalogue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import common.metrics.MetricsRegistry;
+
+/*
+ * Búsquedas, facetas, autocompletado y escrituras sobre un catálogo, común a los servidores
+ * de socket (lab-2), RMI (lab3) y SOAP (lab-8): cada servidor traduce su protocolo a estas
+ * llamadas. El catálogo es un SnapshotCatalogue o, de solo lectura, un MappedCatalogue (las
+ * escrituras devuelven false). Un proceso que sirve varios protocolos (lab3 con --gateway)
+ * crea un solo motor y se lo pasa a todos: catálogo, índices por bloque e índice de
+ * autocompletado están una vez en memoria y se construyen una vez.
+ * Búsquedas, ranked y facets iguales que llegan a la vez sobre la misma versión del catálogo
+ * se calculan una sola vez (SingleFlight) y todas reciben la misma lista, que no se puede
+ * modificar. Se puede usar desde varios hilos a la vez.
+ */
+public final class SearchEngine<T> {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+    // complete devuelve como mucho estas sugerencias
+    public static final int MAX_COMPLETIONS = 50;
+    // Tope de ranked: para listas más largas están las búsquedas sin orden
+    public static final int MAX_RANKED = 1000;
+
+    private final SnapshotCatalogue<T> catalogue;
+    private final MappedCatalogue<T> mapped;
+    private final SongCodec<T> codec;
+    private final SingleFlight<String, List<T>> searches = new SingleFlight<>("search");
+    private final SingleFlight<String, List<T>> rankings = new SingleFlight<>("ranked");
+    private final SingleFlight<String, Facets> facetCounts = new SingleFlight<>("facets");
+    // Se crea con el primer complete; sobre el fichero mapeado hay que leer todas las canciones
+    private Autocomplete<T> autocomplete;
+
+    public SearchEngine(SnapshotCatalogue<T> catalogue, SongCodec<T> codec) {
+        this(catalogue, null, codec);
+    }
+
+    public SearchEngine(MappedCatalogue<T> mapped, SongCodec<T> codec) {
+        this(null, mapped, codec);
+    }
+
+    private SearchEngine(SnapshotCatalogue<T> catalogue, MappedCatalogue<T> mapped, SongCodec<T> codec) {
+        this.catalogue = catalogue;
+        this.mapped = mapped;
+        this.codec = codec;
+    }
+
+    /*
+     * Publica el tamaño y la versión del catálogo. Una vez por proceso, desde el main del
+     * servidor: el registro se queda con la primera función de cada gauge (y con el motor
+     * al que apunta), así que un motor creado después no los cambiaría.
+     */
+    public void exposeGauges() {
+        METRICS.gauge("music_catalogue_songs", "Canciones en el catálogo", () -> size());
+        METRICS.gauge("music_catalogue_version", "Versión publicada del catálogo", () -> version());
+    }
+
+    public SongCodec<T> codec() {
+        return codec;
+    }
+
+    public boolean isReadOnly() {
+        return mapped != null;
+    }
+
+    // Fichero de un catálogo de solo lectura; null si no lo es
+    public Path file() {
+        return mapped != null ? mapped.path() : null;
+    }
+
+    public int size() {
+        return mapped != null ? mapped.size() : catalogue.size();
+    }
+
+    public long version() {
+        return mapped != null ? mapped.version() : catalogue.version();
+    }
+
+    /*
+     * La versión va en la clave: quien acaba de escribir no se une a una búsqueda anterior a su
+     * cambio. La lista la comparten todas las llamadas agrupadas, por eso se devuelve sin poder
+     * modificarla (quien quiera ordenarla o filtrarla hace su copia).
+     */
+    public List<T> search(SongFilter filter) {
+        if (mapped != null) {
+            return searches.execute(filter.key(), () -> Collections.unmodifiableList(mapped.search(filter)));
+        }
+        SnapshotCatalogue.Snapshot<T> snapshot = catalogue.snapshot();
+        return searches.execute(snapshot.version() + "\u0000" + filter.key(),
+            () -> Collections.unmodifiableList(snapshot.search(codec, filter)));
+    }
+
+    // Las limit más relevantes para query (ver RelevanceScorer)
+    public List<T> ranked(String query, int limit) {
+        if (mapped != null) {
+            return rankings.execute(limit + "\u0000" + query,
+                () -> Collections.unmodifiableList(mapped.ranked(query, limit)));
+        }
+        SnapshotCatalogue.Snapshot<T> snapshot = catalogue.snapshot();
+        return rankings.execute(snapshot.version() + "\u0000" + limit + "\u0000" + query,
+            () -> Collections.unmodifiableList(RelevanceScorer.top(snapshot, codec, query, limit)));
+    }
+
+    public Facets facets(SongFilter filter, int limit) {
+        if (mapped != null) {
+            return facetCounts.execute(limit + "\u0000" + filter.key(), () -> mapped.facets(filter, limit));
+        }
+        SnapshotCatalogue.Snapshot<T> snapshot = catalogue.snapshot();
+        return facetCounts.execute(snapshot.version() + "\u0000" + limit + "\u0000" + filter.key(),
+            () -> snapshot.facets(codec, filter, limit));
+    }
+
+    // limit se ajusta a 1..MAX_COMPLETIONS
+    public List<Autocomplete.Completion> complete(String prefix, Autocomplete.Field field, int limit) {
+        return autocomplete().complete(prefix == null ? "" : prefix, field,
+            Math.max(1, Math.min(limit, MAX_COMPLETIONS)));
+    }
+
+    private synchronized Autocomplete<T> autocomplete() {
+        if (autocomplete == null) {
+            autocomplete = mapped != null ? new Autocomplete<>(mapped, codec) : new Autocomplete<>(catalogue, codec);
+        }
+        return autocomplete;
+    }
+
+    public List<T> page(int offset, int limit) {
+        return mapped != null ? mapped.page(offset, limit) : catalogue.snapshot().page(offset, limit);
+    }
+
+    public List<T> all() {
+        return mapped != null ? mapped.page(0, mapped.size()) : catalogue.snapshot().toList();
+    }
+
+    /*
+     * Escrituras: en un catálogo de solo lectura no se aplica ninguna, y las canciones que
+     * rejectionReason rechaza no entran por ningún protocolo.
+     */
+    public boolean add(T song) {
+        return mapped == null && rejectionReason(codec, song) == null && catalogue.add(song);
+    }
+
+    // Las canciones rechazadas se saltan; devuelve cuántas entraron
+    public int addAll(Collection<T> songs) {
+        if (mapped != null) {
+            return 0;
+        }
+        List<T> accepted = new ArrayList<>(songs.size());
+        for (T song : songs) {
+            if (rejectionReason(codec, song) == null) {
+                accepted.add(song);
+            }
+        }
+        return catalogue.addAll(accepted);
+    }
+
+    public boolean update(String key, T song) {
+        return mapped == null && rejectionReason(codec, song) == null && catalogue.update(key, song);
+    }
+
+    // La canción borrada, o null si no estaba
+    public T remove(String key) {
+        return mapped == null ? catalogue.remove(key) : null;
+    }
+
+    public static String key(String title, String author) {
+        return SnapshotCatalogue.key(title, author);
+    }
+
+    /*
+     * Por qué song no puede entrar en el catálogo (null si puede): todos los campos son
+     * obligatorios, título y autor no pueden estar vacíos y tiene que poder guardarse
+     * (CatalogueFile.rejectionReason). Los servidores que contestan con el motivo lo piden aquí.
+     */
+    public static <T> String rejectionReason(SongCodec<T> codec, T song) {
+        if (song == null) {
+            return "falta la canción";
+        }
+        String title = codec.title(song);
+        String author = codec.author(song);
+        if (title == null || title.isEmpty() || author == null || author.isEmpty()) {
+            return "título y autor son obligatorios";
+        }
+        if (codec.genre(song) == null || codec.language(song) == null) {
+            return "género e idioma son obligatorios";
+        }
+        return CatalogueFile.rejectionReason(codec, song);
+    }
+}
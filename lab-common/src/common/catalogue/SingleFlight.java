@@ -0,0 +1,89 @@
+package common.catalogue;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import common.deadline.Deadline;
+import common.deadline.DeadlineExceededException;
+import common.metrics.Counter;
+import common.metrics.MetricsRegistry;
+
+/*
+ * Agrupa las llamadas iguales que llegan a la vez: la primera con una clave calcula el
+ * resultado y las que llegan mientras tanto esperan y se quedan con ese mismo resultado (o
+ * con su excepción) en vez de repetir el cálculo. En cuanto termina la clave queda libre y la
+ * siguiente llamada vuelve a calcular; no es una caché. El resultado se comparte entre todas,
+ * así que no se puede modificar.
+ * Con plazo (Deadline) cada llamada espera como mucho hasta el suyo. Si la que calculaba
+ * abandona porque venció el de ella, las que aún tienen tiempo vuelven a intentarlo.
+ * music_singleflight_requests_total{call, result=executed|coalesced} cuenta unas y otras.
+ */
+public final class SingleFlight<K, V> {
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter executed;
+    private final Counter coalesced;
+
+    public SingleFlight(String call) {
+        this.executed = METRICS.counter("music_singleflight_requests_total",
+            "Llamadas que calculan su resultado o se unen a una igual en curso", "call", call, "result", "executed");
+        this.coalesced = METRICS.counter("music_singleflight_requests_total",
+            "Llamadas que calculan su resultado o se unen a una igual en curso", "call", call, "result", "coalesced");
+    }
+
+    public V execute(K key, Supplier<V> compute) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> running;
+        while ((running = inFlight.putIfAbsent(key, mine)) != null) {
+            coalesced.increment();
+            try {
+                return await(running);
+            } catch (DeadlineExceededException e) {
+                // Venció el plazo de quien calculaba; si el de esta llamada no, se repite
+                Deadline.check();
+            }
+        }
+        executed.increment();
+        V value;
+        try {
+            value = compute.get();
+        } catch (RuntimeException | Error e) {
+            // La clave se suelta antes de despertar a las que esperan: si reintentan no deben
+            // volver a encontrar este mismo futuro ya fallado
+            inFlight.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(key, mine);
+        mine.complete(value);
+        return value;
+    }
+
+    private static <V> V await(CompletableFuture<V> running) {
+        Deadline deadline = Deadline.current();
+        try {
+            return deadline == null ? running.join()
+                : running.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        } catch (CompletionException | ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                : new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException(-deadline.remainingMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Espera interrumpida");
+        }
+    }
+
+    // Claves calculándose ahora mismo
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,149 @@
+package common.catalogue;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/*
+ * Conjunto de posiciones de un bloque del catálogo (0..CHUNK-1), como los contenedores de los
+ * roaring bitmaps: con pocas posiciones es un short[] ordenado y con muchas un mapa de bits de
+ * CHUNK bits (512 bytes). El cambio está donde ambos ocupan lo mismo. Inmutable.
+ */
+final class SlotBitmap {
+
+    static final int SIZE = SnapshotCatalogue.CHUNK;
+    // Con más posiciones el short[] ocuparía más que el mapa de bits
+    static final int ARRAY_MAX = SIZE / 16;
+    static final SlotBitmap EMPTY = new SlotBitmap(new short[0], null, 0);
+
+    // Uno de los dos es null
+    private final short[] array;
+    private final long[] bits;
+    private final int cardinality;
+
+    private SlotBitmap(short[] array, long[] bits, int cardinality) {
+        this.array = array;
+        this.bits = bits;
+        this.cardinality = cardinality;
+    }
+
+    // offsets[from, to) sin repetidos y en cualquier orden; no se modifica
+    static SlotBitmap of(short[] offsets, int from, int to) {
+        int count = to - from;
+        if (count == 0) {
+            return EMPTY;
+        }
+        if (count <= ARRAY_MAX) {
+            short[] array = Arrays.copyOfRange(offsets, from, to);
+            Arrays.sort(array);
+            return new SlotBitmap(array, null, count);
+        }
+        long[] bits = new long[SIZE / 64];
+        for (int i = from; i < to; i++) {
+            bits[offsets[i] >>> 6] |= 1L << offsets[i];
+        }
+        return new SlotBitmap(null, bits, count);
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    boolean contains(int offset) {
+        return array != null ? Arrays.binarySearch(array, (short) offset) >= 0
+            : (bits[offset >>> 6] & (1L << offset)) != 0;
+    }
+
+    SlotBitmap and(SlotBitmap other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+        if (array != null || other.array != null) {
+            // El resultado no puede tener más posiciones que el short[]
+            SlotBitmap small = array != null ? this : other;
+            SlotBitmap large = small == this ? other : this;
+            short[] result = new short[small.cardinality];
+            int count = 0;
+            for (short offset : small.array) {
+                if (large.contains(offset)) {
+                    result[count++] = offset;
+                }
+            }
+            return count == 0 ? EMPTY : new SlotBitmap(Arrays.copyOf(result, count), null, count);
+        }
+        long[] result = new long[bits.length];
+        int count = 0;
+        for (int i = 0; i < bits.length; i++) {
+            result[i] = bits[i] & other.bits[i];
+            count += Long.bitCount(result[i]);
+        }
+        return bitsOrArray(result, count);
+    }
+
+    SlotBitmap or(SlotBitmap other) {
+        if (isEmpty()) {
+            return other;
+        }
+        if (other.isEmpty()) {
+            return this;
+        }
+        long[] result = new long[SIZE / 64];
+        setAll(result);
+        other.setAll(result);
+        int count = 0;
+        for (long word : result) {
+            count += Long.bitCount(word);
+        }
+        return bitsOrArray(result, count);
+    }
+
+    void forEach(IntConsumer action) {
+        if (array != null) {
+            for (short offset : array) {
+                action.accept(offset);
+            }
+            return;
+        }
+        for (int i = 0; i < bits.length; i++) {
+            long word = bits[i];
+            while (word != 0) {
+                action.accept((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+
+    private void setAll(long[] target) {
+        if (array != null) {
+            for (short offset : array) {
+                target[offset >>> 6] |= 1L << offset;
+            }
+        } else {
+            for (int i = 0; i < bits.length; i++) {
+                target[i] |= bits[i];
+            }
+        }
+    }
+
+    private static SlotBitmap bitsOrArray(long[] bits, int count) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        if (count > ARRAY_MAX) {
+            return new SlotBitmap(null, bits, count);
+        }
+        short[] array = new short[count];
+        int next = 0;
+        for (int i = 0; i < bits.length; i++) {
+            long word = bits[i];
+            while (word != 0) {
+                array[next++] = (short) ((i << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return new SlotBitmap(array, null, count);
+    }
+}
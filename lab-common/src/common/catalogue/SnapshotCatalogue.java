@@ -0,0 +1,654 @@
+package common.catalogue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import common.deadline.Deadline;
+
+/*
+ * Catálogo modificable con lecturas sin bloqueo. Las búsquedas toman snapshot() (una lectura
+ * volátil) y recorren esa versión aunque mientras tanto se publiquen otras. Las escrituras se
+ * serializan entre sí y publican una versión nueva copiando solo lo que cambia: las canciones
+ * están en bloques de CHUNK posiciones y una escritura copia el bloque afectado y la tabla de
+ * bloques (n / CHUNK referencias), no el catálogo entero.
+ * Las canciones se identifican por una clave (p. ej. título + autor) y no se modifican nunca
+ * en sitio; actualizar es sustituir el objeto. Los borrados dejan huecos que se compactan
+ * cuando pasan de una cuarta parte de las posiciones.
+ * Con un WriteListener (p. ej. CatalogueStore) cada cambio se registra antes de publicarse:
+ * si el listener falla la versión nueva se descarta y el error llega a quien escribía.
+ */
+public class SnapshotCatalogue<T> {
+
+    static final int CHUNK_BITS = 12;
+    static final int CHUNK = 1 << CHUNK_BITS;
+
+    /*
+     * Se llama con el cerrojo de escritura tomado, en el orden de las versiones, antes de
+     * publicar la versión indicada. Solo se notifican los cambios que se aplican.
+     */
+    public interface WriteListener<T> {
+        void added(long version, List<T> songs) throws IOException;
+
+        void updated(long version, String key, T song) throws IOException;
+
+        void removed(long version, String key) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Notification<T> {
+        void send(WriteListener<T> listener, long version) throws IOException;
+    }
+
+    private final Function<T, String> keyOf;
+    // clave -> posición; solo lo usan los escritores, siempre con writeLock
+    private final SlotIndex slots = new SlotIndex();
+    private final Object writeLock = new Object();
+    private volatile Snapshot<T> current;
+    // false hasta la primera escritura (o buildIndex()): el índice no se construye al crear el catálogo
+    private boolean indexed;
+    private WriteListener<T> listener;
+
+    // Como addAll sobre un catálogo vacío: de cada clave repetida se queda la primera canción
+    public SnapshotCatalogue(Collection<T> songs, Function<T, String> keyOf) {
+        this.keyOf = keyOf;
+        Map<String, T> unique = new LinkedHashMap<>(songs.size() * 2);
+        for (T song : songs) {
+            unique.putIfAbsent(keyOf.apply(song), song);
+        }
+        this.current = chunked(new ArrayList<>(unique.values()), unique.isEmpty() ? 0 : 1);
+    }
+
+    private SnapshotCatalogue(Snapshot<T> restored, Function<T, String> keyOf) {
+        this.keyOf = keyOf;
+        this.current = restored;
+    }
+
+    /*
+     * Catálogo con las canciones tal cual (sin comprobar claves repetidas) y la versión dada,
+     * para cargar un snapshot guardado. El índice de claves no se construye hasta la primera
+     * escritura (o buildIndex()), así el arranque no paga por él.
+     */
+    public static <T> SnapshotCatalogue<T> restore(List<T> songs, Function<T, String> keyOf, long version) {
+        return new SnapshotCatalogue<>(chunked(songs, version), keyOf);
+    }
+
+    // Las canciones seguidas en bloques de CHUNK, sin huecos
+    private static <T> Snapshot<T> chunked(List<T> songs, long version) {
+        int count = songs.size();
+        int chunkCount = (count + CHUNK - 1) >>> CHUNK_BITS;
+        Object[][] chunks = new Object[chunkCount][];
+        int[] chunkSizes = new int[chunkCount];
+        for (int c = 0; c < chunkCount; c++) {
+            Object[] chunk = new Object[CHUNK];
+            int base = c << CHUNK_BITS;
+            int limit = Math.min(CHUNK, count - base);
+            for (int i = 0; i < limit; i++) {
+                chunk[i] = songs.get(base + i);
+            }
+            chunks[c] = chunk;
+            chunkSizes[c] = limit;
+        }
+        return new Snapshot<>(chunks, chunkSizes, new ChunkIndex[chunkCount], count, count, version);
+    }
+
+    // Clave compuesta sin ambigüedad ("a|b" + "c" no coincide con "a" + "b|c")
+    public static String key(String... parts) {
+        return String.join("\u001f", parts);
+    }
+
+    public Snapshot<T> snapshot() {
+        return current;
+    }
+
+    public int size() {
+        return current.size;
+    }
+
+    public long version() {
+        return current.version;
+    }
+
+    public void setWriteListener(WriteListener<T> listener) {
+        synchronized (writeLock) {
+            this.listener = listener;
+        }
+    }
+
+    // Con el cerrojo de escritura (p. ej. desde exclusive) para encadenar otro listener detrás
+    WriteListener<T> writeListener() {
+        return listener;
+    }
+
+    // Ejecuta action sin escrituras en curso ni posibles hasta que termine (p. ej. rotar un log)
+    public <R> R exclusive(Function<Snapshot<T>, R> action) {
+        synchronized (writeLock) {
+            return action.apply(current);
+        }
+    }
+
+    public void buildIndex() {
+        synchronized (writeLock) {
+            ensureIndex();
+        }
+    }
+
+    // false si ya hay una canción con la misma clave
+    public boolean add(T song) {
+        synchronized (writeLock) {
+            ensureIndex();
+            Draft draft = new Draft(current);
+            if (!draft.add(song)) {
+                return false;
+            }
+            publish(draft, (l, version) -> l.added(version, List.of(song)));
+            return true;
+        }
+    }
+
+    // Añade en una sola versión las canciones cuya clave no existe; devuelve cuántas entraron
+    public int addAll(Collection<T> songs) {
+        synchronized (writeLock) {
+            ensureIndex();
+            Draft draft = new Draft(current);
+            List<T> added = new ArrayList<>();
+            for (T song : songs) {
+                if (draft.add(song)) {
+                    added.add(song);
+                }
+            }
+            if (!added.isEmpty()) {
+                publish(draft, (l, version) -> l.added(version, added));
+            }
+            return added.size();
+        }
+    }
+
+    /*
+     * Sustituye la canción con la clave dada. Si la nueva tiene otra clave y esa ya existe no
+     * se cambia nada (false), igual que si la clave original no existe.
+     */
+    public boolean update(String key, T song) {
+        synchronized (writeLock) {
+            ensureIndex();
+            Draft draft = new Draft(current);
+            int position = slots.position(key, draft);
+            String newKey = keyOf.apply(song);
+            if (position < 0 || (!newKey.equals(key) && slots.position(newKey, draft) >= 0)) {
+                return false;
+            }
+            int slot = slots.slotAt(position);
+            if (!newKey.equals(key)) {
+                slots.removeAt(position);
+                slots.put(newKey, slot);
+            }
+            draft.set(slot, song);
+            publish(draft, (l, version) -> l.updated(version, key, song));
+            return true;
+        }
+    }
+
+    // Devuelve la canción borrada o null si no existía
+    public T remove(String key) {
+        synchronized (writeLock) {
+            ensureIndex();
+            Draft draft = new Draft(current);
+            int position = slots.position(key, draft);
+            if (position < 0) {
+                return null;
+            }
+            int slot = slots.slotAt(position);
+            slots.removeAt(position);
+            T removed = current.at(slot);
+            draft.clear(slot);
+            publish(draft, (l, version) -> l.removed(version, key));
+            return removed;
+        }
+    }
+
+    /*
+     * Sustituye todo el catálogo por songs en una sola versión (una réplica que ha vuelto a
+     * copiar el del primario). No hay cambio que notificar, así que no admite WriteListener.
+     */
+    public void replaceAll(Collection<T> songs) {
+        synchronized (writeLock) {
+            if (listener != null) {
+                throw new IllegalStateException("replaceAll no se puede registrar en el WriteListener");
+            }
+            slots.clear();
+            slots.reserve(songs.size());
+            indexed = true;
+            Draft draft = new Draft(new Snapshot<>(new Object[0][], new int[0], new ChunkIndex[0], 0, 0,
+                current.version));
+            for (T song : songs) {
+                draft.add(song);
+            }
+            publish(draft, null);
+        }
+    }
+
+    private void publish(Draft draft, Notification<T> notification) {
+        if (listener != null) {
+            try {
+                notification.send(listener, current.version + 1);
+            } catch (IOException | RuntimeException e) {
+                // El índice ya refleja el borrador descartado; se rehace desde la versión vigente
+                indexed = false;
+                ensureIndex();
+                throw e instanceof IOException ? new UncheckedIOException((IOException) e) : (RuntimeException) e;
+            }
+        }
+        int holes = draft.slotCount - draft.size;
+        if (holes > CHUNK && holes > draft.slotCount / 4) {
+            draft = compact(draft);
+        }
+        current = draft.toSnapshot(current.version + 1);
+    }
+
+    private void ensureIndex() {
+        if (indexed) {
+            return;
+        }
+        Snapshot<T> snapshot = current;
+        slots.clear();
+        slots.reserve(snapshot.size);
+        for (int slot = 0; slot < snapshot.slotCount; slot++) {
+            T song = snapshot.at(slot);
+            if (song != null) {
+                slots.put(keyOf.apply(song), slot);
+            }
+        }
+        indexed = true;
+    }
+
+    // Reconstruye sin huecos; las lecturas en curso siguen con su versión
+    private Draft compact(Draft draft) {
+        Snapshot<T> dense = draft.toSnapshot(current.version);
+        Draft compacted = new Draft(new Snapshot<>(new Object[0][], new int[0], new ChunkIndex[0], 0, 0,
+            current.version));
+        slots.clear();
+        dense.forEach(compacted::add);
+        return compacted;
+    }
+
+    // Versión en construcción: copia cada bloque la primera vez que se escribe en él
+    private final class Draft {
+        Object[][] chunks;
+        int[] chunkSizes;
+        ChunkIndex[] indexes;
+        boolean[] copied;
+        int slotCount;
+        int size;
+
+        Draft(Snapshot<T> base) {
+            this.chunks = base.chunks.clone();
+            this.chunkSizes = base.chunkSizes.clone();
+            this.indexes = base.indexes.clone();
+            this.copied = new boolean[chunks.length];
+            this.slotCount = base.slotCount;
+            this.size = base.size;
+        }
+
+        boolean add(T song) {
+            String key = keyOf.apply(song);
+            if (slots.position(key, this) >= 0) {
+                return false;
+            }
+            int slot = slotCount++;
+            slots.put(key, slot);
+            set(slot, song);
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int slot) {
+            return (T) chunks[slot >>> CHUNK_BITS][slot & (CHUNK - 1)];
+        }
+
+        void set(int slot, T song) {
+            int c = slot >>> CHUNK_BITS;
+            Object[] chunk = writable(c);
+            if (chunk[slot & (CHUNK - 1)] == null) {
+                chunkSizes[c]++;
+                size++;
+            }
+            chunk[slot & (CHUNK - 1)] = song;
+        }
+
+        void clear(int slot) {
+            int c = slot >>> CHUNK_BITS;
+            Object[] chunk = writable(c);
+            if (chunk[slot & (CHUNK - 1)] != null) {
+                chunk[slot & (CHUNK - 1)] = null;
+                chunkSizes[c]--;
+                size--;
+            }
+        }
+
+        private Object[] writable(int c) {
+            if (c >= chunks.length) {
+                int length = Math.max(c + 1, chunks.length * 2);
+                chunks = Arrays.copyOf(chunks, length);
+                chunkSizes = Arrays.copyOf(chunkSizes, length);
+                indexes = Arrays.copyOf(indexes, length);
+                copied = Arrays.copyOf(copied, length);
+            }
+            if (!copied[c]) {
+                chunks[c] = chunks[c] == null ? new Object[CHUNK] : chunks[c].clone();
+                indexes[c] = null;
+                copied[c] = true;
+            }
+            return chunks[c];
+        }
+
+        Snapshot<T> toSnapshot(long version) {
+            int used = (slotCount + CHUNK - 1) >>> CHUNK_BITS;
+            return new Snapshot<>(Arrays.copyOf(chunks, used), Arrays.copyOf(chunkSizes, used),
+                Arrays.copyOf(indexes, used), slotCount, size, version);
+        }
+    }
+
+    /*
+     * Índice clave -> posición con direccionamiento abierto sobre dos int[] (hash y posición + 1),
+     * sin guardar las claves: se comparan con la canción de esa posición. Con millones de
+     * canciones ocupa una fracción de lo que ocuparía un HashMap<String, Integer>.
+     */
+    private final class SlotIndex {
+        int[] hashes = new int[16];
+        int[] entries = new int[16];
+        int count;
+
+        // Posición en la tabla de la clave, o -1
+        int position(String key, Draft draft) {
+            int hash = hash(key);
+            int mask = entries.length - 1;
+            for (int i = hash & mask; entries[i] != 0; i = (i + 1) & mask) {
+                if (hashes[i] == hash && key.equals(keyOf.apply(draft.get(entries[i] - 1)))) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        int slotAt(int position) {
+            return entries[position] - 1;
+        }
+
+        // La clave no debe estar ya en el índice
+        void put(String key, int slot) {
+            if ((count + 1) * 4 > entries.length * 3) {
+                resize();
+            }
+            insert(hash(key), slot + 1);
+            count++;
+        }
+
+        // Borrado con desplazamiento hacia atrás para no dejar marcas de borrado
+        void removeAt(int position) {
+            int mask = entries.length - 1;
+            int hole = position;
+            for (int j = (hole + 1) & mask; entries[j] != 0; j = (j + 1) & mask) {
+                int home = hashes[j] & mask;
+                boolean movable = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+                if (movable) {
+                    hashes[hole] = hashes[j];
+                    entries[hole] = entries[j];
+                    hole = j;
+                }
+            }
+            entries[hole] = 0;
+            count--;
+        }
+
+        void clear() {
+            hashes = new int[16];
+            entries = new int[16];
+            count = 0;
+        }
+
+        // Tabla vacía con sitio para expected claves sin redimensionar
+        void reserve(int expected) {
+            int capacity = 16;
+            while (capacity * 3L < expected * 4L + 4) {
+                capacity <<= 1;
+            }
+            hashes = new int[capacity];
+            entries = new int[capacity];
+        }
+
+        private void insert(int hash, int entry) {
+            int mask = entries.length - 1;
+            int i = hash & mask;
+            while (entries[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            hashes[i] = hash;
+            entries[i] = entry;
+        }
+
+        private void resize() {
+            int[] oldHashes = hashes;
+            int[] oldEntries = entries;
+            hashes = new int[oldEntries.length * 2];
+            entries = new int[oldEntries.length * 2];
+            for (int i = 0; i < oldEntries.length; i++) {
+                if (oldEntries[i] != 0) {
+                    insert(oldHashes[i], oldEntries[i]);
+                }
+            }
+        }
+
+        private int hash(String key) {
+            int h = key.hashCode() * 0x9e3779b9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /*
+     * Versión inmutable del catálogo. Iterar no reserva nada salvo el iterador, y forEach ni eso.
+     * Los índices de cada bloque (ChunkIndex) se crean en la primera búsqueda con filtro que lo
+     * recorre y pasan a las versiones siguientes mientras el bloque no se copie.
+     */
+    public static final class Snapshot<T> implements Iterable<T> {
+        final Object[][] chunks;
+        final int[] chunkSizes;
+        // Se rellena sin cerrojo: ChunkIndex es inmutable y a lo sumo dos hilos construyen el mismo
+        final ChunkIndex[] indexes;
+        final int slotCount;
+        final int size;
+        final long version;
+
+        Snapshot(Object[][] chunks, int[] chunkSizes, ChunkIndex[] indexes, int slotCount, int size, long version) {
+            this.chunks = chunks;
+            this.chunkSizes = chunkSizes;
+            this.indexes = indexes;
+            this.slotCount = slotCount;
+            this.size = size;
+            this.version = version;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        @SuppressWarnings("unchecked")
+        T at(int slot) {
+            return (T) chunks[slot >>> CHUNK_BITS][slot & (CHUNK - 1)];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEach(Consumer<? super T> action) {
+            for (int c = 0; c < chunks.length; c++) {
+                Object[] chunk = chunks[c];
+                int limit = Math.min(CHUNK, slotCount - (c << CHUNK_BITS));
+                for (int i = 0; i < limit; i++) {
+                    Object song = chunk[i];
+                    if (song != null) {
+                        action.accept((T) song);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+                private int slot = advance(0);
+
+                private int advance(int from) {
+                    while (from < slotCount && chunks[from >>> CHUNK_BITS][from & (CHUNK - 1)] == null) {
+                        from++;
+                    }
+                    return from;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return slot < slotCount;
+                }
+
+                @Override
+                public T next() {
+                    if (slot >= slotCount) {
+                        throw new NoSuchElementException();
+                    }
+                    T song = at(slot);
+                    slot = advance(slot + 1);
+                    return song;
+                }
+            };
+        }
+
+        // Canciones [offset, offset + limit) en orden; salta bloques enteros con chunkSizes
+        @SuppressWarnings("unchecked")
+        public List<T> page(int offset, int limit) {
+            List<T> page = new ArrayList<>(Math.max(0, Math.min(limit, size - offset)));
+            int skip = Math.max(0, offset);
+            for (int c = 0; c < chunks.length && page.size() < limit; c++) {
+                if (skip >= chunkSizes[c]) {
+                    skip -= chunkSizes[c];
+                    continue;
+                }
+                Object[] chunk = chunks[c];
+                int end = Math.min(CHUNK, slotCount - (c << CHUNK_BITS));
+                for (int i = 0; i < end && page.size() < limit; i++) {
+                    if (chunk[i] != null) {
+                        if (skip > 0) {
+                            skip--;
+                        } else {
+                            page.add((T) chunk[i]);
+                        }
+                    }
+                }
+            }
+            return page;
+        }
+
+        /*
+         * Canciones que cumplen filter. Año, idioma y género se resuelven con los índices de
+         * cada bloque (intersección de bitmaps) y solo las posiciones que quedan se comparan
+         * por título y autor; sin ninguno de esos tres criterios se recorre el bloque entero.
+         */
+        @SuppressWarnings("unchecked")
+        public List<T> search(SongCodec<T> codec, SongFilter filter) {
+            List<T> results = new ArrayList<>();
+            boolean indexed = filter.language != null || filter.genre != null || filter.hasYear();
+            for (int c = 0; c < chunks.length; c++) {
+                // Un bloque por comprobación: con plazo vencido se abandona la búsqueda
+                Deadline.check();
+                if (chunkSizes[c] == 0) {
+                    continue;
+                }
+                Object[] chunk = chunks[c];
+                int limit = Math.min(CHUNK, slotCount - (c << CHUNK_BITS));
+                if (!indexed) {
+                    for (int i = 0; i < limit; i++) {
+                        T song = (T) chunk[i];
+                        if (song != null && filter.matchesText(codec, song)) {
+                            results.add(song);
+                        }
+                    }
+                    continue;
+                }
+                index(c, codec).select(filter).forEach(i -> {
+                    T song = (T) chunk[i];
+                    if (filter.matchesText(codec, song)) {
+                        results.add(song);
+                    }
+                });
+            }
+            return results;
+        }
+
+        /*
+         * Recuento por género, idioma, autor y década de las canciones que cumplen filter, con
+         * los índices de cada bloque: sin filtro los recuentos del bloque ya están hechos, con
+         * año, idioma o género se cuentan las posiciones que deja la intersección de bitmaps, y
+         * título y autor se comparan solo en esas. No se crea ningún objeto por canción.
+         */
+        @SuppressWarnings("unchecked")
+        public Facets facets(SongCodec<T> codec, SongFilter filter, int limit) {
+            Facets.Tally tally = new Facets.Tally();
+            boolean text = filter.title != null || filter.author != null;
+            short[] matching = text ? new short[CHUNK] : null;
+            for (int c = 0; c < chunks.length; c++) {
+                Deadline.check();
+                if (chunkSizes[c] == 0) {
+                    continue;
+                }
+                Object[] chunk = chunks[c];
+                ChunkIndex index = index(c, codec);
+                SlotBitmap selected = index.select(filter);
+                if (text) {
+                    int[] count = new int[1];
+                    if (selected != null) {
+                        selected.forEach(i -> {
+                            if (filter.matchesText(codec, (T) chunk[i])) {
+                                matching[count[0]++] = (short) i;
+                            }
+                        });
+                    } else {
+                        int end = Math.min(CHUNK, slotCount - (c << CHUNK_BITS));
+                        for (int i = 0; i < end; i++) {
+                            T song = (T) chunk[i];
+                            if (song != null && filter.matchesText(codec, song)) {
+                                matching[count[0]++] = (short) i;
+                            }
+                        }
+                    }
+                    selected = SlotBitmap.of(matching, 0, count[0]);
+                }
+                index.count(selected, tally);
+            }
+            return tally.facets(limit, false);
+        }
+
+        private ChunkIndex index(int c, SongCodec<T> codec) {
+            ChunkIndex index = indexes[c];
+            if (index == null || index.codec != codec) {
+                index = ChunkIndex.build(codec, chunks[c], Math.min(CHUNK, slotCount - (c << CHUNK_BITS)));
+                indexes[c] = index;
+            }
+            return index;
+        }
+
+        public List<T> toList() {
+            List<T> list = new ArrayList<>(size);
+            forEach(list::add);
+            return list;
+        }
+    }
+}
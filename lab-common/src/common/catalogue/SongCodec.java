@@ -0,0 +1,60 @@
+package common.catalogue;
+
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import common.bench.SyntheticCatalogue;
+
+/*
+ * Acceso a los campos de la clase Song de cada proyecto (cada uno tiene la suya) para que
+ * CatalogueFile y CatalogueStore puedan guardarlas y reconstruirlas.
+ */
+public interface SongCodec<T> {
+
+    T create(String title, String genre, String author, String language, int year);
+
+    String title(T song);
+
+    String genre(T song);
+
+    String author(T song);
+
+    String language(T song);
+
+    int year(T song);
+
+    static <T> SongCodec<T> of(SyntheticCatalogue.SongFactory<T> factory, Function<T, String> title,
+                               Function<T, String> genre, Function<T, String> author,
+                               Function<T, String> language, ToIntFunction<T> year) {
+        return new SongCodec<T>() {
+            @Override
+            public T create(String t, String g, String a, String l, int y) {
+                return factory.create(t, g, a, l, y);
+            }
+
+            @Override
+            public String title(T song) {
+                return title.apply(song);
+            }
+
+            @Override
+            public String genre(T song) {
+                return genre.apply(song);
+            }
+
+            @Override
+            public String author(T song) {
+                return author.apply(song);
+            }
+
+            @Override
+            public String language(T song) {
+                return language.apply(song);
+            }
+
+            @Override
+            public int year(T song) {
+                return year.applyAsInt(song);
+            }
+        };
+    }
+}
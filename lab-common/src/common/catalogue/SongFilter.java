@@ -0,0 +1,75 @@
+package common.catalogue;
+
+/*
+ * Criterios de búsqueda combinados con Y. Título, género y autor: contiene el texto sin
+ * distinguir mayúsculas, como searchByMultipleCriteria. Año: rango [yearFrom, yearTo] con
+ * los dos extremos incluidos. Idioma: igual sin distinguir mayúsculas. null (o "" en los
+ * textos) no filtra ese campo.
+ */
+public final class SongFilter {
+
+    public final String title;
+    public final String genre;
+    public final String author;
+    public final Integer yearFrom;
+    public final Integer yearTo;
+    public final String language;
+
+    public SongFilter(String title, String genre, String author, Integer yearFrom, Integer yearTo, String language) {
+        this.title = lowered(title);
+        this.genre = lowered(genre);
+        this.author = lowered(author);
+        this.yearFrom = yearFrom;
+        this.yearTo = yearTo;
+        this.language = language == null || language.isEmpty() ? null : language;
+    }
+
+    public SongFilter(String title, String genre, String author) {
+        this(title, genre, author, null, null, null);
+    }
+
+    public boolean hasYear() {
+        return yearFrom != null || yearTo != null;
+    }
+
+    int minYear() {
+        return yearFrom != null ? yearFrom : Integer.MIN_VALUE;
+    }
+
+    int maxYear() {
+        return yearTo != null ? yearTo : Integer.MAX_VALUE;
+    }
+
+    public <T> boolean matches(SongCodec<T> codec, T song) {
+        return matchesText(codec, song)
+            && (genre == null || codec.genre(song).toLowerCase().contains(genre))
+            && (!hasYear() || (codec.year(song) >= minYear() && codec.year(song) <= maxYear()))
+            && (language == null || language.equalsIgnoreCase(codec.language(song)));
+    }
+
+    // Solo título y autor: lo que los índices por bloque no resuelven
+    <T> boolean matchesText(SongCodec<T> codec, T song) {
+        return (title == null || codec.title(song).toLowerCase().contains(title))
+            && (author == null || codec.author(song).toLowerCase().contains(author));
+    }
+
+    // Dos filtros con la misma clave seleccionan las mismas canciones (para agrupar búsquedas iguales)
+    public String key() {
+        return String.join("\u0000", text(title), text(genre), text(author), String.valueOf(yearFrom),
+            String.valueOf(yearTo), text(language == null ? null : language.toLowerCase()));
+    }
+
+    private static String text(String value) {
+        return value == null ? "" : value;
+    }
+
+    private static String lowered(String text) {
+        return text == null || text.isEmpty() ? null : text.toLowerCase();
+    }
+
+    @Override
+    public String toString() {
+        return "title=" + title + " genre=" + genre + " author=" + author + " year=[" + yearFrom + ", " + yearTo
+            + "] language=" + language;
+    }
+}
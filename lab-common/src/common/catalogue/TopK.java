@@ -0,0 +1,120 @@
+package common.catalogue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Los k elementos con más puntuación de una secuencia, con un montículo de mínimos de tamaño k:
+ * cada candidato cuesta una comparación con el peor de los guardados (threshold) y solo los
+ * que entran cuestan log k. A igual puntuación gana el que llegó antes, así el resultado no
+ * depende de cómo se reparte el recorrido.
+ */
+public final class TopK<E> {
+
+    private final int k;
+    private final double[] scores;
+    private final long[] orders;
+    private final Object[] items;
+    private int size;
+    private long next;
+
+    public TopK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k tiene que ser positivo: " + k);
+        }
+        this.k = k;
+        this.scores = new double[k];
+        this.orders = new long[k];
+        this.items = new Object[k];
+    }
+
+    // Puntuación que hay que superar para entrar; cualquiera mientras no haya k
+    public double threshold() {
+        return size < k ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    public boolean offer(double score, E item) {
+        long order = next++;
+        if (size < k) {
+            scores[size] = score;
+            orders[size] = order;
+            items[size] = item;
+            up(size++);
+            return true;
+        }
+        if (score <= scores[0]) {
+            return false;
+        }
+        scores[0] = score;
+        orders[0] = order;
+        items[0] = item;
+        down(0);
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // De mayor a menor puntuación; vacía el montículo
+    @SuppressWarnings("unchecked")
+    public List<E> drain() {
+        Object[] sorted = new Object[size];
+        for (int i = size - 1; i >= 0; i--) {
+            sorted[i] = items[0];
+            swap(0, --size);
+            items[size] = null;
+            down(0);
+        }
+        List<E> result = new ArrayList<>(sorted.length);
+        for (Object item : sorted) {
+            result.add((E) item);
+        }
+        return result;
+    }
+
+    // a es peor que b: menos puntuación, o la misma y llegó después
+    private boolean worse(int a, int b) {
+        return scores[a] < scores[b] || (scores[a] == scores[b] && orders[a] > orders[b]);
+    }
+
+    private void up(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(i, parent)) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void down(int i) {
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && worse(child + 1, child)) {
+                child++;
+            }
+            if (!worse(child, i)) {
+                return;
+            }
+            swap(i, child);
+            i = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        long order = orders[a];
+        orders[a] = orders[b];
+        orders[b] = order;
+        Object item = items[a];
+        items[a] = items[b];
+        items[b] = item;
+    }
+}
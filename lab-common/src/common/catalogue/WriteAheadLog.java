@@ -0,0 +1,159 @@
+package common.catalogue;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/*
+ * Un segmento del log de cambios: fichero de solo añadir con registros
+ * [longitud u32][CRC32C del contenido][contenido]. El nombre lleva la primera versión que
+ * contiene (wal-<versión>.log), así al guardar un snapshot se pueden borrar los segmentos
+ * que ya cubre. Un registro a medias al final (corte durante la escritura) no pasa el CRC
+ * y se descarta al recuperar.
+ */
+final class WriteAheadLog implements AutoCloseable {
+
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final int MAX_RECORD = 64 << 20;
+
+    static final class Segment {
+        final Path path;
+        final long firstVersion;
+
+        Segment(Path path, long firstVersion) {
+            this.path = path;
+            this.firstVersion = firstVersion;
+        }
+    }
+
+    @FunctionalInterface
+    interface RecordHandler {
+        void accept(byte[] payload) throws IOException;
+    }
+
+    private final FileChannel channel;
+    final long firstVersion;
+    private volatile long size;
+
+    WriteAheadLog(Path directory, long firstVersion) throws IOException {
+        this.channel = FileChannel.open(path(directory, firstVersion), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.firstVersion = firstVersion;
+        this.size = channel.size();
+        CatalogueFile.syncDirectory(directory);
+    }
+
+    static Path path(Path directory, long firstVersion) {
+        return directory.resolve(String.format("%s%019d%s", PREFIX, firstVersion, SUFFIX));
+    }
+
+    // Segmentos del directorio ordenados por primera versión
+    static List<Segment> segments(Path directory) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    long version = Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+                    segments.add(new Segment(file, version));
+                } catch (NumberFormatException e) {
+                    // No es un segmento nuestro
+                }
+            }
+        }
+        segments.sort(Comparator.comparingLong(segment -> segment.firstVersion));
+        return segments;
+    }
+
+    /*
+     * Pasa cada registro válido a handler, en orden. Devuelve cuántos bytes del fichero son
+     * registros completos; si es menos que su tamaño, lo que sigue está incompleto o dañado.
+     */
+    static long replay(Path path, RecordHandler handler) throws IOException {
+        long valid = 0;
+        CRC32C crc = new CRC32C();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length < 0 || length > MAX_RECORD) {
+                        return valid;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    return valid;
+                }
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    return valid;
+                }
+                handler.accept(payload);
+                valid += 8 + length;
+            }
+        }
+    }
+
+    static void truncate(Path path, long length) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            file.truncate(length);
+            file.force(true);
+        }
+    }
+
+    void append(byte[] payload) throws IOException {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.length);
+        record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        try {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+        } catch (IOException e) {
+            // Sin esto los registros siguientes quedarían detrás de uno incompleto y no se leerían
+            channel.truncate(size);
+            throw e;
+        }
+        size += 8 + payload.length;
+    }
+
+    // fdatasync: datos y tamaño del fichero, sin fechas de modificación
+    void sync() throws IOException {
+        channel.force(false);
+    }
+
+    // Descarta lo escrito después de length y se asegura de que el recorte llega al disco
+    void truncate(long length) throws IOException {
+        channel.truncate(length);
+        size = length;
+        channel.force(false);
+    }
+
+    long size() {
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.force(true);
+        channel.close();
+    }
+}
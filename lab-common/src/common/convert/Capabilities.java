@@ -0,0 +1,30 @@
+package common.convert;
+
+import java.util.Set;
+
+/*
+ * Lo que ofrece un backend: formatos de entrada ("url" para páginas web), cuántas
+ * conversiones admite a la vez (0 = sin límite propio) y si mantiene procesos vivos
+ * entre conversiones.
+ */
+public class Capabilities {
+    public final Set<String> inputFormats;
+    public final int maxConcurrency;
+    public final boolean persistent;
+
+    public Capabilities(Set<String> inputFormats, int maxConcurrency, boolean persistent) {
+        this.inputFormats = Set.copyOf(inputFormats);
+        this.maxConcurrency = maxConcurrency;
+        this.persistent = persistent;
+    }
+
+    public boolean supports(String format) {
+        return inputFormats.contains(format);
+    }
+
+    @Override
+    public String toString() {
+        return "formatos=" + inputFormats + ", concurrencia=" + (maxConcurrency > 0 ? maxConcurrency : "sin límite")
+            + (persistent ? ", procesos persistentes" : "");
+    }
+}
@@ -0,0 +1,41 @@
+package common.convert;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/*
+ * Conversión enviada a un executor. cancel() interrumpe el hilo que la ejecuta; los
+ * backends de procesos responden a la interrupción matando el proceso externo.
+ */
+public class ConversionJob {
+    private final ConversionRequest request;
+    private final FutureTask<ConversionOutcome> task;
+
+    ConversionJob(ConversionRequest request, FutureTask<ConversionOutcome> task) {
+        this.request = request;
+        this.task = task;
+    }
+
+    public ConversionRequest getRequest() {
+        return request;
+    }
+
+    public boolean cancel() {
+        return task.cancel(true);
+    }
+
+    public boolean isDone() {
+        return task.isDone();
+    }
+
+    public ConversionOutcome await() throws InterruptedException {
+        try {
+            return task.get();
+        } catch (CancellationException e) {
+            return ConversionOutcome.failed("Cancelada", 0);
+        } catch (ExecutionException e) {
+            return ConversionOutcome.failed(String.valueOf(e.getCause().getMessage()), 0);
+        }
+    }
+}
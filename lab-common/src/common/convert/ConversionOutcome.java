@@ -0,0 +1,23 @@
+package common.convert;
+
+public class ConversionOutcome {
+    public final boolean success;
+    public final String outputPath;
+    public final String error;
+    public final long durationMs;
+
+    private ConversionOutcome(boolean success, String outputPath, String error, long durationMs) {
+        this.success = success;
+        this.outputPath = outputPath;
+        this.error = error;
+        this.durationMs = durationMs;
+    }
+
+    public static ConversionOutcome ok(String outputPath, long durationMs) {
+        return new ConversionOutcome(true, outputPath, null, durationMs);
+    }
+
+    public static ConversionOutcome failed(String error, long durationMs) {
+        return new ConversionOutcome(false, null, error, durationMs);
+    }
+}
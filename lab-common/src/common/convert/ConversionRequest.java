@@ -0,0 +1,26 @@
+package common.convert;
+
+import java.nio.file.Path;
+
+// Una conversión a PDF: origen (URL o ruta de archivo) y archivo de salida
+public class ConversionRequest {
+    public final String source;
+    public final Path output;
+    public final long timeoutMs;
+
+    public ConversionRequest(String source, Path output, long timeoutMs) {
+        this.source = source;
+        this.output = output;
+        this.timeoutMs = timeoutMs;
+    }
+
+    // Extensión del origen en minúsculas, o "url" para direcciones http(s)
+    public String format() {
+        if (source.startsWith("http://") || source.startsWith("https://")) {
+            return "url";
+        }
+        String name = Path.of(source).getFileName().toString();
+        int lastDot = name.lastIndexOf('.');
+        return lastDot > 0 ? name.substring(lastDot + 1).toLowerCase() : "";
+    }
+}
@@ -0,0 +1,31 @@
+package common.convert;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/*
+ * Backend de conversión a PDF. convert() es bloqueante y corre en el hilo del que llama,
+ * para que el planificador (pool de hilos del conversor) sea lo que se mide; submit()
+ * lo envuelve para usarlo de forma asíncrona y poder cancelarlo.
+ */
+public interface ConverterBackend extends AutoCloseable {
+
+    String name();
+
+    Capabilities capabilities();
+
+    Health health();
+
+    // Si el hilo se interrumpe, la conversión se aborta y se devuelve como fallida
+    ConversionOutcome convert(ConversionRequest request);
+
+    default ConversionJob submit(ConversionRequest request, Executor executor) {
+        FutureTask<ConversionOutcome> task = new FutureTask<>(() -> convert(request));
+        executor.execute(task);
+        return new ConversionJob(request, task);
+    }
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,27 @@
+package common.convert;
+
+public class Health {
+
+    public enum Status { UP, DEGRADED, DOWN }
+
+    public final Status status;
+    public final String detail;
+
+    public Health(Status status, String detail) {
+        this.status = status;
+        this.detail = detail;
+    }
+
+    public static Health up(String detail) {
+        return new Health(Status.UP, detail);
+    }
+
+    public static Health down(String detail) {
+        return new Health(Status.DOWN, detail);
+    }
+
+    @Override
+    public String toString() {
+        return status + (detail == null || detail.isEmpty() ? "" : " (" + detail + ")");
+    }
+}
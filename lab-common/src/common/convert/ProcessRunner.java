@@ -0,0 +1,67 @@
+package common.convert;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * Ejecuta un proceso externo con timeout. La salida se lee en otro hilo para que un
+ * proceso que escribe mucho no se bloquee, y si el hilo que espera se interrumpe
+ * (cancelación) el proceso se mata antes de propagar la interrupción.
+ */
+public class ProcessRunner {
+
+    public static class Result {
+        public final int exitCode;
+        public final String output;
+
+        Result(int exitCode, String output) {
+            this.exitCode = exitCode;
+            this.output = output;
+        }
+    }
+
+    private ProcessRunner() {
+    }
+
+    public static Result run(ProcessBuilder pb, long timeoutMs) throws IOException, InterruptedException, TimeoutException {
+        pb.redirectErrorStream(true);
+        Process process = pb.start();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Thread drainer = new Thread(() -> drain(process.getInputStream(), output), "process-output");
+        drainer.setDaemon(true);
+        drainer.start();
+
+        try {
+            if (!process.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                throw new TimeoutException("excedió " + timeoutMs / 1000 + " segundos");
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+        drainer.join(1000);
+        synchronized (output) {
+            return new Result(process.exitValue(), output.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void drain(InputStream in, ByteArrayOutputStream output) {
+        byte[] buffer = new byte[4096];
+        try (in) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                synchronized (output) {
+                    output.write(buffer, 0, n);
+                }
+            }
+        } catch (IOException e) {
+            // El proceso terminó o fue destruido
+        }
+    }
+}
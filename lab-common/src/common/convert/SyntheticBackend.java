@@ -0,0 +1,150 @@
+package common.convert;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Backend sin Chrome ni LibreOffice para medir y probar los planificadores con muchos
+ * trabajos. Cada conversión consume cpuMs de CPU (trabajo real, no sleep) y espera
+ * waitMs simulando E/S del proceso externo, ambos con variación log-normal opcional.
+ * También puede fallar con una probabilidad dada y escribir un PDF mínimo.
+ *
+ * Especificación: "cpu=5,wait=50,jitter=0.3,failures=0.01,write=false,concurrency=0"
+ */
+public class SyntheticBackend implements ConverterBackend {
+
+    private static final byte[] MINIMAL_PDF = ("%PDF-1.4\n1 0 obj<</Type/Catalog/Pages 2 0 R>>endobj\n"
+        + "2 0 obj<</Type/Pages/Kids[]/Count 0>>endobj\ntrailer<</Root 1 0 R>>\n%%EOF\n").getBytes();
+
+    private final double cpuMs;
+    private final double waitMs;
+    private final double jitter;
+    private final double failureRate;
+    private final boolean writeOutput;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile long sink;
+
+    public SyntheticBackend(double cpuMs, double waitMs, double jitter, double failureRate,
+                            boolean writeOutput, int maxConcurrency) {
+        this.cpuMs = cpuMs;
+        this.waitMs = waitMs;
+        this.jitter = jitter;
+        this.failureRate = failureRate;
+        this.writeOutput = writeOutput;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = maxConcurrency > 0 ? new Semaphore(maxConcurrency) : null;
+    }
+
+    public static SyntheticBackend parse(String spec) {
+        double cpu = 5, wait = 50, jitter = 0, failures = 0;
+        boolean write = false;
+        int concurrency = 0;
+        if (spec != null && !spec.isEmpty()) {
+            for (String part : spec.split(",")) {
+                String[] kv = part.split("=", 2);
+                if (kv.length != 2) {
+                    throw new IllegalArgumentException("Parámetro inválido: " + part);
+                }
+                switch (kv[0].trim()) {
+                    case "cpu": cpu = Double.parseDouble(kv[1]); break;
+                    case "wait": wait = Double.parseDouble(kv[1]); break;
+                    case "jitter": jitter = Double.parseDouble(kv[1]); break;
+                    case "failures": failures = Double.parseDouble(kv[1]); break;
+                    case "write": write = Boolean.parseBoolean(kv[1]); break;
+                    case "concurrency": concurrency = Integer.parseInt(kv[1]); break;
+                    default: throw new IllegalArgumentException("Parámetro desconocido: " + kv[0]);
+                }
+            }
+        }
+        return new SyntheticBackend(cpu, wait, jitter, failures, write, concurrency);
+    }
+
+    @Override
+    public String name() {
+        return String.format(java.util.Locale.ROOT, "synthetic(cpu=%.1fms, wait=%.1fms, jitter=%.2f, failures=%.3f)",
+            cpuMs, waitMs, jitter, failureRate);
+    }
+
+    @Override
+    public Capabilities capabilities() {
+        return new Capabilities(Set.of("url", "docx", "pptx", "xlsx", "png", "odt", "odp", "ods"), maxConcurrency, false);
+    }
+
+    @Override
+    public Health health() {
+        return Health.up(completed.get() + " completadas, " + failed.get() + " fallidas");
+    }
+
+    @Override
+    public ConversionOutcome convert(ConversionRequest request) {
+        long start = System.nanoTime();
+        Random random = ThreadLocalRandom.current();
+        try {
+            if (permits != null) {
+                permits.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.incrementAndGet();
+            return ConversionOutcome.failed("Interrumpido", elapsedMs(start));
+        }
+        try {
+            burnCpu(vary(cpuMs, random));
+            long wait = Math.round(vary(waitMs, random));
+            if (wait > 0) {
+                Thread.sleep(wait);
+            }
+            if (failureRate > 0 && random.nextDouble() < failureRate) {
+                failed.incrementAndGet();
+                return ConversionOutcome.failed("Fallo simulado", elapsedMs(start));
+            }
+            if (writeOutput) {
+                Files.write(request.output, MINIMAL_PDF);
+            }
+            completed.incrementAndGet();
+            return ConversionOutcome.ok(request.output.toString(), elapsedMs(start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.incrementAndGet();
+            return ConversionOutcome.failed("Interrumpido", elapsedMs(start));
+        } catch (IOException e) {
+            failed.incrementAndGet();
+            return ConversionOutcome.failed("Error IO: " + e.getMessage(), elapsedMs(start));
+        } finally {
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    // Log-normal con media igual al valor base
+    private double vary(double base, Random random) {
+        if (jitter <= 0 || base <= 0) {
+            return base;
+        }
+        return base * Math.exp(jitter * random.nextGaussian() - jitter * jitter / 2);
+    }
+
+    private void burnCpu(double millis) {
+        long deadline = System.nanoTime() + (long) (millis * 1_000_000);
+        long x = 0;
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 1000; i++) {
+                x = x * 6364136223846793005L + 1442695040888963407L;
+            }
+        }
+        sink = x;
+    }
+
+    private static long elapsedMs(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
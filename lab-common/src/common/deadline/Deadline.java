@@ -0,0 +1,103 @@
+package common.deadline;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Plazo de una petición: el instante (System.nanoTime) a partir del cual el cliente ya no
+ * espera la respuesta. Entre procesos viaja como los milisegundos que quedan, no como una
+ * hora, para no depender de que los relojes coincidan:
+ *   - socket: línea "deadline:<ms>" delante de la petición (como la de traceparent)
+ *   - SOAP: cabecera HTTP X-Request-Timeout-Ms
+ *   - RMI: argumento timeoutMillis de search(timeoutMillis, traceParent, method, args)
+ * El servidor lo asocia al hilo que atiende la petición (attach) y los recorridos largos del
+ * catálogo llaman a check() cada cierto número de canciones: vencido el plazo se lanza
+ * DeadlineExceededException y se deja de calcular una respuesta que nadie va a leer.
+ */
+public final class Deadline {
+
+    public static final String PREFIX = "deadline:";
+    public static final String HEADER = "X-Request-Timeout-Ms";
+
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long expiresAt;
+
+    private Deadline(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public static Deadline after(long millis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis)));
+    }
+
+    // Milisegundos recibidos del cliente; null si no hay plazo o no es un número positivo
+    public static Deadline parse(String millis) {
+        if (millis == null) {
+            return null;
+        }
+        try {
+            long value = Long.parseLong(millis.trim());
+            return value > 0 ? after(value) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Plazo de la petición que atiende este hilo; null si no tiene
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    // Negativo si ya venció
+    public long remainingNanos() {
+        return expiresAt - System.nanoTime();
+    }
+
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    // Lo que queda, para enviarlo al siguiente salto; al menos 1 ms, 0 se leería como sin plazo
+    public long propagate() {
+        return Math.max(1, remainingMillis());
+    }
+
+    /*
+     * Plazo del hilo hasta cerrar el Scope; con null el hilo queda sin plazo. Al cerrar vuelve
+     * el que hubiera antes, así un servidor que llama a otro no pierde el suyo.
+     */
+    public static Scope attach(Deadline deadline) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    // Lanza DeadlineExceededException si el plazo del hilo ya venció; sin plazo no hace nada
+    public static void check() {
+        Deadline deadline = CURRENT.get();
+        if (deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException(-deadline.remainingMillis());
+        }
+    }
+
+    // millis acotado a lo que queda del plazo del hilo (sin plazo, millis tal cual)
+    public static long bound(long millis) {
+        Deadline deadline = CURRENT.get();
+        return deadline == null ? millis : Math.max(0, Math.min(millis, deadline.remainingMillis()));
+    }
+}
@@ -0,0 +1,41 @@
+package common.deadline;
+
+/*
+ * Venció el plazo de la petición (Deadline) y se abandonó sin respuesta. En el servidor la
+ * lanza Deadline.check() desde la búsqueda; por RMI llega tal cual al cliente, por socket la
+ * respuesta es el String "DEADLINE|milisegundos de retraso" en lugar de la lista y por HTTP
+ * un 504. Es unchecked para poder salir de las búsquedas, que no declaran excepciones.
+ */
+public class DeadlineExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public static final int HTTP_STATUS = 504;
+    static final String PREFIX = "DEADLINE|";
+
+    private final long lateMillis;
+
+    public DeadlineExceededException(long lateMillis) {
+        super("Plazo vencido hace " + lateMillis + " ms; petición abandonada");
+        this.lateMillis = lateMillis;
+    }
+
+    public long getLateMillis() {
+        return lateMillis;
+    }
+
+    public String encode() {
+        return PREFIX + lateMillis;
+    }
+
+    // La excepción si response es un plazo vencido del protocolo de socket; null si es una respuesta normal
+    public static DeadlineExceededException decode(Object response) {
+        if (!(response instanceof String) || !((String) response).startsWith(PREFIX)) {
+            return null;
+        }
+        try {
+            return new DeadlineExceededException(Long.parseLong(((String) response).substring(PREFIX.length())));
+        } catch (NumberFormatException e) {
+            return new DeadlineExceededException(0);
+        }
+    }
+}
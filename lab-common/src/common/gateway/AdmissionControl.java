@@ -0,0 +1,256 @@
+package common.gateway;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import common.bench.BenchmarkOptions;
+import common.deadline.Deadline;
+import common.metrics.Counter;
+import common.metrics.LatencyHistogram;
+import common.metrics.MetricsRegistry;
+
+/*
+ * Control de admisión de un servidor, para que con sobrecarga las peticiones admitidas sigan
+ * respondiendo a tiempo y el resto se rechace enseguida en vez de acumularse:
+ *   - conexiones: como mucho maxConnections hilos atendiendo conexiones (startConnection);
+ *     la siguiente se rechaza sin crear hilo (rejectConnection) y una conexión que pasa
+ *     idleMillis sin enviar nada se cierra, para que las inactivas no ocupen el límite.
+ *   - concurrencia: como mucho maxConcurrent peticiones procesándose a la vez. Las demás
+ *     esperan por orden de llegada como mucho queueMillis, y si ya hay maxQueued esperando se
+ *     rechazan sin esperar ("busy").
+ *   - ritmo por cliente (dirección IP): un TokenBucket de clientRate peticiones por segundo
+ *     con ráfagas de clientBurst ("throttled"); clientRate 0 no limita.
+ *   - plazo: con un Deadline en el hilo la espera no pasa de él, y si vence antes de entrar
+ *     la petición se descarta sin procesar ("expired").
+ * Métricas: music_admission_total{frontend, result=admitted|busy|throttled|expired},
+ * music_admission_queue_seconds{frontend}, music_admission_in_flight{frontend} y
+ * music_connections_rejected_total{frontend}.
+ */
+public final class AdmissionControl {
+
+    public enum Admission { ADMITTED, BUSY, THROTTLED, EXPIRED }
+
+    private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+    // Cubos que se guardan antes de olvidar los de clientes inactivos
+    private static final int MAX_CLIENTS = 10_000;
+    // Rechazos de conexión pendientes de contestar; con más se cierran sin respuesta
+    private static final int MAX_REJECTIONS = 64;
+    // Tiempo y bytes como mucho que se descartan de una conexión rechazada antes de cerrarla
+    private static final int REJECT_DRAIN_MILLIS = 100;
+    private static final int REJECT_DRAIN_BYTES = 64 * 1024;
+
+    // Respuesta fija a una conexión rechazada, escrita sin leer la petición
+    @FunctionalInterface
+    public interface Reply {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private final int maxQueued;
+    private final long queueMillis;
+    private final double clientRate;
+    private final int clientBurst;
+    private final int idleMillis;
+    private final Semaphore slots;
+    private final ThreadPoolExecutor connections;
+    private final ThreadPoolExecutor rejections;
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter admitted;
+    private final Counter busy;
+    private final Counter throttled;
+    private final Counter expired;
+    private final Counter rejectedConnections;
+    private final LatencyHistogram queueTime;
+
+    public AdmissionControl(String frontend, int maxConnections, int maxConcurrent, int maxQueued, long queueMillis,
+                            double clientRate, int clientBurst, int idleMillis) {
+        this.maxQueued = maxQueued;
+        this.queueMillis = queueMillis;
+        this.clientRate = clientRate;
+        this.clientBurst = Math.max(1, clientBurst);
+        this.idleMillis = Math.max(0, idleMillis);
+        this.slots = new Semaphore(maxConcurrent, true);
+        AtomicInteger threads = new AtomicInteger();
+        this.connections = new ThreadPoolExecutor(maxConnections, maxConnections, 30, TimeUnit.SECONDS,
+            new SynchronousQueue<>(), r -> {
+                Thread thread = new Thread(r, frontend + "-connection-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.connections.allowCoreThreadTimeOut(true);
+        // Un solo hilo para los rechazos: el que acepta conexiones nunca lee ni espera a un cliente
+        this.rejections = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(MAX_REJECTIONS), r -> {
+                Thread thread = new Thread(r, frontend + "-reject");
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.rejections.allowCoreThreadTimeOut(true);
+        this.admitted = METRICS.counter("music_admission_total", "Peticiones admitidas o rechazadas",
+            "frontend", frontend, "result", "admitted");
+        this.busy = METRICS.counter("music_admission_total", "Peticiones admitidas o rechazadas",
+            "frontend", frontend, "result", "busy");
+        this.throttled = METRICS.counter("music_admission_total", "Peticiones admitidas o rechazadas",
+            "frontend", frontend, "result", "throttled");
+        this.expired = METRICS.counter("music_admission_total", "Peticiones admitidas o rechazadas",
+            "frontend", frontend, "result", "expired");
+        this.rejectedConnections = METRICS.counter("music_connections_rejected_total",
+            "Conexiones rechazadas por estar al límite de hilos", "frontend", frontend);
+        this.queueTime = METRICS.histogram("music_admission_queue_seconds",
+            "Espera hasta poder procesar la petición", "frontend", frontend);
+        METRICS.gauge("music_admission_in_flight", "Peticiones procesándose",
+            () -> maxConcurrent - slots.availablePermits(), "frontend", frontend);
+    }
+
+    /*
+     * --max-concurrent (2 por CPU), --max-queued (4 por cada una de ellas), --queue-ms=250,
+     * --client-rate=0 (peticiones por segundo de cada cliente, 0 sin límite), --client-burst
+     * (2 segundos de client-rate), --max-connections (concurrentes + en cola + 64) e --idle-ms=30000
+     * (conexión sin peticiones que se cierra; 0 no cierra).
+     */
+    public static AdmissionControl fromOptions(String frontend, BenchmarkOptions options) {
+        int maxConcurrent = options.getInt("max-concurrent", 2 * Runtime.getRuntime().availableProcessors());
+        int maxQueued = options.getInt("max-queued", 4 * maxConcurrent);
+        double clientRate = options.getDouble("client-rate", 0);
+        return new AdmissionControl(frontend, options.getInt("max-connections", maxConcurrent + maxQueued + 64),
+            maxConcurrent, maxQueued, options.getLong("queue-ms", 250), clientRate,
+            options.getInt("client-burst", (int) Math.ceil(2 * clientRate)), options.getInt("idle-ms", 30_000));
+    }
+
+    // SO_TIMEOUT de las conexiones atendidas: pasado sin recibir nada se cierran (0 sin límite)
+    public int idleMillis() {
+        return idleMillis;
+    }
+
+    // Atiende la conexión en un hilo del límite; false si están todos ocupados
+    public boolean startConnection(Runnable handler) {
+        try {
+            connections.execute(handler);
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejectedConnections.increment();
+            return false;
+        }
+    }
+
+    /*
+     * Contesta reply a una conexión que startConnection no pudo atender, desde un hilo aparte:
+     * escribe la respuesta sin leer la petición, cierra la salida y descarta lo que siga
+     * enviando el cliente (como mucho REJECT_DRAIN_MILLIS y REJECT_DRAIN_BYTES) para que al
+     * cerrar no le llegue un reset antes que la respuesta. Con la cola llena se cierra sin más.
+     */
+    public void rejectConnection(Socket socket, Reply reply) {
+        try {
+            rejections.execute(() -> reply(socket, reply));
+        } catch (RejectedExecutionException e) {
+            closeQuietly(socket);
+        }
+    }
+
+    private static void reply(Socket socket, Reply reply) {
+        try (Socket s = socket) {
+            OutputStream out = s.getOutputStream();
+            reply.write(out);
+            out.flush();
+            s.shutdownOutput();
+            InputStream in = s.getInputStream();
+            byte[] buffer = new byte[4096];
+            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REJECT_DRAIN_MILLIS);
+            int drained = 0;
+            while (drained < REJECT_DRAIN_BYTES) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime());
+                if (remaining <= 0) {
+                    break;
+                }
+                s.setSoTimeout((int) remaining);
+                int read = in.read(buffer);
+                if (read < 0) {
+                    break;
+                }
+                drained += read;
+            }
+        } catch (IOException e) {
+            // Cliente que ya cerró o que no terminó de enviar dentro del margen
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Nada más que hacer con una conexión rechazada
+        }
+    }
+
+    // Con ADMITTED hay que llamar a release al terminar la petición
+    public Admission acquire(String client) {
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.isExpired()) {
+            expired.increment();
+            return Admission.EXPIRED;
+        }
+        if (clientRate > 0 && !bucket(client).tryTake(System.nanoTime())) {
+            throttled.increment();
+            return Admission.THROTTLED;
+        }
+        // Sin nadie esperando se entra directamente; si no, detrás de los que esperan
+        if (!slots.hasQueuedThreads() && slots.tryAcquire()) {
+            queueTime.recordValue(0);
+            admitted.increment();
+            return Admission.ADMITTED;
+        }
+        if (waiting.incrementAndGet() > maxQueued) {
+            waiting.decrementAndGet();
+            busy.increment();
+            return Admission.BUSY;
+        }
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = slots.tryAcquire(Deadline.bound(queueMillis), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+        queueTime.recordValue(System.nanoTime() - start);
+        if (acquired) {
+            admitted.increment();
+            return Admission.ADMITTED;
+        }
+        if (deadline != null && deadline.isExpired()) {
+            expired.increment();
+            return Admission.EXPIRED;
+        }
+        busy.increment();
+        return Admission.BUSY;
+    }
+
+    public void release() {
+        slots.release();
+    }
+
+    // Cuándo tiene sentido reintentar: al vaciarse la cola o al llegar la siguiente ficha
+    public long retryAfterMillis(Admission admission) {
+        return admission == Admission.THROTTLED ? (long) Math.ceil(1000 / clientRate) : Math.max(1, queueMillis);
+    }
+
+    private TokenBucket bucket(String client) {
+        long now = System.nanoTime();
+        if (buckets.size() > MAX_CLIENTS) {
+            buckets.values().removeIf(bucket -> bucket.isFull(now));
+        }
+        return buckets.computeIfAbsent(client, c -> new TokenBucket(clientRate, clientBurst, now));
+    }
+}
@@ -0,0 +1,31 @@
+package common.gateway;
+
+import java.io.IOException;
+
+/*
+ * El servidor no pudo atender la petición: argumentos inválidos (un límite que no es un
+ * número, un campo que no existe) o un error al procesarla. Reintentarla igual no sirve. Por
+ * socket la respuesta es el String "ERROR|mensaje" en lugar de la lista, así el cliente no
+ * se queda esperando una respuesta que no va a llegar.
+ */
+public class RequestFailedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    static final String PREFIX = "ERROR|";
+
+    public RequestFailedException(String message) {
+        super(message);
+    }
+
+    String encode() {
+        return PREFIX + getMessage();
+    }
+
+    // La excepción si response es un error del protocolo de socket; null si es una respuesta normal
+    public static RequestFailedException decode(Object response) {
+        if (!(response instanceof String) || !((String) response).startsWith(PREFIX)) {
+            return null;
+        }
+        return new RequestFailedException(((String) response).substring(PREFIX.length()));
+    }
+}
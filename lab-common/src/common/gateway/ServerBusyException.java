@@ -0,0 +1,60 @@
+package common.gateway;
+
+import java.io.IOException;
+
+/*
+ * El servidor rechazó la petición sin procesarla (AdmissionControl): "busy" si estaba al
+ * límite de peticiones a la vez, "throttled" si el cliente pasó de su ritmo. Se puede
+ * reintentar pasado retryAfterMillis. Por socket la respuesta es el String
+ * "BUSY|motivo|milisegundos" en lugar de la lista; por HTTP un 503 o 429 con Retry-After.
+ */
+public class ServerBusyException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    static final String PREFIX = "BUSY|";
+
+    private final String reason;
+    private final long retryAfterMillis;
+
+    public ServerBusyException(String reason, long retryAfterMillis) {
+        super("Servidor ocupado (" + reason + "), reintentar en " + retryAfterMillis + " ms");
+        this.reason = reason;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    static String encode(String reason, long retryAfterMillis) {
+        return PREFIX + reason + "|" + retryAfterMillis;
+    }
+
+    // La excepción si response es un rechazo del protocolo de socket; null si es una respuesta normal
+    public static ServerBusyException decode(Object response) {
+        if (!(response instanceof String) || !((String) response).startsWith(PREFIX)) {
+            return null;
+        }
+        String[] parts = ((String) response).split("\\|");
+        return new ServerBusyException(parts.length > 1 ? parts[1] : "busy",
+            parts.length > 2 ? Long.parseLong(parts[2]) : 1000);
+    }
+
+    // Rechazo por HTTP (503 o 429); null si status no lo es
+    public static ServerBusyException fromHttp(int status, String retryAfter) {
+        if (status != 503 && status != 429) {
+            return null;
+        }
+        long seconds = 1;
+        try {
+            seconds = retryAfter == null ? 1 : Long.parseLong(retryAfter.trim());
+        } catch (NumberFormatException e) {
+            // Retry-After con fecha: se reintenta al segundo
+        }
+        return new ServerBusyException(status == 429 ? "throttled" : "busy", seconds * 1000);
+    }
+}
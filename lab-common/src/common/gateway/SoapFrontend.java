@@ -0,0 +1,593 @@
+package common.gateway;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import common.catalogue.Autocomplete;
+import common.catalogue.Facets;
+import common.catalogue.SearchEngine;
+import common.catalogue.SingleFlight;
+import common.catalogue.SongCodec;
+import common.catalogue.SongFilter;
+import common.deadline.Deadline;
+import common.deadline.DeadlineExceededException;
+import common.log.Log;
+import common.log.Logger;
+import common.metrics.Gauge;
+import common.metrics.MetricsRegistry;
+import common.trace.Span;
+import common.trace.Tracer;
+
+/*
+ * Servicio SOAP/HTTP de lab-8 sobre un SearchEngine: searchByTitle, searchByGenre,
+ * searchByAuthor, searchByMultipleCriteria, searchRanked, complete, facets y las escrituras addSong,
+ * updateSong y deleteSong, con los argumentos en arg0..argN. Una conexión por petición, cada
+ * una en un hilo de AdmissionControl; las que no admite reciben un 503 (servidor al límite)
+ * o un 429 (el cliente pasó de su ritmo) con Retry-After y un soap:Fault, sin procesarlas.
+ * Con la cabecera X-Request-Timeout-Ms (Deadline) la petición se abandona al vencer el plazo,
+ * esperando turno o a mitad de la búsqueda, y se responde un 504. El motor se comparte entre todas.
+ */
+public final class SoapFrontend<T> {
+
+    private static final Logger LOG = Log.getLogger("SOAP Server");
+    private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+    // Cuerpo más grande que se acepta; con más se responde 413 sin leerlo
+    private static final int MAX_REQUEST_BYTES = 256 * 1024;
+
+    private final SearchEngine<T> engine;
+    private final SongCodec<T> codec;
+    private final SingleFlight<String, String> responses = new SingleFlight<>("soap");
+    private final AdmissionControl admission;
+
+    public SoapFrontend(SearchEngine<T> engine, AdmissionControl admission) {
+        this.engine = engine;
+        this.codec = engine.codec();
+        this.admission = admission;
+    }
+
+    // Acepta conexiones hasta que se cierra serverSocket
+    public void serve(ServerSocket serverSocket) {
+        LOG.info("Esperando conexiones SOAP en puerto {}", serverSocket.getLocalPort());
+        try {
+            while (true) {
+                Socket clientSocket = serverSocket.accept();
+                if (!admission.startConnection(new ClientHandler(clientSocket))) {
+                    // Sin hilo libre: 503 fijo sin leer la petición, desde el hilo de rechazos
+                    byte[] busy = rejection(AdmissionControl.Admission.BUSY).getBytes(StandardCharsets.UTF_8);
+                    admission.rejectConnection(clientSocket, out -> out.write(busy));
+                    METRICS.counter("soap_requests_total", "Peticiones HTTP/SOAP atendidas", "status", "busy").increment();
+                }
+            }
+        } catch (IOException e) {
+            if (!serverSocket.isClosed()) {
+                LOG.error("Error en el servidor: {}", e.getMessage());
+            }
+        }
+    }
+
+    private class ClientHandler implements Runnable {
+        private Socket clientSocket;
+
+        public ClientHandler(Socket socket) {
+            this.clientSocket = socket;
+        }
+
+        public void run() {
+            long start = System.nanoTime();
+            Gauge activeConnections = METRICS.gauge("soap_active_connections", "Conexiones SOAP en curso");
+            activeConnections.increment();
+            String status = "error";
+            try {
+                // Un cliente que no termina de enviar la petición no se queda con el hilo
+                clientSocket.setSoTimeout(admission.idleMillis());
+                BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(clientSocket.getInputStream(), StandardCharsets.UTF_8));
+                PrintWriter writer = new PrintWriter(
+                    new OutputStreamWriter(clientSocket.getOutputStream(), StandardCharsets.UTF_8), true);
+
+                // Leer HTTP headers
+                String line;
+                int contentLength = 0;
+                String traceParent = null;
+                Deadline deadline = null;
+                while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                    if (line.startsWith("Content-Length:")) {
+                        contentLength = Integer.parseInt(line.substring(16).trim());
+                    } else if (line.regionMatches(true, 0, "traceparent:", 0, 12)) {
+                        traceParent = line.substring(12).trim();
+                    } else if (line.regionMatches(true, 0, Deadline.HEADER + ":", 0, Deadline.HEADER.length() + 1)) {
+                        deadline = Deadline.parse(line.substring(Deadline.HEADER.length() + 1));
+                    }
+                }
+
+                if (contentLength < 0 || contentLength > MAX_REQUEST_BYTES) {
+                    status = "too_large";
+                    writer.print(response("413 Payload Too Large", null, createSOAPFault("Request too large")));
+                    writer.flush();
+                    clientSocket.close();
+                    return;
+                }
+
+                // Leer SOAP body
+                // Content-Length cuenta bytes: se lee hasta sumarlos, no hasta llenar el buffer de caracteres
+                char[] buffer = new char[contentLength];
+                int length = 0;
+                int bytes = 0;
+                while (bytes < contentLength) {
+                    int read = reader.read(buffer, length, contentLength - bytes);
+                    if (read < 0) {
+                        break;
+                    }
+                    bytes += new String(buffer, length, read).getBytes(StandardCharsets.UTF_8).length;
+                    length += read;
+                }
+                String soapRequest = new String(buffer, 0, length);
+                if (traceParent == null) {
+                    traceParent = extractTraceParent(soapRequest);
+                }
+
+                Deadline.Scope scope = Deadline.attach(deadline);
+                try {
+                    AdmissionControl.Admission admitted = admission.acquire(clientSocket.getInetAddress().getHostAddress());
+                    if (admitted != AdmissionControl.Admission.ADMITTED) {
+                        status = admitted.name().toLowerCase();
+                        writer.print(rejection(admitted));
+                        writer.flush();
+                        clientSocket.close();
+                        return;
+                    }
+                    // El span empieza al aceptar la conexión aunque el contexto se conozca al leer
+                    try (Span span = Tracer.startServerSpan("soap.request", traceParent, start)) {
+                        Tracer.recordSpan("soap.read", start, System.nanoTime());
+
+                        // Procesar SOAP request
+                        String soapResponse;
+                        try {
+                            soapResponse = processSOAPRequest(soapRequest);
+                        } catch (DeadlineExceededException e) {
+                            // Nadie espera ya la respuesta: se deja la búsqueda a medias
+                            status = "expired";
+                            span.tag("status", status);
+                            METRICS.counter("music_deadline_exceeded_total", "Peticiones abandonadas al vencer su plazo",
+                                "frontend", "soap").increment();
+                            writer.print(rejection(AdmissionControl.Admission.EXPIRED));
+                            writer.flush();
+                            clientSocket.close();
+                            return;
+                        }
+                        status = soapResponse.contains("<soap:Fault>") ? "fault" : "ok";
+                        span.tag("status", status).tag("request.bytes", contentLength);
+                        METRICS.counter("soap_request_bytes_total", "Bytes de peticiones SOAP recibidas").add(contentLength);
+
+                        // Enviar HTTP response: Content-Length cuenta los bytes en UTF-8, no los caracteres
+                        try (Span write = Tracer.startSpan("soap.write")) {
+                            byte[] body = soapResponse.getBytes(StandardCharsets.UTF_8);
+                            OutputStream out = clientSocket.getOutputStream();
+                            out.write(("HTTP/1.1 200 OK\r\n"
+                                + "Content-Type: text/xml; charset=utf-8\r\n"
+                                + "Content-Length: " + body.length + "\r\n"
+                                + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                            out.write(body);
+                            out.flush();
+                            write.tag("response.bytes", body.length);
+                        }
+                    } finally {
+                        admission.release();
+                    }
+                } finally {
+                    scope.close();
+                }
+
+                clientSocket.close();
+            } catch (SocketTimeoutException e) {
+                status = "timeout";
+                LOG.debug("Conexión sin petición completa cerrada: {}", e.getMessage());
+                try {
+                    clientSocket.close();
+                } catch (IOException ignored) {
+                    // Ya estaba cerrada
+                }
+            } catch (Exception e) {
+                LOG.error("Error atendiendo cliente: {}", e.getMessage(), e);
+            } finally {
+                activeConnections.decrement();
+                METRICS.counter("soap_requests_total", "Peticiones HTTP/SOAP atendidas", "status", status).increment();
+                METRICS.histogram("soap_request_duration_seconds", "Tiempo desde la conexión hasta la respuesta",
+                    "status", status).recordValue(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /*
+     * 503 si el servidor está al límite, 429 si es el cliente el que pasa de su ritmo y 504 si
+     * venció el plazo de la petición (sin Retry-After: repetirla igual volvería a vencer).
+     */
+    private String rejection(AdmissionControl.Admission admitted) {
+        if (admitted == AdmissionControl.Admission.EXPIRED) {
+            return response(DeadlineExceededException.HTTP_STATUS + " Gateway Timeout", null,
+                createSOAPFault("Deadline exceeded"));
+        }
+        boolean throttled = admitted == AdmissionControl.Admission.THROTTLED;
+        return response(throttled ? "429 Too Many Requests" : "503 Service Unavailable",
+            String.valueOf(Math.max(1, (admission.retryAfterMillis(admitted) + 999) / 1000)),
+            createSOAPFault(throttled ? "Too many requests" : "Server busy"));
+    }
+
+    // Respuesta HTTP completa que cierra la conexión; retryAfter en segundos o null
+    private static String response(String status, String retryAfter, String body) {
+        return "HTTP/1.1 " + status + "\r\n"
+            + (retryAfter == null ? "" : "Retry-After: " + retryAfter + "\r\n")
+            + "Content-Type: text/xml; charset=utf-8\r\n"
+            + "Content-Length: " + body.getBytes(StandardCharsets.UTF_8).length + "\r\n"
+            + "Connection: close\r\n"
+            + "\r\n"
+            + body;
+    }
+
+    private String processSOAPRequest(String soapRequest) {
+        try {
+            // El cuerpo completo solo en DEBUG: copiarlo a consola por petición limita el throughput
+            LOG.debug("Procesando request: {}", soapRequest);
+
+            Document doc;
+            try (Span parse = Tracer.startSpan("soap.parse")) {
+                DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+                factory.setNamespaceAware(true);
+                DocumentBuilder builder = factory.newDocumentBuilder();
+                byte[] bytes = soapRequest.getBytes(StandardCharsets.UTF_8);
+                parse.tag("request.bytes", bytes.length);
+                doc = builder.parse(new ByteArrayInputStream(bytes));
+            }
+
+            String write = processWrite(doc);
+            if (write != null) {
+                return write;
+            }
+            String ranked = processRanked(doc);
+            if (ranked != null) {
+                return ranked;
+            }
+            String completions = processComplete(doc);
+            if (completions != null) {
+                return completions;
+            }
+            String facets = processFacets(doc);
+            if (facets != null) {
+                return facets;
+            }
+
+            // Buscar método en cualquier namespace
+            String[] possibleMethods = {"searchByTitle", "searchByGenre", "searchByAuthor", "searchByMultipleCriteria"};
+
+            for (String method : possibleMethods) {
+                NodeList methodNodes = doc.getElementsByTagName("*");
+                for (int i = 0; i < methodNodes.getLength(); i++) {
+                    Element element = (Element) methodNodes.item(i);
+                    String localName = element.getLocalName();
+
+                    if (method.equals(localName)) {
+                        long start = System.nanoTime();
+                        SongFilter filter;
+                        switch (method) {
+                            case "searchByTitle":
+                                filter = new SongFilter(getParameterValue(element, "arg0"), null, null);
+                                break;
+                            case "searchByGenre":
+                                filter = new SongFilter(null, getParameterValue(element, "arg0"), null);
+                                break;
+                            case "searchByAuthor":
+                                filter = new SongFilter(null, null, getParameterValue(element, "arg0"));
+                                break;
+                            default:
+                                filter = new SongFilter(getParameterValue(element, "arg0"),
+                                    getParameterValue(element, "arg1"), getParameterValue(element, "arg2"));
+                                break;
+                        }
+                        // Las peticiones iguales que llegan a la vez comparten búsqueda y XML
+                        String response = responses.execute(engine.version() + "\u0000" + method + "\u0000" + filter.key(),
+                            () -> search(method, filter));
+                        METRICS.histogram("soap_method_duration_seconds", "Búsqueda y serialización de la respuesta",
+                            "method", method).recordValue(System.nanoTime() - start);
+                        return response;
+                    }
+                }
+            }
+        } catch (DeadlineExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            LOG.warn("Request SOAP inválido: {}", e.getMessage());
+        }
+
+        METRICS.counter("soap_faults_total", "Peticiones SOAP inválidas").increment();
+        return createSOAPFault("Invalid request");
+    }
+
+    private String search(String method, SongFilter filter) {
+        List<T> results;
+        try (Span search = Tracer.startSpan("search." + method)) {
+            results = engine.search(filter);
+            search.tag("results", results.size());
+        }
+        METRICS.counter("music_results_total", "Canciones devueltas", "frontend", "soap",
+            "method", method).add(results.size());
+        try (Span serialize = Tracer.startSpan("soap.serialize")) {
+            String response = createSOAPResponse(codec, results, method + "Response");
+            serialize.tag("response.length", response.length());
+            return response;
+        }
+    }
+
+    /*
+     * addSong(título, género, autor, idioma, año), updateSong(título, autor, <canción nueva>) y
+     * deleteSong(título, autor); responden <return>true|false</return>. null si no es una escritura.
+     */
+    private String processWrite(Document doc) {
+        NodeList elements = doc.getElementsByTagName("*");
+        for (int i = 0; i < elements.getLength(); i++) {
+            Element element = (Element) elements.item(i);
+            String method = element.getLocalName();
+            if (!"addSong".equals(method) && !"updateSong".equals(method) && !"deleteSong".equals(method)) {
+                continue;
+            }
+            boolean applied;
+            try (Span span = Tracer.startSpan("write." + method)) {
+                switch (method) {
+                    case "addSong":
+                        applied = addSong(parseSong(element, 0));
+                        break;
+                    case "updateSong":
+                        applied = updateSong(getParameterValue(element, "arg0"), getParameterValue(element, "arg1"),
+                            parseSong(element, 2));
+                        break;
+                    default:
+                        applied = deleteSong(getParameterValue(element, "arg0"), getParameterValue(element, "arg1"));
+                        break;
+                }
+                span.tag("applied", applied);
+            }
+            METRICS.counter("music_catalogue_writes_total", "Cambios en el catálogo", "frontend", "soap",
+                "method", method, "result", applied ? "applied" : "rejected").increment();
+            return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                   "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+                   "<soap:Body>" +
+                   "<ns2:" + method + "Response xmlns:ns2=\"http://service.musiclibrary.com/\">" +
+                   "<return>" + applied + "</return>" +
+                   "</ns2:" + method + "Response>" +
+                   "</soap:Body>" +
+                   "</soap:Envelope>";
+        }
+        return null;
+    }
+
+    /*
+     * searchRanked(consulta, límite) con límite 10 si falta; responde las canciones como las
+     * demás búsquedas, de más a menos relevante. null si no es un searchRanked.
+     */
+    private String processRanked(Document doc) {
+        NodeList elements = doc.getElementsByTagName("*");
+        for (int i = 0; i < elements.getLength(); i++) {
+            Element element = (Element) elements.item(i);
+            if (!"searchRanked".equals(element.getLocalName())) {
+                continue;
+            }
+            long start = System.nanoTime();
+            String query = getParameterValue(element, "arg0");
+            String limitText = getParameterValue(element, "arg1");
+            int limit = limitText.isEmpty() ? 10 : Integer.parseInt(limitText.trim());
+            if (limit < 1 || limit > SearchEngine.MAX_RANKED) {
+                throw new IllegalArgumentException("limit fuera de rango (1.." + SearchEngine.MAX_RANKED + "): " + limit);
+            }
+            List<T> results;
+            try (Span span = Tracer.startSpan("search.searchRanked")) {
+                results = engine.ranked(query, limit);
+                span.tag("results", results.size());
+            }
+            METRICS.counter("music_results_total", "Canciones devueltas", "frontend", "soap",
+                "method", "searchRanked").add(results.size());
+            String response = createSOAPResponse(codec, results, "searchRankedResponse");
+            METRICS.histogram("soap_method_duration_seconds", "Búsqueda y serialización de la respuesta",
+                "method", "searchRanked").recordValue(System.nanoTime() - start);
+            return response;
+        }
+        return null;
+    }
+
+    /*
+     * complete(prefijo, campo, límite) con campo title|author|all (all si falta) y límite 10 si
+     * falta; responde un <return><text/><field/><songs/></return> por sugerencia. null si no es
+     * un complete.
+     */
+    private String processComplete(Document doc) {
+        NodeList elements = doc.getElementsByTagName("*");
+        for (int i = 0; i < elements.getLength(); i++) {
+            Element element = (Element) elements.item(i);
+            if (!"complete".equals(element.getLocalName())) {
+                continue;
+            }
+            long start = System.nanoTime();
+            String limit = getParameterValue(element, "arg2");
+            List<Autocomplete.Completion> completions;
+            try (Span span = Tracer.startSpan("search.complete")) {
+                completions = engine.complete(getParameterValue(element, "arg0"),
+                    Autocomplete.Field.of(getParameterValue(element, "arg1")),
+                    limit == null || limit.isEmpty() ? 10 : Integer.parseInt(limit.trim()));
+                span.tag("results", completions.size());
+            }
+            StringBuilder response = new StringBuilder();
+            response.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            response.append("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">");
+            response.append("<soap:Body>");
+            response.append("<ns2:completeResponse xmlns:ns2=\"http://service.musiclibrary.com/\">");
+            for (Autocomplete.Completion completion : completions) {
+                response.append("<return>");
+                response.append("<text>").append(escapeXml(completion.text)).append("</text>");
+                response.append("<field>").append(completion.field.name().toLowerCase()).append("</field>");
+                response.append("<songs>").append(completion.songs).append("</songs>");
+                response.append("</return>");
+            }
+            response.append("</ns2:completeResponse>");
+            response.append("</soap:Body>");
+            response.append("</soap:Envelope>");
+            METRICS.histogram("soap_method_duration_seconds", "Búsqueda y serialización de la respuesta",
+                "method", "complete").recordValue(System.nanoTime() - start);
+            return response.toString();
+        }
+        return null;
+    }
+
+    /*
+     * facets(título, género, autor, límite) con los criterios de searchByMultipleCriteria;
+     * responde <return><total/><genres><value><name/><count/></value>...</genres>... con
+     * languages, authors y decades igual. null si no es un facets.
+     */
+    private String processFacets(Document doc) {
+        NodeList elements = doc.getElementsByTagName("*");
+        for (int i = 0; i < elements.getLength(); i++) {
+            Element element = (Element) elements.item(i);
+            if (!"facets".equals(element.getLocalName())) {
+                continue;
+            }
+            long start = System.nanoTime();
+            String limit = getParameterValue(element, "arg3");
+            Facets facets;
+            try (Span span = Tracer.startSpan("search.facets")) {
+                facets = engine.facets(new SongFilter(getParameterValue(element, "arg0"),
+                    getParameterValue(element, "arg1"), getParameterValue(element, "arg2")), limit == null || limit.isEmpty() ? 10 : Integer.parseInt(limit.trim()));
+                span.tag("results", facets.total);
+            }
+            StringBuilder response = new StringBuilder();
+            response.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            response.append("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">");
+            response.append("<soap:Body>");
+            response.append("<ns2:facetsResponse xmlns:ns2=\"http://service.musiclibrary.com/\">");
+            response.append("<return>");
+            response.append("<total>").append(facets.total).append("</total>");
+            appendFacet(response, "genres", facets.genres);
+            appendFacet(response, "languages", facets.languages);
+            appendFacet(response, "authors", facets.authors);
+            appendFacet(response, "decades", facets.decades);
+            response.append("</return>");
+            response.append("</ns2:facetsResponse>");
+            response.append("</soap:Body>");
+            response.append("</soap:Envelope>");
+            METRICS.histogram("soap_method_duration_seconds", "Búsqueda y serialización de la respuesta",
+                "method", "facets").recordValue(System.nanoTime() - start);
+            return response.toString();
+        }
+        return null;
+    }
+
+    private void appendFacet(StringBuilder response, String name, Map<String, Integer> counts) {
+        response.append("<").append(name).append(">");
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            response.append("<value><name>").append(escapeXml(entry.getKey())).append("</name>");
+            response.append("<count>").append(entry.getValue()).append("</count></value>");
+        }
+        response.append("</").append(name).append(">");
+    }
+
+    // Canción en argN..argN+4 (título, género, autor, idioma, año); null si el año no es un número
+    private T parseSong(Element methodElement, int first) {
+        try {
+            return codec.create(getParameterValue(methodElement, "arg" + first),
+                getParameterValue(methodElement, "arg" + (first + 1)),
+                getParameterValue(methodElement, "arg" + (first + 2)),
+                getParameterValue(methodElement, "arg" + (first + 3)),
+                Integer.parseInt(getParameterValue(methodElement, "arg" + (first + 4)).trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // traceparent de la cabecera SOAP (<tc:traceparent>) sin construir el DOM
+    public static String extractTraceParent(String soapRequest) {
+        int header = soapRequest.indexOf("Header");
+        int tag = header < 0 ? -1 : soapRequest.indexOf("traceparent", header);
+        if (tag < 0) {
+            return null;
+        }
+        int start = soapRequest.indexOf('>', tag) + 1;
+        int end = soapRequest.indexOf('<', start);
+        return start > 0 && end > start ? soapRequest.substring(start, end) : null;
+    }
+
+    private String getParameterValue(Element methodElement, String paramName) {
+        NodeList params = methodElement.getElementsByTagName(paramName);
+        if (params.getLength() > 0) {
+            return params.item(0).getTextContent();
+        }
+        return "";
+    }
+
+    public static <T> String createSOAPResponse(SongCodec<T> codec, List<T> songs, String methodName) {
+        StringBuilder response = new StringBuilder();
+        response.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+        response.append("<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">");
+        response.append("<soap:Body>");
+        response.append("<ns2:").append(methodName).append(" xmlns:ns2=\"http://service.musiclibrary.com/\">");
+
+        for (T song : songs) {
+            response.append("<return>");
+            response.append("<title>").append(escapeXml(codec.title(song))).append("</title>");
+            response.append("<genre>").append(escapeXml(codec.genre(song))).append("</genre>");
+            response.append("<author>").append(escapeXml(codec.author(song))).append("</author>");
+            response.append("<language>").append(escapeXml(codec.language(song))).append("</language>");
+            response.append("<year>").append(codec.year(song)).append("</year>");
+            response.append("</return>");
+        }
+
+        response.append("</ns2:").append(methodName).append(">");
+        response.append("</soap:Body>");
+        response.append("</soap:Envelope>");
+
+        return response.toString();
+    }
+
+    private static String createSOAPFault(String message) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+               "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\">" +
+               "<soap:Body>" +
+               "<soap:Fault>" +
+               "<faultcode>Server</faultcode>" +
+               "<faultstring>" + escapeXml(message) + "</faultstring>" +
+               "</soap:Fault>" +
+               "</soap:Body>" +
+               "</soap:Envelope>";
+    }
+
+    private static String escapeXml(String text) {
+        if (text == null) return "";
+        return text.replace("&", "&amp;")
+                   .replace("<", "&lt;")
+                   .replace(">", "&gt;")
+                   .replace("\"", "&quot;")
+                   .replace("'", "&apos;");
+    }
+
+    private boolean addSong(T song) {
+        return engine.add(song);
+    }
+
+    private boolean updateSong(String title, String author, T song) {
+        return engine.update(SearchEngine.key(title, author), song);
+    }
+
+    private boolean deleteSong(String title, String author) {
+        return engine.remove(SearchEngine.key(title, author)) != null;
+    }
+}
@@ -0,0 +1,347 @@
+package common.gateway;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import common.catalogue.Autocomplete;
+import common.catalogue.SearchEngine;
+import common.catalogue.SongCodec;
+import common.catalogue.SongFilter;
+import common.deadline.Deadline;
+import common.deadline.DeadlineExceededException;
+import common.log.Log;
+import common.log.Logger;
+import common.metrics.Gauge;
+import common.metrics.MetricsRegistry;
+import common.trace.Span;
+import common.trace.Tracer;
+
+/*
+ * Protocolo de socket de lab-2 sobre un SearchEngine: cada petición es un String
+ * "ACCIÓN|arg|arg..." por ObjectOutputStream (con "traceparent:<contexto>\n" delante si el
+ * cliente traza y "deadline:<ms>\n" si tiene plazo) y la respuesta un List de canciones, salvo
+ * COMPLETE (List<String>) y FACETS (Facets). RANKED|consulta|límite devuelve las canciones más
+ * relevantes primero (límite 10 si falta, como mucho SearchEngine.MAX_RANKED). Las escrituras responden la canción afectada o
+ * una lista vacía si no se aplicaron. Una petición con argumentos inválidos o que falla al
+ * procesarse recibe "ERROR|mensaje" (RequestFailedException.decode).
+ * Cada conexión se atiende en un hilo de AdmissionControl, que la cierra tras idleMillis sin
+ * peticiones, y cada petición pasa por su control de admisión; las rechazadas reciben
+ * "BUSY|motivo|ms" (ServerBusyException.decode) en lugar de la respuesta. Una petición cuyo
+ * plazo (Deadline) vence esperando turno o a mitad de la búsqueda se abandona y recibe
+ * "DEADLINE|ms" (DeadlineExceededException.decode). El motor se comparte entre todas las conexiones.
+ */
+public final class SocketFrontend<T> {
+
+    private static final Logger LOG = Log.getLogger("Music Server");
+    // Una línea INFO de cada 100 peticiones; el detalle de todas queda en DEBUG
+    private static final Logger SAMPLED_LOG = LOG.sampled(100);
+    private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+    public static final String TRACE_PREFIX = "traceparent:";
+    /*
+     * Acciones conocidas y el método equivalente de RMI y SOAP: music_results_total y
+     * music_catalogue_writes_total usan ese nombre en method, así con --gateway las tres
+     * interfaces suman en las mismas series (frontend las distingue). El resto se agrupa como
+     * UNKNOWN para acotar las etiquetas.
+     */
+    private static final Map<String, String> METHODS = Map.ofEntries(
+        Map.entry("SEARCH_TITLE", "searchByTitle"), Map.entry("SEARCH_GENRE", "searchByGenre"),
+        Map.entry("SEARCH_AUTHOR", "searchByAuthor"), Map.entry("SEARCH_MULTIPLE", "searchByMultipleCriteria"),
+        Map.entry("GET_ALL", "getAll"), Map.entry("ADD_SONG", "addSong"), Map.entry("UPDATE_SONG", "updateSong"),
+        Map.entry("DELETE_SONG", "deleteSong"), Map.entry("COMPLETE", "complete"), Map.entry("FACETS", "facets"),
+        Map.entry("RANKED", "searchRanked"));
+
+    private final SearchEngine<T> engine;
+    private final SongCodec<T> codec;
+    private final AdmissionControl admission;
+
+    public SocketFrontend(SearchEngine<T> engine, AdmissionControl admission) {
+        this.engine = engine;
+        this.codec = engine.codec();
+        this.admission = admission;
+    }
+
+    // Acepta conexiones hasta que se cierra serverSocket
+    public void serve(ServerSocket serverSocket) {
+        LOG.info("Esperando conexiones en puerto {}", serverSocket.getLocalPort());
+        try {
+            while (true) {
+                Socket clientSocket = serverSocket.accept();
+                if (!admission.startConnection(() -> handle(clientSocket))) {
+                    // Sin hilo libre: "BUSY" sin leer la petición, desde el hilo de rechazos
+                    String busy = ServerBusyException.encode("busy", admission.retryAfterMillis(AdmissionControl.Admission.BUSY));
+                    admission.rejectConnection(clientSocket, out -> {
+                        ObjectOutputStream oos = new ObjectOutputStream(out);
+                        oos.writeObject(busy);
+                        oos.flush();
+                    });
+                }
+            }
+        } catch (IOException e) {
+            if (!serverSocket.isClosed()) {
+                LOG.error("Error en el servidor: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket clientSocket) {
+        Gauge connectedClients = METRICS.gauge("music_connected_clients", "Clientes conectados");
+        connectedClients.increment();
+        try (Socket socket = clientSocket;
+             ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream())) {
+            // Una conexión inactiva no puede quedarse con uno de los hilos del límite
+            socket.setSoTimeout(admission.idleMillis());
+            oos.flush();
+            ObjectInputStream ois = new ObjectInputStream(socket.getInputStream());
+            LOG.debug("Cliente conectado");
+            while (true) {
+                String request = (String) ois.readObject();
+                if (request == null) {
+                    break;
+                }
+                LOG.debug("Solicitud recibida: {}", request);
+                Deadline.Scope scope = Deadline.attach(Deadline.parse(header(request, Deadline.PREFIX)));
+                try {
+                    AdmissionControl.Admission admitted = admission.acquire(socket.getInetAddress().getHostAddress());
+                    if (admitted == AdmissionControl.Admission.EXPIRED) {
+                        sendResults(new DeadlineExceededException(-Deadline.current().remainingMillis()).encode(), oos);
+                        continue;
+                    }
+                    if (admitted != AdmissionControl.Admission.ADMITTED) {
+                        sendResults(ServerBusyException.encode(admitted.name().toLowerCase(),
+                            admission.retryAfterMillis(admitted)), oos);
+                        continue;
+                    }
+                    try {
+                        processRequest(request, oos);
+                    } finally {
+                        admission.release();
+                    }
+                } finally {
+                    scope.close();
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            METRICS.counter("music_idle_connections_closed_total", "Conexiones cerradas por inactividad",
+                "frontend", "socket").increment();
+            LOG.debug("Conexión inactiva cerrada");
+        } catch (Exception e) {
+            LOG.debug("Cliente desconectado");
+        } finally {
+            connectedClients.decrement();
+        }
+    }
+
+    private void processRequest(String request, ObjectOutputStream oos) {
+        long start = System.nanoTime();
+        String traceParent = header(request, TRACE_PREFIX);
+        request = body(request);
+        String[] parts = request.split("\\|");
+        String action = parts[0];
+        String actionLabel = METHODS.containsKey(action) ? action : "UNKNOWN";
+        Span span = Tracer.startServerSpan("music." + actionLabel, traceParent, start);
+        try {
+            List<T> results = new ArrayList<>();
+            // COMPLETE (lista de textos) y FACETS (recuentos) no responden con canciones
+            Object response = null;
+
+            try (Span search = Tracer.startSpan("search")) {
+                switch (action) {
+                    case "SEARCH_TITLE":
+                        if (parts.length > 1) {
+                            results = engine.search(new SongFilter(parts[1], null, null));
+                        }
+                        break;
+                    case "SEARCH_GENRE":
+                        if (parts.length > 1) {
+                            results = engine.search(new SongFilter(null, parts[1], null));
+                        }
+                        break;
+                    case "SEARCH_AUTHOR":
+                        if (parts.length > 1) {
+                            results = engine.search(new SongFilter(null, null, parts[1]));
+                        }
+                        break;
+                    case "SEARCH_MULTIPLE":
+                        results = engine.search(new SongFilter(arg(parts, 1), arg(parts, 2), arg(parts, 3)));
+                        break;
+                    case "RANKED": {
+                        int limit = number(parts, 2, 10);
+                        if (limit < 1 || limit > SearchEngine.MAX_RANKED) {
+                            throw new RequestFailedException("limit fuera de rango (1.." + SearchEngine.MAX_RANKED
+                                + "): " + limit);
+                        }
+                        results = engine.ranked(arg(parts, 1), limit);
+                        break;
+                    }
+                    case "COMPLETE":
+                        response = complete(arg(parts, 1), field(arg(parts, 2)), number(parts, 3, 10));
+                        break;
+                    case "FACETS":
+                        response = engine.facets(new SongFilter(arg(parts, 1), arg(parts, 2), arg(parts, 3)),
+                            number(parts, 4, 10));
+                        break;
+                    case "GET_ALL":
+                        results = engine.all();
+                        break;
+                    // Escrituras: la respuesta es la canción afectada, o vacía si no se aplicó
+                    case "ADD_SONG": {
+                        T song = parseSong(parts, 1);
+                        if (recordWrite(action, engine.add(song))) {
+                            results.add(song);
+                        }
+                        break;
+                    }
+                    case "UPDATE_SONG": {
+                        T song = parseSong(parts, 3);
+                        if (recordWrite(action, parts.length > 2
+                                && engine.update(SearchEngine.key(parts[1], parts[2]), song))) {
+                            results.add(song);
+                        }
+                        break;
+                    }
+                    case "DELETE_SONG": {
+                        T removed = parts.length > 2 ? engine.remove(SearchEngine.key(parts[1], parts[2])) : null;
+                        if (recordWrite(action, removed != null)) {
+                            results.add(removed);
+                        }
+                        break;
+                    }
+                    default:
+                        LOG.warn("Acción no reconocida: {}", action);
+                        break;
+                }
+                if (response == null) {
+                    search.tag("results", results.size());
+                }
+            }
+
+            if (response == null) {
+                METRICS.counter("music_results_total", "Canciones devueltas", "frontend", "socket",
+                    "method", METHODS.getOrDefault(action, "unknown")).add(results.size());
+                response = results;
+            }
+            try (Span send = Tracer.startSpan("send")) {
+                send.tag("results", response instanceof List ? ((List<?>) response).size() : 1);
+                sendResults(response, oos);
+            }
+        } catch (DeadlineExceededException e) {
+            // Nadie espera ya la respuesta: se deja la búsqueda a medias y se avisa por si acaso
+            span.error(e);
+            METRICS.counter("music_deadline_exceeded_total", "Peticiones abandonadas al vencer su plazo",
+                "frontend", "socket").increment();
+            LOG.debug("{} abandonada: {}", actionLabel, e.getMessage());
+            sendResults(e.encode(), oos);
+        } catch (RequestFailedException e) {
+            span.error(e);
+            METRICS.counter("music_request_errors_total", "Peticiones con error", "action", actionLabel).increment();
+            LOG.debug("{} rechazada: {}", actionLabel, e.getMessage());
+            sendResults(e.encode(), oos);
+        } catch (Exception e) {
+            // Sin respuesta el cliente esperaría hasta su plazo, o para siempre si no tiene
+            span.error(e);
+            METRICS.counter("music_request_errors_total", "Peticiones con error", "action", actionLabel).increment();
+            LOG.error("Error procesando solicitud: {}", e.getMessage());
+            sendResults(new RequestFailedException("Error procesando " + actionLabel + ": " + e).encode(), oos);
+        } finally {
+            span.close();
+            METRICS.counter("music_requests_total", "Peticiones procesadas", "action", actionLabel).increment();
+            METRICS.histogram("music_request_duration_seconds", "Tiempo de proceso y envío de la respuesta",
+                "action", actionLabel).recordValue(System.nanoTime() - start);
+        }
+    }
+
+    // Líneas opcionales "traceparent:<contexto W3C>" y "deadline:<ms>" delante de la petición
+    private static String header(String request, String prefix) {
+        int from = 0;
+        int newline;
+        while ((newline = request.indexOf('\n', from)) > 0
+                && (request.startsWith(TRACE_PREFIX, from) || request.startsWith(Deadline.PREFIX, from))) {
+            if (request.startsWith(prefix, from)) {
+                return request.substring(from + prefix.length(), newline);
+            }
+            from = newline + 1;
+        }
+        return null;
+    }
+
+    private static String body(String request) {
+        int from = 0;
+        int newline;
+        while ((newline = request.indexOf('\n', from)) > 0
+                && (request.startsWith(TRACE_PREFIX, from) || request.startsWith(Deadline.PREFIX, from))) {
+            from = newline + 1;
+        }
+        return request.substring(from);
+    }
+
+    private static String arg(String[] parts, int index) {
+        return parts.length > index ? parts[index] : "";
+    }
+
+    // Entero opcional en parts[index]; sin él, fallback
+    private static int number(String[] parts, int index, int fallback) throws RequestFailedException {
+        if (parts.length <= index || parts[index].trim().isEmpty()) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(parts[index].trim());
+        } catch (NumberFormatException e) {
+            throw new RequestFailedException("Se esperaba un número en el argumento " + index + ": " + parts[index]);
+        }
+    }
+
+    private static Autocomplete.Field field(String name) throws RequestFailedException {
+        try {
+            return Autocomplete.Field.of(name);
+        } catch (IllegalArgumentException e) {
+            throw new RequestFailedException("Campo desconocido: " + name);
+        }
+    }
+
+    private List<String> complete(String prefix, Autocomplete.Field field, int limit) {
+        List<String> texts = new ArrayList<>();
+        for (Autocomplete.Completion completion : engine.complete(prefix, field, limit)) {
+            texts.add(completion.text);
+        }
+        return texts;
+    }
+
+    // título|género|autor|idioma|año a partir de parts[from]; null si faltan campos o el año no es un número
+    private T parseSong(String[] parts, int from) {
+        if (parts.length < from + 5) {
+            return null;
+        }
+        try {
+            return codec.create(parts[from], parts[from + 1], parts[from + 2], parts[from + 3],
+                Integer.parseInt(parts[from + 4].trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean recordWrite(String action, boolean applied) {
+        METRICS.counter("music_catalogue_writes_total", "Cambios en el catálogo", "frontend", "socket",
+            "method", METHODS.get(action), "result", applied ? "applied" : "rejected").increment();
+        LOG.debug("{}: {}", action, applied ? "aplicado" : "rechazado");
+        return applied;
+    }
+
+    private static void sendResults(Object response, ObjectOutputStream oos) {
+        try {
+            oos.writeObject(response);
+            oos.flush();
+            int count = response instanceof List ? ((List<?>) response).size() : 1;
+            LOG.debug("Enviados {} resultados", count);
+            SAMPLED_LOG.info("Enviados {} resultados (1 de cada 100 peticiones)", count);
+        } catch (Exception e) {
+            METRICS.counter("music_send_errors_total", "Respuestas que no se pudieron enviar").increment();
+            LOG.error("Error enviando resultados: {}", e.getMessage());
+        }
+    }
+}
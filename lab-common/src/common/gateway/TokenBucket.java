@@ -0,0 +1,40 @@
+package common.gateway;
+
+/*
+ * Cubo de fichas de un cliente: se llena a rate fichas por segundo hasta capacity y cada
+ * petición gasta una. Permite ráfagas de capacity peticiones y, sostenido, rate por segundo.
+ */
+final class TokenBucket {
+
+    private final double rate;
+    private final double capacity;
+    private double tokens;
+    private long last;
+
+    TokenBucket(double rate, double capacity, long now) {
+        this.rate = rate;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.last = now;
+    }
+
+    synchronized boolean tryTake(long now) {
+        refill(now);
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+
+    // Lleno: el cliente lleva un rato sin pedir nada y se puede olvidar
+    synchronized boolean isFull(long now) {
+        refill(now);
+        return tokens >= capacity;
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - last) * rate / 1e9);
+        last = now;
+    }
+}
@@ -0,0 +1,195 @@
+package common.json;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+
+/*
+ * Escritor JSON mínimo con sangría. Los números siempre se escriben con punto decimal,
+ * sin depender del locale del sistema.
+ */
+public class JsonWriter {
+
+    private final StringBuilder out = new StringBuilder();
+    private final Deque<Boolean> firstInScope = new ArrayDeque<>();
+    private final boolean indent;
+    private boolean afterName;
+
+    public JsonWriter() {
+        this(true);
+    }
+
+    // Sin sangría ni saltos de línea, para formatos de un objeto por línea
+    public JsonWriter(boolean indent) {
+        this.indent = indent;
+    }
+
+    public JsonWriter beginObject() {
+        beforeValue();
+        out.append('{');
+        firstInScope.push(true);
+        return this;
+    }
+
+    public JsonWriter endObject() {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() {
+        beforeValue();
+        out.append('[');
+        firstInScope.push(true);
+        return this;
+    }
+
+    public JsonWriter endArray() {
+        return close(']');
+    }
+
+    public JsonWriter name(String name) {
+        separator();
+        writeString(name);
+        out.append(indent ? ": " : ":");
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) {
+        beforeValue();
+        if (value == null) {
+            out.append("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        beforeValue();
+        out.append(value);
+        return this;
+    }
+
+    public JsonWriter value(double value) {
+        beforeValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append("null");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        beforeValue();
+        out.append(value);
+        return this;
+    }
+
+    public JsonWriter field(String name, String value) {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, long value) {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, double value) {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, boolean value) {
+        return name(name).value(value);
+    }
+
+    public JsonWriter stringMap(String name, Map<String, String> map) {
+        name(name).beginObject();
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            field(entry.getKey(), entry.getValue());
+        }
+        return endObject();
+    }
+
+    public JsonWriter numberArray(String name, double[] values) {
+        name(name).beginArray();
+        for (double v : values) {
+            value(v);
+        }
+        return endArray();
+    }
+
+    public JsonWriter numberArray(String name, long[] values) {
+        name(name).beginArray();
+        for (long v : values) {
+            value(v);
+        }
+        return endArray();
+    }
+
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+
+    private JsonWriter close(char bracket) {
+        boolean empty = firstInScope.pop();
+        if (!empty) {
+            newline();
+        }
+        out.append(bracket);
+        return this;
+    }
+
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        separator();
+    }
+
+    private void separator() {
+        if (firstInScope.isEmpty()) {
+            return;
+        }
+        if (!firstInScope.peek()) {
+            out.append(',');
+        }
+        firstInScope.pop();
+        firstInScope.push(false);
+        newline();
+    }
+
+    private void newline() {
+        if (!indent) {
+            return;
+        }
+        out.append('\n');
+        for (int i = 0; i < firstInScope.size(); i++) {
+            out.append("  ");
+        }
+    }
+
+    private void writeString(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
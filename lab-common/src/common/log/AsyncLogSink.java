@@ -0,0 +1,186 @@
+package common.log;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Buffer circular acotado de varios productores y un consumidor. Los hilos que registran
+ * reservan una posición con CAS, copian referencias en la celda y la publican; un único
+ * hilo daemon formatea los mensajes y los escribe por lotes, así que ningún hilo de
+ * petición toma el lock de System.out ni espera a la consola.
+ *
+ * Con el buffer lleno los mensajes TRACE..INFO se descartan (y se cuentan); WARN y ERROR
+ * esperan a que haya sitio para no perder errores.
+ */
+public final class AsyncLogSink {
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    private static final int BATCH_CHARS = 64 * 1024;
+
+    private final LogEvent[] slots;
+    private final int mask;
+    // published[i] == secuencia del evento ya escrito en la celda i
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long consumed;
+    private final LongAdder dropped = new LongAdder();
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    public AsyncLogSink(int capacity, PrintStream out, PrintStream err) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.slots = new LogEvent[size];
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new LogEvent();
+            published.set(i, -1);
+        }
+        this.out = out;
+        this.err = err;
+        this.worker = new Thread(this::drainLoop, "async-log");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    boolean publish(Level level, String logger, String template, int argCount, Object a0, Object a1, Object a2, Object[] args) {
+        long sequence;
+        while (true) {
+            sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                if (level.compareTo(Level.WARN) < 0 || !running) {
+                    dropped.increment();
+                    return false;
+                }
+                LockSupport.parkNanos(50_000);
+                continue;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+        }
+        int index = (int) (sequence & mask);
+        LogEvent event = slots[index];
+        event.timeMillis = System.currentTimeMillis();
+        event.level = level;
+        event.logger = logger;
+        event.thread = Thread.currentThread().getName();
+        event.template = template;
+        event.argCount = argCount;
+        event.a0 = a0;
+        event.a1 = a1;
+        event.a2 = a2;
+        event.args = args;
+        published.lazySet(index, sequence);
+        return true;
+    }
+
+    private void drainLoop() {
+        StringBuilder outBatch = new StringBuilder(BATCH_CHARS);
+        StringBuilder errBatch = new StringBuilder();
+        long reportedDrops = 0;
+        while (running || consumed < claimed.get()) {
+            long next = consumed;
+            int index = (int) (next & mask);
+            if (published.get(index) != next) {
+                if (next < claimed.get()) {
+                    // Celda reservada pero el productor aún está copiando: esperar sin dormir
+                    Thread.onSpinWait();
+                    continue;
+                }
+                flush(outBatch, errBatch);
+                long drops = dropped.sum();
+                if (drops > reportedDrops) {
+                    err.println(TIME.format(Instant.now()) + " WARN  [log]: " + (drops - reportedDrops)
+                        + " mensajes descartados (buffer lleno)");
+                    reportedDrops = drops;
+                }
+                if (!running && next == claimed.get()) {
+                    break;
+                }
+                LockSupport.parkNanos(200_000);
+                continue;
+            }
+            LogEvent event = slots[index];
+            StringBuilder target = event.level.compareTo(Level.WARN) >= 0 ? errBatch : outBatch;
+            format(event, target);
+            event.clear();
+            consumed = next + 1;
+            if (outBatch.length() >= BATCH_CHARS || errBatch.length() >= BATCH_CHARS) {
+                flush(outBatch, errBatch);
+            }
+        }
+        flush(outBatch, errBatch);
+    }
+
+    private void flush(StringBuilder outBatch, StringBuilder errBatch) {
+        if (outBatch.length() > 0) {
+            out.print(outBatch);
+            out.flush();
+            outBatch.setLength(0);
+        }
+        if (errBatch.length() > 0) {
+            err.print(errBatch);
+            err.flush();
+            errBatch.setLength(0);
+        }
+    }
+
+    // HH:mm:ss.SSS NIVEL [logger]: mensaje con {} sustituidos
+    static void format(LogEvent event, StringBuilder sb) {
+        TIME.formatTo(Instant.ofEpochMilli(event.timeMillis), sb);
+        sb.append(' ').append(event.level.name());
+        for (int i = event.level.name().length(); i < 6; i++) {
+            sb.append(' ');
+        }
+        sb.append('[').append(event.logger).append("]: ");
+
+        String template = event.template;
+        int used = 0;
+        int start = 0;
+        while (used < event.argCount) {
+            int placeholder = template.indexOf("{}", start);
+            if (placeholder < 0) {
+                break;
+            }
+            sb.append(template, start, placeholder);
+            sb.append(event.arg(used++));
+            start = placeholder + 2;
+        }
+        sb.append(template, start, template.length()).append('\n');
+
+        // Como en SLF4J, un Throwable sobrante al final se imprime con su traza
+        if (used < event.argCount && event.arg(event.argCount - 1) instanceof Throwable) {
+            StringWriter trace = new StringWriter();
+            ((Throwable) event.arg(event.argCount - 1)).printStackTrace(new PrintWriter(trace));
+            sb.append(trace);
+        }
+    }
+
+    // Detiene el hilo de escritura después de vaciar lo pendiente
+    public void close(long timeoutMs) {
+        running = false;
+        try {
+            worker.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
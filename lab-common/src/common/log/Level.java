@@ -0,0 +1,5 @@
+package common.log;
+
+public enum Level {
+    TRACE, DEBUG, INFO, WARN, ERROR, OFF
+}
@@ -0,0 +1,39 @@
+package common.log;
+
+import java.util.Locale;
+
+/*
+ * Punto de entrada del logging asíncrono. Configuración por propiedades del sistema:
+ *   -Dlog.level=DEBUG   nivel mínimo (por defecto INFO)
+ *   -Dlog.buffer=8192   celdas del buffer circular
+ * Al terminar la JVM se vacía lo pendiente antes de salir.
+ */
+public final class Log {
+    private static volatile Level level = Level.valueOf(
+        System.getProperty("log.level", "INFO").toUpperCase(Locale.ROOT));
+    private static final AsyncLogSink SINK = new AsyncLogSink(
+        Integer.getInteger("log.buffer", 8192), System.out, System.err);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> SINK.close(2000), "async-log-shutdown"));
+    }
+
+    private Log() {
+    }
+
+    public static Logger getLogger(String name) {
+        return new Logger(name, SINK, 1);
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    public static long droppedCount() {
+        return SINK.droppedCount();
+    }
+}
@@ -0,0 +1,38 @@
+package common.log;
+
+/*
+ * Celda reutilizable del buffer circular. El productor copia referencias (sin formatear
+ * nada) y el hilo de escritura la formatea y la limpia, así que cada mensaje no crea
+ * objetos en el hilo que atiende la petición salvo el array de varargs con más de 3
+ * parámetros y el boxing de primitivos.
+ */
+final class LogEvent {
+    long timeMillis;
+    Level level;
+    String logger;
+    String thread;
+    String template;
+    int argCount;
+    Object a0;
+    Object a1;
+    Object a2;
+    Object[] args;
+
+    Object arg(int i) {
+        if (args != null) {
+            return args[i];
+        }
+        return i == 0 ? a0 : i == 1 ? a1 : a2;
+    }
+
+    void clear() {
+        level = null;
+        logger = null;
+        thread = null;
+        template = null;
+        a0 = null;
+        a1 = null;
+        a2 = null;
+        args = null;
+    }
+}
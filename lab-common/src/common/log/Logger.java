@@ -0,0 +1,177 @@
+package common.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Logger con mensajes parametrizados al estilo SLF4J: log.info("Enviados {} resultados", n).
+ * El nivel se comprueba antes de tocar el buffer y los {} se sustituyen en el hilo de
+ * escritura, así que los argumentos deben ser inmutables (String, números) o no cambiar
+ * después de registrarlos.
+ */
+public class Logger {
+    private final String name;
+    private final AsyncLogSink sink;
+    private final int sampleEvery;
+    private final AtomicLong sampleCounter;
+
+    Logger(String name, AsyncLogSink sink, int sampleEvery) {
+        this.name = name;
+        this.sink = sink;
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.sampleCounter = this.sampleEvery > 1 ? new AtomicLong() : null;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // Mismo logger pero emitiendo solo 1 de cada n mensajes habilitados (caminos calientes)
+    public Logger sampled(int n) {
+        return new Logger(name, sink, n);
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(Log.getLevel()) >= 0 && level != Level.OFF;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    private boolean shouldLog(Level level) {
+        if (!isEnabled(level)) {
+            return false;
+        }
+        return sampleCounter == null || sampleCounter.getAndIncrement() % sampleEvery == 0;
+    }
+
+    public void log(Level level, String message) {
+        if (shouldLog(level)) {
+            sink.publish(level, name, message, 0, null, null, null, null);
+        }
+    }
+
+    public void log(Level level, String template, Object arg) {
+        if (shouldLog(level)) {
+            sink.publish(level, name, template, 1, arg, null, null, null);
+        }
+    }
+
+    public void log(Level level, String template, Object arg1, Object arg2) {
+        if (shouldLog(level)) {
+            sink.publish(level, name, template, 2, arg1, arg2, null, null);
+        }
+    }
+
+    public void log(Level level, String template, Object arg1, Object arg2, Object arg3) {
+        if (shouldLog(level)) {
+            sink.publish(level, name, template, 3, arg1, arg2, arg3, null);
+        }
+    }
+
+    public void log(Level level, String template, Object... args) {
+        if (shouldLog(level)) {
+            sink.publish(level, name, template, args.length, null, null, null, args);
+        }
+    }
+
+    public void trace(String message) {
+        log(Level.TRACE, message);
+    }
+
+    public void trace(String template, Object arg) {
+        log(Level.TRACE, template, arg);
+    }
+
+    public void trace(String template, Object arg1, Object arg2) {
+        log(Level.TRACE, template, arg1, arg2);
+    }
+
+    public void trace(String template, Object arg1, Object arg2, Object arg3) {
+        log(Level.TRACE, template, arg1, arg2, arg3);
+    }
+
+    public void trace(String template, Object... args) {
+        log(Level.TRACE, template, args);
+    }
+
+    public void debug(String message) {
+        log(Level.DEBUG, message);
+    }
+
+    public void debug(String template, Object arg) {
+        log(Level.DEBUG, template, arg);
+    }
+
+    public void debug(String template, Object arg1, Object arg2) {
+        log(Level.DEBUG, template, arg1, arg2);
+    }
+
+    public void debug(String template, Object arg1, Object arg2, Object arg3) {
+        log(Level.DEBUG, template, arg1, arg2, arg3);
+    }
+
+    public void debug(String template, Object... args) {
+        log(Level.DEBUG, template, args);
+    }
+
+    public void info(String message) {
+        log(Level.INFO, message);
+    }
+
+    public void info(String template, Object arg) {
+        log(Level.INFO, template, arg);
+    }
+
+    public void info(String template, Object arg1, Object arg2) {
+        log(Level.INFO, template, arg1, arg2);
+    }
+
+    public void info(String template, Object arg1, Object arg2, Object arg3) {
+        log(Level.INFO, template, arg1, arg2, arg3);
+    }
+
+    public void info(String template, Object... args) {
+        log(Level.INFO, template, args);
+    }
+
+    public void warn(String message) {
+        log(Level.WARN, message);
+    }
+
+    public void warn(String template, Object arg) {
+        log(Level.WARN, template, arg);
+    }
+
+    public void warn(String template, Object arg1, Object arg2) {
+        log(Level.WARN, template, arg1, arg2);
+    }
+
+    public void warn(String template, Object arg1, Object arg2, Object arg3) {
+        log(Level.WARN, template, arg1, arg2, arg3);
+    }
+
+    public void warn(String template, Object... args) {
+        log(Level.WARN, template, args);
+    }
+
+    public void error(String message) {
+        log(Level.ERROR, message);
+    }
+
+    public void error(String template, Object arg) {
+        log(Level.ERROR, template, arg);
+    }
+
+    public void error(String template, Object arg1, Object arg2) {
+        log(Level.ERROR, template, arg1, arg2);
+    }
+
+    public void error(String template, Object arg1, Object arg2, Object arg3) {
+        log(Level.ERROR, template, arg1, arg2, arg3);
+    }
+
+    public void error(String template, Object... args) {
+        log(Level.ERROR, template, args);
+    }
+}
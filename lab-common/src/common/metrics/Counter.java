@@ -0,0 +1,23 @@
+package common.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Contador monótono; LongAdder reparte la contención entre celdas por hilo
+public class Counter {
+    private final LongAdder value = new LongAdder();
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        if (amount < 0) {
+            throw new IllegalArgumentException("Un contador no puede decrementarse: " + amount);
+        }
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,37 @@
+package common.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+/*
+ * Valor instantáneo: se actualiza con set/increment/decrement (p. ej. peticiones en curso)
+ * o se calcula al leerlo a partir de una función (p. ej. tamaño del catálogo).
+ */
+public class Gauge {
+    private final AtomicLong value = new AtomicLong();
+    private final DoubleSupplier supplier;
+
+    Gauge() {
+        this(null);
+    }
+
+    Gauge(DoubleSupplier supplier) {
+        this.supplier = supplier;
+    }
+
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    public void decrement() {
+        value.decrementAndGet();
+    }
+
+    public double get() {
+        return supplier != null ? supplier.getAsDouble() : value.get();
+    }
+}
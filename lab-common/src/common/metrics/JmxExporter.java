@@ -0,0 +1,101 @@
+package common.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import javax.management.*;
+
+/*
+ * Publica un MetricsRegistry como MBean dinámico de solo lectura
+ * (common.metrics:type=MetricsRegistry,name=<app>). Cada contador y gauge es un
+ * atributo; cada histograma aporta .count, .mean_ms, .p50_ms, .p99_ms y .max_ms.
+ * Los atributos se recalculan en cada consulta, así que aparecen las métricas nuevas.
+ */
+public class JmxExporter implements DynamicMBean {
+    private final MetricsRegistry registry;
+
+    public JmxExporter(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public static ObjectName register(MetricsRegistry registry, String app) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("common.metrics", new Hashtable<>(Map.of(
+            "type", "MetricsRegistry", "name", ObjectName.quote(app))));
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(new JmxExporter(registry), name);
+        return name;
+    }
+
+    Map<String, Number> snapshot() {
+        Map<String, Number> values = new TreeMap<>();
+        for (MetricsRegistry.Family family : registry.families()) {
+            for (Map.Entry<String, Object> entry : family.metrics().entrySet()) {
+                String key = family.name + entry.getKey().replace("\"", "");
+                Object metric = entry.getValue();
+                if (metric instanceof Counter) {
+                    values.put(key, ((Counter) metric).get());
+                } else if (metric instanceof Gauge) {
+                    values.put(key, ((Gauge) metric).get());
+                } else {
+                    LatencyHistogram histogram = (LatencyHistogram) metric;
+                    values.put(key + ".count", histogram.getTotalCount());
+                    values.put(key + ".mean_ms", histogram.getMean() / 1e6);
+                    values.put(key + ".p50_ms", histogram.getValueAtPercentile(50) / 1e6);
+                    values.put(key + ".p99_ms", histogram.getValueAtPercentile(99) / 1e6);
+                    values.put(key + ".max_ms", histogram.getMaxValue() / 1e6);
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        Number value = snapshot().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] attributes) {
+        Map<String, Number> values = snapshot();
+        AttributeList list = new AttributeList();
+        for (String attribute : attributes) {
+            Number value = values.get(attribute);
+            if (value != null) {
+                list.add(new Attribute(attribute, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Atributo de solo lectura: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> attributes = new ArrayList<>();
+        for (Map.Entry<String, Number> entry : snapshot().entrySet()) {
+            attributes.add(new MBeanAttributeInfo(entry.getKey(), entry.getValue().getClass().getName(),
+                entry.getKey(), true, false, false));
+        }
+        return new MBeanInfo(getClass().getName(), "Métricas del proceso",
+            attributes.toArray(new MBeanAttributeInfo[0]), null, null, null);
+    }
+}
@@ -0,0 +1,218 @@
+package common.metrics;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Histograma de latencias con buckets log-lineales al estilo HdrHistogram: precisión
+ * relativa fija (2 o 3 dígitos significativos) desde 1 hasta el valor máximo rastreable.
+ * El registro no usa locks (contadores atómicos), así que varios hilos pueden registrar
+ * a la vez mientras otro lee percentiles.
+ */
+public class LatencyHistogram {
+
+    private final long highestTrackableValue;
+    private final int subBucketHalfCountMagnitude;
+    private final int subBucketHalfCount;
+    private final long subBucketMask;
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalSum = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong(0);
+    private final AtomicLong minValue = new AtomicLong(Long.MAX_VALUE);
+
+    public LatencyHistogram(long highestTrackableValue, int significantDigits) {
+        if (significantDigits < 1 || significantDigits > 4) {
+            throw new IllegalArgumentException("Dígitos significativos deben estar entre 1 y 4");
+        }
+        if (highestTrackableValue < 2) {
+            throw new IllegalArgumentException("Valor máximo rastreable debe ser >= 2");
+        }
+        this.highestTrackableValue = highestTrackableValue;
+
+        long largestSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+        int subBucketCountMagnitude = (int) Math.ceil(Math.log(largestSingleUnitResolution) / Math.log(2));
+        this.subBucketHalfCountMagnitude = Math.max(subBucketCountMagnitude, 1) - 1;
+        int subBucketCount = 1 << (subBucketHalfCountMagnitude + 1);
+        this.subBucketHalfCount = subBucketCount / 2;
+        this.subBucketMask = subBucketCount - 1;
+
+        long smallestUntrackable = subBucketCount;
+        int bucketCount = 1;
+        while (smallestUntrackable <= highestTrackableValue) {
+            if (smallestUntrackable > Long.MAX_VALUE / 2) {
+                bucketCount++;
+                break;
+            }
+            smallestUntrackable <<= 1;
+            bucketCount++;
+        }
+        this.counts = new AtomicLongArray((bucketCount + 1) * subBucketHalfCount);
+    }
+
+    // Latencias en nanosegundos hasta 1 hora con 3 dígitos significativos
+    public static LatencyHistogram forNanos() {
+        return new LatencyHistogram(3_600_000_000_000L, 3);
+    }
+
+    public void recordValue(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Valor negativo: " + value);
+        }
+        long clamped = Math.min(value, highestTrackableValue);
+        counts.incrementAndGet(countsIndex(clamped));
+        totalCount.incrementAndGet();
+        totalSum.addAndGet(clamped);
+        maxValue.accumulateAndGet(clamped, Math::max);
+        minValue.accumulateAndGet(clamped, Math::min);
+    }
+
+    /*
+     * Corrección de omisión coordinada para lazos cerrados: si una respuesta tardó más que
+     * el intervalo esperado entre peticiones, se registran también las peticiones que el
+     * cliente no llegó a enviar mientras esperaba (value - k * interval).
+     */
+    public void recordValueWithExpectedInterval(long value, long expectedInterval) {
+        recordValue(value);
+        if (expectedInterval <= 0) {
+            return;
+        }
+        for (long missing = value - expectedInterval; missing >= expectedInterval; missing -= expectedInterval) {
+            recordValue(missing);
+        }
+    }
+
+    public void add(LatencyHistogram other) {
+        if (other.counts.length() != counts.length() || other.subBucketHalfCountMagnitude != subBucketHalfCountMagnitude) {
+            throw new IllegalArgumentException("Histogramas con configuración distinta");
+        }
+        for (int i = 0; i < other.counts.length(); i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        totalSum.addAndGet(other.totalSum.get());
+        maxValue.accumulateAndGet(other.maxValue.get(), Math::max);
+        minValue.accumulateAndGet(other.minValue.get(), Math::min);
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalSum.set(0);
+        maxValue.set(0);
+        minValue.set(Long.MAX_VALUE);
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxValue() {
+        return maxValue.get();
+    }
+
+    public long getMinValue() {
+        return totalCount.get() == 0 ? 0 : minValue.get();
+    }
+
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalSum.get() / count;
+    }
+
+    public long getValueAtPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        double p = Math.min(Math.max(percentile, 0), 100);
+        long target = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(valueFromIndex(i)), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+
+    // Formato de texto .hgrm (Value, Percentile, TotalCount, 1/(1-Percentile))
+    public void outputPercentileDistribution(PrintStream out, double outputValueUnitScaling) {
+        out.println(String.format(Locale.ROOT, "%12s %14s %10s %14s%n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)"));
+        long count = totalCount.get();
+        if (count == 0) {
+            return;
+        }
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long c = counts.get(i);
+            if (c == 0) {
+                continue;
+            }
+            seen += c;
+            double percentile = (double) seen / count;
+            double value = highestEquivalentValue(valueFromIndex(i)) / outputValueUnitScaling;
+            if (percentile < 1.0) {
+                out.println(String.format(Locale.ROOT, "%12.3f %2.12f %10d %14.2f", value, percentile, seen, 1 / (1 - percentile)));
+            } else {
+                out.println(String.format(Locale.ROOT, "%12.3f %2.12f %10d", value, percentile, seen));
+            }
+        }
+        out.println(String.format(Locale.ROOT, "#[Mean    = %12.3f, StdDeviation   = %12.3f]", getMean() / outputValueUnitScaling, getStdDeviation() / outputValueUnitScaling));
+        out.println(String.format(Locale.ROOT, "#[Max     = %12.3f, Total count    = %12d]", getMaxValue() / outputValueUnitScaling, count));
+    }
+
+    public double getStdDeviation() {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        double mean = getMean();
+        double squares = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long c = counts.get(i);
+            if (c != 0) {
+                double dev = medianEquivalentValue(valueFromIndex(i)) - mean;
+                squares += dev * dev * c;
+            }
+        }
+        return Math.sqrt(squares / count);
+    }
+
+    private int countsIndex(long value) {
+        int bucketIndex = 64 - Long.numberOfLeadingZeros(value | subBucketMask) - (subBucketHalfCountMagnitude + 1);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << subBucketHalfCountMagnitude) + (subBucketIndex - subBucketHalfCount);
+    }
+
+    private long valueFromIndex(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return (long) subBucketIndex << bucketIndex;
+    }
+
+    private long sizeOfEquivalentValueRange(long value) {
+        int bucketIndex = 64 - Long.numberOfLeadingZeros(value | subBucketMask) - (subBucketHalfCountMagnitude + 1);
+        return 1L << bucketIndex;
+    }
+
+    private long highestEquivalentValue(long value) {
+        return value + sizeOfEquivalentValueRange(value) - 1;
+    }
+
+    private long medianEquivalentValue(long value) {
+        return value + (sizeOfEquivalentValueRange(value) >> 1);
+    }
+}
@@ -0,0 +1,92 @@
+package common.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import common.log.Log;
+import common.log.Logger;
+
+/*
+ * Endpoint HTTP local (127.0.0.1) con las métricas en formato Prometheus en /metrics.
+ * Un solo hilo daemon atiende las peticiones para no competir con el servidor medido.
+ */
+public class MetricsHttpServer {
+    private static final Logger LOG = Log.getLogger("Metrics");
+
+    private final MetricsRegistry registry;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public MetricsHttpServer(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /*
+     * Registra las métricas de la JVM, publica el registro por defecto en JMX y, si
+     * httpPort >= 0, arranca el endpoint Prometheus (0 = puerto libre). Un fallo aquí no
+     * debe impedir que arranque el servidor, así que solo se avisa por consola.
+     */
+    public static MetricsHttpServer expose(String app, int httpPort) {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        registry.registerJvmGauges();
+        try {
+            JmxExporter.register(registry, app);
+        } catch (Exception e) {
+            LOG.warn("No se pudo registrar el MBean: {}", e.getMessage());
+        }
+        if (httpPort < 0) {
+            return null;
+        }
+        MetricsHttpServer server = new MetricsHttpServer(registry);
+        try {
+            int port = server.start(httpPort);
+            LOG.info("Prometheus en http://127.0.0.1:{}/metrics", port);
+            return server;
+        } catch (IOException e) {
+            LOG.warn("No se pudo abrir el puerto {}: {}", httpPort, e.getMessage());
+            return null;
+        }
+    }
+
+    public int start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 16);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "metrics-http");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = PrometheusFormat.write(registry).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", PrometheusFormat.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
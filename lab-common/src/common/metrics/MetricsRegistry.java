@@ -0,0 +1,139 @@
+package common.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/*
+ * Registro de métricas del proceso: contadores, gauges e histogramas de latencia
+ * (LatencyHistogram, sin locks). Cada métrica pertenece a una familia (nombre, ayuda y
+ * tipo) y se distingue por sus etiquetas, p. ej. music_requests_total{action="GET_ALL"}.
+ * Obtener una métrica ya creada es una lectura de ConcurrentHashMap; en caminos muy
+ * calientes conviene guardarla en un campo.
+ */
+public class MetricsRegistry {
+    // Latencias hasta 60 s con 2 dígitos significativos (~30 KB por histograma)
+    private static final long HISTOGRAM_MAX_NANOS = 60_000_000_000L;
+    private static final int HISTOGRAM_DIGITS = 2;
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    public enum Type { COUNTER, GAUGE, SUMMARY }
+
+    public static class Family {
+        public final String name;
+        public final String help;
+        public final Type type;
+        private final ConcurrentMap<String, Object> metrics = new ConcurrentHashMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        // Etiquetas ya formateadas ({a="x",b="y"} o "") -> métrica
+        public Map<String, Object> metrics() {
+            return new TreeMap<>(metrics);
+        }
+    }
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) metric(name, help, Type.COUNTER, labels, null);
+    }
+
+    public Gauge gauge(String name, String help, String... labels) {
+        return (Gauge) metric(name, help, Type.GAUGE, labels, null);
+    }
+
+    // Gauge calculado al leerlo; si ya existía se conserva la función original
+    public Gauge gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        return (Gauge) metric(name, help, Type.GAUGE, labels, supplier);
+    }
+
+    // Histograma de duraciones en nanosegundos; se exporta como summary en segundos
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) metric(name, help, Type.SUMMARY, labels, null);
+    }
+
+    public Collection<Family> families() {
+        return Collections.unmodifiableCollection(families.values());
+    }
+
+    public void registerJvmGauges() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        gauge("jvm_memory_heap_used_bytes", "Memoria heap usada",
+            () -> memory.getHeapMemoryUsage().getUsed());
+        gauge("jvm_threads_live", "Hilos vivos de la JVM",
+            () -> ManagementFactory.getThreadMXBean().getThreadCount());
+        gauge("process_uptime_seconds", "Tiempo desde el arranque de la JVM",
+            () -> ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0);
+    }
+
+    private Object metric(String name, String help, Type type, String[] labels, DoubleSupplier supplier) {
+        Family family = families.get(name);
+        if (family == null) {
+            family = families.computeIfAbsent(name, n -> new Family(n, help, type));
+        }
+        if (family.type != type) {
+            throw new IllegalArgumentException("La métrica " + name + " ya está registrada como " + family.type);
+        }
+        String key = formatLabels(labels);
+        Object metric = family.metrics.get(key);
+        if (metric == null) {
+            metric = family.metrics.computeIfAbsent(key, k -> create(type, supplier));
+        }
+        return metric;
+    }
+
+    private static Object create(Type type, DoubleSupplier supplier) {
+        switch (type) {
+            case COUNTER:
+                return new Counter();
+            case GAUGE:
+                return new Gauge(supplier);
+            default:
+                return new LatencyHistogram(HISTOGRAM_MAX_NANOS, HISTOGRAM_DIGITS);
+        }
+    }
+
+    // Pares nombre, valor -> {nombre="valor",...} con los valores escapados para Prometheus
+    static String formatLabels(String[] labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Las etiquetas deben ser pares nombre, valor");
+        }
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"");
+            String value = labels[i + 1] == null ? "" : labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    sb.append('\\').append(c);
+                } else if (c == '\n') {
+                    sb.append("\\n");
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+        return sb.append('}').toString();
+    }
+}
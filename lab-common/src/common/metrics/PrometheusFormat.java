@@ -0,0 +1,50 @@
+package common.metrics;
+
+import java.util.Locale;
+import java.util.Map;
+
+// Formato de texto de exposición de Prometheus (versión 0.0.4)
+public class PrometheusFormat {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    public static String write(MetricsRegistry registry) {
+        StringBuilder out = new StringBuilder();
+        for (MetricsRegistry.Family family : registry.families()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help.replace("\n", " ")).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.name().toLowerCase(Locale.ROOT)).append('\n');
+            for (Map.Entry<String, Object> entry : family.metrics().entrySet()) {
+                String labels = entry.getKey();
+                Object metric = entry.getValue();
+                if (metric instanceof Counter) {
+                    sample(out, family.name, labels, ((Counter) metric).get());
+                } else if (metric instanceof Gauge) {
+                    sample(out, family.name, labels, ((Gauge) metric).get());
+                } else {
+                    LatencyHistogram histogram = (LatencyHistogram) metric;
+                    long count = histogram.getTotalCount();
+                    for (double q : QUANTILES) {
+                        String quantile = "quantile=\"" + q + "\"";
+                        String merged = labels.isEmpty() ? "{" + quantile + "}"
+                            : labels.substring(0, labels.length() - 1) + "," + quantile + "}";
+                        sample(out, family.name, merged, histogram.getValueAtPercentile(q * 100) / 1e9);
+                    }
+                    sample(out, family.name + "_sum", labels, histogram.getMean() * count / 1e9);
+                    sample(out, family.name + "_count", labels, count);
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append(labels).append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+}
@@ -0,0 +1,242 @@
+package common.results;
+
+import common.json.JsonReader;
+import common.json.JsonWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Resultados de benchmark en formato estructurado (esquema en lab-common/schema/
+ * benchmark-results.schema.json). Guarda los tiempos crudos de cada iteración, la latencia
+ * de cada trabajo, la información del sistema y la configuración, para que las gráficas y
+ * el seguimiento de regresiones no dependan de parsear los reportes de texto.
+ */
+public class BenchmarkResults {
+
+    public static final String SCHEMA = "lab-benchmark-results/v1";
+
+    private final String tool;
+    private final String timestamp;
+    private final Map<String, String> system;
+    private final Map<String, String> config = new LinkedHashMap<>();
+    private final List<ThreadRun> runs = new ArrayList<>();
+
+    public BenchmarkResults(String tool) {
+        this(tool, LocalDateTime.now().withNano(0).toString(), captureSystemInfo());
+    }
+
+    // Para reconstruir resultados de otra fuente (JSON o reportes de texto antiguos)
+    public BenchmarkResults(String tool, String timestamp, Map<String, String> system) {
+        this.tool = tool;
+        this.timestamp = timestamp;
+        this.system = system;
+    }
+
+    public static Map<String, String> captureSystemInfo() {
+        Runtime runtime = Runtime.getRuntime();
+        Map<String, String> info = new LinkedHashMap<>();
+        info.put("javaVersion", System.getProperty("java.version"));
+        info.put("osName", System.getProperty("os.name"));
+        info.put("osVersion", System.getProperty("os.version"));
+        info.put("osArch", System.getProperty("os.arch"));
+        info.put("availableProcessors", String.valueOf(runtime.availableProcessors()));
+        info.put("maxMemoryMb", String.valueOf(runtime.maxMemory() / (1024 * 1024)));
+        info.put("totalMemoryMb", String.valueOf(runtime.totalMemory() / (1024 * 1024)));
+        return info;
+    }
+
+    public BenchmarkResults putConfig(String key, Object value) {
+        config.put(key, String.valueOf(value));
+        return this;
+    }
+
+    public void addRun(ThreadRun run) {
+        runs.add(run);
+    }
+
+    public String getTool() {
+        return tool;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public Map<String, String> getSystem() {
+        return Collections.unmodifiableMap(system);
+    }
+
+    public Map<String, String> getConfig() {
+        return Collections.unmodifiableMap(config);
+    }
+
+    public List<ThreadRun> getRuns() {
+        return Collections.unmodifiableList(runs);
+    }
+
+    public ThreadRun getRun(int threads) {
+        for (ThreadRun run : runs) {
+            if (run.getThreads() == threads) {
+                return run;
+            }
+        }
+        return null;
+    }
+
+    // Speedup respecto a la ejecución con 1 hilo (o la primera registrada)
+    public double speedup(ThreadRun run) {
+        ThreadRun baseline = getRun(1) != null ? getRun(1) : runs.get(0);
+        double time = run.meanWallTimeMs();
+        return time > 0 ? baseline.meanWallTimeMs() / time : 0;
+    }
+
+    public double efficiency(ThreadRun run) {
+        return speedup(run) / run.getThreads();
+    }
+
+    public ThreadRun fastestRun() {
+        ThreadRun fastest = null;
+        for (ThreadRun run : runs) {
+            if (run.meanWallTimeMs() > 0 && (fastest == null || run.meanWallTimeMs() < fastest.meanWallTimeMs())) {
+                fastest = run;
+            }
+        }
+        return fastest;
+    }
+
+    public String toJson() {
+        JsonWriter json = new JsonWriter().beginObject()
+            .field("schema", SCHEMA)
+            .field("tool", tool)
+            .field("timestamp", timestamp)
+            .stringMap("system", system)
+            .stringMap("config", config);
+        json.name("runs").beginArray();
+        for (ThreadRun run : runs) {
+            json.beginObject()
+                .field("threads", run.getThreads())
+                .field("workItems", run.getWorkItems());
+            json.name("iterations").beginArray();
+            for (IterationResult it : run.getIterations()) {
+                json.beginObject()
+                    .field("index", it.getIndex())
+                    .field("discarded", it.isDiscarded())
+                    .field("wallTimeMs", it.getWallTimeMs())
+                    .field("succeeded", it.getSucceeded())
+                    .field("failed", it.getFailed());
+                json.name("jobLatenciesMs").beginArray();
+                for (long latency : it.getJobLatenciesMs()) {
+                    json.value(latency);
+                }
+                json.endArray().endObject();
+            }
+            json.endArray().endObject();
+        }
+        json.endArray().endObject();
+        return json.toString();
+    }
+
+    public void writeJson(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.writeString(file, toJson() + "\n", StandardCharsets.UTF_8);
+    }
+
+    /*
+     * De una lista de reportes (.txt y .json) deja un archivo por ejecución, prefiriendo
+     * el .json cuando existen ambos. Los .txt que quedan son ejecuciones antiguas.
+     */
+    public static List<Path> preferStructured(List<Path> files) {
+        Map<String, Path> byBaseName = new TreeMap<>();
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            int dot = name.lastIndexOf('.');
+            String baseName = dot > 0 ? name.substring(0, dot) : name;
+            Path current = byBaseName.get(baseName);
+            if (current == null || name.endsWith(".json")) {
+                byBaseName.put(baseName, file);
+            }
+        }
+        return new ArrayList<>(byBaseName.values());
+    }
+
+    public static BenchmarkResults load(Path file) throws IOException {
+        return fromJson(Files.readString(file, StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static BenchmarkResults fromJson(String text) {
+        Map<String, Object> root = JsonReader.parseObject(text);
+        Object schema = root.get("schema");
+        if (!SCHEMA.equals(schema)) {
+            throw new IllegalArgumentException("Esquema no soportado: " + schema + " (se esperaba " + SCHEMA + ")");
+        }
+
+        BenchmarkResults results = new BenchmarkResults(
+            requireString(root, "tool"),
+            requireString(root, "timestamp"),
+            toStringMap((Map<String, Object>) root.get("system")));
+        results.config.putAll(toStringMap((Map<String, Object>) root.get("config")));
+
+        for (Object runObject : requireList(root, "runs")) {
+            Map<String, Object> runMap = (Map<String, Object>) runObject;
+            ThreadRun run = new ThreadRun(requireInt(runMap, "threads"), requireInt(runMap, "workItems"));
+            for (Object itObject : requireList(runMap, "iterations")) {
+                Map<String, Object> it = (Map<String, Object>) itObject;
+                List<Long> latencies = new ArrayList<>();
+                for (Object latency : requireList(it, "jobLatenciesMs")) {
+                    latencies.add(((Number) latency).longValue());
+                }
+                run.addIteration(new IterationResult(
+                    requireInt(it, "index"),
+                    Boolean.TRUE.equals(it.get("discarded")),
+                    ((Number) require(it, "wallTimeMs")).longValue(),
+                    requireInt(it, "succeeded"),
+                    requireInt(it, "failed"),
+                    latencies));
+            }
+            results.addRun(run);
+        }
+        return results;
+    }
+
+    private static Object require(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        if (value == null) {
+            throw new IllegalArgumentException("Campo obligatorio ausente: " + key);
+        }
+        return value;
+    }
+
+    private static String requireString(Map<String, Object> map, String key) {
+        return String.valueOf(require(map, key));
+    }
+
+    private static int requireInt(Map<String, Object> map, String key) {
+        return ((Number) require(map, key)).intValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> requireList(Map<String, Object> map, String key) {
+        return (List<Object>) require(map, key);
+    }
+
+    private static Map<String, String> toStringMap(Map<String, Object> map) {
+        Map<String, String> result = new LinkedHashMap<>();
+        if (map != null) {
+            map.forEach((key, value) -> result.put(key, value instanceof Double && (Double) value == Math.rint((Double) value)
+                ? String.valueOf(((Double) value).longValue()) : String.valueOf(value)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,49 @@
+package common.results;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Una ejecución completa del lote de trabajos con una configuración de hilos
+public class IterationResult {
+
+    private final int index;
+    private final boolean discarded;
+    private final long wallTimeMs;
+    private final int succeeded;
+    private final int failed;
+    private final List<Long> jobLatenciesMs;
+
+    public IterationResult(int index, boolean discarded, long wallTimeMs, int succeeded, int failed, List<Long> jobLatenciesMs) {
+        this.index = index;
+        this.discarded = discarded;
+        this.wallTimeMs = wallTimeMs;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.jobLatenciesMs = new ArrayList<>(jobLatenciesMs);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isDiscarded() {
+        return discarded;
+    }
+
+    public long getWallTimeMs() {
+        return wallTimeMs;
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<Long> getJobLatenciesMs() {
+        return Collections.unmodifiableList(jobLatenciesMs);
+    }
+}
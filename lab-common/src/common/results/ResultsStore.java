@@ -0,0 +1,126 @@
+package common.results;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/*
+ * Almacén local de ejecuciones de benchmark. Cada ejecución se guarda como
+ * runs/<herramienta>_<fecha>.json (mismo esquema que BenchmarkResults) y la línea base
+ * de cada herramienta en baselines.properties. Las escrituras van a un archivo temporal
+ * y se renombran, así un proceso interrumpido no deja el almacén a medias.
+ */
+public class ResultsStore {
+
+    private static final String RUNS_DIR = "runs";
+    private static final String BASELINES_FILE = "baselines.properties";
+
+    private final Path runsDir;
+    private final Path baselinesFile;
+
+    public ResultsStore(Path directory) throws IOException {
+        this.runsDir = directory.resolve(RUNS_DIR);
+        this.baselinesFile = directory.resolve(BASELINES_FILE);
+        Files.createDirectories(runsDir);
+    }
+
+    public String add(BenchmarkResults results) throws IOException {
+        String existing = find(results.getTool(), results.getTimestamp());
+        if (existing != null) {
+            return existing;
+        }
+        String baseId = slug(results.getTool()) + "_" + results.getTimestamp().replaceAll("[^0-9]", "");
+        String id = baseId;
+        for (int n = 2; Files.exists(runFile(id)); n++) {
+            id = baseId + "_" + n;
+        }
+        writeAtomically(runFile(id), results.toJson() + "\n");
+        return id;
+    }
+
+    // Ejecución ya guardada con la misma herramienta y fecha, o null
+    public String find(String tool, String timestamp) throws IOException {
+        for (String id : list(tool)) {
+            if (load(id).getTimestamp().equals(timestamp)) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    public BenchmarkResults load(String id) throws IOException {
+        Path file = runFile(id);
+        if (!Files.exists(file)) {
+            throw new IOException("No existe la ejecución " + id);
+        }
+        return BenchmarkResults.load(file);
+    }
+
+    // Identificadores de la herramienta en orden cronológico
+    public List<String> list(String tool) throws IOException {
+        String prefix = slug(tool) + "_";
+        List<String> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(runsDir)) {
+            files.map(path -> path.getFileName().toString())
+                .filter(name -> name.startsWith(prefix) && name.endsWith(".json"))
+                .map(name -> name.substring(0, name.length() - ".json".length()))
+                .sorted()
+                .forEach(ids::add);
+        }
+        return ids;
+    }
+
+    public String latest(String tool) throws IOException {
+        List<String> ids = list(tool);
+        return ids.isEmpty() ? null : ids.get(ids.size() - 1);
+    }
+
+    public String getBaseline(String tool) throws IOException {
+        return loadBaselines().getProperty(slug(tool));
+    }
+
+    public void setBaseline(String tool, String id) throws IOException {
+        if (!Files.exists(runFile(id))) {
+            throw new IOException("No existe la ejecución " + id);
+        }
+        Properties baselines = loadBaselines();
+        baselines.setProperty(slug(tool), id);
+        Path tmp = baselinesFile.resolveSibling(BASELINES_FILE + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            baselines.store(out, "Línea base por herramienta");
+        }
+        Files.move(tmp, baselinesFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Properties loadBaselines() throws IOException {
+        Properties baselines = new Properties();
+        if (Files.exists(baselinesFile)) {
+            try (InputStream in = Files.newInputStream(baselinesFile)) {
+                baselines.load(in);
+            }
+        }
+        return baselines;
+    }
+
+    private Path runFile(String id) {
+        return runsDir.resolve(id + ".json");
+    }
+
+    private static void writeAtomically(Path file, String content) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, content, StandardCharsets.UTF_8);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String slug(String tool) {
+        return tool.toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+    }
+}
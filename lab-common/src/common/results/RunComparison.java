@@ -0,0 +1,128 @@
+package common.results;
+
+import common.bench.SampleStatistics;
+import common.bench.SignificanceTest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * Compara una ejecución contra la línea base, número de hilos por número de hilos.
+ * Un cambio cuenta como regresión cuando el tiempo medio (sin outliers) empeora más que
+ * el umbral relativo y la diferencia es significativa (t de Welch, p < alfa). Si la
+ * línea base tiene una sola medición se usa la t de una muestra contra su valor, y si
+ * ninguna de las dos tiene repeticiones solo se puede aplicar el umbral.
+ */
+public class RunComparison {
+
+    public static class ThreadComparison {
+        public final int threads;
+        public final SampleStatistics baseline;
+        public final SampleStatistics candidate;
+        public final double relativeChange;
+        public final double pValue;
+        public final double mannWhitneyP;
+        public final String test;
+        public final boolean regression;
+        public final boolean improvement;
+
+        ThreadComparison(int threads, SampleStatistics baseline, SampleStatistics candidate,
+                         double alpha, double threshold) {
+            this.threads = threads;
+            this.baseline = baseline;
+            this.candidate = candidate;
+            this.relativeChange = (candidate.mean() - baseline.mean()) / baseline.mean();
+
+            if (baseline.count() >= 2 && candidate.count() >= 2) {
+                this.pValue = SignificanceTest.welchTTest(baseline, candidate);
+                this.test = "welch";
+            } else if (candidate.count() >= 2) {
+                this.pValue = SignificanceTest.oneSampleTTest(candidate, baseline.mean());
+                this.test = "t-1muestra";
+            } else if (baseline.count() >= 2) {
+                this.pValue = SignificanceTest.oneSampleTTest(baseline, candidate.mean());
+                this.test = "t-1muestra";
+            } else {
+                this.pValue = Double.NaN;
+                this.test = "umbral";
+            }
+            // Con menos de 3 mediciones por lado la prueba de rangos no puede dar p < 0.05
+            this.mannWhitneyP = baseline.count() >= 3 && candidate.count() >= 3
+                ? SignificanceTest.mannWhitneyU(baseline.values(), candidate.values())
+                : Double.NaN;
+
+            boolean significant = Double.isNaN(pValue) || pValue < alpha;
+            this.regression = significant && relativeChange > threshold;
+            this.improvement = significant && relativeChange < -threshold;
+        }
+    }
+
+    private final String baselineLabel;
+    private final String candidateLabel;
+    private final double alpha;
+    private final double threshold;
+    private final List<ThreadComparison> comparisons = new ArrayList<>();
+
+    private RunComparison(String baselineLabel, String candidateLabel, double alpha, double threshold) {
+        this.baselineLabel = baselineLabel;
+        this.candidateLabel = candidateLabel;
+        this.alpha = alpha;
+        this.threshold = threshold;
+    }
+
+    public static RunComparison compare(String baselineLabel, BenchmarkResults baseline,
+                                        String candidateLabel, BenchmarkResults candidate,
+                                        double alpha, double threshold) {
+        RunComparison comparison = new RunComparison(baselineLabel, candidateLabel, alpha, threshold);
+        for (ThreadRun candidateRun : candidate.getRuns()) {
+            ThreadRun baselineRun = baseline.getRun(candidateRun.getThreads());
+            if (baselineRun == null) {
+                continue;
+            }
+            SampleStatistics before = baselineRun.statistics().withoutOutliers();
+            SampleStatistics after = candidateRun.statistics().withoutOutliers();
+            if (before.count() == 0 || after.count() == 0 || before.mean() == 0) {
+                continue;
+            }
+            comparison.comparisons.add(new ThreadComparison(candidateRun.getThreads(), before, after, alpha, threshold));
+        }
+        return comparison;
+    }
+
+    public List<ThreadComparison> getComparisons() {
+        return Collections.unmodifiableList(comparisons);
+    }
+
+    public boolean hasRegressions() {
+        for (ThreadComparison c : comparisons) {
+            if (c.regression) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public String formatReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Línea base: ").append(baselineLabel).append("\n");
+        sb.append("Ejecución:  ").append(candidateLabel).append("\n");
+        sb.append(String.format(Locale.ROOT, "Criterio: cambio > %.1f%% con p < %.3f%n%n", threshold * 100, alpha));
+        sb.append(String.format("%-6s %-12s %-12s %-9s %-11s %-9s %-9s %s%n",
+            "Hilos", "Base (ms)", "Nueva (ms)", "Cambio", "Prueba", "p", "p (MW)", "Resultado"));
+        for (ThreadComparison c : comparisons) {
+            String verdict = c.regression ? "REGRESIÓN" : c.improvement ? "mejora" : "sin cambio";
+            String change = String.format(Locale.ROOT, "%+.1f%%", c.relativeChange * 100);
+            sb.append(String.format(Locale.ROOT, "%-6d %-12.0f %-12.0f %-9s %-11s %-9s %-9s %s%n",
+                c.threads, c.baseline.mean(), c.candidate.mean(), change, c.test,
+                formatP(c.pValue), formatP(c.mannWhitneyP), verdict));
+        }
+        long regressions = comparisons.stream().filter(c -> c.regression).count();
+        sb.append("\n").append(regressions == 0 ? "Sin regresiones" : regressions + " configuración(es) con regresión").append("\n");
+        return sb.toString();
+    }
+
+    private static String formatP(double p) {
+        return Double.isNaN(p) ? "-" : String.format(Locale.ROOT, "%.4f", p);
+    }
+}
@@ -0,0 +1,76 @@
+package common.results;
+
+import common.bench.SampleStatistics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Todas las iteraciones medidas para un número de hilos
+public class ThreadRun {
+
+    private final int threads;
+    private final int workItems;
+    private final List<IterationResult> iterations = new ArrayList<>();
+
+    public ThreadRun(int threads, int workItems) {
+        this.threads = threads;
+        this.workItems = workItems;
+    }
+
+    public void addIteration(IterationResult iteration) {
+        iterations.add(iteration);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getWorkItems() {
+        return workItems;
+    }
+
+    public List<IterationResult> getIterations() {
+        return Collections.unmodifiableList(iterations);
+    }
+
+    public List<Long> validWallTimesMs() {
+        List<Long> times = new ArrayList<>();
+        for (IterationResult iteration : iterations) {
+            if (!iteration.isDiscarded()) {
+                times.add(iteration.getWallTimeMs());
+            }
+        }
+        return times;
+    }
+
+    public double meanWallTimeMs() {
+        List<Long> times = validWallTimesMs();
+        if (times.isEmpty()) {
+            return 0;
+        }
+        double sum = 0;
+        for (long t : times) {
+            sum += t;
+        }
+        return sum / times.size();
+    }
+
+    public double medianWallTimeMs() {
+        List<Long> times = validWallTimesMs();
+        if (times.isEmpty()) {
+            return 0;
+        }
+        Collections.sort(times);
+        int mid = times.size() / 2;
+        return times.size() % 2 == 1 ? times.get(mid) : (times.get(mid - 1) + times.get(mid)) / 2.0;
+    }
+
+    public SampleStatistics statistics() {
+        return SampleStatistics.of(validWallTimesMs());
+    }
+
+    public double throughputPerSecond() {
+        double mean = meanWallTimeMs();
+        return mean > 0 ? workItems * 1000.0 / mean : 0;
+    }
+}
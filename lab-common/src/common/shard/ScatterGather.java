@@ -0,0 +1,106 @@
+package common.shard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import common.deadline.Deadline;
+
+/*
+ * Envía la misma consulta a todos los shards en paralelo y junta las respuestas en orden de
+ * shard. Los shards que fallan o no contestan antes del timeout quedan fuera del resultado
+ * (resultado parcial) en lugar de hacer fallar la consulta entera; decidir si un resultado
+ * parcial es aceptable es cosa del llamador. Con un Deadline en el hilo se espera como mucho
+ * hasta él aunque el timeout sea mayor.
+ */
+public class ScatterGather implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface ShardCall<T> {
+        List<T> call(int shard) throws Exception;
+    }
+
+    public static final String TIMEOUT = "timeout";
+
+    private final int shards;
+    private final long timeoutMs;
+    private final ExecutorService executor;
+
+    public ScatterGather(int shards, long timeoutMs) {
+        this.shards = shards;
+        this.timeoutMs = timeoutMs;
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "scatter-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public <T> Result<T> execute(ShardCall<T> call) throws InterruptedException {
+        List<Callable<List<T>>> tasks = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            final int shard = i;
+            tasks.add(() -> call.call(shard));
+        }
+        // invokeAll cancela las tareas que siguen en curso al vencer el timeout
+        List<Future<List<T>>> futures = executor.invokeAll(tasks, Deadline.bound(timeoutMs), TimeUnit.MILLISECONDS);
+
+        List<T> items = new ArrayList<>();
+        Map<Integer, String> failures = new TreeMap<>();
+        for (int i = 0; i < shards; i++) {
+            try {
+                items.addAll(futures.get(i).get());
+            } catch (CancellationException e) {
+                failures.put(i, TIMEOUT);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                failures.put(i, cause.getMessage() != null ? cause.getMessage() : cause.toString());
+            }
+        }
+        return new Result<>(items, failures, shards);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public static final class Result<T> {
+        public final List<T> items;
+        // shard -> motivo ("timeout" o el mensaje del error)
+        public final Map<Integer, String> failures;
+        public final int shards;
+
+        Result(List<T> items, Map<Integer, String> failures, int shards) {
+            this.items = items;
+            this.failures = Collections.unmodifiableMap(failures);
+            this.shards = shards;
+        }
+
+        public boolean isPartial() {
+            return !failures.isEmpty();
+        }
+
+        public int answered() {
+            return shards - failures.size();
+        }
+    }
+}
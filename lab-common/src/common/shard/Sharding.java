@@ -0,0 +1,36 @@
+package common.shard;
+
+/*
+ * Reparto del catálogo entre shards por hash de una clave (título o autor). String.hashCode
+ * está fijado por la especificación, así que todos los procesos calculan el mismo reparto;
+ * el mezclado final evita que claves parecidas ("Love Road 1", "Love Road 2") caigan juntas.
+ */
+public final class Sharding {
+
+    private Sharding() {
+    }
+
+    public static int shardOf(String key, int shards) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, shards);
+    }
+
+    // "2/4" -> {2, 4}
+    public static int[] parseShard(String spec) {
+        int slash = spec.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Shard inválido: " + spec + " (use índice/total, p. ej. 0/4)");
+        }
+        int shard = Integer.parseInt(spec.substring(0, slash).trim());
+        int shards = Integer.parseInt(spec.substring(slash + 1).trim());
+        if (shards < 1 || shard < 0 || shard >= shards) {
+            throw new IllegalArgumentException("Shard fuera de rango: " + spec);
+        }
+        return new int[] {shard, shards};
+    }
+}
@@ -0,0 +1,78 @@
+package common.trace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Una etapa medida de una petición. Se abre con Tracer.startSpan, queda como span actual
+ * del hilo hasta close() y, si la traza está muestreada, se exporta al cerrarse.
+ * Los spans de trazas no muestreadas solo llevan el contexto para propagarlo, y con el
+ * trazado desactivado ni eso (context == null).
+ */
+public final class Span implements AutoCloseable {
+    final String name;
+    final TraceContext context;
+    final String parentSpanId;
+    final String kind;
+    final long startEpochMicros;
+    final long startNanos;
+    final Span previous;
+    long durationMicros;
+    Map<String, String> tags;
+    private boolean ended;
+
+    Span(String name, TraceContext context, String parentSpanId, String kind, long startNanos, Span previous) {
+        this.name = name;
+        this.context = context;
+        this.parentSpanId = parentSpanId;
+        this.kind = kind;
+        this.startNanos = startNanos;
+        this.startEpochMicros = context == null || !context.sampled ? 0
+            : System.currentTimeMillis() * 1000 - (System.nanoTime() - startNanos) / 1000;
+        this.previous = previous;
+    }
+
+    public TraceContext context() {
+        return context;
+    }
+
+    public boolean isRecording() {
+        return context != null && context.sampled;
+    }
+
+    // traceparent para enviar al siguiente salto, o null si no hay traza
+    public String traceParent() {
+        return context == null ? null : context.toTraceParent();
+    }
+
+    public Span tag(String key, Object value) {
+        if (isRecording()) {
+            if (tags == null) {
+                tags = new LinkedHashMap<>();
+            }
+            tags.put(key, String.valueOf(value));
+        }
+        return this;
+    }
+
+    public Span error(Throwable e) {
+        return tag("error", e.getClass().getSimpleName() + ": " + e.getMessage());
+    }
+
+    @Override
+    public void close() {
+        closeAt(System.nanoTime());
+    }
+
+    void closeAt(long endNanos) {
+        if (ended) {
+            return;
+        }
+        ended = true;
+        Tracer.restore(this);
+        if (isRecording()) {
+            durationMicros = (endNanos - startNanos) / 1000;
+            Tracer.export(this);
+        }
+    }
+}
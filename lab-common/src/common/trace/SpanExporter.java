@@ -0,0 +1,103 @@
+package common.trace;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import common.json.JsonWriter;
+
+/*
+ * Escribe los spans muestreados en un hilo aparte, un span por línea en formato JSON de
+ * Zipkin v2 (traceId, id, parentId, name, kind, timestamp y duration en microsegundos,
+ * localEndpoint, tags). Para cargarlos en Zipkin o Jaeger:
+ *   jq -s . traces-lab.jsonl | curl -H 'Content-Type: application/json' -d @- http://localhost:9411/api/v2/spans
+ * Si la cola se llena los spans se descartan en lugar de frenar las peticiones.
+ */
+final class SpanExporter {
+    private final Path path;
+    private final BlockingQueue<Span> queue = new ArrayBlockingQueue<>(16_384);
+    private final LongAdder dropped = new LongAdder();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    SpanExporter(Path path) {
+        this.path = path;
+        this.worker = new Thread(this::writeLoop, "span-exporter");
+        worker.setDaemon(true);
+        worker.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "span-exporter-shutdown"));
+    }
+
+    void offer(Span span) {
+        if (!queue.offer(span)) {
+            dropped.increment();
+        }
+    }
+
+    private void writeLoop() {
+        List<Span> batch = new ArrayList<>();
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            while (running || !queue.isEmpty()) {
+                Span first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch);
+                for (Span span : batch) {
+                    writer.write(toZipkinJson(span, Tracer.getServiceName()));
+                    writer.newLine();
+                }
+                writer.flush();
+                batch.clear();
+            }
+        } catch (IOException e) {
+            System.err.println("[Tracer]: No se pudo escribir " + path + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static String toZipkinJson(Span span, String serviceName) {
+        JsonWriter json = new JsonWriter(false).beginObject()
+            .field("traceId", span.context.traceId)
+            .field("id", span.context.spanId);
+        if (span.parentSpanId != null) {
+            json.field("parentId", span.parentSpanId);
+        }
+        json.field("name", span.name);
+        if (span.kind != null) {
+            json.field("kind", span.kind);
+        }
+        json.field("timestamp", span.startEpochMicros)
+            .field("duration", Math.max(1, span.durationMicros))
+            .name("localEndpoint").beginObject().field("serviceName", serviceName).endObject();
+        if (span.tags != null) {
+            json.stringMap("tags", span.tags);
+        }
+        return json.endObject().toString();
+    }
+
+    long droppedCount() {
+        return dropped.sum();
+    }
+
+    void close() {
+        running = false;
+        try {
+            worker.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package common.trace;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Identificadores de una traza en formato W3C Trace Context:
+ *   traceparent = 00-<trace-id 32 hex>-<span-id 16 hex>-<flags 2 hex>
+ * El bit 01 de flags indica que la traza está muestreada y debe exportarse.
+ */
+public final class TraceContext {
+    public final String traceId;
+    public final String spanId;
+    public final boolean sampled;
+
+    public TraceContext(String traceId, String spanId, boolean sampled) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.sampled = sampled;
+    }
+
+    static String newTraceId() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return hex(random.nextLong()) + hex(random.nextLong());
+    }
+
+    static String newSpanId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+        return hex(id);
+    }
+
+    private static String hex(long value) {
+        String digits = Long.toHexString(value);
+        return "0".repeat(16 - digits.length()) + digits;
+    }
+
+    public String toTraceParent() {
+        return "00-" + traceId + "-" + spanId + (sampled ? "-01" : "-00");
+    }
+
+    // null si el valor no es un traceparent válido (se ignora y se empieza una traza nueva)
+    public static TraceContext fromTraceParent(String value) {
+        if (value == null) {
+            return null;
+        }
+        String[] parts = value.trim().split("-");
+        if (parts.length < 4 || parts[1].length() != 32 || parts[2].length() != 16 || parts[3].length() != 2
+                || !isHex(parts[1]) || !isHex(parts[2]) || !isHex(parts[3])) {
+            return null;
+        }
+        boolean sampled = (Integer.parseInt(parts[3], 16) & 1) == 1;
+        return new TraceContext(parts[1], parts[2], sampled);
+    }
+
+    private static boolean isHex(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return toTraceParent();
+    }
+}
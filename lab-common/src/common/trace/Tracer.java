@@ -0,0 +1,125 @@
+package common.trace;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Trazado por petición. Configuración (propiedades del sistema o configure()):
+ *   -Dtrace.sample=0.01          fracción de trazas raíz que se exportan (0 = desactivado)
+ *   -Dtrace.file=traces.jsonl    destino; por defecto traces-<servicio>.jsonl
+ * Un servidor que recibe un traceparent respeta la decisión de muestreo del cliente aunque
+ * su propia tasa sea 0, así que basta con activar el muestreo en el origen.
+ */
+public final class Tracer {
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private static volatile String serviceName = System.getProperty("trace.service", "lab");
+    private static volatile double sampleRate = Double.parseDouble(System.getProperty("trace.sample", "0"));
+    private static volatile String file = System.getProperty("trace.file");
+    private static volatile SpanExporter exporter;
+
+    private Tracer() {
+    }
+
+    public static void configure(String service, double rate, String outputFile) {
+        serviceName = service;
+        sampleRate = rate;
+        if (outputFile != null) {
+            file = outputFile;
+        }
+    }
+
+    public static String getServiceName() {
+        return serviceName;
+    }
+
+    public static double getSampleRate() {
+        return sampleRate;
+    }
+
+    public static Span current() {
+        return CURRENT.get();
+    }
+
+    // Hijo del span actual, o raíz (con decisión de muestreo) si no hay ninguno
+    public static Span startSpan(String name) {
+        return start(name, null, CURRENT.get(), null, System.nanoTime());
+    }
+
+    // Span cliente: su traceParent() es el que se envía al servidor
+    public static Span startClientSpan(String name) {
+        return start(name, "CLIENT", CURRENT.get(), null, System.nanoTime());
+    }
+
+    // Span cliente hijo de un span de otro hilo (p. ej. cada rama de un scatter-gather)
+    public static Span startClientSpan(String name, Span parent) {
+        if (parent == null) {
+            return startClientSpan(name);
+        }
+        return start(name, "CLIENT", CURRENT.get(), parent.context, System.nanoTime());
+    }
+
+    // Span servidor a partir del traceparent recibido (puede ser null o inválido)
+    public static Span startServerSpan(String name, String traceParent) {
+        return startServerSpan(name, traceParent, System.nanoTime());
+    }
+
+    // Con inicio explícito, para spans que empiezan antes de poder leer el contexto
+    public static Span startServerSpan(String name, String traceParent, long startNanos) {
+        return start(name, "SERVER", CURRENT.get(), TraceContext.fromTraceParent(traceParent), startNanos);
+    }
+
+    // Etapa ya terminada, p. ej. la lectura de la petición antes de conocer su contexto
+    public static void recordSpan(String name, long startNanos, long endNanos) {
+        start(name, null, CURRENT.get(), null, startNanos).closeAt(endNanos);
+    }
+
+    private static Span start(String name, String kind, Span parent, TraceContext remote, long startNanos) {
+        TraceContext parentContext = remote != null ? remote : parent != null ? parent.context : null;
+        TraceContext context;
+        if (parentContext != null) {
+            context = new TraceContext(parentContext.traceId, TraceContext.newSpanId(), parentContext.sampled);
+        } else if (parent == null && sampleRate > 0) {
+            boolean sampled = ThreadLocalRandom.current().nextDouble() < sampleRate;
+            context = new TraceContext(TraceContext.newTraceId(), TraceContext.newSpanId(), sampled);
+        } else {
+            context = null;
+        }
+        Span span = new Span(name, context, parentContext == null ? null : parentContext.spanId, kind, startNanos, parent);
+        CURRENT.set(span);
+        return span;
+    }
+
+    /*
+     * Al cerrar un span vuelve a ser actual el que lo era cuando se abrió. Si quedaron hijos
+     * sin cerrar (p. ej. por una excepción) también se descartan, para que no pasen a ser
+     * el padre de la siguiente petición del mismo hilo.
+     */
+    static void restore(Span span) {
+        for (Span s = CURRENT.get(); s != null; s = s.previous) {
+            if (s == span) {
+                if (span.previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(span.previous);
+                }
+                return;
+            }
+        }
+    }
+
+    static void export(Span span) {
+        SpanExporter current = exporter;
+        if (current == null) {
+            synchronized (Tracer.class) {
+                if (exporter == null) {
+                    Path path = Paths.get(file != null ? file : "traces-" + serviceName + ".jsonl");
+                    exporter = new SpanExporter(path);
+                }
+                current = exporter;
+            }
+        }
+        current.offer(span);
+    }
+}
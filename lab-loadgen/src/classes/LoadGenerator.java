@@ -0,0 +1,177 @@
+package classes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+import common.gateway.ServerBusyException;
+import common.metrics.LatencyHistogram;
+import interfaces.Transport;
+
+/*
+ * Generador de carga con dos modos:
+ * - Lazo cerrado: cada hilo envía la siguiente petición al recibir la respuesta anterior.
+ *   Con expectedIntervalNs > 0 se aplica la corrección de omisión coordinada del histograma.
+ * - Lazo abierto: la tasa objetivo se reparte entre los hilos y cada petición tiene una hora
+ *   de envío planificada; la latencia se mide desde esa hora, así el retraso acumulado cuando
+ *   el servidor no da abasto aparece en el histograma en lugar de ocultarse.
+ */
+public class LoadGenerator {
+    
+    public enum Mode { CLOSED, OPEN }
+    
+    private final Supplier<Transport> transportFactory;
+    private final QueryMix mix;
+    private final Mode mode;
+    private final int concurrency;
+    private final double targetRate;
+    private final long warmupNs;
+    private final long durationNs;
+    private final long expectedIntervalNs;
+    private final long seed;
+    
+    public LoadGenerator(Supplier<Transport> transportFactory, QueryMix mix, Mode mode, int concurrency,
+                         double targetRate, long warmupMs, long durationMs, long expectedIntervalNs, long seed) {
+        if (concurrency <= 0) {
+            throw new IllegalArgumentException("La concurrencia debe ser positiva");
+        }
+        if (mode == Mode.OPEN && targetRate <= 0) {
+            throw new IllegalArgumentException("El modo de lazo abierto necesita una tasa objetivo (--rate)");
+        }
+        this.transportFactory = transportFactory;
+        this.mix = mix;
+        this.mode = mode;
+        this.concurrency = concurrency;
+        this.targetRate = targetRate;
+        this.warmupNs = warmupMs * 1_000_000L;
+        this.durationNs = durationMs * 1_000_000L;
+        this.expectedIntervalNs = expectedIntervalNs;
+        this.seed = seed;
+    }
+    
+    public LoadResult run() throws InterruptedException {
+        LatencyHistogram histogram = LatencyHistogram.forNanos();
+        LongAdder completed = new LongAdder();
+        LongAdder songsReceived = new LongAdder();
+        Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+        
+        long start = System.nanoTime() + 100_000_000L; // margen para arrancar los hilos
+        long measureStart = start + warmupNs;
+        long end = measureStart + durationNs;
+        
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            final int workerId = i;
+            Thread worker = new Thread(() -> {
+                try (Transport transport = transportFactory.get()) {
+                    Random random = new Random(seed + workerId);
+                    if (mode == Mode.CLOSED) {
+                        runClosedLoop(transport, random, start, measureStart, end, histogram, completed, songsReceived, errors);
+                    } else {
+                        runOpenLoop(transport, random, workerId, start, measureStart, end, histogram, completed, songsReceived, errors);
+                    }
+                } catch (Exception e) {
+                    recordError(errors, e);
+                }
+            }, "load-worker-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        
+        long totalErrors = 0;
+        for (AtomicLong count : errors.values()) {
+            totalErrors += count.get();
+        }
+        return new LoadResult(histogram, completed.sum(), totalErrors, errors, songsReceived.sum(), durationNs);
+    }
+    
+    private void runClosedLoop(Transport transport, Random random, long start, long measureStart, long end,
+                               LatencyHistogram histogram, LongAdder completed, LongAdder songsReceived,
+                               Map<String, AtomicLong> errors) {
+        LockSupport.parkNanos(Math.max(0, start - System.nanoTime()));
+        while (System.nanoTime() < end) {
+            Query query = mix.next(random);
+            long sendTime = System.nanoTime();
+            boolean measured = sendTime >= measureStart;
+            try {
+                int songs = transport.execute(query);
+                long latency = System.nanoTime() - sendTime;
+                if (measured) {
+                    histogram.recordValueWithExpectedInterval(latency, expectedIntervalNs);
+                    completed.increment();
+                    songsReceived.add(songs);
+                }
+            } catch (ServerBusyException e) {
+                if (measured) {
+                    recordError(errors, e);
+                }
+                // Como un cliente real: reintentar cuando dice el servidor y no en bucle contra él
+                LockSupport.parkNanos(Math.min(e.getRetryAfterMillis() * 1_000_000, Math.max(0, end - System.nanoTime())));
+            } catch (Exception e) {
+                if (measured) {
+                    recordError(errors, e);
+                }
+            }
+        }
+    }
+    
+    private void runOpenLoop(Transport transport, Random random, int workerId, long start, long measureStart, long end,
+                             LatencyHistogram histogram, LongAdder completed, LongAdder songsReceived,
+                             Map<String, AtomicLong> errors) {
+        // Cada hilo atiende 1/concurrency de la tasa, desfasado para repartir los envíos
+        long intervalNs = (long) (1e9 * concurrency / targetRate);
+        long intendedTime = start + (intervalNs * workerId) / concurrency;
+        
+        while (intendedTime < end) {
+            long wait = intendedTime - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Query query = mix.next(random);
+            boolean measured = intendedTime >= measureStart;
+            try {
+                int songs = transport.execute(query);
+                long latency = System.nanoTime() - intendedTime;
+                if (measured) {
+                    histogram.recordValue(latency);
+                    completed.increment();
+                    songsReceived.add(songs);
+                }
+            } catch (Exception e) {
+                if (measured) {
+                    recordError(errors, e);
+                }
+            }
+            intendedTime += intervalNs;
+        }
+    }
+    
+    private static void recordError(Map<String, AtomicLong> errors, Exception e) {
+        errors.computeIfAbsent(e.getClass().getSimpleName(), k -> new AtomicLong()).incrementAndGet();
+    }
+    
+    public Mode getMode() {
+        return mode;
+    }
+    
+    public int getConcurrency() {
+        return concurrency;
+    }
+    
+    public double getTargetRate() {
+        return targetRate;
+    }
+    
+    public QueryMix getMix() {
+        return mix;
+    }
+}
@@ -0,0 +1,112 @@
+package classes;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import common.json.JsonWriter;
+import common.metrics.LatencyHistogram;
+
+public class LoadResult {
+    
+    private static final double[] PERCENTILES = {50, 75, 90, 99, 99.9, 99.99};
+    
+    private final LatencyHistogram histogram;
+    private final long completed;
+    private final long errors;
+    private final Map<String, Long> errorsByType = new TreeMap<>();
+    private final long songsReceived;
+    private final long durationNs;
+    
+    public LoadResult(LatencyHistogram histogram, long completed, long errors, Map<String, AtomicLong> errorsByType,
+                      long songsReceived, long durationNs) {
+        this.histogram = histogram;
+        this.completed = completed;
+        this.errors = errors;
+        errorsByType.forEach((type, count) -> this.errorsByType.put(type, count.get()));
+        this.songsReceived = songsReceived;
+        this.durationNs = durationNs;
+    }
+    
+    public double throughput() {
+        return completed / (durationNs / 1e9);
+    }
+    
+    public double errorRate() {
+        long total = completed + errors;
+        return total == 0 ? 0 : (double) errors / total;
+    }
+    
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+    
+    public void printSummary(PrintStream out, String transport, LoadGenerator generator) {
+        out.println("\n=== RESULTADOS DE CARGA ===");
+        out.println("Transporte: " + transport);
+        out.println("Modo: " + generator.getMode() + ", concurrencia: " + generator.getConcurrency() +
+                    (generator.getMode() == LoadGenerator.Mode.OPEN ? ", tasa objetivo: " + generator.getTargetRate() + " req/s" : ""));
+        out.println("Mezcla: " + generator.getMix());
+        out.printf(Locale.ROOT, "Peticiones completadas: %d (%.2f req/s)%n", completed, throughput());
+        out.printf(Locale.ROOT, "Errores: %d (%.4f%%) %s%n", errors, errorRate() * 100, errorsByType);
+        out.printf(Locale.ROOT, "Canciones recibidas: %d%n", songsReceived);
+        out.println("Latencia (ms):");
+        out.printf(Locale.ROOT, "  min %10.3f%n", histogram.getMinValue() / 1e6);
+        out.printf(Locale.ROOT, "  mean %9.3f%n", histogram.getMean() / 1e6);
+        for (double p : PERCENTILES) {
+            out.printf(Locale.ROOT, "  p%-7s %8.3f%n", formatPercentile(p), histogram.getValueAtPercentile(p) / 1e6);
+        }
+        out.printf(Locale.ROOT, "  max %10.3f%n", histogram.getMaxValue() / 1e6);
+    }
+    
+    public void writeJson(Path file, String transport, LoadGenerator generator) throws IOException {
+        JsonWriter json = new JsonWriter().beginObject()
+            .field("transport", transport)
+            .field("mode", generator.getMode().name().toLowerCase())
+            .field("concurrency", generator.getConcurrency())
+            .field("targetRate", generator.getTargetRate())
+            .field("mix", generator.getMix().toString())
+            .field("durationSeconds", durationNs / 1e9)
+            .field("completed", completed)
+            .field("errors", errors)
+            .field("errorRate", errorRate())
+            .field("throughput", throughput())
+            .field("songsReceived", songsReceived);
+        json.name("errorsByType").beginObject();
+        for (Map.Entry<String, Long> entry : errorsByType.entrySet()) {
+            json.field(entry.getKey(), entry.getValue());
+        }
+        json.endObject();
+        json.name("latencyMs").beginObject()
+            .field("min", histogram.getMinValue() / 1e6)
+            .field("mean", histogram.getMean() / 1e6)
+            .field("stdDev", histogram.getStdDeviation() / 1e6);
+        for (double p : PERCENTILES) {
+            json.field("p" + formatPercentile(p), histogram.getValueAtPercentile(p) / 1e6);
+        }
+        json.field("max", histogram.getMaxValue() / 1e6).endObject().endObject();
+        
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.writeString(file, json.toString() + "\n", StandardCharsets.UTF_8);
+    }
+    
+    public void writeHistogram(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), true, StandardCharsets.UTF_8)) {
+            histogram.outputPercentileDistribution(out, 1e6);
+        }
+    }
+    
+    private static String formatPercentile(double p) {
+        return p == Math.rint(p) ? String.valueOf((long) p) : String.valueOf(p);
+    }
+}
@@ -0,0 +1,39 @@
+package classes;
+
+public class Query {
+    
+    public enum Type { TITLE, GENRE, AUTHOR, MULTIPLE, ALL }
+    
+    private final Type type;
+    private final String title;
+    private final String genre;
+    private final String author;
+    
+    public Query(Type type, String title, String genre, String author) {
+        this.type = type;
+        this.title = title;
+        this.genre = genre;
+        this.author = author;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public String getGenre() {
+        return genre;
+    }
+    
+    public String getAuthor() {
+        return author;
+    }
+    
+    @Override
+    public String toString() {
+        return type + "(" + title + "|" + genre + "|" + author + ")";
+    }
+}
@@ -0,0 +1,88 @@
+package classes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Mezcla de consultas ponderada, por ejemplo "title:40,genre:30,author:20,multiple:10".
+ * Los términos por defecto coinciden con el catálogo de ejemplo de los servidores.
+ */
+public class QueryMix {
+    
+    private static final String[] DEFAULT_TITLES = {
+        "Bohemian", "Hotel", "Imagine", "Rolling", "Spirit", "Jean", "Jude", "Heaven", "Fiesta", "Despacito"
+    };
+    private static final String[] DEFAULT_GENRES = {"Rock", "Pop", "Grunge", "Salsa", "Reggaeton"};
+    private static final String[] DEFAULT_AUTHORS = {
+        "Queen", "Eagles", "Lennon", "Dylan", "Nirvana", "Jackson", "Beatles", "Hendrix", "Zeppelin", "Cruz"
+    };
+    
+    private final List<Query.Type> types = new ArrayList<>();
+    private final List<Integer> cumulativeWeights = new ArrayList<>();
+    private int totalWeight;
+    private final String[] titles;
+    private final String[] genres;
+    private final String[] authors;
+    private final String description;
+    
+    public QueryMix(String spec, String[] titles, String[] genres, String[] authors) {
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Mezcla inválida: " + part + " (use tipo:peso)");
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight <= 0) {
+                continue;
+            }
+            types.add(Query.Type.valueOf(pair[0].trim().toUpperCase()));
+            totalWeight += weight;
+            cumulativeWeights.add(totalWeight);
+        }
+        if (types.isEmpty()) {
+            throw new IllegalArgumentException("La mezcla de consultas está vacía");
+        }
+        this.titles = titles != null ? titles : DEFAULT_TITLES;
+        this.genres = genres != null ? genres : DEFAULT_GENRES;
+        this.authors = authors != null ? authors : DEFAULT_AUTHORS;
+        this.description = spec;
+    }
+    
+    public QueryMix(String spec) {
+        this(spec, null, null, null);
+    }
+    
+    public Query next(Random random) {
+        int r = random.nextInt(totalWeight);
+        Query.Type type = types.get(types.size() - 1);
+        for (int i = 0; i < cumulativeWeights.size(); i++) {
+            if (r < cumulativeWeights.get(i)) {
+                type = types.get(i);
+                break;
+            }
+        }
+        
+        switch (type) {
+            case TITLE:
+                return new Query(type, pick(random, titles), "", "");
+            case GENRE:
+                return new Query(type, "", pick(random, genres), "");
+            case AUTHOR:
+                return new Query(type, "", "", pick(random, authors));
+            case MULTIPLE:
+                return new Query(type, "", pick(random, genres), pick(random, authors));
+            default:
+                return new Query(Query.Type.ALL, "", "", "");
+        }
+    }
+    
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+    
+    @Override
+    public String toString() {
+        return description;
+    }
+}
@@ -0,0 +1,242 @@
+package classes;
+
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.ServerError;
+import java.rmi.ServerException;
+import java.rmi.registry.Registry;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import common.balance.LoadBalancer;
+import common.catalogue.Facets;
+import common.catalogue.ReplicationSource;
+import common.deadline.Deadline;
+import common.deadline.DeadlineExceededException;
+import interfaces.InterfaceSong;
+
+/*
+ * InterfaceSong repartida entre el primario ("MusicLibrary") y sus réplicas ("MusicLibrary-N")
+ * del mismo registro. La lista se vuelve a leer cada pocos segundos, así que las réplicas que
+ * arrancan o se paran entran y salen solas. Solo los errores de comunicación (réplica caída,
+ * conexión rota) se reintentan en otra réplica; los que lanza el propio servidor no.
+ * Las escrituras van siempre al primario y las réplicas aplican sus cambios unos cientos de
+ * milisegundos después (--sync-ms del servidor); para que quien acaba de escribir lea su
+ * cambio, durante READ_OWN_WRITES_MS tras cada escritura las lecturas también van al primario.
+ */
+public class ReplicatedSongService implements InterfaceSong {
+
+    private static final long REFRESH_SECONDS = 5;
+    private static final long COOLDOWN_MS = 2_000;
+    private static final long READ_OWN_WRITES_MS = 1_000;
+
+    private final Registry registry;
+    private final String baseName;
+    private final LoadBalancer<InterfaceSong> balancer;
+    private final ScheduledExecutorService refresher;
+    private volatile InterfaceSong primary;
+    // System.nanoTime() hasta el que las lecturas van al primario
+    private volatile long primaryUntil = System.nanoTime();
+
+    private ReplicatedSongService(Registry registry, String baseName, LoadBalancer.Strategy strategy) {
+        this.registry = registry;
+        this.baseName = baseName;
+        this.balancer = new LoadBalancer<>(strategy, ReplicatedSongService::isRetryable, COOLDOWN_MS);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Lee la lista de servidores y empieza a refrescarla cada REFRESH_SECONDS
+    public static ReplicatedSongService connect(Registry registry, String baseName, LoadBalancer.Strategy strategy)
+            throws RemoteException {
+        ReplicatedSongService service = new ReplicatedSongService(registry, baseName, strategy);
+        service.refresh();
+        service.refresher.scheduleWithFixedDelay(() -> {
+            try {
+                service.refresh();
+            } catch (RemoteException e) {
+                // Registro inaccesible: se conserva la lista anterior
+            }
+        }, REFRESH_SECONDS, REFRESH_SECONDS, TimeUnit.SECONDS);
+        return service;
+    }
+
+    // Nombres registrados bajo baseName en el registro dado, sin crear el servicio
+    public static int countReplicas(Registry registry, String baseName) throws RemoteException {
+        int count = 0;
+        for (String name : registry.list()) {
+            if (name.equals(baseName) || name.startsWith(baseName + "-")) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public void refresh() throws RemoteException {
+        Map<String, InterfaceSong> targets = new TreeMap<>();
+        for (String name : registry.list()) {
+            if (name.equals(baseName) || name.startsWith(baseName + "-")) {
+                try {
+                    InterfaceSong stub = (InterfaceSong) registry.lookup(name);
+                    targets.put(name, stub);
+                    if (name.equals(baseName)) {
+                        primary = stub;
+                    }
+                } catch (NotBoundException e) {
+                    // Se retiró entre list() y lookup()
+                }
+            }
+        }
+        if (!targets.isEmpty()) {
+            balancer.setTargets(targets);
+        }
+    }
+
+    public LoadBalancer<InterfaceSong> getBalancer() {
+        return balancer;
+    }
+
+    public void close() {
+        refresher.shutdownNow();
+    }
+
+    static boolean isRetryable(Exception e) {
+        return e instanceof RemoteException && !(e instanceof ServerException) && !(e instanceof ServerError);
+    }
+
+    private <R> R call(LoadBalancer.Call<InterfaceSong, R> call) throws RemoteException {
+        try {
+            if (System.nanoTime() - primaryUntil < 0) {
+                return call.call(primary());
+            }
+            return balancer.execute(call);
+        } catch (RemoteException | DeadlineExceededException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RemoteException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public List<Song> searchByTitle(String title) throws RemoteException {
+        return call(service -> service.searchByTitle(title));
+    }
+
+    @Override
+    public List<Song> searchByGenre(String genre) throws RemoteException {
+        return call(service -> service.searchByGenre(genre));
+    }
+
+    @Override
+    public List<Song> searchByAuthor(String author) throws RemoteException {
+        return call(service -> service.searchByAuthor(author));
+    }
+
+    @Override
+    public List<Song> searchByMultipleCriteria(String title, String genre, String author) throws RemoteException {
+        return call(service -> service.searchByMultipleCriteria(title, genre, author));
+    }
+
+    @Override
+    public List<Song> searchByMultipleCriteria(String title, String genre, String author,
+                                               Integer yearFrom, Integer yearTo, String language) throws RemoteException {
+        return call(service -> service.searchByMultipleCriteria(title, genre, author, yearFrom, yearTo, language));
+    }
+
+    @Override
+    public List<Song> searchByYearRange(int from, int to) throws RemoteException {
+        return call(service -> service.searchByYearRange(from, to));
+    }
+
+    @Override
+    public List<Song> searchByLanguage(String language) throws RemoteException {
+        return call(service -> service.searchByLanguage(language));
+    }
+
+    @Override
+    public List<Song> searchRanked(String query, int limit) throws RemoteException {
+        return call(service -> service.searchRanked(query, limit));
+    }
+
+    @Override
+    public Facets facets(String title, String genre, String author, Integer yearFrom, Integer yearTo,
+                         String language, int limit) throws RemoteException {
+        return call(service -> service.facets(title, genre, author, yearFrom, yearTo, language, limit));
+    }
+
+    @Override
+    public List<Song> search(String traceParent, String method, String... args) throws RemoteException {
+        return call(service -> service.search(traceParent, method, args));
+    }
+
+    // Si se reintenta en otra réplica se le pasa lo que quede del plazo, y vencido ya no se reintenta
+    @Override
+    public List<Song> search(long timeoutMillis, String traceParent, String method, String... args)
+            throws RemoteException {
+        Deadline deadline = timeoutMillis > 0 ? Deadline.after(timeoutMillis) : null;
+        return call(service -> {
+            if (deadline == null) {
+                return service.search(0, traceParent, method, args);
+            }
+            if (deadline.isExpired()) {
+                throw new DeadlineExceededException(-deadline.remainingMillis());
+            }
+            return service.search(deadline.propagate(), traceParent, method, args);
+        });
+    }
+
+    @Override
+    public List<Song> catalogue(int offset, int limit) throws RemoteException {
+        return call(service -> service.catalogue(offset, limit));
+    }
+
+    private InterfaceSong primary() throws RemoteException {
+        InterfaceSong current = primary;
+        if (current == null) {
+            throw new RemoteException("No hay primario registrado como " + baseName);
+        }
+        return current;
+    }
+
+    @Override
+    public ReplicationSource.Page<Song> cataloguePage(long version, int offset, int limit) throws RemoteException {
+        return primary().cataloguePage(version, offset, limit);
+    }
+
+    @Override
+    public List<ReplicationSource.Change<Song>> changesSince(long epoch, long version, int limit)
+            throws RemoteException {
+        return primary().changesSince(epoch, version, limit);
+    }
+
+    private <R> R write(R result) {
+        primaryUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(READ_OWN_WRITES_MS);
+        return result;
+    }
+
+    @Override
+    public boolean addSong(Song song) throws RemoteException {
+        return write(primary().addSong(song));
+    }
+
+    @Override
+    public boolean updateSong(String title, String author, Song song) throws RemoteException {
+        return write(primary().updateSong(title, author, song));
+    }
+
+    @Override
+    public boolean deleteSong(String title, String author) throws RemoteException {
+        return write(primary().deleteSong(title, author));
+    }
+
+    @Override
+    public int addSongs(List<Song> songs) throws RemoteException {
+        return write(primary().addSongs(songs));
+    }
+}
@@ -0,0 +1,55 @@
+package classes;
+
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import common.trace.Span;
+import common.trace.Tracer;
+import interfaces.InterfaceSong;
+import interfaces.Transport;
+
+/*
+ * Servicio RMI de lab3 registrado como "MusicLibrary" (o repartido entre réplicas). Todas las
+ * consultas van por search(timeoutMillis, traceparent, ...) para que el servidor conozca el plazo.
+ */
+public class RmiTransport implements Transport {
+    
+    private final InterfaceSong songService;
+    private final int timeoutMs;
+    
+    public RmiTransport(String host, int port, String bindingName, int timeoutMs) throws Exception {
+        Registry registry = LocateRegistry.getRegistry(host, port);
+        this.songService = (InterfaceSong) registry.lookup(bindingName);
+        this.timeoutMs = timeoutMs;
+    }
+    
+    // Servicio compartido entre los hilos, p. ej. un ReplicatedSongService
+    public RmiTransport(InterfaceSong songService, int timeoutMs) {
+        this.songService = songService;
+        this.timeoutMs = timeoutMs;
+    }
+    
+    @Override
+    public String name() {
+        return "rmi";
+    }
+    
+    @Override
+    public int execute(Query query) throws Exception {
+        try (Span span = Tracer.startClientSpan("rmi.client." + query.getType())) {
+            String traceParent = span.traceParent();
+            switch (query.getType()) {
+                case TITLE:
+                    return songService.search(timeoutMs, traceParent, "searchByTitle", query.getTitle()).size();
+                case GENRE:
+                    return songService.search(timeoutMs, traceParent, "searchByGenre", query.getGenre()).size();
+                case AUTHOR:
+                    return songService.search(timeoutMs, traceParent, "searchByAuthor", query.getAuthor()).size();
+                case MULTIPLE:
+                    return songService.search(timeoutMs, traceParent, "searchByMultipleCriteria",
+                        query.getTitle(), query.getGenre(), query.getAuthor()).size();
+                default:
+                    return songService.search(timeoutMs, traceParent, "searchByMultipleCriteria", "", "", "").size();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package classes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Resultado de una búsqueda repartida entre shards. Sigue siendo una List<Song> para los
+ * clientes; si algún shard no respondió a tiempo el resultado es parcial y missingShards
+ * dice cuáles faltan.
+ */
+public class SearchResults extends ArrayList<Song> {
+    private static final long serialVersionUID = 1L;
+
+    private final int shards;
+    // ArrayList y no List: viaja por RMI con el resultado
+    private final ArrayList<Integer> missingShards;
+
+    public SearchResults(List<Song> songs, int shards, List<Integer> missingShards) {
+        super(songs);
+        this.shards = shards;
+        this.missingShards = new ArrayList<>(missingShards);
+    }
+
+    public int getShards() {
+        return shards;
+    }
+
+    public List<Integer> getMissingShards() {
+        return missingShards;
+    }
+
+    public boolean isPartial() {
+        return !missingShards.isEmpty();
+    }
+}
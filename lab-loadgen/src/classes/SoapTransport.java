@@ -0,0 +1,145 @@
+package classes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import common.deadline.Deadline;
+import common.deadline.DeadlineExceededException;
+import common.gateway.ServerBusyException;
+import common.trace.Span;
+import common.trace.Tracer;
+import interfaces.Transport;
+
+/*
+ * Endpoint SOAP de lab-8. Envía el mismo sobre que MusicLibraryClient y cuenta los
+ * elementos <return> sin construir un DOM, para que el generador no sea el cuello de botella.
+ */
+public class SoapTransport implements Transport {
+    
+    private final URL endpoint;
+    private final int timeoutMs;
+    
+    public SoapTransport(String host, int port, int timeoutMs) throws IOException {
+        this.endpoint = new URL("http://" + host + ":" + port);
+        this.timeoutMs = timeoutMs;
+    }
+    
+    @Override
+    public String name() {
+        return "soap";
+    }
+    
+    @Override
+    public int execute(Query query) throws Exception {
+        try (Span span = Tracer.startClientSpan("soap.client." + query.getType())) {
+            return post(query, span.traceParent());
+        }
+    }
+    
+    private int post(Query query, String traceParent) throws Exception {
+        byte[] body = createSOAPRequest(query, traceParent).getBytes(StandardCharsets.UTF_8);
+        
+        HttpURLConnection connection = (HttpURLConnection) endpoint.openConnection();
+        connection.setConnectTimeout(timeoutMs);
+        connection.setReadTimeout(timeoutMs);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", "text/xml; charset=utf-8");
+        connection.setRequestProperty("SOAPAction", "");
+        connection.setRequestProperty(Deadline.HEADER, String.valueOf(timeoutMs));
+        if (traceParent != null) {
+            connection.setRequestProperty("traceparent", traceParent);
+        }
+        connection.setDoOutput(true);
+        
+        try (OutputStream os = connection.getOutputStream()) {
+            os.write(body);
+        }
+        
+        int status = connection.getResponseCode();
+        // 503/429 del control de admisión: se cuentan aparte de los errores
+        ServerBusyException busy = ServerBusyException.fromHttp(status, connection.getHeaderField("Retry-After"));
+        if (busy != null) {
+            throw busy;
+        }
+        // 504: el servidor abandonó la petición al vencer el plazo
+        if (status == DeadlineExceededException.HTTP_STATUS) {
+            throw new DeadlineExceededException(0);
+        }
+        if (status != 200) {
+            throw new IOException("HTTP " + status);
+        }
+        
+        String response;
+        try (InputStream is = connection.getInputStream()) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            is.transferTo(buffer);
+            response = buffer.toString(StandardCharsets.UTF_8);
+        }
+        
+        if (response.contains("<soap:Fault>")) {
+            throw new IOException("SOAP Fault");
+        }
+        return countOccurrences(response, "<return>");
+    }
+    
+    private static String createSOAPRequest(Query query, String traceParent) {
+        String method;
+        String parameters;
+        switch (query.getType()) {
+            case TITLE:
+                method = "searchByTitle";
+                parameters = "<arg0>" + escapeXml(query.getTitle()) + "</arg0>";
+                break;
+            case GENRE:
+                method = "searchByGenre";
+                parameters = "<arg0>" + escapeXml(query.getGenre()) + "</arg0>";
+                break;
+            case AUTHOR:
+                method = "searchByAuthor";
+                parameters = "<arg0>" + escapeXml(query.getAuthor()) + "</arg0>";
+                break;
+            default:
+                method = "searchByMultipleCriteria";
+                parameters = "<arg0>" + escapeXml(query.getTitle()) + "</arg0>" +
+                             "<arg1>" + escapeXml(query.getGenre()) + "</arg1>" +
+                             "<arg2>" + escapeXml(query.getAuthor()) + "</arg2>";
+                break;
+        }
+        
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+               "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\" " +
+               "xmlns:ser=\"http://service.musiclibrary.com/\">" +
+               (traceParent == null ? "<soap:Header/>"
+                   : "<soap:Header><tc:traceparent xmlns:tc=\"https://www.w3.org/TR/trace-context/\">" +
+                     traceParent + "</tc:traceparent></soap:Header>") +
+               "<soap:Body>" +
+               "<ser:" + method + ">" +
+               parameters +
+               "</ser:" + method + ">" +
+               "</soap:Body>" +
+               "</soap:Envelope>";
+    }
+    
+    private static int countOccurrences(String text, String token) {
+        int count = 0;
+        int index = text.indexOf(token);
+        while (index >= 0) {
+            count++;
+            index = text.indexOf(token, index + token.length());
+        }
+        return count;
+    }
+    
+    private static String escapeXml(String text) {
+        if (text == null) return "";
+        return text.replace("&", "&amp;")
+                   .replace("<", "&lt;")
+                   .replace(">", "&gt;")
+                   .replace("\"", "&quot;")
+                   .replace("'", "&apos;");
+    }
+}
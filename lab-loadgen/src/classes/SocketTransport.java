@@ -0,0 +1,81 @@
+package classes;
+
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+import common.deadline.Deadline;
+import common.deadline.DeadlineExceededException;
+import common.gateway.RequestFailedException;
+import common.gateway.ServerBusyException;
+import common.trace.Span;
+import common.trace.Tracer;
+import interfaces.Transport;
+
+// Protocolo del servidor de sockets de lab-2: una conexión por petición, como MusicClient
+public class SocketTransport implements Transport {
+    
+    private final String host;
+    private final int port;
+    private final int timeoutMs;
+    
+    public SocketTransport(String host, int port, int timeoutMs) {
+        this.host = host;
+        this.port = port;
+        this.timeoutMs = timeoutMs;
+    }
+    
+    @Override
+    public String name() {
+        return "socket";
+    }
+    
+    @Override
+    public int execute(Query query) throws Exception {
+        try (Span span = Tracer.startClientSpan("music.client." + query.getType());
+             Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(host, port), timeoutMs);
+            socket.setSoTimeout(timeoutMs);
+            
+            ObjectOutputStream oos = new ObjectOutputStream(socket.getOutputStream());
+            oos.flush();
+            ObjectInputStream ois = new ObjectInputStream(socket.getInputStream());
+            
+            // Mismos prefijos de contexto y plazo que MusicClient
+            String traceParent = span.traceParent();
+            String request = Deadline.PREFIX + timeoutMs + "\n" + toRequest(query);
+            oos.writeObject(traceParent == null ? request : "traceparent:" + traceParent + "\n" + request);
+            oos.flush();
+            Object response = ois.readObject();
+            ServerBusyException busy = ServerBusyException.decode(response);
+            if (busy != null) {
+                throw busy;
+            }
+            DeadlineExceededException expired = DeadlineExceededException.decode(response);
+            if (expired != null) {
+                throw expired;
+            }
+            RequestFailedException failed = RequestFailedException.decode(response);
+            if (failed != null) {
+                throw failed;
+            }
+            return ((List<?>) response).size();
+        }
+    }
+    
+    private static String toRequest(Query query) {
+        switch (query.getType()) {
+            case TITLE:
+                return "SEARCH_TITLE|" + query.getTitle();
+            case GENRE:
+                return "SEARCH_GENRE|" + query.getGenre();
+            case AUTHOR:
+                return "SEARCH_AUTHOR|" + query.getAuthor();
+            case MULTIPLE:
+                return "SEARCH_MULTIPLE|" + query.getTitle() + "|" + query.getGenre() + "|" + query.getAuthor();
+            default:
+                return "GET_ALL";
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package classes;
+
+import java.io.Serializable;
+
+public class Song implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    private String title;
+    private String genre;
+    private String author;
+    private String language;
+    private int year;
+    
+    public Song(String title, String genre, String author, String language, int year) {
+        this.title = title;
+        this.genre = genre;
+        this.author = author;
+        this.language = language;
+        this.year = year;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public void setTitle(String title) {
+        this.title = title;
+    }
+    
+    public String getGenre() {
+        return genre;
+    }
+    
+    public void setGenre(String genre) {
+        this.genre = genre;
+    }
+    
+    public String getAuthor() {
+        return author;
+    }
+    
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+    
+    public String getLanguage() {
+        return language;
+    }
+    
+    public void setLanguage(String language) {
+        this.language = language;
+    }
+    
+    public int getYear() {
+        return year;
+    }
+    
+    public void setYear(int year) {
+        this.year = year;
+    }
+    
+    @Override
+    public String toString() {
+        return "Song{" +
+                "title='" + title + '\'' +
+                ", genre='" + genre + '\'' +
+                ", author='" + author + '\'' +
+                ", language='" + language + '\'' +
+                ", year=" + year +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package interfaces;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+import classes.Song;
+import common.catalogue.Facets;
+import common.catalogue.ReplicationSource;
+
+public interface InterfaceSong extends Remote {
+    List<Song> searchByTitle(String title) throws RemoteException;
+    List<Song> searchByGenre(String genre) throws RemoteException;
+    List<Song> searchByAuthor(String author) throws RemoteException;
+    List<Song> searchByMultipleCriteria(String title, String genre, String author) throws RemoteException;
+    
+    // Años en [from, to] (ambos incluidos) e idioma exacto sin distinguir mayúsculas
+    List<Song> searchByYearRange(int from, int to) throws RemoteException;
+    List<Song> searchByLanguage(String language) throws RemoteException;
+    // Los tres criterios de texto más año e idioma; "" no filtra un texto y null no limita el año
+    List<Song> searchByMultipleCriteria(String title, String genre, String author,
+                                        Integer yearFrom, Integer yearTo, String language) throws RemoteException;
+    
+    // Las limit canciones más relevantes para query (título, autor y género, tolera erratas), de más a menos
+    List<Song> searchRanked(String query, int limit) throws RemoteException;
+    
+    // Canciones por género, idioma, autor y década de las que cumplen los criterios (como
+    // searchByMultipleCriteria), sin enviarlas; limit valores por campo como mucho (<= 0: todos)
+    Facets facets(String title, String genre, String author, Integer yearFrom, Integer yearTo,
+                  String language, int limit) throws RemoteException;
+    
+    // Igual que los anteriores (method = nombre del método, años como texto) con el traceparent W3C del cliente
+    List<Song> search(String traceParent, String method, String... args) throws RemoteException;
+    
+    // Igual, con los milisegundos que le quedan al cliente: vencidos, el servidor abandona la
+    // búsqueda y lanza DeadlineExceededException (<= 0 sin plazo; traceParent puede ser null)
+    List<Song> search(long timeoutMillis, String traceParent, String method, String... args) throws RemoteException;
+    
+    // Página del catálogo completo en orden (la versión vigente en cada llamada)
+    List<Song> catalogue(int offset, int limit) throws RemoteException;
+    
+    // Réplicas: página de una versión fija del catálogo (version < 0 fija la vigente y las
+    // páginas siguientes se piden con la que trae la primera); null si ya no está fijada
+    ReplicationSource.Page<Song> cataloguePage(long version, int offset, int limit) throws RemoteException;
+    
+    // Réplicas: cambios publicados después de version, en orden (como mucho limit); null si
+    // el primario ya no los tiene o epoch es de otro arranque y hay que copiar de nuevo
+    List<ReplicationSource.Change<Song>> changesSince(long epoch, long version, int limit) throws RemoteException;
+    
+    // Cambios en caliente; una canción se identifica por título + autor
+    boolean addSong(Song song) throws RemoteException;
+    boolean updateSong(String title, String author, Song song) throws RemoteException;
+    boolean deleteSong(String title, String author) throws RemoteException;
+    
+    // Alta por lotes (importación masiva); devuelve cuántas entraron (las repetidas se ignoran)
+    int addSongs(List<Song> songs) throws RemoteException;
+}
\ No newline at end of file
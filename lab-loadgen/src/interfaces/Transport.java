@@ -0,0 +1,14 @@
+package interfaces;
+
+import classes.Query;
+
+public interface Transport extends AutoCloseable {
+    String name();
+    
+    // Ejecuta la consulta y devuelve el número de canciones recibidas
+    int execute(Query query) throws Exception;
+    
+    @Override
+    default void close() {
+    }
+}
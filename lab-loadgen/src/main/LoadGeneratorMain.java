@@ -0,0 +1,133 @@
+package main;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Supplier;
+import classes.LoadGenerator;
+import classes.LoadResult;
+import classes.QueryMix;
+import classes.ReplicatedSongService;
+import classes.RmiTransport;
+import classes.SocketTransport;
+import classes.SoapTransport;
+import common.balance.LoadBalancer;
+import common.bench.BenchmarkOptions;
+import common.trace.Tracer;
+import interfaces.Transport;
+import java.rmi.registry.LocateRegistry;
+
+/*
+ * Uso:
+ *   java main.LoadGeneratorMain --transport=socket|rmi|soap [--host=127.0.0.1] [--port=...]
+ *        [--mode=closed|open] [--concurrency=8] [--rate=500] [--warmup=5] [--duration=30]
+ *        [--mix=title:40,genre:30,author:20,multiple:10] [--expected-interval-us=0]
+ *        [--timeout-ms=10000] [--output=loadgen_results] [--trace-sample=0.01] [--trace-file=...]
+ *        [--balance=p2c|least] (rmi: reparte entre "MusicLibrary" y sus réplicas "MusicLibrary-N")
+ * --timeout-ms limita cada petición en el cliente y también se envía al servidor como plazo,
+ * pasado el cual abandona la búsqueda (DeadlineExceededException en los errores).
+ * Guarda un resumen JSON y la distribución de percentiles (.hgrm) por ejecución.
+ */
+public class LoadGeneratorMain {
+    
+    public static void main(String[] args) {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+        
+        String transport = options.get("transport", "socket").toLowerCase();
+        String host = options.get("host", "127.0.0.1");
+        int timeoutMs = options.getInt("timeout-ms", 10_000);
+        int port = options.getInt("port", defaultPort(transport));
+        
+        // Fracción de peticiones trazadas de extremo a extremo (el servidor respeta la decisión)
+        Tracer.configure("loadgen-" + transport, options.getDouble("trace-sample", Tracer.getSampleRate()),
+            options.get("trace-file", null));
+        
+        // Límites también para las llamadas RMI
+        System.setProperty("sun.rmi.transport.tcp.responseTimeout", String.valueOf(timeoutMs));
+        System.setProperty("sun.rmi.transport.proxy.connectTimeout", String.valueOf(timeoutMs));
+        
+        // Un único balanceador para todos los hilos, así ve todas las peticiones en curso
+        ReplicatedSongService replicated = null;
+        if (transport.equals("rmi") && options.has("balance")) {
+            try {
+                replicated = ReplicatedSongService.connect(LocateRegistry.getRegistry(host, port),
+                    options.get("binding", "MusicLibrary"),
+                    LoadBalancer.Strategy.valueOf(options.get("balance", "p2c").toUpperCase()));
+            } catch (Exception e) {
+                System.err.println("[Load Generator]: Error leyendo las réplicas de " + host + ":" + port + ": " + e.getMessage());
+                System.exit(1);
+            }
+            System.out.println("[Load Generator]: " + replicated.getBalancer().size() + " réplicas, balanceo "
+                               + replicated.getBalancer().getStrategy());
+        }
+        final ReplicatedSongService sharedService = replicated;
+        
+        Supplier<Transport> factory = () -> {
+            try {
+                switch (transport) {
+                    case "socket":
+                        return new SocketTransport(host, port, timeoutMs);
+                    case "rmi":
+                        if (sharedService != null) {
+                            return new RmiTransport(sharedService, timeoutMs);
+                        }
+                        return new RmiTransport(host, port, options.get("binding", "MusicLibrary"), timeoutMs);
+                    case "soap":
+                        return new SoapTransport(host, port, timeoutMs);
+                    default:
+                        throw new IllegalArgumentException("Transporte no soportado: " + transport);
+                }
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException("No se pudo conectar con " + transport + " en " + host + ":" + port, e);
+            }
+        };
+        
+        LoadGenerator generator = new LoadGenerator(
+            factory,
+            new QueryMix(options.get("mix", "title:40,genre:30,author:20,multiple:10")),
+            LoadGenerator.Mode.valueOf(options.get("mode", "closed").toUpperCase()),
+            options.getInt("concurrency", 8),
+            options.getDouble("rate", 0),
+            options.getLong("warmup", 5) * 1000,
+            options.getLong("duration", 30) * 1000,
+            options.getLong("expected-interval-us", 0) * 1000,
+            options.getLong("seed", 42));
+        
+        System.out.println("[Load Generator]: " + transport + " en " + host + ":" + port +
+                           ", modo " + generator.getMode() + ", " + generator.getConcurrency() + " hilos");
+        
+        try {
+            LoadResult result = generator.run();
+            result.printSummary(System.out, transport, generator);
+            if (sharedService != null) {
+                System.out.println("\nPeticiones por réplica: " + sharedService.getBalancer().requestCounts()
+                                   + " (failovers: " + sharedService.getBalancer().getFailovers() + ")");
+                sharedService.close();
+            }
+            
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+            String baseName = "loadgen_" + transport + "_" + generator.getMode().name().toLowerCase() + "_" + timestamp;
+            Path outputDir = Paths.get(options.get("output", "loadgen_results"));
+            result.writeJson(outputDir.resolve(baseName + ".json"), transport, generator);
+            result.writeHistogram(outputDir.resolve(baseName + ".hgrm"));
+            System.out.println("\nResultados guardados en: " + outputDir.toAbsolutePath().resolve(baseName + ".json"));
+        } catch (Exception e) {
+            System.err.println("[Load Generator]: Error: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    private static int defaultPort(String transport) {
+        switch (transport) {
+            case "rmi":
+                return 1099;
+            case "soap":
+                return 8080;
+            default:
+                return 1804;
+        }
+    }
+}
@@ -2,17 +2,34 @@ package classes;
 
 import java.rmi.RemoteException;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import common.catalogue.Facets;
+import common.deadline.DeadlineExceededException;
+import common.trace.Span;
+import common.trace.Tracer;
 import interfaces.InterfaceSong;
 
 public class MusicClient {
     
+    private static final int RANKED_RESULTS = 20;
+    // Valores que se muestran de cada campo en el resumen
+    private static final int FACET_VALUES = 10;
+    public static final int DEFAULT_TIMEOUT_MS = 10_000;
+    
     private InterfaceSong songService;
     private Scanner scanner;
+    // Plazo de cada búsqueda; el servidor la abandona al agotarse
+    private int timeoutMs;
     
     public MusicClient(InterfaceSong songService) {
+        this(songService, DEFAULT_TIMEOUT_MS);
+    }
+    
+    public MusicClient(InterfaceSong songService, int timeoutMs) {
         this.songService = songService;
         this.scanner = new Scanner(System.in);
+        this.timeoutMs = timeoutMs;
     }
     
     public void startClient() {
@@ -20,7 +37,7 @@ public class MusicClient {
         System.out.println("Conectado al servidor RMI.");
         
         int choice = 0;
-        while (choice != 6) {
+        while (choice != 10) {
             showMenu();
             choice = scanner.nextInt();
             scanner.nextLine();
@@ -42,6 +59,18 @@ public class MusicClient {
                     searchByGenre();
                     break;
                 case 6:
+                    searchByYearRange();
+                    break;
+                case 7:
+                    searchByLanguage();
+                    break;
+                case 8:
+                    searchRanked();
+                    break;
+                case 9:
+                    showFacets();
+                    break;
+                case 10:
                     System.out.println("¡Hasta luego!");
                     break;
                 default:
@@ -57,7 +86,11 @@ public class MusicClient {
         System.out.println("3. Mostrar todas las canciones");
         System.out.println("4. Buscar por título");
         System.out.println("5. Buscar por género");
-        System.out.println("6. Salir");
+        System.out.println("6. Buscar por años");
+        System.out.println("7. Buscar por idioma");
+        System.out.println("8. Búsqueda aproximada (más relevantes primero)");
+        System.out.println("9. Resumen por género, idioma, autor y década");
+        System.out.println("10. Salir");
         System.out.print("Seleccione una opción: ");
     }
     
@@ -65,7 +98,7 @@ public class MusicClient {
         System.out.print("Ingrese el nombre del autor: ");
         String author = scanner.nextLine();
         try {
-            List<Song> results = songService.searchByAuthor(author);
+            List<Song> results = call("searchByAuthor", author);
             displayResults(results);
         } catch (RemoteException e) {
             System.out.println("[Music Client]: Error buscando por autor: " + e.getMessage());
@@ -76,7 +109,7 @@ public class MusicClient {
         System.out.print("Ingrese el título de la canción: ");
         String title = scanner.nextLine();
         try {
-            List<Song> results = songService.searchByTitle(title);
+            List<Song> results = call("searchByTitle", title);
             displayResults(results);
         } catch (RemoteException e) {
             System.out.println("[Music Client]: Error buscando por título: " + e.getMessage());
@@ -87,13 +120,76 @@ public class MusicClient {
         System.out.print("Ingrese el género: ");
         String genre = scanner.nextLine();
         try {
-            List<Song> results = songService.searchByGenre(genre);
+            List<Song> results = call("searchByGenre", genre);
             displayResults(results);
         } catch (RemoteException e) {
             System.out.println("[Music Client]: Error buscando por género: " + e.getMessage());
         }
     }
     
+    private void searchByYearRange() {
+        System.out.print("Desde el año: ");
+        String from = scanner.nextLine().trim();
+        System.out.print("Hasta el año: ");
+        String to = scanner.nextLine().trim();
+        try {
+            List<Song> results = call("searchByYearRange", from, to);
+            displayResults(results);
+        } catch (RemoteException | NumberFormatException e) {
+            System.out.println("[Music Client]: Error buscando por años: " + e.getMessage());
+        }
+    }
+    
+    private void searchByLanguage() {
+        System.out.print("Ingrese el idioma: ");
+        String language = scanner.nextLine();
+        try {
+            List<Song> results = call("searchByLanguage", language);
+            displayResults(results);
+        } catch (RemoteException e) {
+            System.out.println("[Music Client]: Error buscando por idioma: " + e.getMessage());
+        }
+    }
+    
+    private void searchRanked() {
+        System.out.print("Buscar (título, autor o género; admite erratas): ");
+        String query = scanner.nextLine();
+        try {
+            List<Song> results = call("searchRanked", query, String.valueOf(RANKED_RESULTS));
+            displayResults(results);
+        } catch (RemoteException e) {
+            System.out.println("[Music Client]: Error en búsqueda aproximada: " + e.getMessage());
+        }
+    }
+    
+    private void showFacets() {
+        System.out.print("Género (presione Enter para todos): ");
+        String genre = scanner.nextLine();
+        System.out.print("Idioma (presione Enter para todos): ");
+        String language = scanner.nextLine();
+        try (Span span = Tracer.startClientSpan("rmi.client.facets")) {
+            Facets facets = songService.facets("", genre, "", null, null, language, FACET_VALUES);
+            span.tag("total", facets.total).tag("partial", facets.partial);
+            System.out.println("\n=== RESUMEN (" + facets.total + " canciones) ===");
+            if (facets.partial) {
+                System.out.println("[Music Client]: Recuento parcial: faltan shards por responder");
+            }
+            printFacet("Géneros", facets.genres);
+            printFacet("Idiomas", facets.languages);
+            printFacet("Autores", facets.authors);
+            printFacet("Décadas", facets.decades);
+        } catch (RemoteException e) {
+            System.out.println("[Music Client]: Error obteniendo el resumen: " + e.getMessage());
+        }
+    }
+    
+    private static void printFacet(String name, Map<String, Integer> counts) {
+        System.out.println(name + ":");
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            System.out.println("   " + entry.getKey() + ": " + entry.getValue());
+        }
+    }
+    
     private void searchByMultipleCriteriaMenu() {
         System.out.println("=== BÚSQUEDA AVANZADA ===");
         System.out.print("Título (presione Enter para omitir): ");
@@ -102,26 +198,49 @@ public class MusicClient {
         String genre = scanner.nextLine();
         System.out.print("Autor (presione Enter para omitir): ");
         String author = scanner.nextLine();
+        System.out.print("Desde el año (presione Enter para omitir): ");
+        String yearFrom = scanner.nextLine().trim();
+        System.out.print("Hasta el año (presione Enter para omitir): ");
+        String yearTo = scanner.nextLine().trim();
+        System.out.print("Idioma (presione Enter para omitir): ");
+        String language = scanner.nextLine();
         
         try {
-            List<Song> results = songService.searchByMultipleCriteria(title, genre, author);
+            List<Song> results = call("searchByMultipleCriteria", title, genre, author, yearFrom, yearTo, language);
             displayResults(results);
-        } catch (RemoteException e) {
+        } catch (RemoteException | NumberFormatException e) {
             System.out.println("[Music Client]: Error en búsqueda múltiple: " + e.getMessage());
         }
     }
     
     private void showAllSongs() {
         try {
-            List<Song> results = songService.searchByMultipleCriteria("", "", "");
+            List<Song> results = call("searchByMultipleCriteria", "", "", "");
             displayResults(results);
         } catch (RemoteException e) {
             System.out.println("[Music Client]: Error obteniendo todas las canciones: " + e.getMessage());
         }
     }
     
+    /*
+     * Invoca el método remoto bajo un span cliente, siempre por search(timeoutMillis, traceparent, ...)
+     * para que el servidor conozca el plazo (el traceparent es null si la consulta no se traza).
+     */
+    private List<Song> call(String method, String... args) throws RemoteException {
+        try (Span span = Tracer.startClientSpan("rmi.client." + method)) {
+            return songService.search(timeoutMs, span.traceParent(), method, args);
+        } catch (DeadlineExceededException e) {
+            throw new RemoteException(e.getMessage(), e);
+        }
+    }
+    
     private void displayResults(List<Song> results) {
         System.out.println("\n=== RESULTADOS ===");
+        if (results instanceof SearchResults && ((SearchResults) results).isPartial()) {
+            SearchResults partial = (SearchResults) results;
+            System.out.println("Aviso: resultado parcial, no respondieron los shards " + partial.getMissingShards()
+                + " de " + partial.getShards());
+        }
         if (results.isEmpty()) {
             System.out.println("No se encontraron canciones que coincidan con los criterios.");
         } else {
@@ -1,6 +1,10 @@
 package main;
 
 import classes.MusicClient;
+import classes.ReplicatedSongService;
+import common.balance.LoadBalancer;
+import common.bench.BenchmarkOptions;
+import common.trace.Tracer;
 import interfaces.InterfaceSong;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
@@ -8,13 +12,33 @@ import java.rmi.registry.Registry;
 public class MusicLibraryClient {
     
     public static void main(String[] args) {
+        // --trace-sample=1 traza todas las consultas (traces-lab3-client.jsonl); --timeout-ms=10000 por búsqueda
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+        Tracer.configure("lab3-client", options.getDouble("trace-sample", Tracer.getSampleRate()), options.get("trace-file", null));
+        int timeoutMs = options.getInt("timeout-ms", MusicClient.DEFAULT_TIMEOUT_MS);
+        // Sin esto RMI espera la respuesta indefinidamente; con un segundo de margen para que llegue
+        // antes el aviso del servidor de que abandonó la búsqueda. --timeout-ms=0 no limita nada
+        if (timeoutMs > 0 && System.getProperty("sun.rmi.transport.tcp.responseTimeout") == null) {
+            System.setProperty("sun.rmi.transport.tcp.responseTimeout", String.valueOf(timeoutMs + 1000));
+        }
+        if (timeoutMs > 0 && System.getProperty("sun.rmi.transport.proxy.connectTimeout") == null) {
+            System.setProperty("sun.rmi.transport.proxy.connectTimeout", String.valueOf(timeoutMs));
+        }
         try {
             // Conectar al registro RMI
             Registry registry = LocateRegistry.getRegistry("127.0.0.1", 1099);
-            InterfaceSong songService = (InterfaceSong) registry.lookup("MusicLibrary");
+            // Con réplicas registradas (MusicLibrary-N) se reparten las consultas; --balance=none usa solo el primario
+            String balance = options.get("balance", "p2c");
+            InterfaceSong songService;
+            if (!balance.equals("none") && ReplicatedSongService.countReplicas(registry, "MusicLibrary") > 1) {
+                songService = ReplicatedSongService.connect(registry, "MusicLibrary",
+                    LoadBalancer.Strategy.valueOf(balance.toUpperCase()));
+            } else {
+                songService = (InterfaceSong) registry.lookup("MusicLibrary");
+            }
             
             // Crear cliente con el objeto remoto
-            MusicClient client = new MusicClient(songService);
+            MusicClient client = new MusicClient(songService, timeoutMs);
             client.startClient();
         } catch (Exception e) {
             System.err.println("[Music Client]: Excepción en el cliente: " + e.toString());
@@ -1,21 +1,114 @@
 package classes;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
+import common.catalogue.CatalogueImporter;
+import common.catalogue.CatalogueStore;
+import common.catalogue.Facets;
+import common.catalogue.MappedCatalogue;
+import common.catalogue.ReplicationSource;
+import common.catalogue.SearchEngine;
+import common.catalogue.SnapshotCatalogue;
+import common.catalogue.SongCodec;
+import common.catalogue.SongFilter;
+import common.deadline.Deadline;
+import common.deadline.DeadlineExceededException;
+import common.metrics.MetricsRegistry;
+import common.trace.Span;
+import common.trace.Tracer;
 import interfaces.InterfaceSong;
 
 public class MusicServer extends UnicastRemoteObject implements InterfaceSong {
     
-    private List<Song> database;
+    private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+    // Tope de searchRanked: para listas más largas están las búsquedas sin orden
+    public static final int MAX_RANKED = SearchEngine.MAX_RANKED;
+    // También lo usa ShardCoordinator para volver a puntuar los resultados de los shards
+    static final SongCodec<Song> CODEC = SongCodec.of(Song::new, Song::getTitle, Song::getGenre,
+        Song::getAuthor, Song::getLanguage, Song::getYear);
+    
+    // Cambios que el primario guarda para sus réplicas (ver ReplicationSource)
+    public static final int REPLICATION_CHANGES = 100_000;
+    
+    // Catálogo e índices; con --gateway los mismos atienden también socket y SOAP (ver engine())
+    private final transient SearchEngine<Song> engine;
+    // null en el de solo lectura. Como el resto de campos, no viaja: el servidor se exporta por RMI
+    private final transient SnapshotCatalogue<Song> catalogue;
+    // Una réplica no acepta escrituras de los clientes: solo aplica las del primario
+    private final boolean replica;
+    // Se engancha con la primera réplica que copia el catálogo; sin réplicas no se guarda nada
+    private transient ReplicationSource<Song> replication;
     
     public MusicServer() throws RemoteException {
-        initializeDatabase();
+        this(defaultCatalogue());
+    }
+    
+    // Servidor con un catálogo inicial dado (shards, benchmarks y pruebas locales)
+    public MusicServer(List<Song> database) throws RemoteException {
+        this(new SnapshotCatalogue<>(database, MusicServer::keyOf));
     }
     
-    private void initializeDatabase() {
-        database = new ArrayList<>();
+    // Servidor sobre un catálogo ya creado (p. ej. el de openStore)
+    public MusicServer(SnapshotCatalogue<Song> catalogue) throws RemoteException {
+        this(catalogue, false);
+    }
+    
+    // Con replica las escrituras solo llegan por catalogue (ver ReplicaSync)
+    public MusicServer(SnapshotCatalogue<Song> catalogue, boolean replica) throws RemoteException {
+        this.engine = new SearchEngine<>(catalogue, CODEC);
+        this.catalogue = catalogue;
+        this.replica = replica;
+    }
+    
+    // Servidor de solo lectura sobre un fichero de catálogo (ver openMapped)
+    public MusicServer(MappedCatalogue<Song> mapped) throws RemoteException {
+        this.engine = new SearchEngine<>(mapped, CODEC);
+        this.catalogue = null;
+        this.replica = false;
+    }
+    
+    // Motor de búsqueda del servidor, para servir otros protocolos con el mismo catálogo
+    public SearchEngine<Song> engine() {
+        return engine;
+    }
+    
+    // Fichero de catálogo (p. ej. el catalogue.snap de --data-dir) para buscar sin cargarlo
+    public static MappedCatalogue<Song> openMapped(Path path, boolean verify) throws IOException {
+        return MappedCatalogue.open(path, CODEC, verify);
+    }
+    
+    // Lector de volcados CSV/JSON que crea Song (ver main.ImportCatalogue)
+    public static CatalogueImporter<Song> importer(int batchSize, int parallelism) {
+        return new CatalogueImporter<>(CODEC, batchSize, parallelism);
+    }
+    
+    // Catálogo persistente en directory; initial solo se usa si el directorio está vacío
+    public static CatalogueStore<Song> openStore(Path directory, Supplier<List<Song>> initial,
+                                                 CatalogueStore.Sync sync, long checkpointBytes) throws IOException {
+        return CatalogueStore.open(directory, CODEC, MusicServer::keyOf, initial, sync, checkpointBytes);
+    }
+    
+    static String keyOf(Song song) {
+        return SnapshotCatalogue.key(song.getTitle(), song.getAuthor());
+    }
+    
+    // Se llama al terminar cada método remoto (tiempo dentro del servidor, sin serialización)
+    private List<Song> record(String method, long start, List<Song> results) {
+        METRICS.counter("rmi_requests_total", "Invocaciones remotas", "method", method).increment();
+        METRICS.counter("music_results_total", "Canciones devueltas", "frontend", "rmi",
+            "method", method).add(results.size());
+        METRICS.histogram("rmi_request_duration_seconds", "Tiempo de ejecución de los métodos remotos",
+            "method", method).recordValue(System.nanoTime() - start);
+        return results;
+    }
+    
+    public static List<Song> defaultCatalogue() {
+        List<Song> database = new ArrayList<>();
         database.add(new Song("One bite on the Dust", "Rock", "Queen", "English", 1975));
         database.add(new Song("Bohemian Rhapsody", "Rock", "Queen", "English", 1975));
         database.add(new Song("Hotel California", "Rock", "Eagles", "English", 1976));
@@ -32,59 +125,229 @@ public class MusicServer extends UnicastRemoteObject implements InterfaceSong {
         database.add(new Song("Careless Whisper", "Pop", "George Michael", "English", 1984));
         database.add(new Song("Sweet Child O' Mine", "Rock", "Guns N' Roses", "English", 1987));
         database.add(new Song("Thunderstruck", "Rock", "AC/DC", "English", 1990));
+        return database;
     }
     
     @Override
-    public List<Song> searchByTitle(String title) throws RemoteException {
-        List<Song> results = new ArrayList<>();
-        for (Song song : database) {
-            if (song.getTitle().toLowerCase().contains(title.toLowerCase())) {
-                results.add(song);
+    public List<Song> search(String traceParent, String method, String... args) throws RemoteException {
+        // El span cubre la ejecución en el servidor; la serialización de la respuesta la hace RMI después
+        try (Span span = Tracer.startServerSpan("rmi." + method, traceParent)) {
+            List<Song> results;
+            switch (method) {
+                case "searchByTitle":
+                    results = searchByTitle(args[0]);
+                    break;
+                case "searchByGenre":
+                    results = searchByGenre(args[0]);
+                    break;
+                case "searchByAuthor":
+                    results = searchByAuthor(args[0]);
+                    break;
+                case "searchByMultipleCriteria":
+                    results = args.length > 3
+                        ? searchByMultipleCriteria(args[0], args[1], args[2], year(args[3]), year(args[4]), args[5])
+                        : searchByMultipleCriteria(args[0], args[1], args[2]);
+                    break;
+                case "searchByYearRange":
+                    results = searchByYearRange(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+                    break;
+                case "searchByLanguage":
+                    results = searchByLanguage(args[0]);
+                    break;
+                case "searchRanked":
+                    results = searchRanked(args[0], Integer.parseInt(args[1]));
+                    break;
+                default:
+                    throw new RemoteException("Método desconocido: " + method);
             }
+            span.tag("results", results.size());
+            return results;
         }
-        return results;
     }
     
+    // La búsqueda comprueba el plazo mientras recorre el catálogo; vencido, el cliente recibe la excepción
     @Override
-    public List<Song> searchByGenre(String genre) throws RemoteException {
-        List<Song> results = new ArrayList<>();
-        for (Song song : database) {
-            if (song.getGenre().toLowerCase().contains(genre.toLowerCase())) {
-                results.add(song);
-            }
+    public List<Song> search(long timeoutMillis, String traceParent, String method, String... args)
+            throws RemoteException {
+        Deadline.Scope scope = Deadline.attach(timeoutMillis > 0 ? Deadline.after(timeoutMillis) : null);
+        try {
+            return search(traceParent, method, args);
+        } catch (DeadlineExceededException e) {
+            METRICS.counter("music_deadline_exceeded_total", "Peticiones abandonadas al vencer su plazo",
+                "frontend", "rmi").increment();
+            throw e;
+        } finally {
+            scope.close();
         }
-        return results;
+    }
+    
+    // En search(...) los años van como texto; "" es sin límite
+    private static Integer year(String text) {
+        return text == null || text.isEmpty() ? null : Integer.valueOf(text);
     }
     
     @Override
-    public List<Song> searchByAuthor(String author) throws RemoteException {
-        List<Song> results = new ArrayList<>();
-        for (Song song : database) {
-            if (song.getAuthor().toLowerCase().contains(author.toLowerCase())) {
-                results.add(song);
-            }
+    public List<Song> catalogue(int offset, int limit) throws RemoteException {
+        long start = System.nanoTime();
+        return record("catalogue", start, engine.page(offset, limit));
+    }
+    
+    // Sobre el fichero mapeado la versión no cambia: las páginas son siempre de la misma
+    @Override
+    public ReplicationSource.Page<Song> cataloguePage(long version, int offset, int limit) throws RemoteException {
+        long start = System.nanoTime();
+        ReplicationSource.Page<Song> page;
+        if (engine.isReadOnly()) {
+            page = version < 0 || version == engine.version()
+                ? new ReplicationSource.Page<>(0, engine.version(), engine.page(offset, limit)) : null;
+        } else {
+            page = replication().page(version, offset, limit);
         }
-        return results;
+        record("cataloguePage", start, page == null ? List.of() : page.songs);
+        return page;
+    }
+    
+    @Override
+    public List<ReplicationSource.Change<Song>> changesSince(long epoch, long version, int limit)
+            throws RemoteException {
+        if (engine.isReadOnly()) {
+            return epoch == 0 && version == engine.version() ? List.of() : null;
+        }
+        return replication().since(epoch, version, limit);
+    }
+    
+    private synchronized ReplicationSource<Song> replication() throws RemoteException {
+        if (replica) {
+            throw new RemoteException("Esto es una réplica: copie el catálogo del primario");
+        }
+        if (replication == null) {
+            replication = ReplicationSource.attach(catalogue, REPLICATION_CHANGES);
+        }
+        return replication;
+    }
+    
+    @Override
+    public boolean addSong(Song song) throws RemoteException {
+        long start = System.nanoTime();
+        validate(song);
+        return recordWrite("addSong", start, engine.add(song));
+    }
+    
+    @Override
+    public boolean updateSong(String title, String author, Song song) throws RemoteException {
+        long start = System.nanoTime();
+        validate(song);
+        return recordWrite("updateSong", start, engine.update(SearchEngine.key(title, author), song));
+    }
+    
+    @Override
+    public int addSongs(List<Song> songs) throws RemoteException {
+        long start = System.nanoTime();
+        for (Song song : songs) {
+            validate(song);
+        }
+        int added = engine.addAll(songs);
+        METRICS.counter("music_catalogue_writes_total", "Cambios en el catálogo", "frontend", "rmi",
+            "method", "addSongs", "result", "applied").add(added);
+        METRICS.counter("music_catalogue_writes_total", "Cambios en el catálogo", "frontend", "rmi",
+            "method", "addSongs", "result", "rejected").add(songs.size() - added);
+        METRICS.histogram("rmi_request_duration_seconds", "Tiempo de ejecución de los métodos remotos",
+            "method", "addSongs").recordValue(System.nanoTime() - start);
+        return added;
+    }
+    
+    @Override
+    public boolean deleteSong(String title, String author) throws RemoteException {
+        long start = System.nanoTime();
+        writable();
+        return recordWrite("deleteSong", start, engine.remove(SearchEngine.key(title, author)) != null);
+    }
+    
+    private void validate(Song song) throws RemoteException {
+        writable();
+        String rejected = SearchEngine.rejectionReason(CODEC, song);
+        if (rejected != null) {
+            throw new RemoteException("Canción inválida: " + rejected);
+        }
+    }
+    
+    private void writable() throws RemoteException {
+        if (replica) {
+            throw new RemoteException("Réplica de solo lectura: las escrituras van al primario");
+        }
+        if (engine.isReadOnly()) {
+            throw new RemoteException("Catálogo de solo lectura (" + engine.file() + ")");
+        }
+    }
+    
+    private boolean recordWrite(String method, long start, boolean applied) {
+        METRICS.counter("music_catalogue_writes_total", "Cambios en el catálogo", "frontend", "rmi",
+            "method", method, "result", applied ? "applied" : "rejected").increment();
+        METRICS.histogram("rmi_request_duration_seconds", "Tiempo de ejecución de los métodos remotos",
+            "method", method).recordValue(System.nanoTime() - start);
+        return applied;
+    }
+    
+    @Override
+    public List<Song> searchByTitle(String title) throws RemoteException {
+        return filter("searchByTitle", new SongFilter(title, null, null));
+    }
+    
+    @Override
+    public List<Song> searchByGenre(String genre) throws RemoteException {
+        return filter("searchByGenre", new SongFilter(null, genre, null));
+    }
+    
+    @Override
+    public List<Song> searchByAuthor(String author) throws RemoteException {
+        return filter("searchByAuthor", new SongFilter(null, null, author));
     }
     
     @Override
     public List<Song> searchByMultipleCriteria(String title, String genre, String author) throws RemoteException {
-        List<Song> results = new ArrayList<>();
-        for (Song song : database) {
-            boolean matches = true;
-            if (!title.isEmpty() && !song.getTitle().toLowerCase().contains(title.toLowerCase())) {
-                matches = false;
-            }
-            if (!genre.isEmpty() && !song.getGenre().toLowerCase().contains(genre.toLowerCase())) {
-                matches = false;
-            }
-            if (!author.isEmpty() && !song.getAuthor().toLowerCase().contains(author.toLowerCase())) {
-                matches = false;
-            }
-            if (matches) {
-                results.add(song);
-            }
+        return filter("searchByMultipleCriteria", new SongFilter(title, genre, author));
+    }
+    
+    @Override
+    public List<Song> searchByMultipleCriteria(String title, String genre, String author,
+                                               Integer yearFrom, Integer yearTo, String language) throws RemoteException {
+        return filter("searchByMultipleCriteria", new SongFilter(title, genre, author, yearFrom, yearTo, language));
+    }
+    
+    @Override
+    public List<Song> searchByYearRange(int from, int to) throws RemoteException {
+        return filter("searchByYearRange", new SongFilter(null, null, null, from, to, null));
+    }
+    
+    @Override
+    public List<Song> searchByLanguage(String language) throws RemoteException {
+        return filter("searchByLanguage", new SongFilter(null, null, null, null, null, language));
+    }
+    
+    @Override
+    public List<Song> searchRanked(String query, int limit) throws RemoteException {
+        long start = System.nanoTime();
+        if (limit < 1 || limit > MAX_RANKED) {
+            throw new RemoteException("limit fuera de rango (1.." + MAX_RANKED + "): " + limit);
         }
-        return results;
+        return record("searchRanked", start, engine.ranked(query, limit));
+    }
+    
+    @Override
+    public Facets facets(String title, String genre, String author, Integer yearFrom, Integer yearTo,
+                         String language, int limit) throws RemoteException {
+        long start = System.nanoTime();
+        SongFilter filter = new SongFilter(title, genre, author, yearFrom, yearTo, language);
+        Facets facets = engine.facets(filter, limit);
+        METRICS.counter("rmi_requests_total", "Invocaciones remotas", "method", "facets").increment();
+        METRICS.histogram("rmi_request_duration_seconds", "Tiempo de ejecución de los métodos remotos",
+            "method", "facets").recordValue(System.nanoTime() - start);
+        return facets;
+    }
+    
+    // Año, idioma y género con los índices por bloque; título y autor recorriendo lo que queda
+    private List<Song> filter(String method, SongFilter filter) {
+        long start = System.nanoTime();
+        return record(method, start, engine.search(filter));
     }
 }
\ No newline at end of file
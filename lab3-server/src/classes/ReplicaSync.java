@@ -0,0 +1,130 @@
+package classes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import common.catalogue.ReplicationSource;
+import common.catalogue.SnapshotCatalogue;
+import common.log.Log;
+import common.log.Logger;
+import common.metrics.MetricsRegistry;
+import interfaces.InterfaceSong;
+
+/*
+ * Mantiene la copia de una réplica al día con su primario. Primero copia el catálogo de una
+ * versión fija (cataloguePage, así las escrituras que siguen llegando al primario no hacen
+ * saltar ni repetir canciones entre páginas) y después, cada pollMs, pide los cambios
+ * publicados desde la última versión aplicada (changesSince) y los aplica en el mismo orden.
+ * Si el primario ya no tiene esos cambios (reinició, o la réplica estuvo mucho tiempo sin
+ * llegar a él) vuelve a copiar el catálogo y lo sustituye de una vez; mientras tanto sigue
+ * sirviendo el anterior. Con el primario accesible las lecturas de la réplica van como mucho
+ * unos pollMs por detrás de sus escrituras.
+ */
+public class ReplicaSync {
+
+    private static final Logger LOG = Log.getLogger("Replica Sync");
+    private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+    // Cambios por petición a changesSince
+    private static final int CHANGES_PER_POLL = 1_000;
+
+    private final InterfaceSong primary;
+    private final int pageSize;
+    private final SnapshotCatalogue<Song> catalogue;
+    private final ScheduledExecutorService poller;
+    // Arranque del primario y última versión suya aplicada aquí (solo los cambia el hilo del poller)
+    private volatile long epoch;
+    private volatile long version;
+
+    private ReplicaSync(InterfaceSong primary, int pageSize) throws Exception {
+        this.primary = primary;
+        this.pageSize = pageSize;
+        this.catalogue = new SnapshotCatalogue<>(copy(), MusicServer::keyOf);
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        METRICS.gauge("music_replica_primary_version", "Última versión del primario aplicada en la réplica",
+            () -> version);
+    }
+
+    // Copia el catálogo del primario y empieza a seguir sus cambios cada pollMs
+    public static ReplicaSync start(InterfaceSong primary, int pageSize, long pollMs) throws Exception {
+        ReplicaSync sync = new ReplicaSync(primary, pageSize);
+        sync.poller.scheduleWithFixedDelay(sync::poll, pollMs, pollMs, TimeUnit.MILLISECONDS);
+        return sync;
+    }
+
+    public SnapshotCatalogue<Song> catalogue() {
+        return catalogue;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public void close() {
+        poller.shutdownNow();
+    }
+
+    /*
+     * Todas las canciones de una misma versión del primario. Si esa versión deja de estar
+     * fijada a mitad (el primario la soltó por tiempo o por otras réplicas) se empieza otra vez.
+     */
+    private List<Song> copy() throws Exception {
+        while (true) {
+            ReplicationSource.Page<Song> page = primary.cataloguePage(-1, 0, pageSize);
+            List<Song> songs = new ArrayList<>(page.songs);
+            while (page != null && page.songs.size() == pageSize) {
+                page = primary.cataloguePage(page.version, songs.size(), pageSize);
+                if (page != null) {
+                    songs.addAll(page.songs);
+                }
+            }
+            if (page != null) {
+                epoch = page.epoch;
+                version = page.version;
+                return songs;
+            }
+            LOG.warn("El primario soltó la versión que se estaba copiando; se empieza de nuevo");
+        }
+    }
+
+    private void poll() {
+        try {
+            List<ReplicationSource.Change<Song>> changes;
+            do {
+                changes = primary.changesSince(epoch, version, CHANGES_PER_POLL);
+                if (changes == null) {
+                    resync("el primario ya no tiene los cambios desde la versión " + version);
+                    return;
+                }
+                for (ReplicationSource.Change<Song> change : changes) {
+                    if (!change.applyTo(catalogue)) {
+                        resync("el cambio " + change.version + " del primario no encaja con la copia");
+                        return;
+                    }
+                    version = change.version;
+                }
+                METRICS.counter("music_replica_changes_total", "Cambios del primario aplicados en la réplica")
+                    .add(changes.size());
+            } while (changes.size() == CHANGES_PER_POLL);
+        } catch (Exception e) {
+            // Primario inaccesible: se sigue sirviendo lo que hay y se reintenta en la siguiente vuelta
+            METRICS.counter("music_replica_sync_errors_total", "Fallos al pedir cambios al primario").increment();
+            LOG.warn("No se pudieron pedir los cambios al primario: {}", e.getMessage());
+        }
+    }
+
+    private void resync(String reason) throws Exception {
+        LOG.warn("Réplica desincronizada ({}); se copia el catálogo otra vez", reason);
+        long start = System.nanoTime();
+        catalogue.replaceAll(copy());
+        METRICS.counter("music_replica_resyncs_total", "Copias completas del catálogo tras perder cambios")
+            .increment();
+        LOG.info("Réplica al día en la versión {} del primario: {} canciones en {} ms", version, catalogue.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+}
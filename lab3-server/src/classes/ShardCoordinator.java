@@ -0,0 +1,418 @@
+package classes;
+
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import common.catalogue.Facets;
+import common.catalogue.RelevanceScorer;
+import common.catalogue.ReplicationSource;
+import common.catalogue.SearchEngine;
+import common.deadline.Deadline;
+import common.deadline.DeadlineExceededException;
+import common.log.Log;
+import common.log.Logger;
+import common.metrics.MetricsRegistry;
+import common.shard.ScatterGather;
+import common.shard.Sharding;
+import common.trace.Span;
+import common.trace.Tracer;
+import interfaces.InterfaceSong;
+
+/*
+ * Coordinador del modo shard: se registra como "MusicLibrary" igual que un servidor normal,
+ * así los clientes no cambian, y reenvía cada búsqueda a todos los shards. El resultado junta
+ * las respuestas en orden de shard; si alguno no contesta dentro de shardTimeoutMs se devuelve
+ * lo que haya (SearchResults.isPartial()) mientras respondan al menos minShards. Con plazo
+ * (search(timeoutMillis, ...)) cada shard recibe lo que queda de él y, si vence, la búsqueda
+ * entera acaba con DeadlineExceededException en lugar de un resultado parcial.
+ */
+public class ShardCoordinator extends UnicastRemoteObject implements InterfaceSong {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = Log.getLogger("Shard Coordinator");
+    private static final MetricsRegistry METRICS = MetricsRegistry.getDefault();
+
+    private final ArrayList<String> addresses;
+    private final String bindingName;
+    private final AtomicReferenceArray<InterfaceSong> stubs;
+    // Se exporta por RMI, nunca se serializa: el pool de hilos no viaja
+    private final transient ScatterGather scatterGather;
+    private final int minShards;
+    private final boolean byAuthor;
+
+    /*
+     * addresses: "host:puerto" del registro de cada shard, en orden de índice. shardKey
+     * ("title" o "author") debe ser el mismo con el que arrancaron los shards, porque las
+     * escrituras van solo al shard dueño de la canción.
+     */
+    public ShardCoordinator(List<String> addresses, String bindingName, long shardTimeoutMs, int minShards,
+                            String shardKey) throws RemoteException {
+        this.addresses = new ArrayList<>(addresses);
+        this.byAuthor = shardKey.equalsIgnoreCase("author");
+        this.bindingName = bindingName;
+        this.stubs = new AtomicReferenceArray<>(addresses.size());
+        this.scatterGather = new ScatterGather(addresses.size(), shardTimeoutMs);
+        this.minShards = minShards;
+        METRICS.gauge("music_shards", "Shards configurados", () -> this.addresses.size());
+    }
+
+    public int getShards() {
+        return addresses.size();
+    }
+
+    @Override
+    public List<Song> search(String traceParent, String method, String... args) throws RemoteException {
+        switch (method) {
+            case "searchByTitle":
+            case "searchByGenre":
+            case "searchByAuthor":
+            case "searchByMultipleCriteria":
+            case "searchByYearRange":
+            case "searchByLanguage":
+                return scatter(method, traceParent, args);
+            case "searchRanked":
+                return rerank(scatter(method, traceParent, args), args[0], Integer.parseInt(args[1]));
+            default:
+                throw new RemoteException("Método desconocido: " + method);
+        }
+    }
+
+    @Override
+    public List<Song> search(long timeoutMillis, String traceParent, String method, String... args)
+            throws RemoteException {
+        Deadline.Scope scope = Deadline.attach(timeoutMillis > 0 ? Deadline.after(timeoutMillis) : null);
+        try {
+            return search(traceParent, method, args);
+        } catch (DeadlineExceededException e) {
+            METRICS.counter("music_deadline_exceeded_total", "Peticiones abandonadas al vencer su plazo",
+                "frontend", "rmi").increment();
+            throw e;
+        } finally {
+            scope.close();
+        }
+    }
+
+    @Override
+    public List<Song> searchByTitle(String title) throws RemoteException {
+        return scatter("searchByTitle", null, title);
+    }
+
+    @Override
+    public List<Song> searchByGenre(String genre) throws RemoteException {
+        return scatter("searchByGenre", null, genre);
+    }
+
+    @Override
+    public List<Song> searchByAuthor(String author) throws RemoteException {
+        return scatter("searchByAuthor", null, author);
+    }
+
+    @Override
+    public List<Song> searchByMultipleCriteria(String title, String genre, String author) throws RemoteException {
+        return scatter("searchByMultipleCriteria", null, title, genre, author);
+    }
+
+    @Override
+    public List<Song> searchByMultipleCriteria(String title, String genre, String author,
+                                               Integer yearFrom, Integer yearTo, String language) throws RemoteException {
+        return scatter("searchByMultipleCriteria", null, title, genre, author, yearText(yearFrom), yearText(yearTo),
+            language == null ? "" : language);
+    }
+
+    @Override
+    public List<Song> searchByYearRange(int from, int to) throws RemoteException {
+        return scatter("searchByYearRange", null, String.valueOf(from), String.valueOf(to));
+    }
+
+    @Override
+    public List<Song> searchByLanguage(String language) throws RemoteException {
+        return scatter("searchByLanguage", null, language);
+    }
+
+    @Override
+    public List<Song> searchRanked(String query, int limit) throws RemoteException {
+        return rerank(scatter("searchRanked", null, query, String.valueOf(limit)), query, limit);
+    }
+
+    /*
+     * Cada shard devuelve sus limit mejores; las mejores del total están entre ellas. La
+     * puntuación no viaja con las canciones, se vuelve a calcular aquí (son limit x shards).
+     */
+    private static List<Song> rerank(List<Song> merged, String query, int limit) {
+        List<Song> top = RelevanceScorer.top(merged, MusicServer.CODEC, query, limit);
+        if (merged instanceof SearchResults) {
+            SearchResults results = (SearchResults) merged;
+            return new SearchResults(top, results.getShards(), results.getMissingShards());
+        }
+        return top;
+    }
+
+    /*
+     * Cada shard cuenta todos los valores (limit 0) para que la suma sea exacta y el corte a
+     * limit se hace aquí; solo viajan los recuentos.
+     */
+    @Override
+    public Facets facets(String title, String genre, String author, Integer yearFrom, Integer yearTo,
+                         String language, int limit) throws RemoteException {
+        long start = System.nanoTime();
+        try (Span span = Tracer.startServerSpan("rmi.facets", null)) {
+            ScatterGather.Result<Facets> result = gather("facets", span, shard -> callShard(shard, "facets", span,
+                (stub, traceParent) -> List.of(stub.facets(title, genre, author, yearFrom, yearTo, language, 0))));
+            METRICS.counter("rmi_requests_total", "Invocaciones remotas", "method", "facets").increment();
+            METRICS.histogram("rmi_request_duration_seconds", "Tiempo de ejecución de los métodos remotos",
+                "method", "facets").recordValue(System.nanoTime() - start);
+            return Facets.merge(result.items, limit, result.isPartial());
+        }
+    }
+
+    private static String yearText(Integer year) {
+        return year == null ? "" : year.toString();
+    }
+
+    private static Integer year(String text) {
+        return text.isEmpty() ? null : Integer.valueOf(text);
+    }
+
+    @Override
+    public List<Song> catalogue(int offset, int limit) throws RemoteException {
+        // El orden global del catálogo no existe entre shards; cada shard se copia por separado
+        throw new RemoteException("El coordinador no sirve el catálogo completo; use catalogue() en cada shard");
+    }
+
+    @Override
+    public ReplicationSource.Page<Song> cataloguePage(long version, int offset, int limit) throws RemoteException {
+        throw new RemoteException("El coordinador no tiene réplicas; cada shard tiene las suyas");
+    }
+
+    @Override
+    public List<ReplicationSource.Change<Song>> changesSince(long epoch, long version, int limit)
+            throws RemoteException {
+        throw new RemoteException("El coordinador no tiene réplicas; cada shard tiene las suyas");
+    }
+
+    @Override
+    public boolean addSong(Song song) throws RemoteException {
+        validate(song);
+        int shard = shardOf(song.getTitle(), song.getAuthor());
+        return onShard(shard, stub -> stub.addSong(song));
+    }
+
+    @Override
+    public boolean updateSong(String title, String author, Song song) throws RemoteException {
+        validate(song);
+        int from = shardOf(title, author);
+        int to = shardOf(song.getTitle(), song.getAuthor());
+        if (from == to) {
+            return onShard(from, stub -> stub.updateSong(title, author, song));
+        }
+        // Cambia de shard: alta en el nuevo y baja en el antiguo (no es atómico entre shards)
+        if (!onShard(to, stub -> stub.addSong(song))) {
+            return false;
+        }
+        if (!onShard(from, stub -> stub.deleteSong(title, author))) {
+            onShard(to, stub -> stub.deleteSong(song.getTitle(), song.getAuthor()));
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean deleteSong(String title, String author) throws RemoteException {
+        return onShard(shardOf(title, author), stub -> stub.deleteSong(title, author));
+    }
+
+    // Antes de elegir shard, con el mismo criterio y mensaje que MusicServer
+    private static void validate(Song song) throws RemoteException {
+        String rejected = SearchEngine.rejectionReason(MusicServer.CODEC, song);
+        if (rejected != null) {
+            throw new RemoteException("Canción inválida: " + rejected);
+        }
+    }
+
+    // Un lote por shard con sus canciones; si un shard falla, los anteriores ya las tienen
+    @Override
+    public int addSongs(List<Song> songs) throws RemoteException {
+        List<List<Song>> byShard = new ArrayList<>();
+        for (int i = 0; i < addresses.size(); i++) {
+            byShard.add(new ArrayList<>());
+        }
+        for (Song song : songs) {
+            validate(song);
+            byShard.get(shardOf(song.getTitle(), song.getAuthor())).add(song);
+        }
+        int added = 0;
+        for (int shard = 0; shard < byShard.size(); shard++) {
+            List<Song> batch = byShard.get(shard);
+            if (!batch.isEmpty()) {
+                InterfaceSong stub = stub(shard);
+                try {
+                    added += stub.addSongs(batch);
+                } catch (RemoteException e) {
+                    stubs.compareAndSet(shard, stub, null);
+                    throw e;
+                }
+            }
+        }
+        return added;
+    }
+
+    private int shardOf(String title, String author) {
+        return Sharding.shardOf(byAuthor ? author : title, addresses.size());
+    }
+
+    private interface ShardWrite {
+        boolean apply(InterfaceSong stub) throws RemoteException;
+    }
+
+    private boolean onShard(int shard, ShardWrite write) throws RemoteException {
+        InterfaceSong stub = stub(shard);
+        try {
+            return write.apply(stub);
+        } catch (RemoteException e) {
+            stubs.compareAndSet(shard, stub, null);
+            throw e;
+        }
+    }
+
+    private List<Song> scatter(String method, String traceParent, String... args) throws RemoteException {
+        long start = System.nanoTime();
+        // Las ramas corren en otros hilos: el plazo se les pasa explícitamente
+        Deadline deadline = Deadline.current();
+        try (Span span = Tracer.startServerSpan("rmi." + method, traceParent)) {
+            ScatterGather.Result<Song> result = gather(method, span, shard -> callShard(shard, method, span,
+                (stub, shardParent) -> search(stub, shardParent, deadline, method, args)));
+            List<Integer> missing = new ArrayList<>(result.failures.keySet());
+            span.tag("results", result.items.size());
+            return record(method, start, new SearchResults(result.items, result.shards, missing));
+        }
+    }
+
+    // Misma consulta en todos los shards; falla si responden menos de minShards
+    private <T> ScatterGather.Result<T> gather(String method, Span span, ScatterGather.ShardCall<T> call)
+            throws RemoteException {
+        ScatterGather.Result<T> result;
+        try {
+            result = scatterGather.execute(call);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Búsqueda interrumpida");
+        }
+        // Si faltan shards porque venció el plazo, el resultado parcial ya no lo espera nadie
+        Deadline.check();
+
+        for (Map.Entry<Integer, String> failure : result.failures.entrySet()) {
+            String reason = ScatterGather.TIMEOUT.equals(failure.getValue()) ? "timeout" : "error";
+            METRICS.counter("shard_failures_total", "Shards sin respuesta válida en una búsqueda",
+                "shard", String.valueOf(failure.getKey()), "reason", reason).increment();
+        }
+        span.tag("shards", result.answered() + "/" + result.shards);
+        if (result.answered() < minShards) {
+            METRICS.counter("rmi_request_errors_total", "Invocaciones remotas fallidas", "method", method).increment();
+            throw new RemoteException("Solo respondieron " + result.answered() + " de " + result.shards
+                + " shards (mínimo " + minShards + "): " + result.failures);
+        }
+        if (result.isPartial()) {
+            METRICS.counter("music_partial_results_total", "Búsquedas con resultado parcial", "method", method).increment();
+            LOG.warn("Resultado parcial en {}: {} de {} shards ({})", method, result.answered(), result.shards, result.failures);
+        }
+        return result;
+    }
+
+    private interface ShardQuery<T> {
+        List<T> apply(InterfaceSong stub, String traceParent) throws RemoteException;
+    }
+
+    private <T> List<T> callShard(int shard, String method, Span parent, ShardQuery<T> query) throws Exception {
+        long start = System.nanoTime();
+        String status = "ok";
+        try (Span span = Tracer.startClientSpan("rmi.shard." + method, parent)) {
+            span.tag("shard", shard);
+            InterfaceSong stub = stub(shard);
+            try {
+                return query.apply(stub, span.traceParent());
+            } catch (RemoteException e) {
+                // El shard pudo reiniciarse con otro stub; se vuelve a buscar en la próxima consulta
+                stubs.compareAndSet(shard, stub, null);
+                throw e;
+            }
+        } catch (Exception e) {
+            status = "error";
+            throw e;
+        } finally {
+            METRICS.counter("shard_requests_total", "Búsquedas enviadas a cada shard",
+                "shard", String.valueOf(shard), "status", status).increment();
+            METRICS.histogram("shard_request_duration_seconds", "Tiempo de respuesta de cada shard",
+                "shard", String.valueOf(shard)).recordValue(System.nanoTime() - start);
+        }
+    }
+
+    /*
+     * Con plazo va por search(timeoutMillis, traceParent, ...) para que el shard abandone a la
+     * vez que el coordinador; con traza, por search(traceParent, ...) para que siga la suya.
+     */
+    private static List<Song> search(InterfaceSong stub, String traceParent, Deadline deadline, String method,
+                                     String[] args) throws RemoteException {
+        if (deadline != null) {
+            if (deadline.isExpired()) {
+                throw new DeadlineExceededException(-deadline.remainingMillis());
+            }
+            return stub.search(deadline.propagate(), traceParent, method, args);
+        }
+        if (traceParent != null) {
+            return stub.search(traceParent, method, args);
+        }
+        switch (method) {
+            case "searchByTitle":
+                return stub.searchByTitle(args[0]);
+            case "searchByGenre":
+                return stub.searchByGenre(args[0]);
+            case "searchByAuthor":
+                return stub.searchByAuthor(args[0]);
+            case "searchByYearRange":
+                return stub.searchByYearRange(Integer.parseInt(args[0]), Integer.parseInt(args[1]));
+            case "searchByLanguage":
+                return stub.searchByLanguage(args[0]);
+            case "searchRanked":
+                return stub.searchRanked(args[0], Integer.parseInt(args[1]));
+            default:
+                return args.length > 3
+                    ? stub.searchByMultipleCriteria(args[0], args[1], args[2], year(args[3]), year(args[4]), args[5])
+                    : stub.searchByMultipleCriteria(args[0], args[1], args[2]);
+        }
+    }
+
+    private InterfaceSong stub(int shard) throws RemoteException {
+        InterfaceSong stub = stubs.get(shard);
+        if (stub == null) {
+            String address = addresses.get(shard);
+            int colon = address.lastIndexOf(':');
+            String host = colon < 0 ? address : address.substring(0, colon);
+            int port = colon < 0 ? 1099 : Integer.parseInt(address.substring(colon + 1));
+            try {
+                stub = (InterfaceSong) LocateRegistry.getRegistry(host, port).lookup(bindingName);
+            } catch (NotBoundException e) {
+                throw new RemoteException("Shard " + shard + " sin registrar en " + address);
+            }
+            stubs.set(shard, stub);
+        }
+        return stub;
+    }
+
+    private List<Song> record(String method, long start, List<Song> results) {
+        METRICS.counter("rmi_requests_total", "Invocaciones remotas", "method", method).increment();
+        METRICS.counter("music_results_total", "Canciones devueltas", "frontend", "rmi",
+            "method", method).add(results.size());
+        METRICS.histogram("rmi_request_duration_seconds", "Tiempo de ejecución de los métodos remotos",
+            "method", method).recordValue(System.nanoTime() - start);
+        return results;
+    }
+
+    public void close() {
+        scatterGather.close();
+    }
+}
@@ -0,0 +1,125 @@
+package main;
+
+import classes.MusicServer;
+import classes.Song;
+import common.bench.BenchmarkOptions;
+import common.bench.MicroBenchmark;
+import common.bench.SyntheticCatalogue;
+import interfaces.InterfaceSong;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamConstants;
+import java.io.OutputStream;
+import java.nio.file.Paths;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.RMIClassLoader;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Benchmark del marshalling RMI de List<Song>.
+ * - rmi-marshal: flujo de objetos con las mismas reglas que el MarshalOutputStream de RMI
+ *   (protocolo 2 y anotación de codebase por clase), sin la capa de transporte.
+ * - rmi-call: llamada real a searchByMultipleCriteria("", "", "") contra un registro
+ *   en loopback, que incluye marshalling, transporte TCP y unmarshalling.
+ * Ejemplo: java main.CodecBenchmark --sizes=1,100,10000 --json=codec-lab3.json
+ */
+public class CodecBenchmark {
+
+    private static final int[] DEFAULT_SIZES = {1, 10, 100, 1_000, 10_000, 100_000};
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+        int[] sizes = options.getIntList("sizes", DEFAULT_SIZES);
+        long seed = options.getLong("seed", 42);
+        int port = options.getInt("port", 1199);
+
+        MicroBenchmark bench = MicroBenchmark.fromOptions(options);
+        Registry registry = LocateRegistry.createRegistry(port);
+
+        for (int size : sizes) {
+            List<Song> catalogue = SyntheticCatalogue.generate(size, seed, Song::new);
+            ArrayList<Song> results = new ArrayList<>(catalogue);
+            byte[] encoded = marshal(results);
+
+            Map<String, String> params = new LinkedHashMap<>();
+            params.put("codec", "rmi-marshal");
+            params.put("songs", String.valueOf(size));
+
+            bench.run("lab3.codec.encode", params, () -> marshal(results))
+                .addSecondaryMetric("wire.bytes", encoded.length)
+                .addSecondaryMetric("wire.bytes.perSong", (double) encoded.length / size);
+            bench.run("lab3.codec.decode", params, () -> unmarshal(encoded))
+                .addSecondaryMetric("wire.bytes", encoded.length)
+                .addSecondaryMetric("wire.bytes.perSong", (double) encoded.length / size);
+
+            // Llamada completa a través del stub
+            MusicServer server = new MusicServer(catalogue);
+            registry.rebind("MusicLibraryBenchmark", server);
+            InterfaceSong stub = (InterfaceSong) LocateRegistry.getRegistry("127.0.0.1", port)
+                .lookup("MusicLibraryBenchmark");
+
+            Map<String, String> callParams = new LinkedHashMap<>();
+            callParams.put("codec", "rmi-call");
+            callParams.put("songs", String.valueOf(size));
+            bench.run("lab3.codec.roundTrip", callParams, () -> stub.searchByMultipleCriteria("", "", ""))
+                .addSecondaryMetric("wire.bytes", encoded.length);
+
+            registry.unbind("MusicLibraryBenchmark");
+            UnicastRemoteObject.unexportObject(server, true);
+        }
+
+        UnicastRemoteObject.unexportObject(registry, true);
+
+        bench.printSummary();
+        bench.writeJson(Paths.get(options.get("json", "codec-lab3.json")));
+    }
+
+    static byte[] marshal(Object value) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (RmiMarshalOutputStream out = new RmiMarshalOutputStream(buffer)) {
+            out.writeObject(value);
+        }
+        return buffer.toByteArray();
+    }
+
+    static Object unmarshal(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (RmiMarshalInputStream in = new RmiMarshalInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    // Reproduce el formato de sun.rmi.server.MarshalOutputStream (clase interna del JDK)
+    private static class RmiMarshalOutputStream extends ObjectOutputStream {
+        RmiMarshalOutputStream(OutputStream out) throws IOException {
+            super(out);
+            useProtocolVersion(ObjectStreamConstants.PROTOCOL_VERSION_2);
+        }
+
+        @Override
+        protected void annotateClass(Class<?> cl) throws IOException {
+            writeObject(RMIClassLoader.getClassAnnotation(cl));
+        }
+    }
+
+    private static class RmiMarshalInputStream extends ObjectInputStream {
+        RmiMarshalInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            Object annotation = readObject();
+            return RMIClassLoader.loadClass((String) annotation, desc.getName());
+        }
+    }
+}
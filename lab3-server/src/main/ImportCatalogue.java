@@ -0,0 +1,79 @@
+package main;
+
+import classes.MusicServer;
+import classes.Song;
+import common.bench.BenchmarkOptions;
+import common.catalogue.CatalogueImporter;
+import common.catalogue.CatalogueStore;
+import common.log.Log;
+import common.log.Logger;
+import interfaces.InterfaceSong;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.rmi.registry.LocateRegistry;
+import java.util.ArrayList;
+
+/*
+ * Importa un volcado CSV/JSON de canciones.
+ *   --input=songs.csv --data-dir=data   sin servidor: añade las canciones al catálogo persistente
+ *                                       del directorio (el servidor tiene que estar parado) y guarda
+ *                                       un snapshot al terminar, sin pasar por el log de cambios
+ *   --input=songs.csv --server=localhost:1099
+ *                                       con el servidor en marcha: envía lotes con addSongs (si es un
+ *                                       coordinador, cada lote se reparte entre los shards)
+ * --format=csv|json (por defecto según la extensión), --batch=10000 y --threads=<núcleos>.
+ * Formatos en common.catalogue.CatalogueImporter. Para decenas de millones de canciones en
+ * --data-dir el catálogo entero tiene que caber en el montón (unos 100 bytes por canción).
+ */
+public class ImportCatalogue {
+
+    private static final Logger LOG = Log.getLogger("Import");
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+        String input = options.get("input", null);
+        if (input == null || options.has("data-dir") == options.has("server")) {
+            System.err.println("Uso: java main.ImportCatalogue --input=fichero (--data-dir=dir | --server=host:puerto)"
+                + " [--format=csv|json] [--batch=10000] [--threads=N]");
+            System.exit(2);
+        }
+        Path path = Paths.get(input);
+        CatalogueImporter.Format format = options.has("format")
+            ? CatalogueImporter.Format.valueOf(options.get("format", "csv").toUpperCase())
+            : CatalogueImporter.Format.of(path);
+        int batch = options.getInt("batch", 10_000);
+        CatalogueImporter<Song> importer = MusicServer.importer(batch,
+            options.getInt("threads", Runtime.getRuntime().availableProcessors()));
+
+        CatalogueImporter.Result result;
+        long added;
+        if (options.has("data-dir")) {
+            Path directory = Paths.get(options.get("data-dir", "data"));
+            try (CatalogueStore<Song> store = MusicServer.openStore(directory, ArrayList::new,
+                    CatalogueStore.Sync.NONE, Long.MAX_VALUE)) {
+                int before = store.catalogue().size();
+                result = store.bulkLoad(catalogue -> importer.importFile(path, format, catalogue::addAll));
+                added = store.catalogue().size() - before;
+                LOG.info("Catálogo en {}: {} canciones (versión {})", directory, store.catalogue().size(),
+                    store.catalogue().version());
+            }
+        } else {
+            String server = options.get("server", "localhost:1099");
+            int colon = server.lastIndexOf(':');
+            InterfaceSong stub = (InterfaceSong) LocateRegistry.getRegistry(server.substring(0, colon),
+                Integer.parseInt(server.substring(colon + 1))).lookup(options.get("binding", "MusicLibrary"));
+            long[] count = new long[1];
+            // Copia: la sublista del importador no se puede serializar
+            result = importer.importFile(path, format, songs -> count[0] += stub.addSongs(new ArrayList<>(songs)));
+            added = count[0];
+        }
+
+        LOG.info("{}: {} canciones leídas, {} nuevas, {} líneas descartadas en {} ms ({} canciones/s, {} MB/s)",
+            path, result.songs, added, result.skipped, result.elapsedNanos / 1_000_000,
+            String.format("%.0f", result.songsPerSecond()),
+            String.format("%.1f", result.bytes / 1e6 / (result.elapsedNanos / 1e9)));
+        for (String error : result.errors) {
+            LOG.warn("Línea descartada, {}", error);
+        }
+    }
+}
@@ -1,22 +1,226 @@
 package main;
 
 import classes.MusicServer;
+import classes.ReplicaSync;
+import interfaces.InterfaceSong;
+import classes.ShardCoordinator;
+import classes.Song;
+import common.bench.BenchmarkOptions;
+import common.bench.SyntheticCatalogue;
+import common.catalogue.CatalogueStore;
+import common.catalogue.MappedCatalogue;
+import common.catalogue.SearchEngine;
+import common.gateway.AdmissionControl;
+import common.gateway.SoapFrontend;
+import common.gateway.SocketFrontend;
+import common.log.Log;
+import common.log.Logger;
+import common.metrics.MetricsHttpServer;
+import common.shard.Sharding;
+import common.trace.Tracer;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.rmi.Remote;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.util.ArrayList;
+import java.util.List;
 
+/*
+ * Modos de arranque:
+ *   (sin opciones)                     catálogo completo en el registro 1099
+ *   --shard=1/4 [--port=1101]          solo las canciones del shard 1 de 4 (por defecto en 1100 + índice)
+ *   --coordinator --shards=localhost:1100,localhost:1101,...
+ *                                      reparte cada búsqueda entre los shards y junta los resultados
+ *   --replica=1 [--primary=localhost:1099] [--sync-ms=200]
+ *                                      copia el catálogo del primario, se registra como "MusicLibrary-1"
+ *                                      en el mismo registro (con --port crea un registro propio) y
+ *                                      cada sync-ms aplica los cambios que haya publicado el primario.
+ *                                      No acepta escrituras: los clientes las mandan al primario
+ *   --gateway [--socket-port=1804] [--soap-port=8080]
+ *                                      catálogo completo por RMI y además el protocolo de socket de
+ *                                      lab-2 y el SOAP/HTTP de lab-8, los tres sobre el mismo catálogo
+ *                                      e índices (un solo arranque y una sola copia en memoria).
+ *                                      Socket y SOAP con control de admisión: --max-concurrent,
+ *                                      --max-queued, --queue-ms, --client-rate, --max-connections,
+ *                                      --idle-ms
+ * Catálogo: --catalogue=default|synthetic (--songs=1e7 --seed=42) y --shard-key=title|author.
+ * Coordinador: --shard-timeout=2000 (ms por búsqueda) y --min-shards=1 (por debajo, error).
+ * Persistencia (servidor normal y shards): --data-dir=data guarda snapshot + log de cambios y al
+ * reiniciar recupera el catálogo de ahí (--catalogue solo cuenta la primera vez; los shards usan
+ * data/shard-<i>). --wal-sync=always|none y --checkpoint-mb=64 (tamaño del log que provoca un snapshot).
+ * Con decenas de millones de canciones conviene arrancar con -Xms igual a -Xmx: la carga del
+ * snapshot tarda segundos y sin montón reservado la mayor parte se va en hacerlo crecer.
+ * Solo lectura: --catalogue-file=data/catalogue.snap busca directamente sobre el fichero mapeado
+ * (arranque inmediato; varios procesos comparten la caché de páginas). --verify comprueba el CRC.
+ * Ejemplo con 4 shards de 2,5 millones de canciones en la misma máquina:
+ *   for i in 0 1 2 3; do java main.MusicLibraryServer --shard=$i/4 --catalogue=synthetic --songs=1e7 & done
+ *   java main.MusicLibraryServer --coordinator --shards=localhost:1100,localhost:1101,localhost:1102,localhost:1103
+ */
 public class MusicLibraryServer {
-    
+
+    private static final Logger LOG = Log.getLogger("Music Server");
+
     public static void main(String[] args) {
         try {
-            MusicServer server = new MusicServer();
-            
-            Registry registry = LocateRegistry.createRegistry(1099);
-            registry.rebind("MusicLibrary", server);
-            
-            System.out.println("[Music Server]: Server ready");
+            BenchmarkOptions options = BenchmarkOptions.parse(args);
+            Remote server;
+            Registry registry = null;
+            String bindingName = "MusicLibrary";
+            int port;
+            String app;
+            String service;
+            int metricsPort;
+
+            if (options.getBoolean("coordinator", false)) {
+                List<String> shards = options.getList("shards", List.of());
+                if (shards.isEmpty()) {
+                    throw new IllegalArgumentException("--coordinator necesita --shards=host:puerto,...");
+                }
+                long shardTimeout = options.getLong("shard-timeout", 2000);
+                // Las llamadas RMI no se pueden interrumpir; sin este límite un shard colgado retiene hilos
+                if (System.getProperty("sun.rmi.transport.tcp.responseTimeout") == null) {
+                    System.setProperty("sun.rmi.transport.tcp.responseTimeout", String.valueOf(shardTimeout * 4));
+                }
+                server = new ShardCoordinator(shards, "MusicLibrary", shardTimeout, options.getInt("min-shards", 1),
+                    options.get("shard-key", "title"));
+                port = options.getInt("port", 1099);
+                app = service = "lab3-coordinator";
+                metricsPort = 9403;
+                LOG.info("Coordinador de {} shards (timeout {} ms)", shards.size(), shardTimeout);
+            } else if (options.has("replica")) {
+                int replica = options.getInt("replica", 1);
+                String primary = options.get("primary", "localhost:1099");
+                int colon = primary.lastIndexOf(':');
+                Registry primaryRegistry = LocateRegistry.getRegistry(primary.substring(0, colon),
+                    Integer.parseInt(primary.substring(colon + 1)));
+                ReplicaSync sync = ReplicaSync.start((InterfaceSong) primaryRegistry.lookup("MusicLibrary"),
+                    options.getInt("sync-page", 10_000), options.getLong("sync-ms", 200));
+                server = new MusicServer(sync.catalogue(), true);
+                bindingName = "MusicLibrary-" + replica;
+                port = options.getInt("port", -1);
+                if (port < 0) {
+                    registry = primaryRegistry;
+                    port = Integer.parseInt(primary.substring(colon + 1));
+                }
+                app = service = "lab3-replica-" + replica;
+                metricsPort = 9430 + replica;
+                LOG.info("Réplica {}: {} canciones copiadas de {} (versión {})", replica, sync.catalogue().size(),
+                    primary, sync.version());
+            } else if (options.has("shard")) {
+                int[] shard = Sharding.parseShard(options.get("shard", ""));
+                server = createServer(options, shard[0], shard[1]);
+                port = options.getInt("port", 1100 + shard[0]);
+                app = service = "lab3-shard-" + shard[0];
+                metricsPort = 9420 + shard[0];
+                LOG.info("Shard {}/{} por {}", shard[0], shard[1], options.get("shard-key", "title"));
+            } else if (options.getBoolean("gateway", false)) {
+                MusicServer musicServer = createServer(options, 0, 1);
+                startGateway(musicServer.engine(), options.getInt("socket-port", 1804), options.getInt("soap-port", 8080),
+                    AdmissionControl.fromOptions("gateway", options));
+                server = musicServer;
+                port = options.getInt("port", 1099);
+                app = "lab3-gateway";
+                service = "lab3-gateway";
+                metricsPort = 9403;
+            } else {
+                server = createServer(options, 0, 1);
+                port = options.getInt("port", 1099);
+                app = "lab3";
+                service = "lab3-server";
+                metricsPort = 9403;
+            }
+
+            if (registry == null) {
+                registry = LocateRegistry.createRegistry(port);
+            }
+            registry.rebind(bindingName, server);
+            if (!bindingName.equals("MusicLibrary")) {
+                // Que los clientes dejen de descubrir la réplica al pararla
+                final Registry finalRegistry = registry;
+                final String finalName = bindingName;
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        finalRegistry.unbind(finalName);
+                    } catch (Exception e) {
+                        LOG.warn("No se pudo retirar {} del registro: {}", finalName, e.getMessage());
+                    }
+                }));
+            }
+
+            LOG.info("Server ready as {} on registry port {}", bindingName, port);
+
+            // Métricas en JMX y en http://127.0.0.1:9403/metrics (shards: 9420 + índice, réplicas: 9430 + índice;
+            // --metrics-port=-1 lo desactiva)
+            MetricsHttpServer.expose(app, options.getInt("metrics-port", metricsPort));
+            // El coordinador no tiene catálogo propio: cada shard publica el suyo
+            if (server instanceof MusicServer) {
+                ((MusicServer) server).engine().exposeGauges();
+            }
+            // Normalmente la traza la decide el cliente al llamar a search(traceparent, ...)
+            Tracer.configure(service, options.getDouble("trace-sample", Tracer.getSampleRate()),
+                options.get("trace-file", null));
         } catch (Exception e) {
-            System.err.println("[Music Server]: Server exception: " + e.toString());
-            e.printStackTrace();
+            LOG.error("Server exception: {}", e.toString(), e);
+        }
+    }
+
+    private static MusicServer createServer(BenchmarkOptions options, int shard, int shards) throws Exception {
+        String file = options.get("catalogue-file", null);
+        if (file != null) {
+            MappedCatalogue<Song> mapped = MusicServer.openMapped(Paths.get(file), options.getBoolean("verify", false));
+            LOG.info("Catálogo de solo lectura {}: {} canciones (versión {})", file, mapped.size(), mapped.version());
+            return new MusicServer(mapped);
+        }
+        String dataDir = options.get("data-dir", null);
+        if (dataDir == null) {
+            return new MusicServer(loadCatalogue(options, shard, shards));
+        }
+        Path directory = shards > 1 ? Paths.get(dataDir, "shard-" + shard) : Paths.get(dataDir);
+        CatalogueStore<Song> store = MusicServer.openStore(directory, () -> loadCatalogue(options, shard, shards),
+            CatalogueStore.Sync.valueOf(options.get("wal-sync", "always").toUpperCase()),
+            options.getLong("checkpoint-mb", 64) << 20);
+        // Último snapshot al parar: el siguiente arranque no tiene que aplicar el log
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                store.close();
+            } catch (IOException e) {
+                LOG.error("No se pudo cerrar el catálogo en {}: {}", directory, e.getMessage());
+            }
+        }));
+        return new MusicServer(store.catalogue());
+    }
+
+    /*
+     * Socket y SOAP con el motor del servidor RMI; los clientes de lab-2 y lab-8 no notan la
+     * diferencia. Los dos comparten admission: el límite de peticiones a la vez es del proceso.
+     */
+    private static void startGateway(SearchEngine<Song> engine, int socketPort, int soapPort, AdmissionControl admission)
+            throws IOException {
+        ServerSocket socketServer = new ServerSocket(socketPort, 100);
+        ServerSocket soapServer = new ServerSocket(soapPort);
+        new Thread(() -> new SocketFrontend<>(engine, admission).serve(socketServer), "gateway-socket").start();
+        new Thread(() -> new SoapFrontend<>(engine, admission).serve(soapServer), "gateway-soap").start();
+        LOG.info("Pasarela: socket en {} y SOAP en {} sobre {} canciones", socketPort, soapPort, engine.size());
+    }
+
+    private static List<Song> loadCatalogue(BenchmarkOptions options, int shard, int shards) {
+        SyntheticCatalogue.Field key = SyntheticCatalogue.Field.valueOf(options.get("shard-key", "title").toUpperCase());
+        if (options.get("catalogue", "default").equals("synthetic")) {
+            List<Song> songs = SyntheticCatalogue.generateShard(options.getSize("songs", 1_000_000),
+                options.getLong("seed", 42), key, shard, shards, Song::new);
+            LOG.info("Catálogo sintético: {} canciones en este nodo", songs.size());
+            return songs;
+        }
+        List<Song> songs = new ArrayList<>();
+        for (Song song : MusicServer.defaultCatalogue()) {
+            String value = key == SyntheticCatalogue.Field.AUTHOR ? song.getAuthor() : song.getTitle();
+            if (shards == 1 || Sharding.shardOf(value, shards) == shard) {
+                songs.add(song);
+            }
         }
+        return songs;
     }
-}
\ No newline at end of file
+}